@@ -142,6 +142,18 @@ CREATE TABLE `qrCodes` (
     CONSTRAINT `qrCodes_FK` FOREIGN KEY (`appointment_id`) REFERENCES `appointments` (`id`) ON DELETE CASCADE ON UPDATE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
 
+-- token_ledger (append-only history of every change to customers.tokens)
+CREATE TABLE `token_ledger` (
+    `id` int(11) NOT NULL AUTO_INCREMENT,
+    `customer_id` int(11) NOT NULL,
+    `delta` int(11) NOT NULL,
+    `reason` varchar(100) NOT NULL,
+    `createdAt` datetime NOT NULL,
+    PRIMARY KEY (`id`),
+    KEY `token_ledger_FK` (`customer_id`),
+    CONSTRAINT `token_ledger_FK` FOREIGN KEY (`customer_id`) REFERENCES `customers` (`id`) ON DELETE CASCADE ON UPDATE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
 -- INSERT DATA
 -- TODO: insert SQL statements to fill tables with exemplary DATA
 
@@ -306,3 +318,8 @@ INSERT INTO reservation_system.qrCodes (codeData, generationTime, appointment_id
 ('https://example.com/appointment/8', '2025-01-08 15:30:00', 8),
 ('https://example.com/appointment/9', '2025-01-09 10:45:00', 9),
 ('https://example.com/appointment/10', '2025-01-10 14:10:00', 10);
+
+
+-- opening balances, matching the tokens column of the customers above
+INSERT INTO reservation_system.token_ledger (customer_id, delta, reason, createdAt)
+SELECT id, tokens, 'opening_balance', '2025-01-01 00:00' FROM reservation_system.customers WHERE tokens <> 0;
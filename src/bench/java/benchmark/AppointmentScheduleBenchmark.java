@@ -0,0 +1,128 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rest_server.AppointmentSchedule;
+import utils.DateCodec;
+
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the slot loop of <b>/appointments/available</b> and the overlap check
+ * of <b>/appointment/modify</b> on the rows of
+ * {@link rest_server.Queries#SCHEDULED_SERVICES}. The <code>legacy</code>
+ * variants are the <code>Date</code>/<code>SimpleDateFormat</code>
+ * implementations the routes used before {@link AppointmentSchedule}, kept here
+ * as the reference for comparisons.
+ * <pre>
+ * mvn -Pbench compile exec:exec -Dbench.main=org.openjdk.jmh.Main -Dbench.args="AppointmentScheduleBenchmark"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppointmentScheduleBenchmark {
+
+    private static final String DAY = "2025-01-15";
+
+    // number of booked appointments of the service in the workshop
+    @Param({"0", "8", "64"})
+    public int appointments;
+
+    @Param({"30"})
+    public int serviceDuration;
+
+    private List<Map<String, Object>> scheduledServices;
+    private SimpleDateFormat format;
+    private Date requestedTime;
+
+    @Setup
+    public void setUp() throws ParseException {
+        scheduledServices = new ArrayList<>();
+        long firstDay = DateCodec.parseEpochMinutes(DAY + " 09:00");
+        for (int i = 0; i < appointments; i++) {
+            // spread over the days around the requested one, as the query is not limited to one day
+            long start = firstDay + (i % 7 - 3) * (long) DateCodec.MINUTES_PER_DAY + (i * 45L) % 480;
+            Map<String, Object> row = new HashMap<>();
+            row.put("scheduledTime", Timestamp.valueOf(DateCodec.toLocalDateTime(start)));
+            row.put("duration", 30 + i % 4 * 15);
+            scheduledServices.add(row);
+        }
+        format = new SimpleDateFormat(DateCodec.YEAR_MONTH_DAY_TIME_PATTERN);
+        requestedTime = format.parse(DAY + " 16:30");
+    }
+
+    @Benchmark
+    public List<String> availableSlotsLegacy() throws ParseException {
+        Date startOfDay = format.parse(DAY + " 09:00");
+        Date endOfDay = format.parse(DAY + " 17:00");
+        List<String> availableSlots = new ArrayList<>();
+        Date currentSlot = startOfDay;
+        while (currentSlot.before(endOfDay)) {
+            boolean conflict = false;
+            for (Map<String, Object> existing : scheduledServices) {
+                Date existingScheduledTime = format.parse(existing.get("scheduledTime").toString());
+                Integer existingDuration = (Integer) existing.get("duration");
+                Date existingEndTime = new Date(existingScheduledTime.getTime() + existingDuration * 60000);
+                Date currentEndSlot = new Date(currentSlot.getTime() + serviceDuration * 60000);
+                if (!(currentEndSlot.before(existingScheduledTime) || currentSlot.after(existingEndTime))) {
+                    conflict = true;
+                    break;
+                }
+            }
+            if (!conflict) {
+                availableSlots.add(format.format(currentSlot));
+            }
+            currentSlot = new Date(currentSlot.getTime() + serviceDuration * 60000);
+        }
+        return availableSlots;
+    }
+
+    @Benchmark
+    public List<String> availableSlots() {
+        return AppointmentSchedule.of(scheduledServices)
+                .availableSlots(DateCodec.parseEpochMinutes(DAY + " 16:30"), serviceDuration);
+    }
+
+    @Benchmark
+    public boolean conflictsLegacy() {
+        for (Map<String, Object> existing : scheduledServices) {
+            Object scheduledTimeObj = existing.get("scheduledTime");
+            Date existingScheduledTime = new Date(((Timestamp) scheduledTimeObj).getTime());
+            Integer existingDuration = (Integer) existing.get("duration");
+            Date existingEndTime = new Date(existingScheduledTime.getTime() + existingDuration * 60000);
+            Date currentEndTime = new Date(requestedTime.getTime() + serviceDuration * 60000);
+            if (!(requestedTime.after(existingEndTime) || currentEndTime.before(existingScheduledTime))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean conflicts() {
+        return AppointmentSchedule.of(scheduledServices)
+                .conflicts(DateCodec.toEpochMinutes(requestedTime), serviceDuration);
+    }
+
+}
@@ -0,0 +1,695 @@
+package benchmark;
+
+import model.DataStore;
+import model.DatabaseConnector;
+import rest_server.AppointmentSchedule;
+import rest_server.TokenLedger;
+import utils.DateCodec;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+/**
+ * Generates the data of the reservation system at production scale, e.g. a
+ * million customers with five million appointments, instead of the ten rows per
+ * table of <i>setupDatabaseAndTablesResSystem.sql</i>. <br>
+ * <br>
+ * The data is skewed like real traffic: workshop popularity follows a Zipf
+ * distribution (a few hot workshops get most appointments), most customers book
+ * at one home workshop, a few customers have long histories, services are offered
+ * by few or many workshops, and appointments cluster in the morning and late
+ * afternoon on weekdays, with Mondays busiest. About 3% of the appointments lie in
+ * the two weeks after <i>until</i>; the others are completed. Every appointment
+ * credits one token in the token ledger, and the balance of each customer matches
+ * its ledger. <br>
+ * <br>
+ * The output depends only on the arguments: every table draws from its own
+ * random stream derived from the seed, so the same seed always produces the same
+ * rows. All customers have the e-mail <code>customer&lt;id&gt;@example.com</code>
+ * and the password {@link #PASSWORD}, so load tests can log in as any of them. <br>
+ * <br>
+ * Arguments are <code>name=value</code> pairs, all optional:
+ * <ul>
+ * <li><i>format</i>: <code>sql</code> writes <i>dataset.sql</i> with batched multi-row
+ * INSERTs; <code>tsv</code> writes one file per table and <i>load.sql</i>, which
+ * loads them with <code>LOAD DATA LOCAL INFILE</code> (default sql)</li>
+ * <li><i>out</i>: the directory to write to (default <i>dataset</i>)</li>
+ * <li><i>seed</i> (default 42), <i>batch</i>: the rows per INSERT (default 1000)</li>
+ * <li><i>workshops</i>, <i>services</i>, <i>technicians</i>, <i>customers</i>,
+ * <i>appointments</i>: the number of rows (default 2000, 500, 10000, 1000000,
+ * 5000000)</li>
+ * <li><i>until</i>: the day the history ends (default 2025-06-30), <i>years</i>: the
+ * years of history before it (default 3)</li>
+ * </ul>
+ * The scripts empty the tables first, so run them on a database created by
+ * <i>setupDatabaseAndTablesResSystem.sql</i>, e.g.
+ * <pre>
+ * mvn -Pbench compile exec:exec -Dbench.main=benchmark.DatasetGenerator -Dbench.args="format=tsv out=dataset"
+ * cd dataset &amp;&amp; mariadb --local-infile=1 reservation_system &lt; load.sql
+ * </pre>
+ * {@link #populate(DataStore)} inserts the same rows into a store, e.g. an
+ * {@link model.InMemoryDataStore} for the {@link LoadTest}.
+ */
+public class DatasetGenerator {
+
+    public static final String PASSWORD = "password1";
+
+    private static final String[] FIRST_NAMES = {"Maximilian", "Karla", "Isabel", "Ted", "Josephine", "Hans",
+            "Syble", "Crissy", "Edward", "Jinny", "Anna", "Lukas", "Mia", "Noah", "Emma", "Elias", "Sofia", "Paul",
+            "Hannah", "Leon", "Lea", "Finn", "Marie", "Jonas", "Lina", "Ben", "Ella", "Felix", "Clara", "David"};
+    private static final String[] LAST_NAMES = {"Maier", "Arrowsmith", "Raap", "Runkel", "Lukowski", "Massaro",
+            "Hocking", "Deaton", "Vanmeter", "Toews", "Müller", "Schmidt", "Schneider", "Fischer", "Weber", "Becker",
+            "Wagner", "Hoffmann", "Schulz", "Koch", "Richter", "Klein", "Wolf", "Neumann", "Schwarz", "Braun"};
+    private static final String[][] SECURITY_QUESTIONS = {
+            {"What is your pet's name?", "Fluffy"},
+            {"What is your mother's maiden name?", "Smith"},
+            {"What was the name of your first school?", "Greenwood"},
+            {"What city were you born in?", "New York"},
+            {"What is your favorite food?", "Pizza"},
+            {"What is your favorite color?", "Blue"},
+            {"What was your childhood nickname?", "Toto"},
+            {"What is your favorite movie?", "Inception"},
+            {"What is the name of your best friend?", "Omar"},
+            {"What was your dream job as a child?", "Astronaut"}};
+    private static final String[] CITIES = {"Berlin", "Hamburg", "Munich", "Cologne", "Frankfurt", "Stuttgart",
+            "Düsseldorf", "Leipzig", "Dortmund", "Essen", "Bremen", "Dresden", "Hanover", "Nuremberg"};
+    private static final String[] STREETS = {"Elm", "Oak", "Pine", "Maple", "Birch", "Cedar", "Spruce", "Fir",
+            "Redwood", "Aspen"};
+    private static final String[] WORKSHOP_NAMES = {"Vehicle Solutions", "QuickFix Auto", "DrivePro Garage",
+            "CarCare Center", "AutoMasters", "Prime Auto Shop", "All-In-One Garage", "FastTrack Repairs",
+            "Elite Mechanics", "Speedy Fixers"};
+    private static final String[] CERTIFICATIONS = {"ASE Certified", "Master Mechanic", "Engine Specialist",
+            "Brake Specialist", "Electrical Systems Expert", "Transmission Specialist", "General Mechanic",
+            "HVAC Systems Certified", "Suspension Expert", "Hybrid Vehicle Technician"};
+    // name, duration in minutes, price
+    private static final Object[][] SERVICE_TYPES = {
+            {"Oil Change", 45, 49.99}, {"Tire Rotation", 60, 39.99}, {"Brake Inspection", 30, 29.99},
+            {"Battery Replacement", 45, 89.99}, {"AC System Recharge", 60, 79.99},
+            {"Transmission Flush", 90, 119.99}, {"Windshield Replacement", 120, 199.99},
+            {"Wheel Alignment", 75, 69.99}, {"Timing Belt Replacement", 180, 249.99},
+            {"Full Service Check-up", 150, 149.99}};
+    private static final String[] SERVICE_VARIANTS = {"", "Compact", "SUV", "Diesel", "Electric", "Premium",
+            "Express", "Van", "Hybrid", "Classic"};
+    private static final String[] REVIEW_COMMENTS = {"Great service, friendly staff.", "Quick and professional.",
+            "Fair price.", "Had to wait longer than expected.", "Problem fixed on the first visit.",
+            "Will come back.", "Not satisfied with the result."};
+    // appointments per hour of the day from opening to closing: busy mornings and late afternoons
+    private static final int[] HOUR_WEIGHTS = {18, 12, 9, 8, 9, 10, 14, 20};
+    private static final int[] RATING_WEIGHTS = {7, 6, 12, 30, 45};
+    private static final int[] PAYMENT_WEIGHTS = {30, 35, 15, 15, 5};
+    private static final String[] PAYMENT_METHODS = {"Cash", "Credit Card", "Debit Card", "PayPal", "ApplePay"};
+    private static final int PROMOTIONS = 20;
+    private static final int FUTURE_DAYS = 14;
+    // share of the appointments a customer books at the home workshop
+    private static final double HOME_WORKSHOP_SHARE = 0.8;
+    private static final double REVIEW_SHARE = 0.08;
+
+    private final long seed;
+    private final int workshops;
+    private final int services;
+    private final int technicians;
+    private final int customers;
+    private final int appointments;
+    private final long historyStart;
+    private final long historyEnd;
+
+    // derived once, so that every pass over the appointments sees the same data
+    private final Zipf workshopPopularity;
+    private final Zipf customerActivity;
+    private final int[][] offeredServices;
+    private final int[] firstTechnician;
+    private final int[] technicianCount;
+    private final int[] homeWorkshop;
+    private final int[] serviceDuration;
+
+    /**
+     * @param until the day the history ends
+     * @param years the years of history before that day
+     */
+    public DatasetGenerator(long seed, int workshops, int services, int technicians, int customers,
+                            int appointments, LocalDate until, int years) {
+        if (workshops < 1 || services < 1 || customers < 1 || technicians < workshops) {
+            throw new IllegalArgumentException("At least one workshop, service and customer and one technician "
+                    + "per workshop are needed");
+        }
+        this.seed = seed;
+        this.workshops = workshops;
+        this.services = services;
+        this.technicians = technicians;
+        this.customers = customers;
+        this.appointments = appointments;
+        this.historyEnd = DateCodec.parseEpochMinutes(until + " 00:00");
+        this.historyStart = DateCodec.parseEpochMinutes(until.minusYears(years) + " 00:00");
+
+        workshopPopularity = new Zipf(workshops, 1.0);
+        customerActivity = new Zipf(customers, 0.5);
+        Zipf servicePopularity = new Zipf(services, 0.8);
+
+        SplittableRandom random = random(1);
+        serviceDuration = new int[services + 1];
+        for (int s = 1; s <= services; s++) {
+            serviceDuration[s] = (int) SERVICE_TYPES[(s - 1) % SERVICE_TYPES.length][1];
+        }
+        // popular services are offered by many workshops
+        offeredServices = new int[workshops + 1][];
+        for (int w = 1; w <= workshops; w++) {
+            int count = Math.min(services, 5 + random.nextInt(36));
+            TreeSet<Integer> offered = new TreeSet<>();
+            while (offered.size() < count) {
+                offered.add(servicePopularity.next(random) + 1);
+            }
+            offeredServices[w] = offered.stream().mapToInt(Integer::intValue).toArray();
+        }
+        // every workshop has one technician, busy workshops have more
+        technicianCount = new int[workshops + 1];
+        for (int w = 1; w <= workshops; w++) {
+            technicianCount[w] = 1;
+        }
+        for (int t = workshops; t < technicians; t++) {
+            technicianCount[workshopPopularity.next(random) + 1]++;
+        }
+        firstTechnician = new int[workshops + 1];
+        int nextTechnician = 1;
+        for (int w = 1; w <= workshops; w++) {
+            firstTechnician[w] = nextTechnician;
+            nextTechnician += technicianCount[w];
+        }
+        homeWorkshop = new int[customers + 1];
+        for (int c = 1; c <= customers; c++) {
+            homeWorkshop[c] = workshopPopularity.next(random) + 1;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Arguments are name=value pairs: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        DatasetGenerator generator = new DatasetGenerator(
+                Long.parseLong(options.getOrDefault("seed", "42")),
+                Integer.parseInt(options.getOrDefault("workshops", "2000")),
+                Integer.parseInt(options.getOrDefault("services", "500")),
+                Integer.parseInt(options.getOrDefault("technicians", "10000")),
+                Integer.parseInt(options.getOrDefault("customers", "1000000")),
+                Integer.parseInt(options.getOrDefault("appointments", "5000000")),
+                LocalDate.parse(options.getOrDefault("until", "2025-06-30")),
+                Integer.parseInt(options.getOrDefault("years", "3")));
+        Path out = Path.of(options.getOrDefault("out", "dataset"));
+        Files.createDirectories(out);
+        String format = options.getOrDefault("format", "sql");
+        int batch = Integer.parseInt(options.getOrDefault("batch", "1000"));
+
+        long start = System.nanoTime();
+        try (Sink sink = format.equals("tsv") ? new TsvSink(out) : new SqlSink(out.resolve("dataset.sql"), batch)) {
+            generator.generate(sink);
+        }
+        System.out.printf("Wrote the dataset to %s in %.1f s%n", out.toAbsolutePath(),
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * @return the e-mail address of the generated customer
+     */
+    public static String email(int customerId) {
+        return "customer" + customerId + "@example.com";
+    }
+
+    /**
+     * Inserts the dataset into the store, whose tables must be empty.
+     *
+     * @throws IllegalStateException if the store rejects a row
+     */
+    public void populate(DataStore store) {
+        try (Sink sink = new DataStoreSink(store)) {
+            generate(sink);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes all tables in the order of their foreign keys.
+     */
+    public void generate(Sink sink) throws IOException {
+        writePromotions(sink);
+        writeWorkshops(sink);
+        writeServices(sink);
+        writeTechnicians(sink);
+        writeCustomers(sink);
+        writeAppointments(sink);
+    }
+
+    private SplittableRandom random(int table) {
+        return new SplittableRandom(seed * 31 + table);
+    }
+
+    private void writePromotions(Sink sink) throws IOException {
+        SplittableRandom random = random(2);
+        long historyDays = (historyEnd - historyStart) / DateCodec.MINUTES_PER_DAY;
+        sink.begin(DatabaseConnector.PROMOTIONS, "id", "description", "discountPercentage", "validFrom", "validTo");
+        for (int p = 1; p <= PROMOTIONS; p++) {
+            LocalDate from = DateCodec.toLocalDateTime(historyStart).toLocalDate()
+                    .plusDays(random.nextLong(historyDays + FUTURE_DAYS));
+            sink.row(p, "Promotion " + p, (5 + random.nextInt(10) * 5) + ".00", from.toString(),
+                    from.plusDays(7 + random.nextInt(50)).toString());
+        }
+        sink.end();
+    }
+
+    private void writeWorkshops(Sink sink) throws IOException {
+        SplittableRandom random = random(3);
+        sink.begin(DatabaseConnector.WORKSHOPS, "id", "name", "location", "contactInfo");
+        for (int w = 1; w <= workshops; w++) {
+            sink.row(w, WORKSHOP_NAMES[random.nextInt(WORKSHOP_NAMES.length)] + " " + w,
+                    (1 + random.nextInt(999)) + " " + STREETS[random.nextInt(STREETS.length)] + " Street, "
+                            + CITIES[random.nextInt(CITIES.length)],
+                    "workshop" + w + "@example.com");
+        }
+        sink.end();
+    }
+
+    private void writeServices(Sink sink) throws IOException {
+        SplittableRandom random = random(4);
+        sink.begin(DatabaseConnector.SERVICES, "id", "name", "duration", "price", "description", "promotion_id");
+        for (int s = 1; s <= services; s++) {
+            Object[] type = SERVICE_TYPES[(s - 1) % SERVICE_TYPES.length];
+            String variant = SERVICE_VARIANTS[(s - 1) / SERVICE_TYPES.length % SERVICE_VARIANTS.length];
+            String name = variant.isEmpty() ? (String) type[0] : type[0] + " (" + variant + ")";
+            if (s > SERVICE_TYPES.length * SERVICE_VARIANTS.length) {
+                name += " " + s;
+            }
+            long cents = Math.round((double) type[2] * (80 + random.nextInt(81)));
+            sink.row(s, name, serviceDuration[s], cents / 100 + "." + String.format("%02d", cents % 100),
+                    type[0] + " for " + (variant.isEmpty() ? "all cars" : variant + " cars") + ".",
+                    random.nextInt(10) < 3 ? 1 + random.nextInt(PROMOTIONS) : null);
+        }
+        sink.end();
+
+        sink.begin(DatabaseConnector.WORKSHOP_SERVICES, "workshop_id", "service_id");
+        for (int w = 1; w <= workshops; w++) {
+            for (int s : offeredServices[w]) {
+                sink.row(w, s);
+            }
+        }
+        sink.end();
+    }
+
+    private void writeTechnicians(Sink sink) throws IOException {
+        SplittableRandom random = random(5);
+        sink.begin(DatabaseConnector.TECHNICIANS, "id", "name", "certifications", "experience", "workshop_id");
+        for (int w = 1; w <= workshops; w++) {
+            for (int t = firstTechnician[w]; t < firstTechnician[w] + technicianCount[w]; t++) {
+                sink.row(t, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                                + LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                        CERTIFICATIONS[random.nextInt(CERTIFICATIONS.length)], 1 + random.nextInt(25), w);
+            }
+        }
+        sink.end();
+    }
+
+    private void writeCustomers(Sink sink) throws IOException {
+        // every appointment credited one token
+        int[] tokens = new int[customers + 1];
+        SplittableRandom appointmentRandom = random(7);
+        Appointment appointment = new Appointment();
+        for (int a = 1; a <= appointments; a++) {
+            next(appointmentRandom, a, appointment);
+            tokens[appointment.customer]++;
+        }
+
+        SplittableRandom random = random(6);
+        sink.begin(DatabaseConnector.CUSTOMERS, "id", "firstName", "lastName", "email", "vehicle_registration_number",
+                "phone_number", "password", "security_question_id", "security_question", "security_answer", "tokens");
+        for (int c = 1; c <= customers; c++) {
+            int question = random.nextInt(SECURITY_QUESTIONS.length);
+            sink.row(c, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)], LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                    email(c), registrationNumber(random), String.valueOf(1_000_000_000L + random.nextLong(9_000_000_000L)),
+                    PASSWORD, question + 1, SECURITY_QUESTIONS[question][0], SECURITY_QUESTIONS[question][1],
+                    tokens[c]);
+        }
+        sink.end();
+    }
+
+    private static String registrationNumber(SplittableRandom random) {
+        return String.valueOf((char) ('A' + random.nextInt(26))) + (char) ('A' + random.nextInt(26)) + " "
+                + (char) ('A' + random.nextInt(26)) + " " + (1 + random.nextInt(9999));
+    }
+
+    /**
+     * Writes the appointments and the reviews and ledger entries that belong to
+     * them; each table is a new pass over the same random stream.
+     */
+    private void writeAppointments(Sink sink) throws IOException {
+        Appointment appointment = new Appointment();
+
+        SplittableRandom random = random(7);
+        sink.begin(DatabaseConnector.APPOINTMENTS, "id", "customer_id", "workshop_id", "service_id", "technician_id",
+                "scheduledTime", "createdAt", "modifiedAt", "appointmentStatus", "paymentMethod", "paymentStatus");
+        for (int a = 1; a <= appointments; a++) {
+            next(random, a, appointment);
+            String completed = String.valueOf(appointment.scheduledTime < historyEnd);
+            sink.row(a, appointment.customer, appointment.workshop, appointment.service, appointment.technician,
+                    DateCodec.formatEpochMinutes(appointment.scheduledTime),
+                    DateCodec.formatEpochMinutes(appointment.createdAt),
+                    DateCodec.formatEpochMinutes(appointment.modifiedAt), completed,
+                    PAYMENT_METHODS[appointment.paymentMethod], completed);
+        }
+        sink.end();
+
+        random = random(7);
+        int review = 0;
+        sink.begin(DatabaseConnector.REVIEWS, "id", "rating", "created_at", "comment", "customer_id", "service_id",
+                "workshop_id");
+        for (int a = 1; a <= appointments; a++) {
+            next(random, a, appointment);
+            if (appointment.rating > 0) {
+                sink.row(++review, appointment.rating, DateCodec.formatEpochMinutes(appointment.reviewedAt),
+                        appointment.comment >= 0 ? REVIEW_COMMENTS[appointment.comment] : null,
+                        appointment.customer, appointment.service, appointment.workshop);
+            }
+        }
+        sink.end();
+
+        random = random(7);
+        sink.begin(DatabaseConnector.TOKEN_LEDGER, "id", "customer_id", "delta", "reason", "createdAt");
+        for (int a = 1; a <= appointments; a++) {
+            next(random, a, appointment);
+            sink.row(a, appointment.customer, 1, TokenLedger.REASON_APPOINTMENT,
+                    DateCodec.formatEpochMinutes(appointment.createdAt));
+        }
+        sink.end();
+    }
+
+    /**
+     * The appointment being generated; reused for every row.
+     */
+    private static final class Appointment {
+        int customer;
+        int workshop;
+        int service;
+        int technician;
+        long scheduledTime;
+        long createdAt;
+        long modifiedAt;
+        int paymentMethod;
+        // 0 if the appointment was not reviewed
+        int rating;
+        int comment;
+        long reviewedAt;
+    }
+
+    /**
+     * Draws the next appointment. Every field is drawn, even if it is not used,
+     * so that all passes over the stream stay in step.
+     */
+    private void next(SplittableRandom random, int id, Appointment appointment) {
+        int customer = customerActivity.next(random) + 1;
+        int workshop = random.nextDouble() < HOME_WORKSHOP_SHARE ? homeWorkshop[customer]
+                : workshopPopularity.next(random) + 1;
+        int[] offered = offeredServices[workshop];
+        // the services are ordered by id, and services with lower ids are more popular
+        double u = random.nextDouble();
+        int service = offered[(int) (offered.length * u * u)];
+
+        long historyDays = (historyEnd - historyStart) / DateCodec.MINUTES_PER_DAY;
+        long day = random.nextDouble() < 0.03 ? historyDays + random.nextLong(FUTURE_DAYS)
+                : random.nextLong(historyDays);
+        long startOfDay = historyStart + day * DateCodec.MINUTES_PER_DAY;
+        // closed on Sundays, so Mondays get their customers too
+        if (DateCodec.toLocalDateTime(startOfDay).getDayOfWeek() == DayOfWeek.SUNDAY) {
+            startOfDay += DateCodec.MINUTES_PER_DAY;
+        }
+        int hour = pick(random, HOUR_WEIGHTS);
+        long scheduledTime = Math.min(startOfDay + AppointmentSchedule.OPENING_MINUTE + hour * 60
+                        + random.nextInt(4) * 15L,
+                startOfDay + AppointmentSchedule.CLOSING_MINUTE - serviceDuration[service]);
+        long leadTime = 60 + random.nextLong(21 * DateCodec.MINUTES_PER_DAY);
+        long createdAt = Math.min(scheduledTime - leadTime, historyEnd);
+        long modifiedAt = random.nextInt(10) == 0 ? createdAt + random.nextLong(Math.max(1, leadTime / 2)) : createdAt;
+
+        appointment.customer = customer;
+        appointment.workshop = workshop;
+        appointment.service = service;
+        appointment.technician = firstTechnician[workshop] + random.nextInt(technicianCount[workshop]);
+        appointment.scheduledTime = scheduledTime;
+        appointment.createdAt = createdAt;
+        appointment.modifiedAt = Math.min(modifiedAt, historyEnd);
+        appointment.paymentMethod = pick(random, PAYMENT_WEIGHTS);
+        boolean reviewed = random.nextDouble() < REVIEW_SHARE && scheduledTime < historyEnd;
+        int rating = pick(random, RATING_WEIGHTS) + 1;
+        int comment = random.nextInt(REVIEW_COMMENTS.length + 2);
+        long reviewedAt = Math.min(scheduledTime + DateCodec.MINUTES_PER_DAY * (1 + random.nextInt(7)), historyEnd);
+        appointment.rating = reviewed ? rating : 0;
+        appointment.comment = comment < REVIEW_COMMENTS.length ? comment : -1;
+        appointment.reviewedAt = reviewedAt;
+    }
+
+    private static int pick(SplittableRandom random, int[] weights) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int value = random.nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            value -= weights[i];
+            if (value < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    /**
+     * Draws ranks 0..n-1 with a probability proportional to
+     * <code>1 / (rank + 1)^exponent</code>.
+     */
+    private static final class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1 / Math.pow(i + 1, exponent);
+                cumulative[i] = sum;
+            }
+        }
+
+        int next(SplittableRandom random) {
+            double value = random.nextDouble() * cumulative[cumulative.length - 1];
+            int index = Arrays.binarySearch(cumulative, value);
+            return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // OUTPUT
+
+    /**
+     * Receives the rows table by table. Values are strings, numbers or
+     * <code>null</code>.
+     */
+    public interface Sink extends AutoCloseable {
+
+        void begin(String table, String... columns) throws IOException;
+
+        void row(Object... values) throws IOException;
+
+        void end() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * Writes multi-row INSERTs in transactions, with the checks MariaDB does not
+     * need for generated data switched off.
+     */
+    private static final class SqlSink implements Sink {
+        private final Writer writer;
+        private final int batch;
+        private final StringBuilder line = new StringBuilder(256);
+        private String insert;
+        private int rowsInBatch;
+
+        SqlSink(Path file, int batch) throws IOException {
+            this.writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 20);
+            this.batch = batch;
+            writer.write("USE reservation_system;\nSET autocommit = 0, unique_checks = 0, foreign_key_checks = 0;\n");
+        }
+
+        @Override
+        public void begin(String table, String... columns) throws IOException {
+            writer.write("TRUNCATE TABLE " + table + ";\n");
+            insert = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES\n";
+            rowsInBatch = 0;
+        }
+
+        @Override
+        public void row(Object... values) throws IOException {
+            line.setLength(0);
+            line.append(rowsInBatch == 0 ? insert : ",\n").append('(');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    line.append(", ");
+                }
+                Object value = values[i];
+                if (value == null) {
+                    line.append("NULL");
+                } else if (value instanceof Number) {
+                    line.append(value);
+                } else {
+                    line.append('\'');
+                    String text = value.toString();
+                    for (int c = 0; c < text.length(); c++) {
+                        char ch = text.charAt(c);
+                        if (ch == '\'' || ch == '\\') {
+                            line.append(ch);
+                        }
+                        line.append(ch);
+                    }
+                    line.append('\'');
+                }
+            }
+            line.append(')');
+            writer.append(line);
+            if (++rowsInBatch == batch) {
+                end();
+            }
+        }
+
+        @Override
+        public void end() throws IOException {
+            if (rowsInBatch > 0) {
+                writer.write(";\nCOMMIT;\n");
+                rowsInBatch = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.write("SET unique_checks = 1, foreign_key_checks = 1;\n");
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes one tab-separated file per table in the default format of
+     * <code>LOAD DATA INFILE</code> and the script that loads them.
+     */
+    private static final class TsvSink implements Sink {
+        private final Path directory;
+        private final Writer script;
+        private final StringBuilder line = new StringBuilder(256);
+        private Writer writer;
+
+        TsvSink(Path directory) throws IOException {
+            this.directory = directory;
+            this.script = Files.newBufferedWriter(directory.resolve("load.sql"), StandardCharsets.UTF_8);
+            script.write("USE reservation_system;\nSET unique_checks = 0, foreign_key_checks = 0;\n");
+        }
+
+        @Override
+        public void begin(String table, String... columns) throws IOException {
+            String file = table + ".tsv";
+            writer = new BufferedWriter(Files.newBufferedWriter(directory.resolve(file), StandardCharsets.UTF_8),
+                    1 << 20);
+            script.write("TRUNCATE TABLE " + table + ";\nLOAD DATA LOCAL INFILE '" + file + "' INTO TABLE " + table
+                    + " CHARACTER SET utf8 (" + String.join(", ", columns) + ");\n");
+        }
+
+        @Override
+        public void row(Object... values) throws IOException {
+            line.setLength(0);
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    line.append('\t');
+                }
+                if (values[i] == null) {
+                    line.append("\\N");
+                    continue;
+                }
+                String text = values[i].toString();
+                for (int c = 0; c < text.length(); c++) {
+                    char ch = text.charAt(c);
+                    if (ch == '\t') {
+                        line.append("\\t");
+                    } else if (ch == '\n') {
+                        line.append("\\n");
+                    } else if (ch == '\\') {
+                        line.append("\\\\");
+                    } else {
+                        line.append(ch);
+                    }
+                }
+            }
+            line.append('\n');
+            writer.append(line);
+        }
+
+        @Override
+        public void end() throws IOException {
+            writer.close();
+        }
+
+        @Override
+        public void close() throws IOException {
+            script.write("SET unique_checks = 1, foreign_key_checks = 1;\n");
+            script.close();
+        }
+    }
+
+    /**
+     * Inserts the rows one by one with {@link DataStore#executeInsertQuery}.
+     */
+    private static final class DataStoreSink implements Sink {
+        private final DataStore store;
+        private String table;
+        private String[] columns;
+
+        DataStoreSink(DataStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public void begin(String table, String... columns) {
+            this.table = table;
+            this.columns = columns;
+        }
+
+        @Override
+        public void row(Object... values) {
+            String[] strings = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                strings[i] = values[i] != null ? values[i].toString() : null;
+            }
+            if (!store.executeInsertQuery(table, columns, strings)) {
+                throw new IllegalStateException("Could not insert " + Arrays.toString(strings) + " into " + table);
+            }
+        }
+
+        @Override
+        public void end() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+}
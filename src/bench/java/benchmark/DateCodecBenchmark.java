@@ -0,0 +1,112 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.DateCodec;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing and formatting <b>yyyy-MM-dd HH:mm</b> with a
+ * <code>SimpleDateFormat</code> shared by all threads (synchronized, since it is
+ * not thread-safe), one <code>SimpleDateFormat</code> per thread, the immutable
+ * <code>DateTimeFormatter</code> and the epoch-minute fast path of
+ * {@link DateCodec}. Run it with several threads to see the contention on the
+ * shared instance; add <code>-prof gc</code> for the allocation rate:
+ * <pre>
+ * mvn -Pbench compile exec:exec -Dbench.main=org.openjdk.jmh.Main -Dbench.args="DateCodecBenchmark -t 4 -prof gc"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateCodecBenchmark {
+
+    private static final String[] INPUTS = new String[64];
+
+    static {
+        for (int i = 0; i < INPUTS.length; i++) {
+            INPUTS[i] = DateCodec.formatEpochMinutes(DateCodec.parseEpochMinutes("2025-01-01 09:00") + i * 997L);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        final SimpleDateFormat format = new SimpleDateFormat(DateCodec.YEAR_MONTH_DAY_TIME_PATTERN);
+    }
+
+    @State(Scope.Thread)
+    public static class PerThread {
+        SimpleDateFormat format;
+        Date date;
+        long epochMinutes;
+        int next;
+
+        @Setup
+        public void setUp() {
+            format = new SimpleDateFormat(DateCodec.YEAR_MONTH_DAY_TIME_PATTERN);
+            date = DateCodec.toDate(DateCodec.parseEpochMinutes(INPUTS[0]));
+            epochMinutes = DateCodec.parseEpochMinutes(INPUTS[0]);
+        }
+
+        String input() {
+            next = (next + 1) & (INPUTS.length - 1);
+            return INPUTS[next];
+        }
+    }
+
+    @Benchmark
+    public Date parseSharedSimpleDateFormat(Shared shared, PerThread state) throws ParseException {
+        String input = state.input();
+        synchronized (shared.format) {
+            return shared.format.parse(input);
+        }
+    }
+
+    @Benchmark
+    public Date parseThreadLocalSimpleDateFormat(PerThread state) throws ParseException {
+        return state.format.parse(state.input());
+    }
+
+    @Benchmark
+    public LocalDateTime parseDateTimeFormatter(PerThread state) {
+        return LocalDateTime.parse(state.input(), DateCodec.YEAR_MONTH_DAY_TIME);
+    }
+
+    @Benchmark
+    public long parseEpochMinutes(PerThread state) {
+        return DateCodec.parseEpochMinutes(state.input());
+    }
+
+    @Benchmark
+    public String formatSharedSimpleDateFormat(Shared shared, PerThread state) {
+        synchronized (shared.format) {
+            return shared.format.format(state.date);
+        }
+    }
+
+    @Benchmark
+    public String formatDateCodec(PerThread state) {
+        return DateCodec.format(state.date);
+    }
+
+    @Benchmark
+    public String formatEpochMinutes(PerThread state) {
+        return DateCodec.formatEpochMinutes(state.epochMinutes);
+    }
+
+}
@@ -0,0 +1,76 @@
+package benchmark;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+
+/**
+ * Creates <code>ResultSet</code>s over rows held in memory, so that the mapping
+ * code of {@link model.DatabaseConnector} can be measured without a database.
+ * Only the methods the mapping code calls are supported. Every call goes through
+ * a dynamic proxy, which costs the same for every mapping strategy.
+ */
+final class InMemoryResultSet {
+
+    private InMemoryResultSet() {
+    }
+
+    /**
+     * @param labels the column labels
+     * @param rows   the rows; each row has one value per label
+     * @return a new result set positioned before the first row
+     */
+    static ResultSet create(String[] labels, Object[][] rows) {
+        ResultSetMetaData meta = (ResultSetMetaData) Proxy.newProxyInstance(
+                InMemoryResultSet.class.getClassLoader(), new Class<?>[]{ResultSetMetaData.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount":
+                            return labels.length;
+                        case "getColumnLabel":
+                        case "getColumnName":
+                            return labels[(Integer) args[0] - 1];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        int[] cursor = {-1};
+        boolean[] lastWasNull = {false};
+        return (ResultSet) Proxy.newProxyInstance(InMemoryResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++cursor[0] < rows.length;
+                        case "getMetaData":
+                            return meta;
+                        case "wasNull":
+                            return lastWasNull[0];
+                        case "close":
+                            return null;
+                        default:
+                            break;
+                    }
+                    Object value = rows[cursor[0]][(Integer) args[0] - 1];
+                    lastWasNull[0] = value == null;
+                    switch (method.getName()) {
+                        case "getObject":
+                            return value;
+                        case "getInt":
+                            return value != null ? ((Number) value).intValue() : 0;
+                        case "getLong":
+                            return value != null ? ((Number) value).longValue() : 0L;
+                        case "getString":
+                            return value != null ? value.toString() : null;
+                        case "getBigDecimal":
+                            return (BigDecimal) value;
+                        case "getTimestamp":
+                            return (Timestamp) value;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+}
@@ -0,0 +1,101 @@
+package benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.BinaryRows;
+import utils.TimestampAdapter;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes appointment rows, as returned by <b>/appointments</b>, with the Gson
+ * configuration of the server's <code>JsonMapper</code>, with a default Gson (the
+ * locale-dependent timestamps the server sent before) and as {@link BinaryRows},
+ * and parses the JSON the way the client does.
+ * <pre>
+ * mvn -Pbench compile exec:exec -Dbench.main=org.openjdk.jmh.Main -Dbench.args="JsonMapperBenchmark"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonMapperBenchmark {
+
+    @Param({"10", "1000"})
+    public int rows;
+
+    private List<Map<String, Object>> data;
+    private Gson defaultGson;
+    private Gson serverGson;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        data = new ArrayList<>();
+        long start = Timestamp.valueOf("2025-01-15 09:00:00").getTime();
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", i + 1);
+            row.put("customer_id", i % 50 + 1);
+            row.put("workshop_id", i % 5 + 1);
+            row.put("service_id", i % 12 + 1);
+            row.put("technician_id", i % 20 + 1);
+            row.put("scheduledTime", new Timestamp(start + i * 1_800_000L));
+            row.put("createdAt", new Timestamp(start - 86_400_000L + i * 60_000L));
+            row.put("modifiedAt", new Timestamp(start - 86_400_000L + i * 60_000L));
+            row.put("appointmentStatus", "false");
+            row.put("paymentMethod", "Credit Card");
+            row.put("paymentStatus", "false");
+            row.put("price", new BigDecimal("49.90"));
+            data.add(row);
+        }
+        defaultGson = new Gson();
+        // configured like the Gson of RestServer's JsonMapper
+        serverGson = new GsonBuilder()
+                .registerTypeAdapter(Timestamp.class, new TimestampAdapter())
+                .create();
+        json = serverGson.toJson(data);
+    }
+
+    @Benchmark
+    public String toJsonDefault() {
+        return defaultGson.toJson(data);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return serverGson.toJson(data);
+    }
+
+    @Benchmark
+    public byte[] toBinaryRows() {
+        return BinaryRows.encode(data);
+    }
+
+    @Benchmark
+    public JsonArray parseOnClient() {
+        return defaultGson.fromJson(json, JsonArray.class);
+    }
+
+}
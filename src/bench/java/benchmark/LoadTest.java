@@ -0,0 +1,437 @@
+package benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import model.DataStore;
+import model.InMemoryDataStore;
+import model.WriteBehindBuffer;
+import monitoring.ObservedDataStore;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import rest_server.DataValidation;
+import rest_server.RestServer;
+import utils.DateCodec;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the {@link RestServer} with the mix of requests its clients send:
+ * browsing workshops and services, looking up available slots, booking, and
+ * modifying and cancelling appointments. Reports the throughput and the
+ * p50/p99/p99.9 latency of every route, recorded in HDR histograms. <br>
+ * <br>
+ * Every client is a customer that runs one action after the other. Without a
+ * <i>rate</i> the clients form a closed loop: the next action starts when the
+ * previous one finished. With a <i>rate</i> (actions per second of all clients
+ * together) every action has an intended start time; a client that falls behind
+ * starts the next action immediately, and the first request of the action is
+ * measured from its intended start, so a server that stalls is not hidden by
+ * clients that wait for it (coordinated omission). <br>
+ * <br>
+ * Without a <i>url</i> the server is started in this JVM on an
+ * {@link InMemoryDataStore} filled by the {@link DatasetGenerator}. With a
+ * <i>url</i> the server may use MariaDB loaded with the same generator; customers
+ * that do not exist yet are signed up with security question 1 (which must
+ * exist). Client <i>i</i> logs in as the generated customer <i>i + 1</i>, so the
+ * first clients are the customers with the longest histories. <br>
+ * <br>
+ * Arguments are <code>name=value</code> pairs, all optional:
+ * <ul>
+ * <li><i>url</i>: the server, e.g. <code>http://localhost:4569</code></li>
+ * <li><i>port</i>: the port of the server started in this JVM (default 4572)</li>
+ * <li><i>clients</i>: the number of concurrent clients (default 50)</li>
+ * <li><i>rate</i>: the actions per second; 0 for a closed loop (default 0)</li>
+ * <li><i>warmup</i>, <i>seconds</i>: the duration of the warm-up that is not
+ * recorded and of the measurement (default 10 and 30)</li>
+ * <li><i>mix</i>: the weights of the actions (default
+ * <code>browse:50,available:25,book:10,modify:10,cancel:5</code>)</li>
+ * <li><i>seed</i>, <i>workshops</i>, <i>customers</i>, <i>appointments</i>: the
+ * dataset of the server started in this JVM (default 42, 100, 10000 and 50000; at
+ * least one customer per client)</li>
+ * </ul>
+ * <pre>
+ * mvn -Pbench compile exec:exec -Dbench.main=benchmark.LoadTest -Dbench.args="clients=200 rate=2000 seconds=60"
+ * </pre>
+ */
+public class LoadTest {
+
+    private static final String DEFAULT_MIX = "browse:50,available:25,book:10,modify:10,cancel:5";
+    private static final String[] PAYMENT_METHODS = {"Cash", "Credit Card", "PayPal"};
+    // latencies are recorded in microseconds, up to one minute
+    private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toMicros(1);
+
+    private final String baseUrl;
+    private final int clients;
+    private final double rate;
+    private final String[] actions;
+    private final int[] cumulativeWeights;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final Gson gson = new Gson();
+    private final Map<String, RouteStats> routes = new ConcurrentHashMap<>();
+    private List<Integer> workshopIds;
+    private List<Integer> serviceIds;
+    // nanoTime from which on latencies are recorded
+    private volatile long recordFrom = Long.MAX_VALUE;
+
+    private LoadTest(String baseUrl, int clients, double rate, String mix) {
+        this.baseUrl = baseUrl;
+        this.clients = clients;
+        this.rate = rate;
+        String[] entries = mix.split(",");
+        this.actions = new String[entries.length];
+        this.cumulativeWeights = new int[entries.length];
+        int total = 0;
+        for (int i = 0; i < entries.length; i++) {
+            String[] entry = entries[i].trim().split(":");
+            actions[i] = entry[0];
+            total += Integer.parseInt(entry[1]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Arguments are name=value pairs: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        String url = options.get("url");
+        int port = Integer.parseInt(options.getOrDefault("port", "4572"));
+        int clients = Integer.parseInt(options.getOrDefault("clients", "50"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "30"));
+        String mix = options.getOrDefault("mix", DEFAULT_MIX);
+
+        RestServer server = null;
+        if (url == null) {
+            int workshops = Integer.parseInt(options.getOrDefault("workshops", "100"));
+            DatasetGenerator dataset = new DatasetGenerator(Long.parseLong(options.getOrDefault("seed", "42")),
+                    workshops, Math.max(10, workshops / 4), workshops * 3,
+                    Math.max(clients, Integer.parseInt(options.getOrDefault("customers", "10000"))),
+                    Integer.parseInt(options.getOrDefault("appointments", "50000")), LocalDate.now(), 1);
+            InMemoryDataStore store = InMemoryDataStore.reservationSystem();
+            dataset.populate(store);
+            // timed like the server's own store, so /metrics can be compared with the report
+            DataStore observed = new ObservedDataStore(store);
+            server = new RestServer(observed, new DataValidation(observed), port, new WriteBehindBuffer(observed));
+            url = "http://localhost:" + port;
+        }
+        System.out.printf("url=%s clients=%d rate=%s warmup=%ds duration=%ds mix=%s%n", url, clients,
+                rate > 0 ? rate + "/s" : "closed loop", warmup, seconds, mix);
+        try {
+            new LoadTest(url, clients, rate, mix).run(warmup, seconds);
+        } finally {
+            if (server != null) {
+                server.stopServer();
+            }
+        }
+    }
+
+    private void run(int warmupSeconds, int seconds) throws Exception {
+        workshopIds = ids(fetch(get("/workshops")));
+        serviceIds = ids(fetch(get("/services")));
+        if (workshopIds.isEmpty() || serviceIds.isEmpty()) {
+            throw new IllegalStateException("The server has no workshops or services");
+        }
+        List<Client> clientList = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            clientList.add(new Client(i));
+        }
+
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(warmupSeconds + seconds);
+        recordFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Client client : clientList) {
+                futures.add(executor.submit(() -> client.run(start, end)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        report(seconds);
+    }
+
+    /**
+     * One customer: logs in and then runs randomly chosen actions until the end.
+     */
+    private final class Client {
+        private final int index;
+        private final Random random;
+        private final String email;
+        private String authorization;
+        private String customerId;
+
+        Client(int index) {
+            this.index = index;
+            this.random = new Random(index);
+            this.email = DatasetGenerator.email(index + 1);
+        }
+
+        void run(long start, long end) {
+            if (!logIn()) {
+                System.err.println("Client " + index + " could not log in as " + email);
+                return;
+            }
+            for (long action = 0; ; action++) {
+                long intendedStart = System.nanoTime();
+                if (rate > 0) {
+                    // the actions of all clients are spread evenly over time
+                    intendedStart = start + (long) ((action * clients + index) * 1_000_000_000L / rate);
+                    long wait = intendedStart - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+                if (intendedStart >= end || System.nanoTime() >= end) {
+                    return;
+                }
+                runAction(pickAction(), intendedStart);
+            }
+        }
+
+        private boolean logIn() {
+            String query = "/customers?email=" + encode(email) + "&password=" + DatasetGenerator.PASSWORD;
+            HttpResponse<String> response = call(null, get(query), System.nanoTime());
+            if (response == null || response.statusCode() != 200) {
+                // not there yet, e.g. on a server with MariaDB
+                call(null, HttpRequest.newBuilder(uri("/customer/create?firstname=Load&lastname=Test&email="
+                        + encode(email) + "&password=" + DatasetGenerator.PASSWORD
+                        + "&security_question_id=1&security_answer=Fluffy"))
+                        .POST(HttpRequest.BodyPublishers.noBody()).build(), System.nanoTime());
+                response = call(null, get(query), System.nanoTime());
+            }
+            if (response == null || response.statusCode() != 200) {
+                return false;
+            }
+            JsonArray customers = gson.fromJson(response.body(), JsonArray.class);
+            customerId = customers.get(0).getAsJsonObject().get("id").getAsString();
+            authorization = "Basic " + Base64.getEncoder()
+                    .encodeToString((email + ":" + DatasetGenerator.PASSWORD).getBytes(StandardCharsets.UTF_8));
+            return true;
+        }
+
+        private String pickAction() {
+            int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < actions.length; i++) {
+                if (value < cumulativeWeights[i]) {
+                    return actions[i];
+                }
+            }
+            return actions[actions.length - 1];
+        }
+
+        private void runAction(String action, long intendedStart) {
+            String workshopId = String.valueOf(workshopIds.get(random.nextInt(workshopIds.size())));
+            String serviceId = String.valueOf(serviceIds.get(random.nextInt(serviceIds.size())));
+            switch (action) {
+                case "browse":
+                    if (random.nextBoolean()) {
+                        send("GET /workshops", get("/workshops"), intendedStart);
+                    } else {
+                        send("GET /services", get("/services?workshop_id=" + workshopId), intendedStart);
+                    }
+                    break;
+                case "available":
+                    send("GET /appointments/available", get("/appointments/available?scheduledTime="
+                            + encode(futureSlot()) + "&workshop_id=" + workshopId + "&service_id=" + serviceId),
+                            intendedStart);
+                    break;
+                case "book":
+                    send("POST /appointment/create", authorized("/appointment/create?customer_id=" + customerId
+                            + "&workshop_id=" + workshopId + "&service_id=" + serviceId + "&scheduledTime="
+                            + encode(futureSlot()) + "&paymentMethod=" + encode(paymentMethod()))
+                            .POST(HttpRequest.BodyPublishers.noBody()).build(), intendedStart);
+                    break;
+                case "modify":
+                case "cancel":
+                    String appointmentId = anyAppointment(intendedStart);
+                    if (appointmentId == null) {
+                        break;
+                    }
+                    if (action.equals("modify")) {
+                        send("PUT /appointment/modify", authorized("/appointment/modify?appointment_id="
+                                + appointmentId + "&scheduledTime=" + encode(futureSlot()) + "&paymentMethod="
+                                + encode(paymentMethod())).PUT(HttpRequest.BodyPublishers.noBody()).build(),
+                                System.nanoTime());
+                    } else {
+                        send("DELETE /appointment/delete", authorized("/appointment/delete?appointment_id="
+                                + appointmentId).DELETE().build(), System.nanoTime());
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown action " + action);
+            }
+        }
+
+        /**
+         * Lists the appointments of the customer, like the client does before it
+         * modifies or cancels one.
+         *
+         * @return the id of one of them; <code>null</code> if there is none
+         */
+        private String anyAppointment(long intendedStart) {
+            HttpResponse<String> response = send("GET /customer/appointments",
+                    authorized("/customer/appointments?customer_id=" + customerId).GET().build(), intendedStart);
+            List<Integer> ids = response != null && response.statusCode() == 200 ? ids(response) : List.of();
+            return ids.isEmpty() ? null : String.valueOf(ids.get(random.nextInt(ids.size())));
+        }
+
+        private HttpRequest.Builder authorized(String path) {
+            return HttpRequest.newBuilder(uri(path)).timeout(Duration.ofSeconds(60))
+                    .header("Authorization", authorization);
+        }
+
+        /**
+         * @return a half-hour slot during the opening hours of one of the next 30 days
+         */
+        private String futureSlot() {
+            LocalDate day = LocalDate.now().plusDays(1 + random.nextInt(30));
+            long minutes = DateCodec.parseEpochMinutes(day + " 09:00") + random.nextInt(16) * 30L;
+            return DateCodec.formatEpochMinutes(minutes);
+        }
+
+        private String paymentMethod() {
+            return PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)];
+        }
+    }
+
+    /**
+     * Sends a request during the setup and fails if it does not succeed.
+     */
+    private HttpResponse<String> fetch(HttpRequest request) {
+        HttpResponse<String> response = call(null, request, System.nanoTime());
+        if (response == null || response.statusCode() != 200) {
+            throw new IllegalStateException(request.uri() + " failed: "
+                    + (response != null ? response.statusCode() + " " + response.body() : "no response"));
+        }
+        return response;
+    }
+
+    private HttpResponse<String> send(String route, HttpRequest request, long startNanos) {
+        return call(routes.computeIfAbsent(route, RouteStats::new), request, startNanos);
+    }
+
+    /**
+     * Sends the request and records its latency from <i>startNanos</i> if the
+     * measurement is running.
+     *
+     * @return the response; <code>null</code> if the request failed
+     */
+    private HttpResponse<String> call(RouteStats stats, HttpRequest request, long startNanos) {
+        HttpResponse<String> response;
+        try {
+            response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            response = null;
+        }
+        long now = System.nanoTime();
+        if (stats != null && startNanos >= recordFrom) {
+            stats.record(response, now - startNanos);
+        }
+        return response;
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).timeout(Duration.ofSeconds(60)).GET().build();
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private List<Integer> ids(HttpResponse<String> response) {
+        List<Integer> ids = new ArrayList<>();
+        for (JsonElement element : gson.fromJson(response.body(), JsonArray.class)) {
+            ids.add(element.getAsJsonObject().get("id").getAsInt());
+        }
+        return ids;
+    }
+
+    private void report(int seconds) {
+        System.out.printf("%-30s %9s %7s %7s %10s %9s %9s %9s %9s%n", "route", "requests", "4xx", "failed",
+                "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram total = new Histogram(HIGHEST_LATENCY, 3);
+        long totalClientErrors = 0;
+        long totalFailures = 0;
+        for (RouteStats stats : new TreeMap<>(routes).values()) {
+            print(stats.route, stats.latencies, stats.clientErrors.sum(), stats.failures.sum(), seconds);
+            total.add(stats.latencies);
+            totalClientErrors += stats.clientErrors.sum();
+            totalFailures += stats.failures.sum();
+        }
+        print("all", total, totalClientErrors, totalFailures, seconds);
+    }
+
+    private static void print(String route, Histogram latencies, long clientErrors, long failures, int seconds) {
+        System.out.printf("%-30s %9d %7d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n", route, latencies.getTotalCount(),
+                clientErrors, failures, latencies.getTotalCount() / (double) seconds,
+                latencies.getValueAtPercentile(50) / 1000.0, latencies.getValueAtPercentile(99) / 1000.0,
+                latencies.getValueAtPercentile(99.9) / 1000.0, latencies.getMaxValue() / 1000.0);
+    }
+
+    /**
+     * The latencies of one route. Responses with a 4xx status, e.g. a booked slot
+     * or an appointment another action already cancelled, are counted but are part
+     * of the latencies; failed requests and 5xx responses are only counted.
+     */
+    private static final class RouteStats {
+        private final String route;
+        private final Histogram latencies = new ConcurrentHistogram(HIGHEST_LATENCY, 3);
+        private final LongAdder clientErrors = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+
+        RouteStats(String route) {
+            this.route = route;
+        }
+
+        void record(HttpResponse<String> response, long nanos) {
+            if (response == null || response.statusCode() >= 500) {
+                failures.increment();
+                return;
+            }
+            if (response.statusCode() >= 400) {
+                clientErrors.increment();
+            }
+            latencies.recordValue(Math.min(HIGHEST_LATENCY, TimeUnit.NANOSECONDS.toMicros(nanos)));
+        }
+    }
+
+}
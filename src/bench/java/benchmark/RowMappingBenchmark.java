@@ -0,0 +1,104 @@
+package benchmark;
+
+import com.google.gson.Gson;
+import model.DatabaseConnector;
+import model.RecordMapper;
+import model.records.Service;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares materializing the rows of the services table as maps (
+ * {@link DatabaseConnector#map(java.sql.ResultSet)}, the current path) with
+ * materializing them as {@link Service} records via {@link RecordMapper}, once
+ * on their own, once including reading the duration the way the server does, and
+ * once including the Gson serialization of the response.
+ * <pre>
+ * mvn -Pbench compile exec:exec -Dbench.main=org.openjdk.jmh.Main -Dbench.args="RowMappingBenchmark"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMappingBenchmark {
+
+    private static final String[] LABELS = {"id", "name", "duration", "price", "description", "promotion_id"};
+
+    @Param({"10", "1000"})
+    public int rows;
+
+    private Object[][] data;
+    private DatabaseConnector dbConnector;
+    private RecordMapper<Service> serviceMapper;
+    private Gson gson;
+
+    @Setup
+    public void setUp() {
+        data = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            data[i] = new Object[]{i + 1, "Service " + i, 30 + i % 90, new BigDecimal("49.90"),
+                    "Description of service " + i, i % 3 == 0 ? null : i % 5 + 1};
+        }
+        dbConnector = new DatabaseConnector() {
+        };
+        serviceMapper = RecordMapper.of(Service.class);
+        gson = new Gson();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> maps() {
+        return dbConnector.map(InMemoryResultSet.create(LABELS, data));
+    }
+
+    @Benchmark
+    public List<Service> records() throws SQLException {
+        return serviceMapper.map(InMemoryResultSet.create(LABELS, data));
+    }
+
+    @Benchmark
+    public int mapsReadDuration() {
+        int total = 0;
+        for (Map<String, Object> row : dbConnector.map(InMemoryResultSet.create(LABELS, data))) {
+            total += (Integer) row.get("duration");
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int recordsReadDuration() throws SQLException {
+        int total = 0;
+        for (Service service : serviceMapper.map(InMemoryResultSet.create(LABELS, data))) {
+            total += service.duration();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public String mapsToJson() {
+        return gson.toJson(dbConnector.map(InMemoryResultSet.create(LABELS, data)));
+    }
+
+    @Benchmark
+    public String recordsToJson() throws SQLException {
+        return gson.toJson(serviceMapper.map(InMemoryResultSet.create(LABELS, data)));
+    }
+
+}
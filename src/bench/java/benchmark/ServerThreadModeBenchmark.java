@@ -0,0 +1,139 @@
+package benchmark;
+
+import model.DatabaseConnector;
+import rest_server.DataValidation;
+import rest_server.RestServer;
+import rest_server.ServerThreading;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the platform thread pool of the {@link RestServer} with the virtual
+ * thread mode under many concurrent clients whose requests block on a slow
+ * database. <br>
+ * <br>
+ * The server is started once per mode with a database connector that sleeps
+ * before answering every SELECT. A closed loop of clients then calls the login
+ * route (<code>GET /customers?email=..&password=..</code>), which queries the
+ * database on the request thread, for the given duration. <br>
+ * <br>
+ * Arguments (all optional): <i>clients</i> (default 2000), <i>dbDelayMillis</i>
+ * (default 50), <i>seconds</i> (default 20). Virtual threads need JDK 21+.
+ * <pre>
+ * mvn -Pbench compile exec:exec -Dbench.main=benchmark.ServerThreadModeBenchmark -Dbench.args="2000 50 20"
+ * </pre>
+ */
+public class ServerThreadModeBenchmark {
+
+    private static final int PORT = 4571;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long dbDelayMillis = args.length > 1 ? Long.parseLong(args[1]) : 50;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        System.out.printf("clients=%d dbDelay=%dms duration=%ds virtualThreadsSupported=%b%n",
+                clients, dbDelayMillis, seconds, ServerThreading.virtualThreadsSupported());
+        for (boolean virtual : new boolean[]{false, true}) {
+            System.setProperty(ServerThreading.VIRTUAL_THREADS_PROPERTY, String.valueOf(virtual));
+            DatabaseConnector dbConnector = new SlowDatabaseConnector(dbDelayMillis);
+            RestServer server = new RestServer(dbConnector, new DataValidation(dbConnector), PORT);
+            try {
+                run(virtual ? "virtual" : "platform", clients, seconds);
+            } finally {
+                server.stopServer();
+            }
+        }
+    }
+
+    private static void run(String mode, int clients, int seconds) throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        HttpRequest request = HttpRequest.newBuilder(
+                URI.create("http://localhost:" + PORT + "/customers?email=bench@test.de&password=benchmark"))
+                .timeout(Duration.ofSeconds(60)).GET().build();
+
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger errors = new AtomicInteger();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<CompletableFuture<Void>> loops = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            loops.add(loop(client, request, deadline, latencies, errors));
+        }
+        CompletableFuture.allOf(loops.toArray(new CompletableFuture[0])).join();
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("%-8s requests=%d errors=%d throughput=%.1f req/s p50=%.1fms p99=%.1fms max=%.1fms%n",
+                mode, sorted.length, errors.get(), sorted.length / (double) seconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 1.0));
+    }
+
+    /**
+     * One closed-loop client: sends the next request as soon as the previous
+     * response arrived, until the deadline has passed.
+     */
+    private static CompletableFuture<Void> loop(HttpClient client, HttpRequest request, long deadline,
+                                                ConcurrentLinkedQueue<Long> latencies, AtomicInteger errors) {
+        if (System.nanoTime() >= deadline) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long start = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, failure) -> {
+                    if (failure != null || response.statusCode() != 200) {
+                        errors.incrementAndGet();
+                    } else {
+                        latencies.add(System.nanoTime() - start);
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> loop(client, request, deadline, latencies, errors));
+    }
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(quantile * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    /**
+     * Answers every SELECT with one customer row after a fixed delay, the way a
+     * loaded database would.
+     */
+    private static class SlowDatabaseConnector extends DatabaseConnector {
+        private final long delayMillis;
+
+        SlowDatabaseConnector(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public List<Map<String, Object>> executeSelectQuery(String[] selection, String[] tables, String[] tableAlias,
+                                                            String condition, String[] conditionArgs) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", 1);
+            row.put("email", conditionArgs != null ? conditionArgs[0] : "");
+            row.put("tokens", 0);
+            return new ArrayList<>(Arrays.asList(row));
+        }
+    }
+
+}
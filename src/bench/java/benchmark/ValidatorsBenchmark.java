@@ -0,0 +1,98 @@
+package benchmark;
+
+import model.PaymentMethod;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.Validators;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the sign-up and booking validators of {@link Validators} and
+ * {@link PaymentMethod} with the implementations they replaced, which compiled
+ * their pattern on every call and scanned an array of payment methods. Add
+ * <code>-prof gc</code> for the allocation rate:
+ * <pre>
+ * mvn -Pbench compile exec:exec -Dbench.main=org.openjdk.jmh.Main -Dbench.args="ValidatorsBenchmark -prof gc"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidatorsBenchmark {
+
+    private static final String EMAIL_REGEX =
+            "^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$";
+    private static final String[] PAYMENT_METHODS = {"Cash", "cash", "Credit Card", "Credit card", "credit card",
+            "Debit Card", "Debit card", "debit card", "PayPal", "paypal", "ApplePay", "applepay", "Not selected"};
+
+    @Param({"firstname.lastname@gmail.com"})
+    public String email;
+
+    @Param({"Hans-Peter Müller"})
+    public String name;
+
+    @Param({"0123456789"})
+    public String phoneNumber;
+
+    @Param({"applepay"})
+    public String paymentMethod;
+
+    @Benchmark
+    public boolean emailCompiledPerCall() {
+        return Pattern.compile(EMAIL_REGEX).matcher(email).matches();
+    }
+
+    @Benchmark
+    public boolean emailScanner() {
+        return Validators.isValidEmailAddress(email);
+    }
+
+    @Benchmark
+    public boolean alphaStringMatches() {
+        return name.matches("(?U)[\\p{L}\\p{M}\\s'-]+");
+    }
+
+    @Benchmark
+    public boolean alphaPrecompiled() {
+        return Validators.isAlpha(name);
+    }
+
+    @Benchmark
+    public boolean phoneNumberStringMatches() {
+        return phoneNumber.matches("^[0-9]{10}$");
+    }
+
+    @Benchmark
+    public boolean phoneNumberScanner() {
+        return Validators.isValidPhoneNumber(phoneNumber);
+    }
+
+    @Benchmark
+    public boolean paymentMethodArrayScan() {
+        for (String method : PAYMENT_METHODS) {
+            if (method.equals(paymentMethod)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean paymentMethodEnumLookup() {
+        return PaymentMethod.fromString(paymentMethod) != null;
+    }
+
+}
@@ -11,7 +11,7 @@ import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.stage.Stage;
 import model.User;
-import utils.Utils;
+import utils.Validators;
 
 import java.net.URL;
 import java.util.ArrayList;
@@ -133,17 +133,17 @@ public class SignUpDialogController extends Controller implements Initializable
         if (firstname.isEmpty() || lastname.isEmpty() || email.isEmpty() || password.isEmpty()
                 || passwordRepeat.isEmpty() || securityQuestion == null || securityAnswer.isEmpty()) {
             errorMessageLabel.setText("All text fields must be filled out!");
-        } else if (!Utils.isAlpha(firstname) || !Utils.isAlpha(lastname)) {
+        } else if (!Validators.isAlpha(firstname) || !Validators.isAlpha(lastname)) {
             errorMessageLabel.setText("First and last name are not allowed to contain numbers.");
-        } else if (!Utils.isValidEmailAddress(email)) {
+        } else if (!Validators.isValidEmailAddress(email)) {
             errorMessageLabel.setText("No valid e-mail address.");
-        } else if (!Utils.isValidPassword(password)) {
+        } else if (!Validators.isValidPassword(password)) {
             errorMessageLabel.setText("The password must contain at least 8 characters.");
         } else if (!password.equals(passwordRepeat)) {
             errorMessageLabel.setText("The passwords do not correspond to each other.");
-        } else if (!Utils.isValidVehicleRegistrationNumber(vehicleRegistrationNumber)) {
+        } else if (!Validators.isValidVehicleRegistrationNumber(vehicleRegistrationNumber)) {
             errorMessageLabel.setText("Vehicle registration number does not match any EU registration pattern.");
-        } else if (!Utils.isValidPhoneNumber(phoneNumber)) {
+        } else if (!Validators.isValidPhoneNumber(phoneNumber)) {
             errorMessageLabel.setText("Invalid phone number, must be 10 digits.");
         } else {
             // Retrieve the security question ID from the map
@@ -11,7 +11,8 @@ import javafx.scene.control.TableView;
 import javafx.scene.layout.HBox;
 import javafx.stage.Stage;
 import kong.unirest.UnirestException;
-import utils.Utils;
+import model.PaymentMethod;
+import utils.DateCodec;
 import com.google.gson.JsonObject;
 import javafx.scene.control.DatePicker;
 import java.time.LocalDate;
@@ -96,16 +97,11 @@ public class AppointmentPanelController extends Controller {
         serviceLabel.setText(String.valueOf(data.get(5)));
         selectedTechnicianLabel.setText(String.valueOf(data.get(6)));
         scheduledTimeLabel.setText(String.valueOf(data.get(7)));
-// Define valid payment methods
-        String[] validMethods = {"Cash", "cash", "Credit Card", "Credit card", "credit card",
-                "Debit Card", "Debit card", "debit card", "PayPal", "paypal",
-                "ApplePay", "applepay", "Not selected"};
-
 // Ensure `data` is not null and process safely
         Optional<String> foundPaymentMethod = data.stream()
                 .filter(Objects::nonNull) // Ignore null elements
                 .map(Object::toString) // Convert all elements to String
-                .filter(item -> Arrays.asList(validMethods).contains(item)) // Check if it's a valid method
+                .filter(item -> PaymentMethod.fromString(item) != null) // Check if it's a valid method
                 .findFirst();
 
 // Set the payment method label, defaulting to "Not selected" if not found
@@ -120,7 +116,7 @@ public class AppointmentPanelController extends Controller {
             appointment_id = Integer.parseInt((String) data.get(0));
             try {
                 if (data.get(8) != null) { // Only parse if oldScheduledTime is not null
-                    oldScheduledTime = Utils.yearMonthDayTimeFormat.parse((String) data.get(8));
+                    oldScheduledTime = DateCodec.parse((String) data.get(8));
                 }
             } catch (ParseException e) {
                 System.err.println("Invalid old scheduled time format: " + data.get(8));
@@ -149,7 +145,7 @@ public class AppointmentPanelController extends Controller {
         // Initialize date picker with the scheduled date and disable past dates
         try {
             // Parse the scheduled time to get the date
-            Date scheduledDate = Utils.yearMonthDayTimeFormat.parse(String.valueOf(data.get(7)));
+            Date scheduledDate = DateCodec.parse(String.valueOf(data.get(7)));
             LocalDate localDate = scheduledDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
             
             // Set the date picker to the scheduled date
@@ -210,7 +206,7 @@ public class AppointmentPanelController extends Controller {
             for (String slot : availableSlots) {
                 try {
                     // Parse the original time
-                    Date originalDate = Utils.yearMonthDayTimeFormat.parse(slot);
+                    Date originalDate = DateCodec.parse(slot);
                     
                     // Only skip slots that are in the past compared to current time
                     if (originalDate.before(currentTime)) {
@@ -230,7 +226,7 @@ public class AppointmentPanelController extends Controller {
                     
                     // Add all slots that are not before current time
                     if (!adjustedDate.before(currentTime)) {
-                        String adjustedSlot = Utils.yearMonthDayTimeFormat.format(adjustedDate);
+                        String adjustedSlot = DateCodec.format(adjustedDate);
                         adjustedSlots.add(adjustedSlot);
                     }
                 } catch (ParseException e) {
@@ -281,7 +277,7 @@ public class AppointmentPanelController extends Controller {
         }
 
         try {
-            Date slotSelectedAsDate = Utils.yearMonthDayTimeFormat.parse(slotSelected);
+            Date slotSelectedAsDate = DateCodec.parse(slotSelected);
             Date currentTime = new Date();
 
             // Validate that selected time is not in the past
@@ -293,14 +289,14 @@ public class AppointmentPanelController extends Controller {
             List<String> controllerData = new ArrayList<>();
 
             // Convert oldScheduledTime (Date) to String using the same format as slotSelected
-            String oldScheduledTimeString = (oldScheduledTime != null) ? Utils.yearMonthDayTimeFormat.format(oldScheduledTime) : "";
+            String oldScheduledTimeString = (oldScheduledTime != null) ? DateCodec.format(oldScheduledTime) : "";
             if (sceneNavigator.getPreviousScene() != null
                     && sceneNavigator.getPreviousScene().equals(sceneNavigator.PROFILE)) {
                 if (slotSelected.equals(oldScheduledTimeString)) {
                     noModificationLabel.setText("No changes were made.");
                 } else {
                     try {
-                        Date parsedBackDate = Utils.yearMonthDayTimeFormat.parse(slotSelected);
+                        Date parsedBackDate = DateCodec.parse(slotSelected);
 
                         boolean success = restClient.modifyAppointment(appointment_id, parsedBackDate, paymentMethodLabel.getText());
                         if (success) {
@@ -371,7 +367,7 @@ public class AppointmentPanelController extends Controller {
     public void setPreviousSceneInformation() {
         sceneNavigator.setPreviousScene(sceneNavigator.APPOINTMENT);
 
-        String oldScheduledTimeString = (oldScheduledTime != null) ? Utils.yearMonthDayTimeFormat.format(oldScheduledTime) : "";
+        String oldScheduledTimeString = (oldScheduledTime != null) ? DateCodec.format(oldScheduledTime) : "";
 
         String[] data = {
                 appointment_id + "", workshop_id + "", service_id + "", technician_id + "", workshopLabel.getText(), serviceLabel.getText(), selectedTechnicianLabel.getText(), scheduledTimeLabel.getText(),
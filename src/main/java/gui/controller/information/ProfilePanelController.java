@@ -1,6 +1,8 @@
 package gui.controller.information;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
 import gui.controller.Controller;
 import javafx.beans.binding.Bindings;
 import javafx.collections.ObservableList;
@@ -15,6 +17,7 @@ import javafx.scene.image.ImageView;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Pane;
 import model.Appointment;
+import utils.DateCodec;
 import utils.Utils;
 
 import java.net.URL;
@@ -22,10 +25,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.ResourceBundle;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Locale;
 import java.util.ArrayList;
 import javafx.collections.FXCollections;
 /**
@@ -191,7 +191,7 @@ public class ProfilePanelController extends Controller implements Initializable
                                 setText(null);
                             } else {
                                 try {
-                                    setText(Utils.yearMonthDayTimeFormat.format(item));
+                                    setText(DateCodec.format(item));
                                 } catch (Exception e) {
                                     System.err.println("Error formatting date: " + e.getMessage());
                                     setText("Invalid Date");
@@ -212,8 +212,8 @@ public class ProfilePanelController extends Controller implements Initializable
                                 setText(null);
                             } else {
                                 try {
-                                    setText(Utils.yearMonthDayTimeFormat.format(item));
-                                    setTooltip(new Tooltip(Utils.yearMonthDayTimeFormat.format(item)));
+                                    setText(DateCodec.format(item));
+                                    setTooltip(new Tooltip(DateCodec.format(item)));
                                 } catch (Exception e) {
                                     System.err.println("Error formatting date: " + e.getMessage());
                                     setText("Invalid Date");
@@ -240,7 +240,10 @@ public class ProfilePanelController extends Controller implements Initializable
      */
     private void addAppointmentToTable(JsonObject json) {
         // get appointment details for current appointment from server
-        List<JsonObject> appointmentDetails = restClient.getAppointmentDetails(json.get("id").getAsInt());
+        List<JsonObject> appointmentDetails = restClient.getAppointmentDetails(json.get("id").getAsInt(),
+                "workshop_id", "service_id", "technician_id", "scheduledTime", "createdAt", "modifiedAt",
+                "appointmentStatus", "paymentMethod", "paymentStatus", "workshopName", "serviceName",
+                "technicianName");
 
 
         try {
@@ -249,93 +252,16 @@ public class ProfilePanelController extends Controller implements Initializable
             int service_id = appointmentDetails.get(0).get("service_id").getAsInt();
             int technician_id = appointmentDetails.get(0).get("technician_id").getAsInt();
 
-            // extract dates with null checks
-            Date scheduledTime = null;
-            Date createdAt = null;
-            Date modifiedAt = null;
-
-            try {
-                if (appointmentDetails.get(0).has("scheduledTime")
-                        && !appointmentDetails.get(0).get("scheduledTime").isJsonNull()) {
-
-                    String scheduledTimeStr = appointmentDetails.get(0).get("scheduledTime").getAsString();
-                    // Clean up any "?AM" / "?PM":
-                    scheduledTimeStr = scheduledTimeStr
-                            .replace("?AM", " AM")
-                            .replace("?PM", " PM");
-
-                    scheduledTimeStr = scheduledTimeStr.replaceAll("[^\\x20-\\x7E]", "")
-                            .replaceAll("(?<=\\d)(AM|PM)", " $1");
-                    SimpleDateFormat inputFormat = new SimpleDateFormat("MMM d, yyyy, hh:mm:ss a", Locale.ENGLISH);
-                    SimpleDateFormat outputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-
-                    try {
-                        // Parse the original string into a Date object
-                        Date date = inputFormat.parse(scheduledTimeStr);
-                        // Format it into the desired format
-                        String formattedDate = outputFormat.format(date);
-                        scheduledTime = Utils.parseStringToDate(formattedDate, Utils.yearMonthDayTimeFormat);
-                    } catch (ParseException e) {
-                        System.err.println("Error parsing scheduledTime: " + scheduledTimeStr);
-                        e.printStackTrace();
-                    }
-                }
-
-                if (appointmentDetails.get(0).has("createdAt") && !appointmentDetails.get(0).get("createdAt").isJsonNull()) {
-                    String createdAtStr = appointmentDetails.get(0).get("createdAt").getAsString();
-                    // Clean up any "?AM" / "?PM":
-                    createdAtStr = createdAtStr
-                            .replace("?AM", " AM")
-                            .replace("?PM", " PM");
-
-                    createdAtStr = createdAtStr.replaceAll("[^\\x20-\\x7E]", "")
-                            .replaceAll("(?<=\\d)(AM|PM)", " $1");
-                    SimpleDateFormat inputFormat = new SimpleDateFormat("MMM d, yyyy, hh:mm:ss a", Locale.ENGLISH);
-                    SimpleDateFormat outputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-
-                    try {
-                        // Parse the original string into a Date object
-                        Date date = inputFormat.parse(createdAtStr);
-                        // Format it into the desired format
-                        String formattedDate = outputFormat.format(date);
-                        createdAt = Utils.parseStringToDate(formattedDate, Utils.yearMonthDayTimeFormat);
-                    } catch (ParseException e) {
-                        System.err.println("Error parsing createdAt: " + createdAtStr);
-                        e.printStackTrace();
-                        createdAt = new Date(); // Fallback to current date if parsing fails
-                    }
-                } else {
-                    createdAt = new Date(); // Default to current date if not present
-                }
-
-                if (appointmentDetails.get(0).has("modifiedAt") && !appointmentDetails.get(0).get("modifiedAt").isJsonNull()) {
-                    String modifiedAtStr = appointmentDetails.get(0).get("modifiedAt").getAsString();
-                    // Clean up any "?AM" / "?PM":
-                    modifiedAtStr = modifiedAtStr
-                            .replace("?AM", " AM")
-                            .replace("?PM", " PM");
-
-                    modifiedAtStr = modifiedAtStr.replaceAll("[^\\x20-\\x7E]", "")
-                            .replaceAll("(?<=\\d)(AM|PM)", " $1");
-                    SimpleDateFormat inputFormat = new SimpleDateFormat("MMM d, yyyy, hh:mm:ss a", Locale.ENGLISH);
-                    SimpleDateFormat outputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-
-                    try {
-                        // Parse the original string into a Date object
-                        Date date = inputFormat.parse(modifiedAtStr);
-                        // Format it into the desired format
-                        String formattedDate = outputFormat.format(date);
-                        modifiedAt = Utils.parseStringToDate(formattedDate, Utils.yearMonthDayTimeFormat);
-                    } catch (ParseException e) {
-                        System.err.println("Error parsing modifiedAt: " + modifiedAtStr);
-                        e.printStackTrace();
-                        modifiedAt = new Date(); // Fallback to current date if parsing fails
-                    }
-                } else {
-                    modifiedAt = new Date(); // Default to current date if not present
-                }
-            } catch (Exception e) {
-                System.err.println("Error parsing dates: " + e.getMessage());
+            // extract dates; the server sends them as ISO-8601 local date-times
+            JsonObject details = appointmentDetails.get(0);
+            Date scheduledTime = readDate(details, "scheduledTime");
+            Date createdAt = readDate(details, "createdAt");
+            Date modifiedAt = readDate(details, "modifiedAt");
+            if (createdAt == null) {
+                createdAt = new Date(); // Default to current date if not present
+            }
+            if (modifiedAt == null) {
+                modifiedAt = new Date(); // Default to current date if not present
             }
 
             // Extract booleans with default values
@@ -362,6 +288,31 @@ public class ProfilePanelController extends Controller implements Initializable
         }
     }
 
+    /**
+     * Reads a date-time field of an appointment, written by the server either as
+     * ISO-8601 local date-time or as epoch milliseconds.
+     *
+     * @param json  the appointment in JSON format
+     * @param field the name of the field
+     * @return the date; <code>null</code> if the field is missing or invalid
+     */
+    private Date readDate(JsonObject json, String field) {
+        JsonElement value = json.get(field);
+        if (value == null || !value.isJsonPrimitive()) {
+            return null;
+        }
+        JsonPrimitive primitive = value.getAsJsonPrimitive();
+        if (primitive.isNumber()) {
+            return new Date(primitive.getAsLong());
+        }
+        long epochMinutes = DateCodec.parseIsoEpochMinutes(primitive.getAsString());
+        if (epochMinutes == DateCodec.INVALID) {
+            System.err.println("Error parsing " + field + ": " + primitive.getAsString());
+            return null;
+        }
+        return DateCodec.toDate(epochMinutes);
+    }
+
     /**
      * Defines two <code>PseudoClass</code> objects that define the appearance of
      * the tables rows which contain an apointment from the past. The style is
@@ -451,9 +402,9 @@ public class ProfilePanelController extends Controller implements Initializable
                         appointment.getWorkshop(),
                         appointment.getService(),
                         appointment.getTechnician(),
-                        Utils.yearMonthDayTimeFormat.format(appointment.getScheduledTime()),
-                        Utils.yearMonthDayTimeFormat.format(appointment.getCreatedAt()),
-                        Utils.yearMonthDayTimeFormat.format(appointment.getModifiedAt()),
+                        DateCodec.format(appointment.getScheduledTime()),
+                        DateCodec.format(appointment.getCreatedAt()),
+                        DateCodec.format(appointment.getModifiedAt()),
                         appointment.isAppointmentStatus() + "",
                         appointment.getPaymentMethod(),
                         appointment.isPaymentStatus() + "",
@@ -15,6 +15,8 @@ import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.util.Duration;
+import model.records.Technician;
+import utils.DateCodec;
 import utils.Utils;
 
 import java.text.ParseException;
@@ -234,7 +236,7 @@ public class WorkshopInformationPanelController extends Controller {
         for (String slot : availableAppointments) {
             try {
                 // Parse the original time
-                Date originalDate = Utils.yearMonthDayTimeFormat.parse(slot);
+                Date originalDate = DateCodec.parse(slot);
                 Calendar cal = Calendar.getInstance();
                 cal.setTime(originalDate);
 
@@ -245,7 +247,7 @@ public class WorkshopInformationPanelController extends Controller {
                 newCal.set(Calendar.MINUTE, cal.get(Calendar.MINUTE));
 
                 // Format the new date
-                String adjustedSlot = Utils.yearMonthDayTimeFormat.format(newCal.getTime());
+                String adjustedSlot = DateCodec.format(newCal.getTime());
                 adjustedSlots.add(adjustedSlot);
             } catch (ParseException e) {
                 System.err.println("Error adjusting date for slot: " + slot);
@@ -372,17 +374,12 @@ public class WorkshopInformationPanelController extends Controller {
         technicianComboBox.getItems().clear();
         technicianMap.clear();
 
-        List<JsonObject> technicians = restClient.requestTechniciansForService(workshop_id);
+        List<Technician> technicians = restClient.requestTechnicians(workshop_id);
         
-        if (technicians != null && !technicians.isEmpty()) {
-            for (JsonObject tech : technicians) {
-                String techName = tech.get("name").getAsString();
-                int techId = tech.get("id").getAsInt();
-                String certifications = tech.get("certifications").getAsString();
-                int experience = tech.get("experience").getAsInt();
-                
-                String displayText = techName + " - " + certifications + " (" + experience + " years)";
-                technicianMap.put(displayText, techId);
+        if (!technicians.isEmpty()) {
+            for (Technician tech : technicians) {
+                String displayText = tech.name() + " - " + tech.certifications() + " (" + tech.experience() + " years)";
+                technicianMap.put(displayText, tech.id());
                 technicianComboBox.getItems().add(displayText);
             }
             
@@ -0,0 +1,227 @@
+package model;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the statements of a {@link DataStore} on a separate executor and
+ * returns their results as <code>CompletableFuture</code>s, so that the thread
+ * which issues a statement (e.g. a Jetty request thread) does not have to wait
+ * for the database. <br>
+ * <br>
+ * The executor is chosen with the system property <i>db.executor</i>:
+ * <ul>
+ * <li><b>virtual</b> (default): one virtual thread per statement, if the JVM
+ * supports virtual threads (JDK 21+); otherwise falls back to
+ * <b>platform</b>. At most <i>db.executor.threads</i> statements run at a
+ * time, the other threads wait for a permit, so a burst of requests does not
+ * pile up statements in front of the database connection. Virtual threads
+ * cannot be sampled by the stack profiler of the server</li>
+ * <li><b>platform</b>: a bounded pool of <i>db.executor.threads</i> platform
+ * threads (default 16) with a bounded queue; when the queue is full, the
+ * submitting thread runs the statement itself</li>
+ * </ul>
+ */
+public class AsyncDatabaseConnector {
+
+    public static final String EXECUTOR_PROPERTY = "db.executor";
+    public static final String THREADS_PROPERTY = "db.executor.threads";
+    public static final int DEFAULT_THREADS = 16;
+    public static final String THREAD_NAME_PREFIX = "db-executor-";
+    private static final int QUEUE_CAPACITY = 1_000;
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncDatabaseConnector.class);
+
+    private final DataStore dbConnector;
+    private final Executor executor;
+
+    public AsyncDatabaseConnector(DataStore dbConnector, Executor executor) {
+        this.dbConnector = dbConnector;
+        this.executor = executor;
+    }
+
+    /**
+     * Creates the executor configured by the system properties described in the
+     * class documentation.
+     *
+     * @return the executor; an <code>ExecutorService</code> that should be shut
+     * down when it is no longer needed
+     */
+    public static ExecutorService createExecutor() {
+        String kind = System.getProperty(EXECUTOR_PROPERTY, "virtual");
+        int threads = Integer.getInteger(THREADS_PROPERTY, DEFAULT_THREADS);
+        if ("virtual".equalsIgnoreCase(kind)) {
+            ExecutorService virtual = createVirtualThreadExecutor();
+            if (virtual != null) {
+                return new LimitedExecutor(virtual, threads);
+            }
+            logger.info("Virtual threads not available, using platform threads for database calls");
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Creates <code>Executors.newVirtualThreadPerTaskExecutor()</code> via
+     * reflection, so that the code still compiles and runs on JDKs without
+     * virtual threads.
+     *
+     * @return the executor; <code>null</code> if virtual threads are not supported
+     */
+    public static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public DataStore getDatabaseConnector() {
+        return dbConnector;
+    }
+
+    /**
+     * Executes
+     * {@link DataStore#executeSelectQuery(String[], String[], String[], String, String[])}
+     * asynchronously with the same parameters.
+     *
+     * @return the future list of maps representing the result
+     */
+    public CompletableFuture<List<Map<String, Object>>> executeSelectQuery(String[] selection, String[] tables,
+                                                                          String[] tableAlias, String condition,
+                                                                          String[] conditionArgs) {
+        return CompletableFuture.supplyAsync(
+                () -> dbConnector.executeSelectQuery(selection, tables, tableAlias, condition, conditionArgs), executor);
+    }
+
+    /**
+     * Executes {@link DataStore#executeSelectQuery(QueryTemplate, String...)}
+     * asynchronously with the same parameters.
+     *
+     * @return the future list of maps representing the result
+     */
+    public CompletableFuture<List<Map<String, Object>>> executeSelectQuery(QueryTemplate template, String... args) {
+        return CompletableFuture.supplyAsync(() -> dbConnector.executeSelectQuery(template, args), executor);
+    }
+
+    /**
+     * Executes
+     * {@link DataStore#streamSelectQuery(QueryTemplate, DataStore.RowHandler, String...)}
+     * asynchronously with the same parameters. The handler is called on the
+     * executor.
+     *
+     * @return the future result of the streaming
+     */
+    public CompletableFuture<Boolean> streamSelectQuery(QueryTemplate template, DataStore.RowHandler handler,
+                                                        String... args) {
+        return CompletableFuture.supplyAsync(() -> dbConnector.streamSelectQuery(template, handler, args), executor);
+    }
+
+    /**
+     * Executes
+     * {@link DataStore#executeUpdateQuery(String, String[], String[], String, String[])}
+     * asynchronously with the same parameters.
+     *
+     * @return the future result of the update
+     */
+    public CompletableFuture<Boolean> executeUpdateQuery(String table, String[] modification, String[] modificationArgs,
+                                                         String selection, String[] selectionArgs) {
+        return CompletableFuture.supplyAsync(
+                () -> dbConnector.executeUpdateQuery(table, modification, modificationArgs, selection, selectionArgs),
+                executor);
+    }
+
+    /**
+     * Executes {@link DataStore#executeInsertQuery(String, String[], String[])}
+     * asynchronously with the same parameters.
+     *
+     * @return the future result of the insertion
+     */
+    public CompletableFuture<Boolean> executeInsertQuery(String table, String[] columns, String[] values) {
+        return CompletableFuture.supplyAsync(() -> dbConnector.executeInsertQuery(table, columns, values), executor);
+    }
+
+    /**
+     * Executes {@link DataStore#executeDeleteQuery(String, String, String[])}
+     * asynchronously with the same parameters.
+     *
+     * @return the future result of the deletion
+     */
+    public CompletableFuture<Boolean> executeDeleteQuery(String table, String selection, String[] selectionArgs) {
+        return CompletableFuture.supplyAsync(() -> dbConnector.executeDeleteQuery(table, selection, selectionArgs),
+                executor);
+    }
+
+    /**
+     * Runs at most a fixed number of tasks of the wrapped executor at a time. The
+     * permit is acquired on the thread of the task, so submitting never blocks.
+     */
+    static final class LimitedExecutor extends AbstractExecutorService {
+        private final ExecutorService delegate;
+        private final Semaphore permits;
+
+        LimitedExecutor(ExecutorService delegate, int maxConcurrent) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(maxConcurrent);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            delegate.execute(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+
+}
@@ -0,0 +1,128 @@
+package model;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The statements the server executes against its storage. {@link DatabaseConnector}
+ * runs them on MariaDB; {@link InMemoryDataStore} answers them from tables held
+ * in memory, e.g. for load tests and benchmarks without a database. <br>
+ * <br>
+ * Statements are described by SQL fragments (column lists, conditions with
+ * <code>?</code> placeholders, assignments) as documented on
+ * {@link DatabaseConnector}. Failed statements do not throw; they return
+ * <code>null</code>, an empty list, <code>false</code> or <code>-1</code> as
+ * documented per method.
+ */
+public interface DataStore {
+
+    /**
+     * Executes <b>SELECT</b> selection <b>FROM</b> tables <b>as</b> tableAlias
+     * <b>WHERE</b> condition, see
+     * {@link DatabaseConnector#executeSelectQuery(String[], String[], String[], String, String[])}.
+     *
+     * @return one map per row, keyed by column name; <code>null</code> if the
+     * statement failed
+     */
+    List<Map<String, Object>> executeSelectQuery(String[] selection, String[] tables, String[] tableAlias,
+                                                 String condition, String[] conditionArgs);
+
+    /**
+     * Like {@link #executeSelectQuery(String[], String[], String[], String, String[])},
+     * but materializes each row as a record of the mapper's type.
+     *
+     * @return the records; empty if the statement failed
+     */
+    <T extends Record> List<T> executeSelectQuery(RecordMapper<T> mapper, String[] selection, String[] tables,
+                                                  String[] tableAlias, String condition, String[] conditionArgs);
+
+    /**
+     * Executes the SELECT statement of the template with the given arguments.
+     *
+     * @return one map per row, keyed by column name; empty if the statement failed
+     */
+    List<Map<String, Object>> executeSelectQuery(QueryTemplate template, String... args);
+
+    /**
+     * Like {@link #executeSelectQuery(QueryTemplate, String...)}, but materializes
+     * each row as a record of the mapper's type.
+     *
+     * @return the records; empty if the statement failed
+     */
+    <T extends Record> List<T> executeSelectQuery(RecordMapper<T> mapper, QueryTemplate template, String... args);
+
+    /**
+     * Executes the SELECT statement of the template and hands every row to the
+     * handler instead of collecting the result in a list.
+     *
+     * @return <code>true</code> if all rows were handled; <code>false</code> if the
+     * statement or the handler failed
+     */
+    boolean streamSelectQuery(QueryTemplate template, RowHandler handler, String... args);
+
+    /**
+     * Executes <b>UPDATE</b> table <b>SET</b> modification <b>WHERE</b> selection.
+     *
+     * @return <code>true</code> if the update was successful; <code>false</code>
+     * otherwise
+     */
+    boolean executeUpdateQuery(String table, String[] modification, String[] modificationArgs, String selection,
+                               String[] selectionArgs);
+
+    /**
+     * Like {@link #executeUpdateQuery(String, String[], String[], String, String[])},
+     * but returns the number of rows the condition matched, so conditional updates
+     * can be checked.
+     *
+     * @return the number of updated rows; <code>-1</code> if the update failed
+     */
+    int executeCountedUpdateQuery(String table, String[] modification, String[] modificationArgs, String selection,
+                                  String[] selectionArgs);
+
+    /**
+     * Executes <b>INSERT INTO</b> table (columns) <b>VALUES</b> (values).
+     *
+     * @return <code>true</code> if the insertion was successful; <code>false</code>
+     * otherwise
+     */
+    boolean executeInsertQuery(String table, String[] columns, String[] values);
+
+    /**
+     * Executes <b>DELETE FROM</b> table <b>WHERE</b> selection.
+     *
+     * @return <code>true</code> if the deletion was successful; <code>false</code>
+     * otherwise
+     */
+    boolean executeDeleteQuery(String table, String selection, String[] selectionArgs);
+
+    /**
+     * Executes the statements of the work as one transaction: they are committed
+     * together if the work returns <code>true</code> and rolled back otherwise.
+     *
+     * @return <code>true</code> if the transaction was committed;
+     * <code>false</code> otherwise
+     */
+    boolean executeTransaction(BooleanSupplier work);
+
+    /**
+     * Releases the resources of the store.
+     */
+    void close();
+
+    /**
+     * Receives the rows of {@link #streamSelectQuery(QueryTemplate, RowHandler, String...)}.
+     */
+    @FunctionalInterface
+    interface RowHandler {
+
+        /**
+         * @param row the row; the keys are the column names
+         * @throws IOException if the row cannot be written, e.g. because
+         *                             the client closed the connection
+         */
+        void handle(Map<String, Object> row) throws IOException;
+    }
+
+}
@@ -1,11 +1,14 @@
 package model;
 
-import utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.sql.*;
 import java.util.*;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
 
 /**
  * DO NOT CHANGE THE CONTENT OF THIS CLASS, EXCEPT FOR DATABASE CONSTANTS AND
@@ -14,7 +17,7 @@ import java.util.logging.Logger;
  * Handles the connection to the MariaDB database and performs SQL statements
  * (SELECT, INSERT, UPDATE, DELETE) on it.
  */
-public class DatabaseConnector {
+public class DatabaseConnector implements DataStore {
 
     // ------------------------ DATABASE CONSTANTS ------------------------
     public static final String JDBC_DRIVER = "org.mariadb.jdbc.Driver";
@@ -36,9 +39,28 @@ public class DatabaseConnector {
     public static final String APPOINTMENTS = "appointments";
     public static final String MAINTENANCE_REMINDERS = "maintenanceReminders";
     public static final String QR_CODES = "qrCodes";
+    public static final String TOKEN_LEDGER = "token_ledger";
     // -------------------------------------------------------------------
-    private static final Logger logger = Logger.getLogger(Utils.class.getName());
+    // number of rows fetched at a time by streamSelectQuery
+    public static final int STREAM_FETCH_SIZE = 100;
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseConnector.class);
     private Connection connection;
+    // streamSelectQuery opens a connection of its own to this database
+    private String database;
+    // statements share the read lock, a transaction holds the write lock, so no other statement joins it
+    private final ReentrantReadWriteLock transactionLock = new ReentrantReadWriteLock();
+    private final Lock statementLock = transactionLock.readLock();
+    // while a transaction runs, the tables it changes are only reported to TableVersions on commit
+    private volatile Thread transactionThread;
+    private final Set<String> transactionTables = new HashSet<>();
+    private final SlowQueryLog slowQueries = SlowQueryLog.shared();
+
+    /**
+     * Creates a connector without a database connection. Only meant for
+     * subclasses that answer the statements themselves, e.g. in benchmarks.
+     */
+    protected DatabaseConnector() {
+    }
 
     public DatabaseConnector(String database) {
         try {
@@ -46,15 +68,16 @@ public class DatabaseConnector {
             Class.forName(JDBC_DRIVER);
             // open connection
             connection = DriverManager.getConnection(DB_URL + database, USERNAME, PASSWORD);
+            this.database = database;
         } catch (ClassNotFoundException e) {
-            logger.log(Level.WARNING, "ClassNotFoundException in DatabaseConnector constructor");
+            logger.warn("ClassNotFoundException in DatabaseConnector constructor");
         } catch (SQLInvalidAuthorizationSpecException e){
-            logger.log(Level.WARNING, "Invalid credentials!");
+            logger.warn("Invalid credentials!");
             throw new RuntimeException("Invalid database credentials - did you update them in the DatabaseConnector?");
         } catch (SQLException e) {
-            logger.log(Level.FINE, "SQL error when accessing %s", database);
+            logger.debug("SQL error when accessing {}", database);
             if (e.getMessage().contains("Unknown database")) {
-                logger.log(Level.WARNING, "Database not found!");
+                logger.warn("Database not found!");
                 throw new RuntimeException("Database not found - did you initialize it with setupDatabaseAndTablesResSystem.sql?");
             }
         }
@@ -94,18 +117,241 @@ public class DatabaseConnector {
      */
     public List<Map<String, Object>> executeSelectQuery(String[] selection, String[] tables, String[] tableAlias,
                                                         String condition, String[] conditionArgs) {
-        List<Map<String, Object>> map = null;
+        statementLock.lock();
+        try {
+            List<Map<String, Object>> map = null;
+            long start = System.nanoTime();
+            try {
+                PreparedStatement stmt = createSelectStatement(selection, tables, tableAlias, condition, conditionArgs);
+                if (stmt != null) {
+                    ResultSet result = stmt.executeQuery();
+                    map = map(result);
+                }
+                close(stmt);
+            } catch (SQLException e) {
+                logger.debug("SQL error when executing select statement");
+            }
+            long nanos = System.nanoTime() - start;
+            if (map != null && slowQueries.isSlow(nanos)) {
+                slowQuery(selectSql(selection, tables, tableAlias, condition), nanos, conditionArgs);
+            }
+            return map;
+        } finally {
+            statementLock.unlock();
+        }
+    }
+
+    /**
+     * Creates and executes a SQL SELECT statement like shown in
+     * {@link #executeSelectQuery(String[], String[], String[], String, String[])}
+     * with the same parameters, but materializes each row directly as a record of
+     * the mapper's type instead of a map.
+     *
+     * @param mapper        the mapper for the record type, see
+     *                      {@link RecordMapper#of(Class)}
+     * @param selection     the array with column names; cannot be
+     *                      <code>null</code>; can contain only "*" for selecting
+     *                      all columns
+     * @param tables        the array with database table names; cannot be
+     *                      <code>null</code>
+     * @param tableAlias    the array with table name aliases; can be
+     *                      <code>null</code> to omit aliases
+     * @param condition     the array with conditions; can be <code>null</code> to
+     *                      omit conditions
+     * @param conditionArgs the array with the corresponding values for the
+     *                      selection; can be <code>null</code> if no parameter
+     *                      values are needed
+     * @param <T>           the record type
+     * @return the list of records representing the result; empty if the statement
+     * failed
+     */
+    public <T extends Record> List<T> executeSelectQuery(RecordMapper<T> mapper, String[] selection, String[] tables,
+                                                         String[] tableAlias, String condition,
+                                                         String[] conditionArgs) {
+        statementLock.lock();
+        try {
+            List<T> rows = new ArrayList<>();
+            long start = System.nanoTime();
+            try {
+                PreparedStatement stmt = createSelectStatement(selection, tables, tableAlias, condition, conditionArgs);
+                if (stmt != null) {
+                    ResultSet result = stmt.executeQuery();
+                    try {
+                        rows = mapper.map(result);
+                    } finally {
+                        close(result);
+                    }
+                }
+                close(stmt);
+            } catch (SQLException e) {
+                logger.debug("SQL error when executing select statement");
+            }
+            long nanos = System.nanoTime() - start;
+            if (selection != null && tables != null && slowQueries.isSlow(nanos)) {
+                slowQuery(selectSql(selection, tables, tableAlias, condition), nanos, conditionArgs);
+            }
+            return rows;
+        } finally {
+            statementLock.unlock();
+        }
+    }
+
+    /**
+     * Executes the SELECT statement of the template with the given arguments and
+     * converts the result into a list of maps like
+     * {@link #executeSelectQuery(String[], String[], String[], String, String[])}.
+     * The SQL has already been rendered by the template, so only the arguments are
+     * bound.
+     *
+     * @param template the query template
+     * @param args     one argument per parameter of the template
+     * @return the list of maps representing the result; empty if the statement
+     * failed
+     */
+    public List<Map<String, Object>> executeSelectQuery(QueryTemplate template, String... args) {
+        statementLock.lock();
+        try {
+            List<Map<String, Object>> map = new ArrayList<>();
+            long start = System.nanoTime();
+            try {
+                PreparedStatement stmt = connection.prepareStatement(template.getSql());
+                try {
+                    template.bind(stmt, args);
+                    map = map(stmt.executeQuery());
+                } finally {
+                    close(stmt);
+                }
+            } catch (SQLException e) {
+                logger.debug("SQL error when executing query {}", template.getName());
+            }
+            long nanos = System.nanoTime() - start;
+            if (slowQueries.isSlow(nanos)) {
+                slowQuery(template, nanos, args);
+            }
+            return map;
+        } finally {
+            statementLock.unlock();
+        }
+    }
+
+    /**
+     * Executes the SELECT statement of the template with the given arguments like
+     * {@link #executeSelectQuery(QueryTemplate, String...)}, but materializes each
+     * row as a record of the mapper's type.
+     *
+     * @param mapper   the mapper for the record type
+     * @param template the query template
+     * @param args     one argument per parameter of the template
+     * @param <T>      the record type
+     * @return the list of records representing the result; empty if the statement
+     * failed
+     */
+    public <T extends Record> List<T> executeSelectQuery(RecordMapper<T> mapper, QueryTemplate template,
+                                                         String... args) {
+        statementLock.lock();
         try {
-            PreparedStatement stmt = createSelectStatement(selection, tables, tableAlias, condition, conditionArgs);
-            if (stmt != null) {
+            List<T> rows = new ArrayList<>();
+            long start = System.nanoTime();
+            try {
+                PreparedStatement stmt = connection.prepareStatement(template.getSql());
+                try {
+                    template.bind(stmt, args);
+                    ResultSet result = stmt.executeQuery();
+                    try {
+                        rows = mapper.map(result);
+                    } finally {
+                        close(result);
+                    }
+                } finally {
+                    close(stmt);
+                }
+            } catch (SQLException e) {
+                logger.debug("SQL error when executing query {}", template.getName());
+            }
+            long nanos = System.nanoTime() - start;
+            if (slowQueries.isSlow(nanos)) {
+                slowQuery(template, nanos, args);
+            }
+            return rows;
+        } finally {
+            statementLock.unlock();
+        }
+    }
+
+    /**
+     * Executes the SELECT statement of the template like
+     * {@link #executeSelectQuery(QueryTemplate, String...)}, but hands every row to
+     * the handler as soon as it has been read instead of collecting the result in a
+     * list. The rows are fetched from the database in chunks of
+     * {@link #STREAM_FETCH_SIZE}, so the memory needed does not grow with the size
+     * of the result. <br>
+     * <br>
+     * The statement runs on a connection opened for this call and closed after the
+     * last row: while rows are still to be fetched, any other statement on the same
+     * connection would make the driver read the rest of the result into memory
+     * first, and a slow handler, e.g. one waiting for a slow client, would keep the
+     * shared connection busy. The cursor stays open as long as the handler takes,
+     * so the number of concurrent streams has to be limited by the caller.
+     *
+     * @param template the query template
+     * @param handler  receives one map per row, like the items of the list returned
+     *                 by {@link #executeSelectQuery(QueryTemplate, String...)}
+     * @param args     one argument per parameter of the template
+     * @return <code>true</code> if all rows were handled; <code>false</code> if the
+     * statement or the handler failed
+     */
+    public boolean streamSelectQuery(QueryTemplate template, RowHandler handler, String... args) {
+        // only the query is timed, not the handler, which e.g. waits for the client
+        long start = System.nanoTime();
+        long nanos = -1;
+        Connection streamConnection = null;
+        try {
+            streamConnection = DriverManager.getConnection(DB_URL + database, USERNAME, PASSWORD);
+            PreparedStatement stmt = streamConnection.prepareStatement(template.getSql());
+            try {
+                template.bind(stmt, args);
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
                 ResultSet result = stmt.executeQuery();
-                map = map(result);
+                nanos = System.nanoTime() - start;
+                try {
+                    ResultSetMetaData meta = result.getMetaData();
+                    int numColumns = meta.getColumnCount();
+                    String[] names = new String[numColumns];
+                    for (int i = 1; i <= numColumns; ++i) {
+                        names[i - 1] = meta.getColumnLabel(i);
+                    }
+                    while (result.next()) {
+                        Map<String, Object> row = new HashMap<>();
+                        for (int i = 1; i <= numColumns; ++i) {
+                            row.put(names[i - 1], result.getObject(i));
+                        }
+                        handler.handle(row);
+                    }
+                } finally {
+                    close(result);
+                }
+            } finally {
+                close(stmt);
             }
-            close(stmt);
         } catch (SQLException e) {
-            logger.log(Level.FINE, "SQL error when executing select statement");
+            logger.debug("SQL error when streaming query {}", template.getName());
+            return false;
+        } catch (IOException e) {
+            logger.debug("Row handler failed when streaming query {}", template.getName());
+            return false;
+        } finally {
+            close(streamConnection);
+            if (slowQueries.isSlow(nanos)) {
+                // explained on the shared connection
+                statementLock.lock();
+                try {
+                    slowQuery(template, nanos, args);
+                } finally {
+                    statementLock.unlock();
+                }
+            }
         }
-        return map;
+        return true;
     }
 
     /**
@@ -132,29 +378,7 @@ public class DatabaseConnector {
         PreparedStatement stmt = null;
         if (selection != null && tables != null) {
             try {
-                StringBuilder sb = new StringBuilder();
-                sb.append("SELECT ");
-                sb.append(String.join(", ", selection));
-                sb.append(" FROM ");
-
-                // only if aliases for table given, concatenate them with table name
-                if (tableAlias != null) {
-                    String[] tmp = new String[tables.length];
-                    for (int i = 0; i < tables.length; i++) {
-                        tmp[i] = tables[i] + " as " + tableAlias[i];
-                    }
-                    sb.append(String.join(", ", tmp));
-                } else {
-                    sb.append(String.join(", ", tables));
-                }
-
-                // only if selection is available, append it
-                if (condition != null) {
-                    sb.append(" WHERE ");
-                    sb.append(condition);
-                }
-
-                stmt = connection.prepareStatement(sb.toString());
+                stmt = connection.prepareStatement(selectSql(selection, tables, tableAlias, condition));
 
                 // only if parameters are given, substitute them
                 if (conditionArgs != null) {
@@ -164,13 +388,42 @@ public class DatabaseConnector {
                 }
 
             } catch (SQLException e) {
-                logger.log(Level.FINE, "SQL error when executing select statement");
+                logger.debug("SQL error when executing select statement");
                 return null;
             }
         }
         return stmt;
     }
 
+    /**
+     * @return the SQL of the SELECT statement created by
+     * {@link #createSelectStatement(String[], String[], String[], String, String[])}
+     */
+    private static String selectSql(String[] selection, String[] tables, String[] tableAlias, String condition) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT ");
+        sb.append(String.join(", ", selection));
+        sb.append(" FROM ");
+
+        // only if aliases for table given, concatenate them with table name
+        if (tableAlias != null) {
+            String[] tmp = new String[tables.length];
+            for (int i = 0; i < tables.length; i++) {
+                tmp[i] = tables[i] + " as " + tableAlias[i];
+            }
+            sb.append(String.join(", ", tmp));
+        } else {
+            sb.append(String.join(", ", tables));
+        }
+
+        // only if selection is available, append it
+        if (condition != null) {
+            sb.append(" WHERE ");
+            sb.append(condition);
+        }
+        return sb.toString();
+    }
+
     /**
      * Creates a SQL UPDATE statement with the given parameters as follows:
      *
@@ -204,19 +457,62 @@ public class DatabaseConnector {
      */
     public boolean executeUpdateQuery(String table, String[] modification, String[] modificationArgs, String selection,
                                       String[] selectionArgs) {
+        return executeCountedUpdateQuery(table, modification, modificationArgs, selection, selectionArgs) >= 0;
+    }
+
+    /**
+     * Creates and executes a SQL UPDATE statement like shown in
+     * {@link #executeUpdateQuery(String, String[], String[], String, String[])}
+     * with the same parameters, but returns the number of rows that were actually
+     * changed. <br>
+     * <br>
+     * This allows conditional updates such as <code>tokens = tokens - ?</code>
+     * guarded by <code>tokens >= ?</code> to be executed atomically by the
+     * database: a result of 0 means the condition did not hold for any row.
+     *
+     * @param table            the name of the table; cannot be <code>null</code>
+     * @param modification     the array with columns that are changed; cannot be
+     *                         <code>null</code>;
+     * @param modificationArgs the array with the corresponding values for the
+     *                         modification; can be <code>null</code> if no
+     *                         modification parameter are needed
+     * @param selection        the array with conditions; can be <code>null</code>
+     *                         to omit conditions
+     * @param selectionArgs    the array with the corresponding values for the
+     *                         selection; can be <code>null</code> if no parameter
+     *                         values are needed
+     * @return the number of updated rows; <code>-1</code> if the update failed
+     */
+    public int executeCountedUpdateQuery(String table, String[] modification, String[] modificationArgs,
+                                         String selection, String[] selectionArgs) {
+        statementLock.lock();
         try {
-            PreparedStatement stmt = createUpdateStatement(table, modification, modificationArgs, selection,
-                    selectionArgs);
-            if (stmt != null) {
-                stmt.executeUpdate();
-            } else {
-                return false;
+            int updatedRows;
+            long start = System.nanoTime();
+            try {
+                PreparedStatement stmt = createUpdateStatement(table, modification, modificationArgs, selection,
+                        selectionArgs);
+                if (stmt != null) {
+                    updatedRows = stmt.executeUpdate();
+                } else {
+                    return -1;
+                }
+                close(stmt);
+                if (updatedRows > 0) {
+                    changed(table);
+                }
+            } catch (SQLException e) {
+                return -1;
             }
-            close(stmt);
-        } catch (SQLException e) {
-            return false;
+            long nanos = System.nanoTime() - start;
+            if (slowQueries.isSlow(nanos)) {
+                slowQuery(updateSql(table, modification, selection), nanos, modificationArgs,
+                        selection != null ? selectionArgs : null);
+            }
+            return updatedRows;
+        } finally {
+            statementLock.unlock();
         }
-        return true;
     }
 
     /**
@@ -242,25 +538,7 @@ public class DatabaseConnector {
         PreparedStatement stmt = null;
         if (table != null && modification != null) {
             try {
-                StringBuilder sb = new StringBuilder();
-                sb.append("UPDATE ");
-                sb.append(table);
-                sb.append(" SET ");
-
-                // Join the modifications with commas instead of AND
-                String[] cleanModifications = new String[modification.length];
-                for (int i = 0; i < modification.length; i++) {
-                    cleanModifications[i] = modification[i].replace(" and ", ", ");
-                }
-                sb.append(String.join(", ", cleanModifications));
-
-                // only if selection is available, append it
-                if (selection != null) {
-                    sb.append(" WHERE ");
-                    sb.append(selection);
-                }
-
-                String finalQuery = sb.toString();
+                String finalQuery = updateSql(table, modification, selection);
 
                 stmt = connection.prepareStatement(finalQuery);
                 int index = 1;
@@ -276,14 +554,38 @@ public class DatabaseConnector {
                 }
 
             } catch (SQLException e) {
-                System.err.println("SQL error when creating update statement: " + e.getMessage());
-                e.printStackTrace();
+                logger.warn("SQL error when creating update statement: table={} error=\"{}\"", table, e.getMessage());
                 return null;
             }
         }
         return stmt;
     }
 
+    /**
+     * @return the SQL of the UPDATE statement created by
+     * {@link #createUpdateStatement(String, String[], String[], String, String[])}
+     */
+    private static String updateSql(String table, String[] modification, String selection) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("UPDATE ");
+        sb.append(table);
+        sb.append(" SET ");
+
+        // Join the modifications with commas instead of AND
+        String[] cleanModifications = new String[modification.length];
+        for (int i = 0; i < modification.length; i++) {
+            cleanModifications[i] = modification[i].replace(" and ", ", ");
+        }
+        sb.append(String.join(", ", cleanModifications));
+
+        // only if selection is available, append it
+        if (selection != null) {
+            sb.append(" WHERE ");
+            sb.append(selection);
+        }
+        return sb.toString();
+    }
+
     /**
      * Creates a SQL INSERT statement with the given parameters as follows:
      *
@@ -305,26 +607,37 @@ public class DatabaseConnector {
      * otherwise
      */
     public boolean executeInsertQuery(String table, String[] columns, String[] values) {
+        statementLock.lock();
         try {
+            long start = System.nanoTime();
+            try {
 
-            PreparedStatement stmt = createInsertStatement(table, columns, values);
-            if (stmt != null) {
-                stmt.executeUpdate();
-            } else {
-                System.err.println("Failed to create PreparedStatement - returned null");
+                PreparedStatement stmt = createInsertStatement(table, columns, values);
+                if (stmt != null) {
+                    stmt.executeUpdate();
+                } else {
+                    return false;
+                }
+                close(stmt);
+                changed(table);
+                long nanos = System.nanoTime() - start;
+                if (slowQueries.isSlow(nanos)) {
+                    // the values are part of the statement, so they are replaced for the log
+                    String placeholders = String.join(", ", Collections.nCopies(values.length, "?"));
+                    slowQueries.record("INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                            + placeholders + ")", values.length, nanos, null);
+                }
+            } catch (SQLException e) {
+                logger.warn("SQL error when executing insert statement: table={} error=\"{}\"", table, e.getMessage());
+                return false;
+            } catch (Exception e) {
+                logger.error("Unexpected error when executing insert statement: table={}", table, e);
                 return false;
             }
-            close(stmt);
-        } catch (SQLException e) {
-            System.err.println("SQL Exception in executeInsertQuery: " + e.getMessage());
-            e.printStackTrace();
-            return false;
-        } catch (Exception e) {
-            System.err.println("Unexpected error in executeInsertQuery: " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            return true;
+        } finally {
+            statementLock.unlock();
         }
-        return true;
     }
 
     /**
@@ -344,14 +657,9 @@ public class DatabaseConnector {
         try {
 
             if (table == null || columns == null || values == null || columns.length != values.length) {
-                System.err.println("Invalid parameters for INSERT statement:");
-                System.err.println("Table is null: " + (table == null));
-                System.err.println("Columns is null: " + (columns == null));
-                System.err.println("Values is null: " + (values == null));
-                if (columns != null && values != null) {
-                    System.err.println("Column length: " + columns.length);
-                    System.err.println("Values length: " + values.length);
-                }
+                // only the shape, the values may contain passwords
+                logger.warn("Invalid parameters for insert statement: table={} columns={} values={}", table,
+                        columns != null ? columns.length : null, values != null ? values.length : null);
                 return null;
             }
 
@@ -373,12 +681,10 @@ public class DatabaseConnector {
             return stmt;
 
         } catch (SQLException e) {
-            System.err.println("SQL Error in createInsertStatement: " + e.getMessage());
-            e.printStackTrace();
+            logger.warn("SQL error when creating insert statement: table={} error=\"{}\"", table, e.getMessage());
             return null;
         } catch (Exception e) {
-            System.err.println("Unexpected error in createInsertStatement: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Unexpected error when creating insert statement: table={}", table, e);
             return null;
         }
     }
@@ -410,18 +716,30 @@ public class DatabaseConnector {
      * otherwise
      */
     public boolean executeDeleteQuery(String table, String selection, String[] selectionArgs) {
+        statementLock.lock();
         try {
-            PreparedStatement stmt = createDeleteStatement(table, selection, selectionArgs);
-            if (stmt != null) {
-                stmt.executeUpdate();
-            } else {
+            long start = System.nanoTime();
+            try {
+                PreparedStatement stmt = createDeleteStatement(table, selection, selectionArgs);
+                if (stmt != null) {
+                    if (stmt.executeUpdate() > 0) {
+                        changed(table);
+                    }
+                } else {
+                    return false;
+                }
+                close(stmt);
+            } catch (SQLException e) {
                 return false;
             }
-            close(stmt);
-        } catch (SQLException e) {
-            return false;
+            long nanos = System.nanoTime() - start;
+            if (slowQueries.isSlow(nanos)) {
+                slowQuery(deleteSql(table, selection), nanos, selectionArgs);
+            }
+            return true;
+        } finally {
+            statementLock.unlock();
         }
-        return true;
     }
 
     /**
@@ -442,17 +760,7 @@ public class DatabaseConnector {
         PreparedStatement stmt = null;
         if (table != null) {
             try {
-                StringBuilder sb = new StringBuilder();
-                sb.append("DELETE FROM ");
-                sb.append(table);
-
-                // only if selection is available, append it
-                if (selection != null) {
-                    sb.append(" WHERE ");
-                    sb.append(selection);
-                }
-
-                stmt = connection.prepareStatement(sb.toString());
+                stmt = connection.prepareStatement(deleteSql(table, selection));
                 // only if parameters are given, substitute them
                 if (selectionArgs != null) {
                     for (int i = 0; i < selectionArgs.length; i++) {
@@ -460,13 +768,156 @@ public class DatabaseConnector {
                     }
                 }
             } catch (SQLException e) {
-                logger.log(Level.FINE, "SQL error when executing delete statement");
+                logger.debug("SQL error when executing delete statement");
                 return null;
             }
         }
         return stmt;
     }
 
+    /**
+     * @return the SQL of the DELETE statement created by
+     * {@link #createDeleteStatement(String, String, String[])}
+     */
+    private static String deleteSql(String table, String selection) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("DELETE FROM ");
+        sb.append(table);
+
+        // only if selection is available, append it
+        if (selection != null) {
+            sb.append(" WHERE ");
+            sb.append(selection);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Executes the given work as one database transaction. All statements that
+     * the work executes through this connector are committed together if the work
+     * returns <code>true</code>, and rolled back otherwise. <br>
+     * <br>
+     * Statements of other threads using the same connector wait until the
+     * transaction has finished, so that they are not committed or rolled back with
+     * it. A connector that is used for transactions should therefore not be
+     * shared with request handling.
+     *
+     * @param work the statements to execute; returns whether all of them succeeded
+     * @return <code>true</code> if the transaction was committed;
+     * <code>false</code> otherwise
+     */
+    public boolean executeTransaction(BooleanSupplier work) {
+        if (connection == null) {
+            return false;
+        }
+        transactionLock.writeLock().lock();
+        try {
+            connection.setAutoCommit(false);
+            transactionThread = Thread.currentThread();
+            try {
+                if (work.getAsBoolean()) {
+                    connection.commit();
+                    for (String table : transactionTables) {
+                        TableVersions.bump(table);
+                    }
+                    return true;
+                }
+                connection.rollback();
+                return false;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                logger.warn("Transaction rolled back", e);
+                return false;
+            } finally {
+                transactionThread = null;
+                transactionTables.clear();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.warn("SQL error when executing transaction", e);
+            return false;
+        } finally {
+            transactionLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reports a committed change of the table to {@link TableVersions}; inside a
+     * transaction the report is deferred until the commit.
+     */
+    private void changed(String table) {
+        if (Thread.currentThread() == transactionThread) {
+            transactionTables.add(table);
+        } else {
+            TableVersions.bump(table);
+        }
+    }
+
+    /**
+     * Records a slow statement of a template in the {@link SlowQueryLog}, with its
+     * plan if the log asks for it.
+     */
+    private void slowQuery(QueryTemplate template, long nanos, String[] args) {
+        String sql = template.getSql();
+        List<Map<String, Object>> plan = null;
+        if (slowQueries.shouldExplain(sql)) {
+            plan = explain(sql, stmt -> template.bind(stmt, args));
+        }
+        slowQueries.record(sql, args != null ? args.length : 0, nanos, plan);
+    }
+
+    /**
+     * Records a slow statement whose arguments are bound as strings in the
+     * {@link SlowQueryLog}, with its plan if the log asks for it.
+     *
+     * @param args the arguments in the order of their placeholders; arrays can be
+     *             <code>null</code>
+     */
+    private void slowQuery(String sql, long nanos, String[]... args) {
+        List<String> values = new ArrayList<>();
+        for (String[] group : args) {
+            if (group != null) {
+                values.addAll(Arrays.asList(group));
+            }
+        }
+        List<Map<String, Object>> plan = null;
+        if (slowQueries.shouldExplain(sql)) {
+            plan = explain(sql, stmt -> {
+                for (int i = 0; i < values.size(); i++) {
+                    stmt.setString(i + 1, values.get(i));
+                }
+            });
+        }
+        slowQueries.record(sql, values.size(), nanos, plan);
+    }
+
+    /**
+     * Asks the database how it executes the statement, without executing it.
+     *
+     * @return the rows of the <b>EXPLAIN</b> output; <code>null</code> if the
+     * statement cannot be explained
+     */
+    private List<Map<String, Object>> explain(String sql, StatementBinder binder) {
+        if (connection == null) {
+            return null;
+        }
+        try (PreparedStatement stmt = connection.prepareStatement("EXPLAIN " + sql)) {
+            binder.bind(stmt);
+            return map(stmt.executeQuery());
+        } catch (SQLException e) {
+            logger.debug("SQL error when explaining {}", sql);
+            return null;
+        }
+    }
+
+    /**
+     * Binds the arguments of a statement.
+     */
+    @FunctionalInterface
+    private interface StatementBinder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
     /**
      * Maps the <code>ResultSet</code> to a list of maps. Each list item corresponds
      * to one line in the result. The keys of the map are the column names and the
@@ -494,7 +945,7 @@ public class DatabaseConnector {
                 }
             }
         } catch (SQLException e) {
-            logger.log(Level.FINE, "SQL error when executing statement");
+            logger.debug("SQL error when executing statement");
         } finally {
             close(result);
         }
@@ -509,7 +960,17 @@ public class DatabaseConnector {
                 connection.close();
             }
         } catch (SQLException e) {
-            logger.log(Level.FINE, "SQL error when closing");
+            logger.debug("SQL error when closing");
+        }
+    }
+
+    private void close(Connection conn) {
+        try {
+            if (conn != null) {
+                conn.close();
+            }
+        } catch (SQLException e) {
+            logger.debug("SQL error when closing");
         }
     }
 
@@ -519,7 +980,7 @@ public class DatabaseConnector {
                 st.close();
             }
         } catch (SQLException e) {
-            logger.log(Level.FINE, "SQL error when closing");
+            logger.debug("SQL error when closing");
         }
     }
 
@@ -529,7 +990,7 @@ public class DatabaseConnector {
                 rs.close();
             }
         } catch (SQLException e) {
-            logger.log(Level.FINE, "SQL error when closing");
+            logger.debug("SQL error when closing");
         }
     }
 
@@ -0,0 +1,1177 @@
+package model;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link DataStore} that keeps its tables in memory, so the server can run
+ * without MariaDB, e.g. in load tests, benchmarks and CI. {@link #reservationSystem()}
+ * creates the tables of <i>setupDatabaseAndTablesResSystem.sql</i>. <br>
+ * <br>
+ * It understands the SQL fragments the server uses, not SQL in general:
+ * <ul>
+ * <li>selections of <code>*</code>, <code>alias.*</code>, columns and
+ * <code>column as label</code>, optionally starting with <code>DISTINCT</code></li>
+ * <li>conditions that combine comparisons (<code>=</code>, <code>&lt;&gt;</code>,
+ * <code>&lt;</code>, <code>&lt;=</code>, <code>&gt;</code>, <code>&gt;=</code>)
+ * of a column with a placeholder, a literal or another column, and
+ * <code>IS [NOT] NULL</code>, with <code>and</code></li>
+ * <li>assignments <code>column = ?</code> and <code>column = column +/- ?</code></li>
+ * </ul>
+ * Anything else makes the statement fail like an SQL error would. Values are
+ * converted to the column types like MariaDB does: <code>INT</code> columns hold
+ * <code>Integer</code>s, <code>DECIMAL</code> columns <code>BigDecimal</code>s with
+ * the declared scale, <code>DATETIME</code> columns <code>Timestamp</code>s and
+ * <code>DATE</code> columns <code>java.sql.Date</code>s. Strings are compared
+ * ignoring case, like with the default collation. Inserting <code>null</code>
+ * stores SQL <code>NULL</code>. <br>
+ * <br>
+ * An <code>INT</code> column named <i>id</i> is the auto-increment primary key;
+ * conditions on it are answered with a hash lookup instead of a scan, also in
+ * joins. <code>UNIQUE</code> columns reject duplicates. Statements run under a
+ * read-write lock, and a transaction holds the write lock until it commits or
+ * rolls back, so like with {@link DatabaseConnector} other threads wait for it.
+ */
+public class InMemoryDataStore implements DataStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryDataStore.class);
+
+    private static final Pattern COLUMN_DEFINITION = Pattern.compile(
+            "(\\w+)\\s+(\\w+)(?:\\((\\d+)(?:\\s*,\\s*(\\d+))?\\))?((?:\\s+UNIQUE)?)(?:\\s+DEFAULT\\s+(\\S+))?",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern COMPARISON = Pattern.compile("(.+?)\\s*(<>|!=|<=|>=|=|<|>)\\s*(.+)");
+    private static final Pattern NULL_CHECK = Pattern.compile("(\\S+)\\s+IS\\s+(NOT\\s+)?NULL", Pattern.CASE_INSENSITIVE);
+    private static final Pattern AND = Pattern.compile("\\s+and\\s+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern AS = Pattern.compile("\\s+as\\s+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DISTINCT = Pattern.compile("DISTINCT\\s+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ASSIGNMENT = Pattern.compile("(\\w+)\\s*=\\s*(.+)");
+    private static final Pattern INCREMENT = Pattern.compile("(\\w+)\\s*([+-])\\s*\\?");
+    private static final String ID = "id";
+
+    private final Map<String, Table> tables = new ConcurrentHashMap<>();
+    private final Map<QueryTemplate, SelectPlan> templatePlans = new ConcurrentHashMap<>();
+    private final Map<String, Object> plans = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // only set while a transaction holds the write lock
+    private List<Runnable> undoLog;
+    private final Set<String> transactionTables = new HashSet<>();
+
+    /**
+     * Creates a store without tables; add them with
+     * {@link #createTable(String, String...)}.
+     */
+    public InMemoryDataStore() {
+    }
+
+    /**
+     * @return a store with the empty tables of the reservation system database
+     */
+    public static InMemoryDataStore reservationSystem() {
+        InMemoryDataStore store = new InMemoryDataStore();
+        store.createTable(DatabaseConnector.CUSTOMERS, "id INT", "firstName VARCHAR(100)", "lastName VARCHAR(100)",
+                "email VARCHAR(100) UNIQUE", "vehicle_registration_number VARCHAR(10)", "phone_number VARCHAR(15)",
+                "password VARCHAR(100)", "security_question_id INT", "security_question TEXT",
+                "security_answer TEXT", "tokens INT DEFAULT 0");
+        store.createTable(DatabaseConnector.PROMOTIONS, "id INT", "description TEXT",
+                "discountPercentage DECIMAL(5,2)", "validFrom DATE", "validTo DATE");
+        store.createTable(DatabaseConnector.WORKSHOPS, "id INT", "name VARCHAR(255)", "location VARCHAR(255)",
+                "contactInfo VARCHAR(255)");
+        store.createTable(DatabaseConnector.TECHNICIANS, "id INT", "name VARCHAR(100)",
+                "certifications VARCHAR(100)", "experience INT", "workshop_id INT");
+        store.createTable(DatabaseConnector.SERVICES, "id INT", "name VARCHAR(100)", "duration INT",
+                "price DECIMAL(10,2)", "description TEXT", "promotion_id INT");
+        store.createTable(DatabaseConnector.WORKSHOP_SERVICES, "workshop_id INT", "service_id INT");
+        store.createTable(DatabaseConnector.REVIEWS, "id INT", "rating INT", "created_at DATETIME",
+                "comment TEXT", "customer_id INT", "service_id INT", "workshop_id INT");
+        store.createTable(DatabaseConnector.APPOINTMENTS, "id INT", "customer_id INT", "workshop_id INT",
+                "service_id INT", "technician_id INT", "scheduledTime DATETIME", "createdAt DATETIME",
+                "modifiedAt DATETIME", "appointmentStatus VARCHAR(100)", "paymentMethod VARCHAR(100)",
+                "paymentStatus VARCHAR(100)");
+        store.createTable(DatabaseConnector.MAINTENANCE_REMINDERS, "id INT", "intervalMonths INT",
+                "serviceType VARCHAR(100)", "nextReminder DATE", "customer_id INT");
+        store.createTable(DatabaseConnector.QR_CODES, "id INT", "codeData VARCHAR(100)", "generationTime DATETIME",
+                "appointment_id INT");
+        store.createTable(DatabaseConnector.TOKEN_LEDGER, "id INT", "customer_id INT", "delta INT",
+                "reason VARCHAR(100)", "createdAt DATETIME");
+        return store;
+    }
+
+    /**
+     * Creates an empty table, replacing a table with the same name.
+     *
+     * @param table   the name of the table
+     * @param columns the column definitions in the form
+     *                <code>name TYPE[(precision[, scale])] [UNIQUE] [DEFAULT value]</code>
+     *                with the types <code>INT</code>, <code>DECIMAL</code>,
+     *                <code>VARCHAR</code>/<code>TEXT</code>, <code>DATETIME</code>/<code>TIMESTAMP</code>
+     *                and <code>DATE</code>
+     * @throws IllegalArgumentException if a definition is invalid
+     */
+    public void createTable(String table, String... columns) {
+        Column[] definitions = new Column[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            definitions[i] = Column.parse(columns[i].trim());
+        }
+        lock.writeLock().lock();
+        try {
+            tables.put(key(table), new Table(table, definitions));
+            plans.clear();
+            templatePlans.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param table the name of the table
+     * @return the number of rows in the table; <code>-1</code> if there is no such
+     * table
+     */
+    public int size(String table) {
+        lock.readLock().lock();
+        try {
+            Table t = tables.get(key(table));
+            return t != null ? t.rows.size() : -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // SELECT
+
+    @Override
+    public List<Map<String, Object>> executeSelectQuery(String[] selection, String[] tables, String[] tableAlias,
+                                                        String condition, String[] conditionArgs) {
+        try {
+            SelectPlan plan = selectPlan(selection, tables, tableAlias, condition);
+            return select(plan, conditionArgs);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Error when executing select statement: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public <T extends Record> List<T> executeSelectQuery(RecordMapper<T> mapper, String[] selection, String[] tables,
+                                                         String[] tableAlias, String condition,
+                                                         String[] conditionArgs) {
+        List<Map<String, Object>> rows = executeSelectQuery(selection, tables, tableAlias, condition, conditionArgs);
+        return rows != null ? mapRecords(mapper, rows) : new ArrayList<>();
+    }
+
+    @Override
+    public List<Map<String, Object>> executeSelectQuery(QueryTemplate template, String... args) {
+        try {
+            return select(templatePlan(template), templateArguments(template, args));
+        } catch (IllegalArgumentException e) {
+            logger.debug("Error when executing query {}: {}", template.getName(), e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public <T extends Record> List<T> executeSelectQuery(RecordMapper<T> mapper, QueryTemplate template,
+                                                         String... args) {
+        return mapRecords(mapper, executeSelectQuery(template, args));
+    }
+
+    /**
+     * Collects the rows first and hands them to the handler after the read lock
+     * was released, so a slow handler does not block writers.
+     */
+    @Override
+    public boolean streamSelectQuery(QueryTemplate template, RowHandler handler, String... args) {
+        List<Map<String, Object>> rows;
+        try {
+            rows = select(templatePlan(template), templateArguments(template, args));
+        } catch (IllegalArgumentException e) {
+            logger.debug("Error when streaming query {}: {}", template.getName(), e.getMessage());
+            return false;
+        }
+        try {
+            for (Map<String, Object> row : rows) {
+                handler.handle(row);
+            }
+        } catch (IOException e) {
+            logger.debug("Row handler failed when streaming query {}", template.getName());
+            return false;
+        }
+        return true;
+    }
+
+    private SelectPlan templatePlan(QueryTemplate template) {
+        SelectPlan plan = templatePlans.get(template);
+        if (plan == null) {
+            plan = new SelectPlan(this, template.selection(), template.getTables(), template.tableAlias(),
+                    template.condition());
+            templatePlans.put(template, plan);
+        }
+        return plan;
+    }
+
+    private SelectPlan selectPlan(String[] selection, String[] tables, String[] tableAlias, String condition) {
+        if (selection == null || tables == null) {
+            throw new IllegalArgumentException("selection and tables are required");
+        }
+        String planKey = "SELECT " + Arrays.toString(selection) + Arrays.toString(tables)
+                + Arrays.toString(tableAlias) + condition;
+        Object plan = plans.get(planKey);
+        if (plan == null) {
+            plan = new SelectPlan(this, selection, tables, tableAlias, condition);
+            plans.put(planKey, plan);
+        }
+        return (SelectPlan) plan;
+    }
+
+    /**
+     * Checks the arguments against the parameter types of the template, like
+     * binding them to a prepared statement would.
+     */
+    private static String[] templateArguments(QueryTemplate template, String[] args) {
+        QueryTemplate.ParameterType[] types = template.parameterTypes();
+        int count = args != null ? args.length : 0;
+        if (count != types.length) {
+            throw new IllegalArgumentException("expects " + types.length + " arguments, got " + count);
+        }
+        for (int i = 0; i < count; i++) {
+            if (types[i] == QueryTemplate.ParameterType.INT) {
+                try {
+                    Integer.parseInt(args[i]);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("argument " + (i + 1) + " is not an integer");
+                }
+            }
+        }
+        return args;
+    }
+
+    private List<Map<String, Object>> select(SelectPlan plan, String[] args) {
+        lock.readLock().lock();
+        try {
+            return plan.execute(args);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static <T extends Record> List<T> mapRecords(RecordMapper<T> mapper, List<Map<String, Object>> rows) {
+        try {
+            return mapper.map(rows);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Error when mapping rows to {}", mapper.getType().getName());
+            return new ArrayList<>();
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // UPDATE, INSERT, DELETE
+
+    @Override
+    public boolean executeUpdateQuery(String table, String[] modification, String[] modificationArgs, String selection,
+                                      String[] selectionArgs) {
+        return executeCountedUpdateQuery(table, modification, modificationArgs, selection, selectionArgs) >= 0;
+    }
+
+    @Override
+    public int executeCountedUpdateQuery(String table, String[] modification, String[] modificationArgs,
+                                         String selection, String[] selectionArgs) {
+        lock.writeLock().lock();
+        try {
+            if (table == null || modification == null) {
+                return -1;
+            }
+            String planKey = "UPDATE " + table + Arrays.toString(modification) + selection;
+            Object plan = plans.get(planKey);
+            if (plan == null) {
+                plan = new UpdatePlan(this, table, modification, selection);
+                plans.put(planKey, plan);
+            }
+            int updatedRows = ((UpdatePlan) plan).execute(modificationArgs, selectionArgs);
+            if (updatedRows > 0) {
+                changed(table);
+            }
+            return updatedRows;
+        } catch (IllegalArgumentException e) {
+            logger.debug("Error when executing update statement: {}", e.getMessage());
+            return -1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean executeInsertQuery(String table, String[] columns, String[] values) {
+        lock.writeLock().lock();
+        try {
+            if (table == null || columns == null || values == null || columns.length != values.length) {
+                throw new IllegalArgumentException("invalid parameters for INSERT statement");
+            }
+            Table t = table(table);
+            Object[] row = t.newRow();
+            for (int i = 0; i < columns.length; i++) {
+                int column = t.column(columns[i]);
+                row[column] = t.columns[column].convert(values[i]);
+            }
+            t.insert(row);
+            record(() -> t.remove(row));
+            changed(table);
+            return true;
+        } catch (IllegalArgumentException e) {
+            logger.debug("Error when executing insert statement: {}", e.getMessage());
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean executeDeleteQuery(String table, String selection, String[] selectionArgs) {
+        lock.writeLock().lock();
+        try {
+            if (table == null) {
+                return false;
+            }
+            String planKey = "DELETE " + table + selection;
+            Object plan = plans.get(planKey);
+            if (plan == null) {
+                plan = new Condition(this, new Table[]{table(table)}, new String[]{table}, selection);
+                plans.put(planKey, plan);
+            }
+            Condition condition = (Condition) plan;
+            Table t = table(table);
+            Object[] args = condition.bind(selectionArgs, 0);
+            Object[][] current = new Object[1][];
+            boolean deleted = false;
+            for (int i = t.rows.size() - 1; i >= 0; i--) {
+                current[0] = t.rows.get(i);
+                if (condition.matches(current, args, 0)) {
+                    Object[] row = current[0];
+                    int index = i;
+                    t.removeAt(index);
+                    record(() -> t.insertAt(index, row));
+                    deleted = true;
+                }
+            }
+            if (deleted) {
+                changed(table);
+            }
+            return true;
+        } catch (IllegalArgumentException e) {
+            logger.debug("Error when executing delete statement: {}", e.getMessage());
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // TRANSACTIONS
+
+    @Override
+    public boolean executeTransaction(BooleanSupplier work) {
+        lock.writeLock().lock();
+        if (undoLog != null) {
+            // nested transactions are not supported, like on a JDBC connection
+            lock.writeLock().unlock();
+            return false;
+        }
+        undoLog = new ArrayList<>();
+        try {
+            if (work.getAsBoolean()) {
+                for (String table : transactionTables) {
+                    TableVersions.bump(table);
+                }
+                return true;
+            }
+            rollback();
+            return false;
+        } catch (RuntimeException e) {
+            rollback();
+            logger.warn("Transaction rolled back", e);
+            return false;
+        } finally {
+            undoLog = null;
+            transactionTables.clear();
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rollback() {
+        for (int i = undoLog.size() - 1; i >= 0; i--) {
+            undoLog.get(i).run();
+        }
+    }
+
+    /**
+     * Remembers how to undo a change if it is part of a transaction.
+     */
+    private void record(Runnable undo) {
+        if (undoLog != null) {
+            undoLog.add(undo);
+        }
+    }
+
+    /**
+     * Reports a change of the table to {@link TableVersions}; inside a
+     * transaction the report is deferred until the commit.
+     */
+    private void changed(String table) {
+        if (undoLog != null) {
+            transactionTables.add(table);
+        } else {
+            TableVersions.bump(table);
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private Table table(String name) {
+        Table table = tables.get(key(name));
+        if (table == null) {
+            throw new IllegalArgumentException("Table '" + name + "' doesn't exist");
+        }
+        return table;
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // TABLES AND VALUES
+
+    private enum ColumnType {
+        INT, DECIMAL, STRING, DATETIME, DATE;
+
+        static ColumnType of(String sqlType) {
+            switch (sqlType.toUpperCase(Locale.ROOT)) {
+                case "INT":
+                case "INTEGER":
+                case "TINYINT":
+                case "SMALLINT":
+                    return INT;
+                case "DECIMAL":
+                    return DECIMAL;
+                case "VARCHAR":
+                case "CHAR":
+                case "TEXT":
+                    return STRING;
+                case "DATETIME":
+                case "TIMESTAMP":
+                    return DATETIME;
+                case "DATE":
+                    return DATE;
+                default:
+                    throw new IllegalArgumentException("Unsupported column type " + sqlType);
+            }
+        }
+    }
+
+    private static final class Column {
+        private final String name;
+        private final ColumnType type;
+        private final int scale;
+        private final boolean unique;
+        private final Object defaultValue;
+
+        private Column(String name, ColumnType type, int scale, boolean unique, String defaultValue) {
+            this.name = name;
+            this.type = type;
+            this.scale = scale;
+            this.unique = unique;
+            this.defaultValue = defaultValue != null ? convert(defaultValue) : null;
+        }
+
+        static Column parse(String definition) {
+            Matcher matcher = COLUMN_DEFINITION.matcher(definition);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Invalid column definition: " + definition);
+            }
+            String defaultValue = matcher.group(6);
+            if (defaultValue != null && defaultValue.equalsIgnoreCase("NULL")) {
+                defaultValue = null;
+            }
+            return new Column(matcher.group(1), ColumnType.of(matcher.group(2)),
+                    matcher.group(4) != null ? Integer.parseInt(matcher.group(4)) : 0,
+                    !matcher.group(5).isEmpty(), defaultValue);
+        }
+
+        /**
+         * Converts a value sent as text to the type of the column.
+         *
+         * @throws IllegalArgumentException if the text is not a valid value
+         */
+        Object convert(String value) {
+            if (value == null) {
+                return null;
+            }
+            switch (type) {
+                case INT:
+                    return Integer.valueOf(value.trim());
+                case DECIMAL:
+                    return new BigDecimal(value.trim()).setScale(scale, RoundingMode.HALF_UP);
+                case DATETIME:
+                    String dateTime = value.trim().replace('T', ' ');
+                    return Timestamp.valueOf(dateTime.length() == 16 ? dateTime + ":00" : dateTime);
+                case DATE:
+                    return java.sql.Date.valueOf(value.trim());
+                default:
+                    return value;
+            }
+        }
+
+        /**
+         * Converts a value, e.g. the result of an arithmetic expression or a value of
+         * another column, to the type of the column.
+         */
+        Object convert(Object value) {
+            if (value == null || value instanceof String) {
+                return convert((String) value);
+            }
+            switch (type) {
+                case INT:
+                    return ((Number) value).intValue();
+                case DECIMAL:
+                    return new BigDecimal(value.toString()).setScale(scale, RoundingMode.HALF_UP);
+                default:
+                    return convert(value.toString());
+            }
+        }
+    }
+
+    private static final class Table {
+        private final String name;
+        private final Column[] columns;
+        private final Map<String, Integer> columnIndex = new HashMap<>();
+        private final int idColumn;
+        private final List<Object[]> rows = new ArrayList<>();
+        private final Map<Long, Object[]> byId = new HashMap<>();
+        // one index per UNIQUE column, keyed by the normalized value
+        private final Map<Integer, Map<Object, Object[]>> uniqueIndexes = new HashMap<>();
+        private int nextId = 1;
+
+        private Table(String name, Column[] columns) {
+            this.name = name;
+            this.columns = columns;
+            int id = -1;
+            for (int i = 0; i < columns.length; i++) {
+                columnIndex.put(key(columns[i].name), i);
+                if (columns[i].name.equalsIgnoreCase(ID) && columns[i].type == ColumnType.INT) {
+                    id = i;
+                }
+                if (columns[i].unique) {
+                    uniqueIndexes.put(i, new HashMap<>());
+                }
+            }
+            this.idColumn = id;
+        }
+
+        int column(String name) {
+            Integer index = columnIndex.get(key(name));
+            if (index == null) {
+                throw new IllegalArgumentException("Unknown column '" + name + "' in '" + this.name + "'");
+            }
+            return index;
+        }
+
+        Object[] newRow() {
+            Object[] row = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                row[i] = columns[i].defaultValue;
+            }
+            return row;
+        }
+
+        void insert(Object[] row) {
+            insertAt(rows.size(), row);
+        }
+
+        void insertAt(int index, Object[] row) {
+            if (idColumn >= 0) {
+                if (row[idColumn] == null) {
+                    row[idColumn] = nextId;
+                } else if (byId.containsKey(((Number) row[idColumn]).longValue())) {
+                    throw new IllegalArgumentException("Duplicate entry '" + row[idColumn] + "' for key 'PRIMARY'");
+                }
+                nextId = Math.max(nextId, ((Number) row[idColumn]).intValue() + 1);
+            }
+            for (Map.Entry<Integer, Map<Object, Object[]>> unique : uniqueIndexes.entrySet()) {
+                Object value = normalize(row[unique.getKey()]);
+                if (value != null && unique.getValue().containsKey(value)) {
+                    throw new IllegalArgumentException("Duplicate entry '" + row[unique.getKey()] + "' for key '"
+                            + columns[unique.getKey()].name + "'");
+                }
+            }
+            for (Map.Entry<Integer, Map<Object, Object[]>> unique : uniqueIndexes.entrySet()) {
+                Object value = normalize(row[unique.getKey()]);
+                if (value != null) {
+                    unique.getValue().put(value, row);
+                }
+            }
+            if (idColumn >= 0) {
+                byId.put(((Number) row[idColumn]).longValue(), row);
+            }
+            rows.add(index, row);
+        }
+
+        void remove(Object[] row) {
+            for (int i = rows.size() - 1; i >= 0; i--) {
+                if (rows.get(i) == row) {
+                    removeAt(i);
+                    return;
+                }
+            }
+        }
+
+        void removeAt(int index) {
+            Object[] row = rows.remove(index);
+            if (idColumn >= 0) {
+                byId.remove(((Number) row[idColumn]).longValue());
+            }
+            for (Map.Entry<Integer, Map<Object, Object[]>> unique : uniqueIndexes.entrySet()) {
+                Object value = normalize(row[unique.getKey()]);
+                if (value != null) {
+                    unique.getValue().remove(value);
+                }
+            }
+        }
+
+        /**
+         * Replaces the values of a row, keeping the unique indexes up to date.
+         *
+         * @throws IllegalArgumentException if a unique value is taken by another row
+         */
+        void replace(Object[] row, Object[] values) {
+            for (Map.Entry<Integer, Map<Object, Object[]>> unique : uniqueIndexes.entrySet()) {
+                Object value = normalize(values[unique.getKey()]);
+                Object[] other = value != null ? unique.getValue().get(value) : null;
+                if (other != null && other != row) {
+                    throw new IllegalArgumentException("Duplicate entry '" + values[unique.getKey()]
+                            + "' for key '" + columns[unique.getKey()].name + "'");
+                }
+            }
+            for (Map.Entry<Integer, Map<Object, Object[]>> unique : uniqueIndexes.entrySet()) {
+                Object oldValue = normalize(row[unique.getKey()]);
+                if (oldValue != null) {
+                    unique.getValue().remove(oldValue);
+                }
+                Object value = normalize(values[unique.getKey()]);
+                if (value != null) {
+                    unique.getValue().put(value, row);
+                }
+            }
+            System.arraycopy(values, 0, row, 0, row.length);
+        }
+
+        Object[] findById(Object id) {
+            return id instanceof Number ? byId.get(((Number) id).longValue()) : null;
+        }
+    }
+
+    /**
+     * Makes equal values equal keys: numbers by their value, strings ignoring
+     * case.
+     */
+    private static Object normalize(Object value) {
+        if (value instanceof String) {
+            return ((String) value).toLowerCase(Locale.ROOT);
+        } else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).stripTrailingZeros();
+        } else if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return value;
+    }
+
+    /**
+     * Compares two non-null values like SQL: numbers by value, strings ignoring
+     * case, everything else by its natural order.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number) {
+            if (a instanceof BigDecimal || b instanceof BigDecimal) {
+                return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString()));
+            }
+            return Long.compare(((Number) a).longValue(), ((Number) b).longValue());
+        } else if (a instanceof String || b instanceof String) {
+            return a.toString().compareToIgnoreCase(b.toString());
+        } else if (a instanceof java.util.Date && b instanceof java.util.Date) {
+            return Long.compare(((java.util.Date) a).getTime(), ((java.util.Date) b).getTime());
+        } else if (a instanceof Comparable && a.getClass() == b.getClass()) {
+            return ((Comparable) a).compareTo(b);
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // PLANS
+
+    /**
+     * A column of one of the tables in the <b>FROM</b> part.
+     */
+    private static final class ColumnRef {
+        private final int table;
+        private final int column;
+
+        private ColumnRef(int table, int column) {
+            this.table = table;
+            this.column = column;
+        }
+
+        static ColumnRef resolve(Table[] tables, String[] aliases, String reference) {
+            String name = reference.trim();
+            int dot = name.indexOf('.');
+            if (dot >= 0) {
+                String alias = name.substring(0, dot);
+                for (int t = 0; t < tables.length; t++) {
+                    if (aliases[t].equalsIgnoreCase(alias)) {
+                        return new ColumnRef(t, tables[t].column(name.substring(dot + 1)));
+                    }
+                }
+                throw new IllegalArgumentException("Unknown table '" + alias + "'");
+            }
+            for (int t = 0; t < tables.length; t++) {
+                Integer column = tables[t].columnIndex.get(key(name));
+                if (column != null) {
+                    return new ColumnRef(t, column);
+                }
+            }
+            throw new IllegalArgumentException("Unknown column '" + name + "'");
+        }
+
+        Object value(Object[][] current) {
+            return current[table][column];
+        }
+    }
+
+    /**
+     * One comparison of a <b>WHERE</b> part. The left side is always a column; the
+     * right side is a placeholder, a literal (converted to the type of the left
+     * column once) or another column.
+     */
+    private static final class Predicate {
+        private final ColumnRef left;
+        private final String operator;
+        private final int parameter;
+        private final Object literal;
+        private final ColumnRef right;
+        // the deepest table the predicate needs, i.e. when it can be evaluated in a join
+        private final int depth;
+
+        private Predicate(ColumnRef left, String operator, int parameter, Object literal, ColumnRef right) {
+            this.left = left;
+            this.operator = operator;
+            this.parameter = parameter;
+            this.literal = literal;
+            this.right = right;
+            this.depth = right != null ? Math.max(left.table, right.table) : left.table;
+        }
+
+        boolean matches(Object[][] current, Object[] args) {
+            Object value = left.value(current);
+            if (operator.equals("IS NULL")) {
+                return value == null;
+            } else if (operator.equals("IS NOT NULL")) {
+                return value != null;
+            }
+            Object other = right != null ? right.value(current) : parameter >= 0 ? args[parameter] : literal;
+            if (value == null || other == null) {
+                return false;
+            }
+            int comparison = compare(value, other);
+            switch (operator) {
+                case "=":
+                    return comparison == 0;
+                case "<>":
+                case "!=":
+                    return comparison != 0;
+                case "<":
+                    return comparison < 0;
+                case "<=":
+                    return comparison <= 0;
+                case ">":
+                    return comparison > 0;
+                default:
+                    return comparison >= 0;
+            }
+        }
+    }
+
+    /**
+     * A parsed <b>WHERE</b> part.
+     */
+    private static final class Condition {
+        private final Table[] tables;
+        private final Predicate[] predicates;
+        // the column each placeholder is compared with, in order
+        private final ColumnRef[] parameters;
+
+        Condition(InMemoryDataStore store, Table[] tables, String[] aliases, String condition) {
+            this.tables = tables;
+            List<Predicate> predicates = new ArrayList<>();
+            List<ColumnRef> parameters = new ArrayList<>();
+            if (condition != null && !condition.isBlank()) {
+                for (String term : AND.split(condition.trim())) {
+                    predicates.add(parse(tables, aliases, term.trim(), parameters));
+                }
+            }
+            this.predicates = predicates.toArray(new Predicate[0]);
+            this.parameters = parameters.toArray(new ColumnRef[0]);
+        }
+
+        private static Predicate parse(Table[] tables, String[] aliases, String term, List<ColumnRef> parameters) {
+            Matcher nullCheck = NULL_CHECK.matcher(term);
+            if (nullCheck.matches()) {
+                return new Predicate(ColumnRef.resolve(tables, aliases, nullCheck.group(1)),
+                        nullCheck.group(2) != null ? "IS NOT NULL" : "IS NULL", -1, null, null);
+            }
+            Matcher comparison = COMPARISON.matcher(term);
+            if (!comparison.matches()) {
+                throw new IllegalArgumentException("Unsupported condition: " + term);
+            }
+            String leftText = comparison.group(1).trim();
+            String operator = comparison.group(2);
+            String rightText = comparison.group(3).trim();
+            if (!isColumn(leftText)) {
+                // "? = column" is evaluated as "column = ?"
+                String swapped = leftText;
+                leftText = rightText;
+                rightText = swapped;
+                operator = flip(operator);
+            }
+            ColumnRef left = ColumnRef.resolve(tables, aliases, leftText);
+            if (rightText.equals("?")) {
+                parameters.add(left);
+                return new Predicate(left, operator, parameters.size() - 1, null, null);
+            } else if (isColumn(rightText)) {
+                return new Predicate(left, operator, -1, null, ColumnRef.resolve(tables, aliases, rightText));
+            }
+            Column column = tables[left.table].columns[left.column];
+            return new Predicate(left, operator, -1, column.convert(unquote(rightText)), null);
+        }
+
+        /**
+         * Converts the arguments to the types of the columns they are compared with.
+         * Arguments that do not fit, e.g. text for an <code>INT</code> column, match
+         * nothing.
+         *
+         * @param args   all arguments of the statement
+         * @param offset the index of the first argument of the condition
+         */
+        Object[] bind(String[] args, int offset) {
+            int count = args != null ? args.length - offset : 0;
+            if (count != parameters.length) {
+                throw new IllegalArgumentException("expects " + parameters.length + " condition arguments, got "
+                        + Math.max(count, 0));
+            }
+            Object[] values = new Object[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                Column column = tables[parameters[i].table].columns[parameters[i].column];
+                try {
+                    values[i] = column.convert(args[offset + i]);
+                } catch (IllegalArgumentException e) {
+                    values[i] = null;
+                }
+            }
+            return values;
+        }
+
+        boolean matches(Object[][] current, Object[] args, int depth) {
+            for (Predicate predicate : predicates) {
+                if (predicate.depth == depth && !predicate.matches(current, args)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Finds an equality on the id of the table at the given depth whose other
+         * side is known before that table is read, so the row can be looked up.
+         */
+        Predicate idLookup(int depth) {
+            int idColumn = tables[depth].idColumn;
+            if (idColumn < 0) {
+                return null;
+            }
+            for (Predicate predicate : predicates) {
+                if (!predicate.operator.equals("=")) {
+                    continue;
+                }
+                if (predicate.left.table == depth && predicate.left.column == idColumn
+                        && (predicate.right == null || predicate.right.table < depth)) {
+                    return predicate;
+                }
+                if (predicate.right != null && predicate.right.table == depth && predicate.right.column == idColumn
+                        && predicate.left.table < depth) {
+                    return predicate;
+                }
+            }
+            return null;
+        }
+
+        private static boolean isColumn(String text) {
+            return !text.equals("?") && !text.isEmpty()
+                    && (Character.isLetter(text.charAt(0)) || text.charAt(0) == '_')
+                    && !text.equalsIgnoreCase("NULL");
+        }
+
+        private static String unquote(String literal) {
+            if (literal.length() >= 2 && (literal.charAt(0) == '\'' || literal.charAt(0) == '"')
+                    && literal.charAt(literal.length() - 1) == literal.charAt(0)) {
+                return literal.substring(1, literal.length() - 1);
+            }
+            return literal;
+        }
+
+        private static String flip(String operator) {
+            switch (operator) {
+                case "<":
+                    return ">";
+                case "<=":
+                    return ">=";
+                case ">":
+                    return "<";
+                case ">=":
+                    return "<=";
+                default:
+                    return operator;
+            }
+        }
+    }
+
+    /**
+     * A parsed SELECT statement: the tables are joined in the order of the
+     * <b>FROM</b> part, each predicate is checked as soon as its tables are bound,
+     * and tables whose id is known from a predicate are looked up instead of
+     * scanned.
+     */
+    private static final class SelectPlan {
+        private final Table[] tables;
+        private final Condition condition;
+        private final Predicate[] lookups;
+        private final String[] labels;
+        private final ColumnRef[] outputs;
+        private final boolean distinct;
+
+        SelectPlan(InMemoryDataStore store, String[] selection, String[] tableNames, String[] tableAlias,
+                   String condition) {
+            this.tables = new Table[tableNames.length];
+            String[] aliases = new String[tableNames.length];
+            for (int i = 0; i < tableNames.length; i++) {
+                tables[i] = store.table(tableNames[i]);
+                aliases[i] = tableAlias != null ? tableAlias[i] : tableNames[i];
+            }
+            this.condition = new Condition(store, tables, aliases, condition);
+            this.lookups = new Predicate[tables.length];
+            for (int depth = 0; depth < tables.length; depth++) {
+                lookups[depth] = this.condition.idLookup(depth);
+            }
+
+            List<String> labels = new ArrayList<>();
+            List<ColumnRef> outputs = new ArrayList<>();
+            boolean distinct = false;
+            for (int i = 0; i < selection.length; i++) {
+                String item = selection[i].trim();
+                Matcher distinctPrefix = DISTINCT.matcher(item);
+                if (i == 0 && distinctPrefix.lookingAt()) {
+                    distinct = true;
+                    item = item.substring(distinctPrefix.end());
+                }
+                // "a, b" in one item
+                for (String part : item.split(",")) {
+                    addOutput(part.trim(), aliases, labels, outputs);
+                }
+            }
+            this.labels = labels.toArray(new String[0]);
+            this.outputs = outputs.toArray(new ColumnRef[0]);
+            this.distinct = distinct;
+        }
+
+        private void addOutput(String item, String[] aliases, List<String> labels, List<ColumnRef> outputs) {
+            if (item.equals("*") || item.endsWith(".*")) {
+                for (int t = 0; t < tables.length; t++) {
+                    if (item.equals("*") || aliases[t].equalsIgnoreCase(item.substring(0, item.length() - 2))) {
+                        for (int c = 0; c < tables[t].columns.length; c++) {
+                            labels.add(tables[t].columns[c].name);
+                            outputs.add(new ColumnRef(t, c));
+                        }
+                    }
+                }
+                return;
+            }
+            String[] aliased = AS.split(item);
+            if (aliased.length > 2) {
+                throw new IllegalArgumentException("Unsupported selection: " + item);
+            }
+            String reference = aliased[0].trim();
+            String label = aliased.length == 2 ? aliased[1].trim() : reference.substring(reference.indexOf('.') + 1);
+            labels.add(label);
+            outputs.add(ColumnRef.resolve(tables, aliases, reference));
+        }
+
+        List<Map<String, Object>> execute(String[] args) {
+            Object[] values = condition.bind(args, 0);
+            List<Map<String, Object>> result = new ArrayList<>();
+            Set<List<Object>> seen = distinct ? new LinkedHashSet<>() : null;
+            join(0, new Object[tables.length][], values, result, seen);
+            return result;
+        }
+
+        private void join(int depth, Object[][] current, Object[] args, List<Map<String, Object>> result,
+                          Set<List<Object>> seen) {
+            if (depth == tables.length) {
+                emit(current, result, seen);
+                return;
+            }
+            Predicate lookup = lookups[depth];
+            if (lookup != null) {
+                Object id;
+                if (lookup.left.table == depth) {
+                    id = lookup.right != null ? lookup.right.value(current)
+                            : lookup.parameter >= 0 ? args[lookup.parameter] : lookup.literal;
+                } else {
+                    id = lookup.left.value(current);
+                }
+                Object[] row = tables[depth].findById(id);
+                if (row != null) {
+                    current[depth] = row;
+                    if (condition.matches(current, args, depth)) {
+                        join(depth + 1, current, args, result, seen);
+                    }
+                }
+                return;
+            }
+            for (Object[] row : tables[depth].rows) {
+                current[depth] = row;
+                if (condition.matches(current, args, depth)) {
+                    join(depth + 1, current, args, result, seen);
+                }
+            }
+        }
+
+        private void emit(Object[][] current, List<Map<String, Object>> result, Set<List<Object>> seen) {
+            if (seen != null) {
+                Object[] values = new Object[outputs.length];
+                for (int i = 0; i < outputs.length; i++) {
+                    values[i] = normalize(outputs[i].value(current));
+                }
+                if (!seen.add(Arrays.asList(values))) {
+                    return;
+                }
+            }
+            Map<String, Object> row = new HashMap<>();
+            for (int i = 0; i < outputs.length; i++) {
+                row.put(labels[i], outputs[i].value(current));
+            }
+            result.add(row);
+        }
+    }
+
+    /**
+     * A parsed UPDATE statement.
+     */
+    private static final class UpdatePlan {
+        private final InMemoryDataStore store;
+        private final Table table;
+        private final int[] columns;
+        // per assignment: the column added to (or subtracted from), -1 for a plain value
+        private final int[] bases;
+        private final int[] signs;
+        private final int parameterCount;
+        private final Condition condition;
+
+        UpdatePlan(InMemoryDataStore store, String tableName, String[] modification, String selection) {
+            this.store = store;
+            this.table = store.table(tableName);
+            List<String> assignments = new ArrayList<>();
+            for (String part : modification) {
+                // like DatabaseConnector, assignments may be joined with "and"
+                assignments.addAll(Arrays.asList(AND.split(part.trim())));
+            }
+            this.columns = new int[assignments.size()];
+            this.bases = new int[assignments.size()];
+            this.signs = new int[assignments.size()];
+            for (int i = 0; i < assignments.size(); i++) {
+                Matcher assignment = ASSIGNMENT.matcher(assignments.get(i).trim());
+                if (!assignment.matches()) {
+                    throw new IllegalArgumentException("Unsupported assignment: " + assignments.get(i));
+                }
+                columns[i] = table.column(assignment.group(1));
+                if (columns[i] == table.idColumn) {
+                    throw new IllegalArgumentException("The id of '" + tableName + "' cannot be changed");
+                }
+                String value = assignment.group(2).trim();
+                Matcher increment = INCREMENT.matcher(value);
+                if (value.equals("?")) {
+                    bases[i] = -1;
+                } else if (increment.matches()) {
+                    bases[i] = table.column(increment.group(1));
+                    signs[i] = increment.group(2).equals("+") ? 1 : -1;
+                } else {
+                    throw new IllegalArgumentException("Unsupported assignment: " + assignments.get(i));
+                }
+            }
+            this.parameterCount = assignments.size();
+            this.condition = new Condition(store, new Table[]{table}, new String[]{tableName}, selection);
+        }
+
+        int execute(String[] modificationArgs, String[] selectionArgs) {
+            int count = modificationArgs != null ? modificationArgs.length : 0;
+            if (count != parameterCount) {
+                throw new IllegalArgumentException("expects " + parameterCount + " values, got " + count);
+            }
+            Object[] args = condition.bind(selectionArgs, 0);
+            Object[][] current = new Object[1][];
+            int updatedRows = 0;
+            for (Object[] row : table.rows) {
+                current[0] = row;
+                if (!condition.matches(current, args, 0)) {
+                    continue;
+                }
+                Object[] values = row.clone();
+                for (int i = 0; i < columns.length; i++) {
+                    Column column = table.columns[columns[i]];
+                    if (bases[i] < 0) {
+                        values[columns[i]] = column.convert(modificationArgs[i]);
+                    } else {
+                        Object base = row[bases[i]];
+                        BigDecimal delta = new BigDecimal(modificationArgs[i].trim());
+                        values[columns[i]] = base == null ? null
+                                : column.convert(new BigDecimal(base.toString()).add(
+                                signs[i] > 0 ? delta : delta.negate()));
+                    }
+                }
+                Object[] old = row.clone();
+                table.replace(row, values);
+                store.record(() -> table.replace(row, old));
+                updatedRows++;
+            }
+            return updatedRows;
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The payment methods of an appointment. The column <i>paymentMethod</i> stores
+ * the text the client sent, so every spelling the clients use is accepted and
+ * mapped to its method with one hash lookup.
+ */
+public enum PaymentMethod {
+    CASH("Cash", "cash"),
+    CREDIT_CARD("Credit Card", "Credit card", "credit card"),
+    DEBIT_CARD("Debit Card", "Debit card", "debit card"),
+    PAYPAL("PayPal", "paypal"),
+    APPLE_PAY("ApplePay", "applepay"),
+    NOT_SELECTED("Not selected");
+
+    private static final Map<String, PaymentMethod> BY_NAME = new HashMap<>();
+
+    static {
+        for (PaymentMethod method : values()) {
+            for (String name : method.names) {
+                BY_NAME.put(name, method);
+            }
+        }
+    }
+
+    private final String[] names;
+
+    PaymentMethod(String... names) {
+        this.names = names;
+    }
+
+    /**
+     * @return the name shown to the user, e.g. <b>Credit Card</b>
+     */
+    public String getLabel() {
+        return names[0];
+    }
+
+    /**
+     * @param name one of the accepted spellings, e.g. <b>credit card</b>; the
+     *             comparison is case-sensitive
+     * @return the payment method; <code>null</code> if the name is not accepted
+     */
+    public static PaymentMethod fromString(String name) {
+        return name == null ? null : BY_NAME.get(name);
+    }
+
+}
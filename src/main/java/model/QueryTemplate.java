@@ -0,0 +1,248 @@
+package model;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * A SELECT statement whose shape is declared once, e.g. as a constant, and whose
+ * SQL is rendered when the template is built:
+ *
+ * <pre>
+ * QueryTemplate workshopById = QueryTemplate.select("workshopById", "*")
+ *         .from(DatabaseConnector.WORKSHOPS)
+ *         .where("id = ?", QueryTemplate.ParameterType.INT)
+ *         .build();
+ * </pre>
+ * <p>
+ * Executing the template with
+ * {@link DatabaseConnector#executeSelectQuery(QueryTemplate, String...)} only
+ * binds the arguments, so no SQL is built per call. The number of parameter types
+ * must match the number of placeholders in the condition, otherwise
+ * {@link Builder#build()} fails, i.e. when the class declaring the template is
+ * loaded. The name identifies the query shape, e.g. in logs and metrics.
+ */
+public final class QueryTemplate {
+
+    /**
+     * How an argument is bound to its placeholder.
+     */
+    public enum ParameterType {
+        /**
+         * Bound with <code>setString</code>.
+         */
+        STRING,
+        /**
+         * Parsed and bound with <code>setInt</code>; arguments that are not an
+         * integer make the statement fail.
+         */
+        INT
+    }
+
+    private final String name;
+    private final String[] selection;
+    private final String[] tables;
+    private final String[] tableAlias;
+    private final String condition;
+    private final ParameterType[] parameterTypes;
+    private final String sql;
+
+    private QueryTemplate(Builder builder) {
+        this.name = builder.name;
+        this.selection = builder.selection;
+        this.tables = builder.tables;
+        this.tableAlias = builder.tableAlias;
+        this.condition = builder.condition;
+        this.parameterTypes = builder.parameterTypes;
+        this.sql = render();
+    }
+
+    /**
+     * Starts a template for <b>SELECT</b> selection.
+     *
+     * @param name      the name of the query shape; should be unique
+     * @param selection the column names; can contain only "*" for selecting all
+     *                  columns
+     * @return the builder
+     */
+    public static Builder select(String name, String... selection) {
+        return new Builder(name, selection);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public int getParameterCount() {
+        return parameterTypes.length;
+    }
+
+    /**
+     * Creates a template that reads from the same tables with the same condition
+     * and parameters, but selects other columns.
+     *
+     * @param selection the columns to select instead
+     * @return the new template; its name is this name followed by the columns
+     */
+    public QueryTemplate withSelection(String... selection) {
+        return select(name + Arrays.toString(selection), selection)
+                .from(tables).as(tableAlias).where(condition, parameterTypes).build();
+    }
+
+    /**
+     * @return a copy of the tables the statement reads from
+     */
+    public String[] getTables() {
+        return tables.clone();
+    }
+
+    // the parts of the statement, for stores that do not execute the SQL
+    String[] selection() {
+        return selection;
+    }
+
+    String[] tableAlias() {
+        return tableAlias;
+    }
+
+    String condition() {
+        return condition;
+    }
+
+    ParameterType[] parameterTypes() {
+        return parameterTypes;
+    }
+
+    /**
+     * Binds the arguments to the placeholders of the statement, which must have
+     * been prepared from {@link #getSql()}.
+     *
+     * @param stmt the prepared statement
+     * @param args one argument per placeholder
+     * @throws SQLException if the number of arguments does not match or an
+     *                      argument does not fit its parameter type
+     */
+    void bind(PreparedStatement stmt, String[] args) throws SQLException {
+        int count = args != null ? args.length : 0;
+        if (count != parameterTypes.length) {
+            throw new SQLException("Query " + name + " expects " + parameterTypes.length + " arguments, got " + count);
+        }
+        for (int i = 0; i < count; i++) {
+            if (parameterTypes[i] == ParameterType.INT) {
+                try {
+                    stmt.setInt(i + 1, Integer.parseInt(args[i]));
+                } catch (NumberFormatException e) {
+                    throw new SQLException("Argument " + (i + 1) + " of query " + name + " is not an integer");
+                }
+            } else {
+                stmt.setString(i + 1, args[i]);
+            }
+        }
+    }
+
+    private String render() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT ");
+        sb.append(String.join(", ", selection));
+        sb.append(" FROM ");
+        for (int i = 0; i < tables.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(tables[i]);
+            if (tableAlias != null) {
+                sb.append(" as ").append(tableAlias[i]);
+            }
+        }
+        if (condition != null) {
+            sb.append(" WHERE ");
+            sb.append(condition);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + sql;
+    }
+
+    /**
+     * Collects the parts of a {@link QueryTemplate}.
+     */
+    public static final class Builder {
+        private final String name;
+        private final String[] selection;
+        private String[] tables;
+        private String[] tableAlias;
+        private String condition;
+        private ParameterType[] parameterTypes = new ParameterType[0];
+
+        private Builder(String name, String[] selection) {
+            this.name = name;
+            this.selection = selection;
+        }
+
+        /**
+         * @param tables the table names for the <b>FROM</b> part
+         */
+        public Builder from(String... tables) {
+            this.tables = tables;
+            return this;
+        }
+
+        /**
+         * @param tableAlias one alias per table
+         */
+        public Builder as(String... tableAlias) {
+            this.tableAlias = tableAlias;
+            return this;
+        }
+
+        /**
+         * @param condition      the <b>WHERE</b> part with one <code>?</code> per
+         *                       parameter
+         * @param parameterTypes the type of each parameter, in order
+         */
+        public Builder where(String condition, ParameterType... parameterTypes) {
+            this.condition = condition;
+            this.parameterTypes = parameterTypes;
+            return this;
+        }
+
+        /**
+         * Validates the parts and renders the SQL.
+         *
+         * @return the template
+         * @throws IllegalStateException if a part is missing or the number of
+         *                               parameter types does not match the
+         *                               placeholders
+         */
+        public QueryTemplate build() {
+            if (name == null || selection == null || selection.length == 0 || tables == null || tables.length == 0) {
+                throw new IllegalStateException("Query " + name + " needs a name, a selection and tables");
+            }
+            if (tableAlias != null && tableAlias.length != tables.length) {
+                throw new IllegalStateException("Query " + name + " has " + tables.length + " tables but "
+                        + tableAlias.length + " aliases");
+            }
+            int placeholders = 0;
+            if (condition != null) {
+                for (int i = 0; i < condition.length(); i++) {
+                    if (condition.charAt(i) == '?') {
+                        placeholders++;
+                    }
+                }
+            }
+            if (placeholders != parameterTypes.length) {
+                throw new IllegalStateException("Query " + name + " has " + placeholders + " placeholders but "
+                        + parameterTypes.length + " parameter types");
+            }
+            return new QueryTemplate(this);
+        }
+    }
+
+}
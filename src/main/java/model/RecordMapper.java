@@ -0,0 +1,265 @@
+package model;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Materializes the rows of a <code>ResultSet</code> directly as records, without
+ * the detour via <code>Map&lt;String, Object&gt;</code>. <br>
+ * <br>
+ * The record components are matched to the result columns by name (ignoring
+ * case), so a record for the table <i>services</i> has components named like its
+ * columns. Components without a matching column keep their default value
+ * (<code>0</code>, <code>false</code> or <code>null</code>), which allows selecting
+ * only some columns. <br>
+ * <br>
+ * Reflection is only used once per record type, to find the components and the
+ * canonical constructor. The assignment of columns to components is computed
+ * once per result set shape (the list of column labels) and cached, so mapping a
+ * row is one typed getter call per component plus one constructor call through a
+ * <code>MethodHandle</code>.
+ *
+ * @param <T> the record type
+ */
+public final class RecordMapper<T extends Record> {
+
+    private static final Map<Class<?>, RecordMapper<?>> mappers = new ConcurrentHashMap<>();
+
+    /**
+     * Reads the value for one record component from the current row.
+     */
+    @FunctionalInterface
+    private interface ColumnReader {
+        Object read(ResultSet result, int column) throws SQLException;
+    }
+
+    /**
+     * The columns the components are read from, for one result set shape. A
+     * column index of 0 means the component keeps its default value.
+     */
+    private static final class Binding {
+        private final int[] columns;
+
+        private Binding(int[] columns) {
+            this.columns = columns;
+        }
+    }
+
+    private final Class<T> type;
+    private final Class<?>[] componentTypes;
+    private final String[] names;
+    private final ColumnReader[] readers;
+    private final Object[] defaults;
+    private final MethodHandle constructor;
+    private final Map<String, Binding> bindings = new ConcurrentHashMap<>();
+
+    private RecordMapper(Class<T> type) {
+        RecordComponent[] components = type.getRecordComponents();
+        Class<?>[] parameterTypes = new Class<?>[components.length];
+        this.type = type;
+        this.componentTypes = parameterTypes;
+        this.names = new String[components.length];
+        this.readers = new ColumnReader[components.length];
+        this.defaults = new Object[components.length];
+        for (int i = 0; i < components.length; i++) {
+            Class<?> componentType = components[i].getType();
+            parameterTypes[i] = componentType;
+            names[i] = components[i].getName().toLowerCase(Locale.ROOT);
+            readers[i] = readerFor(componentType);
+            defaults[i] = defaultValue(componentType);
+        }
+        try {
+            MethodHandle canonical = MethodHandles.publicLookup().findConstructor(type,
+                    MethodType.methodType(void.class, parameterTypes));
+            this.constructor = canonical.asSpreader(Object[].class, components.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("Record " + type.getName() + " needs a public canonical constructor", e);
+        }
+    }
+
+    /**
+     * Returns the mapper for the given record type. Mappers are created once per
+     * type and can be shared between threads.
+     *
+     * @param type the record type; must be public
+     * @param <T>  the record type
+     * @return the mapper
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Record> RecordMapper<T> of(Class<T> type) {
+        return (RecordMapper<T>) mappers.computeIfAbsent(type, t -> new RecordMapper<>(type));
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * Maps all remaining rows of the result to records. The result is not closed.
+     *
+     * @param result the result of a SELECT statement
+     * @return the list of records, one per row
+     * @throws SQLException if the result cannot be read
+     */
+    public List<T> map(ResultSet result) throws SQLException {
+        List<T> rows = new ArrayList<>();
+        if (result == null) {
+            return rows;
+        }
+        Binding binding = bind(result.getMetaData());
+        int[] columns = binding.columns;
+        while (result.next()) {
+            Object[] values = defaults.clone();
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i] > 0) {
+                    values[i] = readers[i].read(result, columns[i]);
+                }
+            }
+            rows.add(create(values));
+        }
+        return rows;
+    }
+
+    /**
+     * Maps rows that were already read into maps, e.g. by a store that does not
+     * use JDBC, like {@link #map(ResultSet)} maps the rows of a result. Column
+     * names are matched ignoring case; numbers and date-times are converted to
+     * the component types.
+     *
+     * @param rows the rows; the keys are the column names
+     * @return the list of records, one per row
+     * @throws IllegalArgumentException if a value cannot be converted to the type
+     *                                  of its component
+     */
+    public List<T> map(List<Map<String, Object>> rows) {
+        List<T> records = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            Object[] values = defaults.clone();
+            for (Map.Entry<String, Object> column : row.entrySet()) {
+                String label = column.getKey().toLowerCase(Locale.ROOT);
+                for (int i = 0; i < names.length; i++) {
+                    if (names[i].equals(label)) {
+                        values[i] = convert(column.getValue(), componentTypes[i], defaults[i]);
+                        break;
+                    }
+                }
+            }
+            records.add(create(values));
+        }
+        return records;
+    }
+
+    private Binding bind(ResultSetMetaData meta) throws SQLException {
+        int numColumns = meta.getColumnCount();
+        String[] labels = new String[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            labels[i] = meta.getColumnLabel(i + 1).toLowerCase(Locale.ROOT);
+        }
+        return bindings.computeIfAbsent(String.join(",", labels), shape -> {
+            int[] columns = new int[names.length];
+            for (int component = 0; component < names.length; component++) {
+                for (int column = 0; column < labels.length; column++) {
+                    if (labels[column].equals(names[component])) {
+                        columns[component] = column + 1;
+                        break;
+                    }
+                }
+            }
+            return new Binding(columns);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private T create(Object[] values) {
+        try {
+            return (T) (Object) constructor.invokeExact(values);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not create " + type.getName(), e);
+        }
+    }
+
+    private static ColumnReader readerFor(Class<?> type) {
+        if (type == int.class) {
+            return ResultSet::getInt;
+        } else if (type == long.class) {
+            return ResultSet::getLong;
+        } else if (type == double.class) {
+            return ResultSet::getDouble;
+        } else if (type == boolean.class) {
+            return ResultSet::getBoolean;
+        } else if (type == Integer.class) {
+            return (result, column) -> {
+                int value = result.getInt(column);
+                return result.wasNull() ? null : value;
+            };
+        } else if (type == String.class) {
+            return ResultSet::getString;
+        } else if (type == BigDecimal.class) {
+            return ResultSet::getBigDecimal;
+        } else if (type == Timestamp.class) {
+            return ResultSet::getTimestamp;
+        } else if (type == LocalDateTime.class || type == LocalDate.class) {
+            return (result, column) -> result.getObject(column, type);
+        }
+        return ResultSet::getObject;
+    }
+
+    private static Object convert(Object value, Class<?> type, Object defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        } else if (type == int.class || type == Integer.class) {
+            return ((Number) value).intValue();
+        } else if (type == long.class) {
+            return ((Number) value).longValue();
+        } else if (type == double.class) {
+            return ((Number) value).doubleValue();
+        } else if (type == boolean.class) {
+            return value instanceof Boolean ? value : ((Number) value).intValue() != 0;
+        } else if (type == String.class) {
+            return value.toString();
+        } else if (type == BigDecimal.class && !(value instanceof BigDecimal)) {
+            return new BigDecimal(value.toString());
+        } else if (type == LocalDateTime.class && value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        } else if (type == LocalDate.class && value instanceof java.sql.Date) {
+            return ((java.sql.Date) value).toLocalDate();
+        } else if (!type.isInstance(value)) {
+            throw new IllegalArgumentException("Cannot convert " + value.getClass().getName() + " to "
+                    + type.getName());
+        }
+        return value;
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == double.class) {
+            return 0.0;
+        } else if (type == boolean.class) {
+            return false;
+        } else if (type.isPrimitive()) {
+            throw new IllegalArgumentException("Unsupported record component type " + type.getName());
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,205 @@
+package model;
+
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Records the statements of {@link DatabaseConnector} that take longer than a
+ * threshold, with their SQL (placeholders instead of values), the number of
+ * arguments and the duration, to a rotating log file. <br>
+ * <br>
+ * Configured with system properties:
+ * <ul>
+ * <li><i>db.slowQuery.millis</i>: the threshold in milliseconds (default
+ * {@value #DEFAULT_THRESHOLD_MILLIS}); a negative value disables the log</li>
+ * <li><i>db.slowQuery.file</i>: the file, rotated at 10 MB with 5 generations
+ * (default <b>logs/slow-queries.log</b>)</li>
+ * <li><i>db.slowQuery.explain</i>: if <code>true</code> (meant for development),
+ * the <b>EXPLAIN</b> output of the first slow execution of every SQL shape is
+ * logged too, and full table scans are also reported as warnings</li>
+ * </ul>
+ */
+public final class SlowQueryLog {
+
+    public static final String THRESHOLD_PROPERTY = "db.slowQuery.millis";
+    public static final String FILE_PROPERTY = "db.slowQuery.file";
+    public static final String EXPLAIN_PROPERTY = "db.slowQuery.explain";
+    public static final long DEFAULT_THRESHOLD_MILLIS = 100;
+    private static final int FILE_LIMIT = 10 * 1024 * 1024;
+    private static final int FILE_COUNT = 5;
+    // the columns of MariaDB's EXPLAIN output that are logged, in this order
+    private static final String[] PLAN_COLUMNS = {"table", "type", "possible_keys", "key", "rows", "Extra"};
+
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(SlowQueryLog.class);
+    private static SlowQueryLog shared;
+
+    private final long thresholdNanos;
+    private final boolean explain;
+    // a logger of its own with a file handler, so the entries do not mix with the server's log
+    private final Logger log;
+    // the file is only opened when the first slow statement is recorded
+    private final String file;
+    private boolean opened;
+    // the SQL shapes whose plan has been logged
+    private final Set<String> explained = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param thresholdMillis the duration from which a statement is slow; negative
+     *                        to log nothing
+     * @param explain         <code>true</code> to log the plan of every slow shape
+     *                        once
+     * @param handler         writes the log entries
+     */
+    SlowQueryLog(long thresholdMillis, boolean explain, Handler handler) {
+        this(thresholdMillis, explain, (String) null);
+        log.addHandler(handler);
+        opened = true;
+    }
+
+    private SlowQueryLog(long thresholdMillis, boolean explain, String file) {
+        this.thresholdNanos = thresholdMillis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.explain = explain;
+        this.file = file;
+        // anonymous, so the entries only go to the file and not to the console
+        this.log = Logger.getAnonymousLogger();
+        log.setUseParentHandlers(false);
+    }
+
+    /**
+     * Returns the log shared by all connectors of the process, which is created
+     * from the system properties on first use. All connectors write to the same
+     * file, because a second handler would not get the file's lock.
+     *
+     * @return the shared log
+     */
+    public static synchronized SlowQueryLog shared() {
+        if (shared == null) {
+            shared = new SlowQueryLog(Long.getLong(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD_MILLIS),
+                    Boolean.getBoolean(EXPLAIN_PROPERTY), System.getProperty(FILE_PROPERTY, "logs/slow-queries.log"));
+        }
+        return shared;
+    }
+
+    private synchronized void open() {
+        if (opened) {
+            return;
+        }
+        opened = true;
+        Handler handler = openFile(file);
+        if (handler != null) {
+            log.addHandler(handler);
+        }
+    }
+
+    private static Handler openFile(String file) {
+        try {
+            Path path = Path.of(file).toAbsolutePath();
+            Files.createDirectories(path.getParent());
+            // %g numbers the rotated generations: slow-queries.log.0 is the current one
+            FileHandler handler = new FileHandler(path + ".%g", FILE_LIMIT, FILE_COUNT, true);
+            handler.setFormatter(new Formatter() {
+                @Override
+                public String format(LogRecord record) {
+                    return String.format(Locale.ROOT, "%1$tF %1$tT.%1$tL %2$s%n", record.getMillis(),
+                            record.getMessage());
+                }
+            });
+            return handler;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Cannot open the slow-query log {}, slow queries are not logged", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * @param nanos the duration of a statement
+     * @return <code>true</code> if the statement has to be recorded
+     */
+    public boolean isSlow(long nanos) {
+        return thresholdNanos >= 0 && nanos >= thresholdNanos;
+    }
+
+    /**
+     * @param sql the SQL of a slow statement
+     * @return <code>true</code> if the plan of the statement should be captured,
+     * i.e. only once per SQL shape and only if explaining is enabled
+     */
+    public boolean shouldExplain(String sql) {
+        return explain && explained.add(sql);
+    }
+
+    /**
+     * Records a slow statement.
+     *
+     * @param sql      the SQL of the statement, with placeholders instead of values
+     * @param argCount the number of arguments
+     * @param nanos    the duration
+     * @param plan     the rows of the <b>EXPLAIN</b> output; <code>null</code> if
+     *                 the plan was not captured
+     */
+    public void record(String sql, int argCount, long nanos, List<Map<String, Object>> plan) {
+        StringBuilder entry = new StringBuilder(sql.length() + 64)
+                .append(String.format(Locale.ROOT, "%.1f ms", nanos / 1e6))
+                .append(" | ").append(argCount).append(argCount == 1 ? " arg" : " args")
+                .append(" | ").append(sql);
+        if (plan != null) {
+            entry.append(System.lineSeparator()).append("    EXPLAIN ").append(formatPlan(plan));
+            List<String> scanned = fullScans(plan);
+            if (!scanned.isEmpty()) {
+                logger.warn("Full table scan: tables=\"{}\" sql=\"{}\"", String.join(",", scanned), sql);
+            }
+        }
+        open();
+        log.info(entry.toString());
+    }
+
+    /**
+     * @return the plan as one line per row, each with the columns of
+     * {@link #PLAN_COLUMNS} that the row has
+     */
+    static String formatPlan(List<Map<String, Object>> plan) {
+        StringBuilder out = new StringBuilder();
+        for (Map<String, Object> row : plan) {
+            if (out.length() > 0) {
+                out.append(System.lineSeparator()).append("            ");
+            }
+            boolean first = true;
+            for (String column : PLAN_COLUMNS) {
+                if (row.containsKey(column)) {
+                    out.append(first ? "" : " ").append(column).append('=').append(row.get(column));
+                    first = false;
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * @return the tables the plan reads completely (access type <b>ALL</b>)
+     */
+    static List<String> fullScans(List<Map<String, Object>> plan) {
+        List<String> tables = new ArrayList<>();
+        for (Map<String, Object> row : plan) {
+            if ("ALL".equals(String.valueOf(row.get("type")))) {
+                tables.add(String.valueOf(row.get("table")));
+            }
+        }
+        return tables;
+    }
+
+}
@@ -0,0 +1,85 @@
+package model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the changes to each database table that were made through a
+ * {@link DatabaseConnector} of this process. Anything derived from a table, e.g.
+ * a cached response, stays valid as long as the version of the table is the same
+ * as when it was derived. <br>
+ * <br>
+ * A table is bumped after a write was committed, so a reader that takes the
+ * version <b>before</b> it queries the table never stores old data under a new
+ * version. Changes made to the database by other processes are not seen. <br>
+ * <br>
+ * A name does not have to be a table: a route can count the changes to part of a
+ * table under a name of its own, if it bumps that name on every write to that
+ * part, so that its responses do not change with unrelated writes. <br>
+ * <br>
+ * Besides the counter, the time of the last change is kept for
+ * <code>Last-Modified</code> headers. Tables that have not changed since the
+ * start of the process report the start time.
+ */
+public final class TableVersions {
+
+    private static final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private static final Map<String, Long> changeTimes = new ConcurrentHashMap<>();
+    private static final long START_TIME = System.currentTimeMillis();
+
+    private TableVersions() {
+    }
+
+    /**
+     * Returns the version of the given table.
+     *
+     * @param table the name of the table
+     * @return the number of changes seen so far
+     */
+    public static long of(String table) {
+        AtomicLong version = versions.get(table);
+        return version != null ? version.get() : 0;
+    }
+
+    /**
+     * Returns a combined version of the given tables, which changes whenever one
+     * of the tables changes.
+     *
+     * @param tables the names of the tables
+     * @return the sum of the versions
+     */
+    public static long of(String... tables) {
+        long sum = 0;
+        for (String table : tables) {
+            sum += of(table);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the time of the last change to one of the given tables.
+     *
+     * @param tables the names of the tables
+     * @return the time in milliseconds since the epoch; the start of the process if
+     * none of the tables has changed
+     */
+    public static long lastModified(String... tables) {
+        long lastModified = START_TIME;
+        for (String table : tables) {
+            lastModified = Math.max(lastModified, changeTimes.getOrDefault(table, START_TIME));
+        }
+        return lastModified;
+    }
+
+    /**
+     * Records a change to the given table.
+     *
+     * @param table the name of the table
+     */
+    public static void bump(String table) {
+        changeTimes.put(table, System.currentTimeMillis());
+        versions.computeIfAbsent(table, t -> new AtomicLong()).incrementAndGet();
+    }
+
+}
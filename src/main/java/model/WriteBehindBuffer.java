@@ -0,0 +1,450 @@
+package model;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Buffers writes that do not have to be visible in the database before the
+ * response of a request is sent, e.g. token increments and ledger entries. <br>
+ * <br>
+ * Writes are coalesced per key and written to the database in one transaction
+ * per batch, either when the batch size is reached or when the flush interval
+ * has passed. The backlog is bounded by the number of rows the pending writes
+ * will write, not by the number of keys, since merged writes can carry many rows:
+ * when it is full, {@link #submit(DeferredWrite)} rejects writes that would grow
+ * it, and the caller has to write them itself. {@link #close()} flushes everything that is still pending. <br>
+ * <br>
+ * A batch that fails is retried one write at a time, so a write that can never
+ * succeed, e.g. because it violates a foreign key, does not hold back the writes
+ * queued after it: if other writes of its batch succeed on their own, it is
+ * dropped and logged. If none of them succeeds, the database is assumed to be
+ * unavailable and the writes are queued again for the next flush.
+ * <p>
+ * The buffer should get its own {@link DatabaseConnector}, because every batch
+ * is executed as a transaction, which keeps the other threads using the same
+ * connector waiting.
+ */
+public class WriteBehindBuffer implements AutoCloseable {
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final int DEFAULT_MAX_BACKLOG = 10_000;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindBuffer.class);
+
+    /**
+     * One deferrable write. Writes with the same key are merged into one before
+     * they are written to the database.
+     */
+    public interface DeferredWrite {
+
+        /**
+         * @return the key that identifies the row (or entry) this write changes
+         */
+        String key();
+
+        /**
+         * Combines this pending write with a newer write for the same key.
+         *
+         * @param newer the write that was submitted later
+         * @return the write that has the effect of both
+         */
+        DeferredWrite mergeWith(DeferredWrite newer);
+
+        /**
+         * @return the number of rows this write changes or inserts, which is
+         * counted toward the backlog of the buffer
+         */
+        default int size() {
+            return 1;
+        }
+
+        /**
+         * Writes the change to the database.
+         *
+         * @param dbConnector the connector of the buffer
+         * @return <code>true</code> if the write was successful;
+         * <code>false</code> otherwise
+         */
+        boolean apply(DataStore dbConnector);
+    }
+
+    private final DataStore dbConnector;
+    private final int batchSize;
+    private final int maxBacklog;
+    private final ScheduledExecutorService flusher;
+    private final Object flushLock = new Object();
+    private final LongAdder dropped = new LongAdder();
+    private LinkedHashMap<String, DeferredWrite> pending = new LinkedHashMap<>();
+    // the sum of the sizes of the pending writes
+    private int backlog;
+    // the writes of the running flush that are not committed yet
+    private Map<String, DeferredWrite> flushing = Map.of();
+    private boolean closed;
+
+    public WriteBehindBuffer(DataStore dbConnector) {
+        this(dbConnector, DEFAULT_BATCH_SIZE, DEFAULT_MAX_BACKLOG, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public WriteBehindBuffer(DataStore dbConnector, int batchSize, int maxBacklog, long flushIntervalMillis) {
+        this.dbConnector = dbConnector;
+        this.batchSize = batchSize;
+        this.maxBacklog = maxBacklog;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a write that adds <i>delta</i> to a numeric column of one row.
+     * Increments of the same row are summed up.
+     *
+     * @param table    the name of the table
+     * @param column   the numeric column to change
+     * @param idColumn the column identifying the row
+     * @param id       the value of the id column
+     * @param delta    the amount to add; can be negative
+     * @return the write
+     */
+    public static DeferredWrite increment(String table, String column, String idColumn, String id, int delta) {
+        return new Increment(table, column, idColumn, id, delta, null);
+    }
+
+    /**
+     * Creates a write that adds <i>delta</i> to a numeric column of one row and
+     * inserts a row that records the change, e.g. a ledger entry, in the same
+     * transaction. If the row to change does not exist, nothing is written. When
+     * increments of the same row are summed up, all their entries are inserted.
+     *
+     * @param table        the name of the table
+     * @param column       the numeric column to change
+     * @param idColumn     the column identifying the row
+     * @param id           the value of the id column
+     * @param delta        the amount to add; can be negative
+     * @param entryTable   the table of the recording row
+     * @param entryColumns the columns of the recording row
+     * @param entryValues  the values of the recording row
+     * @return the write
+     */
+    public static DeferredWrite increment(String table, String column, String idColumn, String id, int delta,
+                                          String entryTable, String[] entryColumns, String[] entryValues) {
+        return new Increment(table, column, idColumn, id, delta,
+                new Entries(new Entry(entryTable, entryColumns, entryValues), null, 1));
+    }
+
+    /**
+     * Queues the write. Never blocks on the database, except after
+     * {@link #close()}, when the write is written through.
+     *
+     * @param write the write to defer
+     * @return <code>true</code> if the write was queued or written;
+     * <code>false</code> if the backlog is full and the write would grow it, e.g.
+     * because it is not merged into a pending one or adds rows to it, or if
+     * writing it through failed
+     */
+    public boolean submit(DeferredWrite write) {
+        int size;
+        synchronized (this) {
+            if (closed) {
+                // nothing will flush any more, so write through
+                size = -1;
+            } else {
+                DeferredWrite older = pending.get(write.key());
+                DeferredWrite merged = older != null ? older.mergeWith(write) : write;
+                int growth = merged.size() - (older != null ? older.size() : 0);
+                if (growth > 0 && backlog + growth > maxBacklog) {
+                    return false;
+                }
+                pending.put(write.key(), merged);
+                backlog += growth;
+                size = pending.size();
+            }
+        }
+        if (size < 0) {
+            return dbConnector.executeTransaction(() -> write.apply(dbConnector));
+        }
+        if (size >= batchSize) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                // closed concurrently, close() flushes what is left
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the key under which the increments created by
+     * {@link #increment(String, String, String, String, int)} are coalesced.
+     */
+    public static String incrementKey(String table, String column, String idColumn, String id) {
+        return table + "." + column + "#" + idColumn + "=" + id;
+    }
+
+    /**
+     * Returns the sum of the increments that are not committed yet for the given
+     * row, i.e. pending or being flushed, so that callers can answer with the
+     * value the row is about to have.
+     *
+     * @return the delta not committed yet; 0 if there is none
+     */
+    public synchronized int pendingIncrement(String table, String column, String idColumn, String id) {
+        String key = incrementKey(table, column, idColumn, id);
+        return delta(pending.get(key)) + delta(flushing.get(key));
+    }
+
+    private static int delta(DeferredWrite write) {
+        return write != null ? ((Increment) write).delta : 0;
+    }
+
+    /**
+     * @return <code>true</code> if a write for the given key is still pending
+     */
+    public synchronized boolean isPending(String key) {
+        return pending.containsKey(key);
+    }
+
+    /**
+     * Writes all pending writes to the database, in batches of at most the batch
+     * size, each batch in one transaction. A batch that fails is retried one write
+     * at a time; the writes that still fail are dropped if others of the batch
+     * succeed, otherwise the batch and all after it are queued again in front of
+     * newer writes.
+     *
+     * @return <code>true</code> if no write is left over, i.e. every write was
+     * written or dropped; <code>false</code> if writes were queued again
+     */
+    public boolean flush() {
+        synchronized (flushLock) {
+            List<DeferredWrite> drained;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return true;
+                }
+                drained = new ArrayList<>(pending.values());
+                flushing = pending;
+                pending = new LinkedHashMap<>();
+                backlog = 0;
+            }
+            for (int from = 0; from < drained.size(); from += batchSize) {
+                List<DeferredWrite> batch = drained.subList(from, Math.min(from + batchSize, drained.size()));
+                if (commit(batch)) {
+                    done(batch);
+                    continue;
+                }
+                List<DeferredWrite> failed = new ArrayList<>();
+                for (DeferredWrite write : batch) {
+                    if (!commit(List.of(write))) {
+                        failed.add(write);
+                    }
+                }
+                if (failed.size() == batch.size()) {
+                    // nothing got through, so the database rather than the writes is the problem
+                    requeue(drained.subList(from, drained.size()));
+                    return false;
+                }
+                for (DeferredWrite write : failed) {
+                    logger.error("Dropping a write-behind write that fails on its own: key={}", write.key());
+                }
+                dropped.add(failed.size());
+                done(batch);
+            }
+            return true;
+        }
+    }
+
+    private synchronized void done(List<DeferredWrite> batch) {
+        for (DeferredWrite write : batch) {
+            flushing.remove(write.key());
+        }
+    }
+
+    private boolean commit(List<DeferredWrite> writes) {
+        return dbConnector.executeTransaction(() -> {
+            for (DeferredWrite write : writes) {
+                if (!write.apply(dbConnector)) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Stops the periodic flush and writes everything that is still pending.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!flush()) {
+            logger.error("Pending writes could not be written on shutdown: {}", pendingCount());
+        }
+    }
+
+    /**
+     * @return the number of keys with pending writes
+     */
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return the number of rows the pending writes will write, which the
+     * backlog limit applies to
+     */
+    public synchronized int backlog() {
+        return backlog;
+    }
+
+    /**
+     * @return the number of writes dropped because they failed on their own
+     */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    private void flushQuietly() {
+        try {
+            if (!flush()) {
+                logger.warn("Write-behind flush failed, {} writes pending", pendingCount());
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Write-behind flush failed", e);
+        }
+    }
+
+    private synchronized void requeue(List<DeferredWrite> failed) {
+        LinkedHashMap<String, DeferredWrite> merged = new LinkedHashMap<>();
+        for (DeferredWrite write : failed) {
+            merged.put(write.key(), write);
+        }
+        for (Map.Entry<String, DeferredWrite> newer : pending.entrySet()) {
+            merged.merge(newer.getKey(), newer.getValue(), DeferredWrite::mergeWith);
+        }
+        pending = merged;
+        flushing = Map.of();
+        // may exceed the limit until the next flush, which only rejects newer writes
+        backlog = 0;
+        for (DeferredWrite write : merged.values()) {
+            backlog += write.size();
+        }
+    }
+
+    private record Entry(String table, String[] columns, String[] values) {
+    }
+
+    /**
+     * An immutable list of entries, linked from the newest to the oldest, so that
+     * merging a write appends its entries without copying the older ones.
+     */
+    private record Entries(Entry last, Entries previous, int size) {
+
+        static Entries concat(Entries older, Entries newer) {
+            if (older == null) {
+                return newer;
+            }
+            Entries merged = older;
+            if (newer != null) {
+                for (Entry entry : newer.toList()) {
+                    merged = new Entries(entry, merged, merged.size + 1);
+                }
+            }
+            return merged;
+        }
+
+        /**
+         * @return the entries from the oldest to the newest
+         */
+        List<Entry> toList() {
+            Entry[] list = new Entry[size];
+            Entries node = this;
+            for (int i = size - 1; i >= 0; i--) {
+                list[i] = node.last;
+                node = node.previous;
+            }
+            return Arrays.asList(list);
+        }
+    }
+
+    private static final class Increment implements DeferredWrite {
+        private final String table;
+        private final String column;
+        private final String idColumn;
+        private final String id;
+        private final int delta;
+        // rows recording the change, inserted in the same transaction; null if there are none
+        private final Entries entries;
+
+        private Increment(String table, String column, String idColumn, String id, int delta, Entries entries) {
+            this.table = table;
+            this.column = column;
+            this.idColumn = idColumn;
+            this.id = id;
+            this.delta = delta;
+            this.entries = entries;
+        }
+
+        @Override
+        public String key() {
+            return incrementKey(table, column, idColumn, id);
+        }
+
+        @Override
+        public DeferredWrite mergeWith(DeferredWrite newer) {
+            Increment increment = (Increment) newer;
+            return new Increment(table, column, idColumn, id, delta + increment.delta,
+                    Entries.concat(entries, increment.entries));
+        }
+
+        @Override
+        public int size() {
+            return 1 + (entries != null ? entries.size() : 0);
+        }
+
+        @Override
+        public boolean apply(DataStore dbConnector) {
+            if (delta == 0 && entries == null) {
+                return true;
+            }
+            int updated = dbConnector.executeCountedUpdateQuery(table, new String[]{column + " = " + column + " + ?"},
+                    new String[]{String.valueOf(delta)}, idColumn + " = ?", new String[]{id});
+            // the entries would record a change of a row that does not exist
+            if (updated < 0 || (updated == 0 && entries != null)) {
+                return false;
+            }
+            if (entries == null) {
+                return true;
+            }
+            for (Entry entry : entries.toList()) {
+                if (!dbConnector.executeInsertQuery(entry.table(), entry.columns(), entry.values())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package model.records;
+
+import java.math.BigDecimal;
+
+/**
+ * One row of the services table. The component names are the column names, so
+ * the record can be mapped by {@link model.RecordMapper} and is serialized to the
+ * same JSON as the row.
+ *
+ * @param duration     the duration of the service in minutes
+ * @param promotion_id the id of the promotion; <code>null</code> if there is none
+ */
+public record Service(int id, String name, int duration, BigDecimal price, String description,
+                      Integer promotion_id) {
+}
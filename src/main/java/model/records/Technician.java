@@ -0,0 +1,12 @@
+package model.records;
+
+/**
+ * One row of the technicians table, as selected for a workshop, i.e. without the
+ * workshop id. The component names are the column names, so the record can be
+ * mapped by {@link model.RecordMapper} and is serialized to the same JSON as the
+ * row.
+ *
+ * @param experience the experience of the technician in years
+ */
+public record Technician(int id, String name, String certifications, int experience) {
+}
@@ -0,0 +1,34 @@
+package monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A lookup in or an update of a cache of the server.
+ */
+@Name("carworkshop.Cache")
+@Label("Cache")
+@Category({"Car Workshop", "Cache"})
+@StackTrace(false)
+public class CacheEvent extends jdk.jfr.Event {
+
+    @Label("Cache")
+    public String cache;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Key")
+    public String key;
+
+    @Label("Hit")
+    public boolean hit;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+}
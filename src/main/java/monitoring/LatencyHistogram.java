@@ -0,0 +1,81 @@
+package monitoring;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts durations in fixed buckets, like a Prometheus histogram. Recording only
+ * increments striped counters, so threads that record at the same time do not
+ * contend for a lock or a single cache line.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * The upper bounds of the buckets in seconds, from half a millisecond to ten
+     * seconds; slower durations fall into the <code>+Inf</code> bucket.
+     */
+    static final double[] BOUNDS = {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    // the bounds as "le" label values, in plain notation
+    static final String[] BOUND_LABELS = new String[BOUNDS.length];
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            BOUND_LABELS[i] = BigDecimal.valueOf(BOUNDS[i]).stripTrailingZeros().toPlainString();
+            BOUNDS_NANOS[i] = Math.round(BOUNDS[i] * 1e9);
+        }
+    }
+
+    // the last bucket counts everything above the last bound
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * @return the number of durations per bucket, not cumulative; the last
+     * element counts the durations above the last bound
+     */
+    long[] bucketCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * @return the sum of all recorded durations in nanoseconds
+     */
+    long sumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * @return the number of recorded durations
+     */
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,223 @@
+package monitoring;
+
+import model.DataStore;
+import model.QueryTemplate;
+import model.RecordMapper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Wraps a {@link DataStore} and records the time of every statement in
+ * {@link ServerMetrics}. Statements are labeled by their shape rather than by
+ * their arguments: templates by their name, other statements by their kind and
+ * tables, e.g. <b>update:customers</b>. A statement counts as failed if it
+ * returns the failure value documented on {@link DataStore}; template selects
+ * report failures as empty lists, which cannot be told apart from empty results,
+ * so they are not counted. <br>
+ * <br>
+ * Every statement is also attributed to the {@link RequestContext} of the
+ * thread executing it and, while a flight recording is running, emitted as a
+ * {@link QueryEvent}.
+ */
+public class ObservedDataStore implements DataStore {
+
+    private final DataStore store;
+
+    public ObservedDataStore(DataStore store) {
+        this.store = store;
+    }
+
+    /**
+     * @param store the store to observe
+     * @return the store itself if it is already observed; a wrapping
+     * <code>ObservedDataStore</code> otherwise
+     */
+    public static DataStore observe(DataStore store) {
+        return store instanceof ObservedDataStore ? store : new ObservedDataStore(store);
+    }
+
+    @Override
+    public List<Map<String, Object>> executeSelectQuery(String[] selection, String[] tables, String[] tableAlias,
+                                                        String condition, String[] conditionArgs) {
+        QueryEvent event = started();
+        long start = System.nanoTime();
+        List<Map<String, Object>> result = null;
+        try {
+            result = store.executeSelectQuery(selection, tables, tableAlias, condition, conditionArgs);
+        } finally {
+            finished(event, "select:" + String.join(",", tables), start, result != null ? result.size() : -1,
+                    result == null);
+        }
+        return result;
+    }
+
+    @Override
+    public <T extends Record> List<T> executeSelectQuery(RecordMapper<T> mapper, String[] selection,
+                                                         String[] tables, String[] tableAlias, String condition,
+                                                         String[] conditionArgs) {
+        QueryEvent event = started();
+        long start = System.nanoTime();
+        List<T> result = null;
+        try {
+            result = store.executeSelectQuery(mapper, selection, tables, tableAlias, condition, conditionArgs);
+        } finally {
+            finished(event, "select:" + String.join(",", tables), start, result != null ? result.size() : -1,
+                    false);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Map<String, Object>> executeSelectQuery(QueryTemplate template, String... args) {
+        QueryEvent event = started();
+        long start = System.nanoTime();
+        List<Map<String, Object>> result = null;
+        try {
+            result = store.executeSelectQuery(template, args);
+        } finally {
+            finished(event, template.getName(), start, result != null ? result.size() : -1, false);
+        }
+        return result;
+    }
+
+    @Override
+    public <T extends Record> List<T> executeSelectQuery(RecordMapper<T> mapper, QueryTemplate template,
+                                                         String... args) {
+        QueryEvent event = started();
+        long start = System.nanoTime();
+        List<T> result = null;
+        try {
+            result = store.executeSelectQuery(mapper, template, args);
+        } finally {
+            finished(event, template.getName(), start, result != null ? result.size() : -1, false);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean streamSelectQuery(QueryTemplate template, RowHandler handler, String... args) {
+        QueryEvent event = started();
+        long start = System.nanoTime();
+        // rows are only counted for the recording
+        int[] rows = {0};
+        RowHandler counted = event.isEnabled() ? row -> {
+            rows[0]++;
+            handler.handle(row);
+        } : handler;
+        boolean streamed = false;
+        try {
+            streamed = store.streamSelectQuery(template, counted, args);
+        } finally {
+            finished(event, template.getName(), start, event.isEnabled() ? rows[0] : -1, !streamed);
+        }
+        return streamed;
+    }
+
+    @Override
+    public boolean executeUpdateQuery(String table, String[] modification, String[] modificationArgs,
+                                      String selection, String[] selectionArgs) {
+        QueryEvent event = started();
+        long start = System.nanoTime();
+        boolean updated = false;
+        try {
+            updated = store.executeUpdateQuery(table, modification, modificationArgs, selection, selectionArgs);
+        } finally {
+            finished(event, "update:" + table, start, -1, !updated);
+        }
+        return updated;
+    }
+
+    @Override
+    public int executeCountedUpdateQuery(String table, String[] modification, String[] modificationArgs,
+                                         String selection, String[] selectionArgs) {
+        QueryEvent event = started();
+        long start = System.nanoTime();
+        int updated = -1;
+        try {
+            updated = store.executeCountedUpdateQuery(table, modification, modificationArgs, selection,
+                    selectionArgs);
+        } finally {
+            finished(event, "update:" + table, start, updated, updated < 0);
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean executeInsertQuery(String table, String[] columns, String[] values) {
+        QueryEvent event = started();
+        long start = System.nanoTime();
+        boolean inserted = false;
+        try {
+            inserted = store.executeInsertQuery(table, columns, values);
+        } finally {
+            finished(event, "insert:" + table, start, inserted ? 1 : 0, !inserted);
+        }
+        return inserted;
+    }
+
+    @Override
+    public boolean executeDeleteQuery(String table, String selection, String[] selectionArgs) {
+        QueryEvent event = started();
+        long start = System.nanoTime();
+        boolean deleted = false;
+        try {
+            deleted = store.executeDeleteQuery(table, selection, selectionArgs);
+        } finally {
+            finished(event, "delete:" + table, start, -1, !deleted);
+        }
+        return deleted;
+    }
+
+    /**
+     * Records the whole transaction as <b>transaction</b>, in addition to its
+     * statements. It is not counted as in flight or for the request, since its
+     * statements are.
+     */
+    @Override
+    public boolean executeTransaction(BooleanSupplier work) {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean committed = false;
+        try {
+            committed = store.executeTransaction(work);
+        } finally {
+            ServerMetrics.recordStatement("transaction", System.nanoTime() - start, !committed);
+            commit(event, "transaction", -1, !committed);
+        }
+        return committed;
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    private static QueryEvent started() {
+        ServerMetrics.statementStarted();
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        return event;
+    }
+
+    private static void finished(QueryEvent event, String query, long start, int rows, boolean failed) {
+        long nanos = System.nanoTime() - start;
+        ServerMetrics.statementFinished();
+        ServerMetrics.recordStatement(query, nanos, failed);
+        RequestContext.recordStatement(query, nanos);
+        commit(event, query, rows, failed);
+    }
+
+    private static void commit(QueryEvent event, String query, int rows, boolean failed) {
+        // false without a recording, so the fields are not even set
+        if (event.shouldCommit()) {
+            event.query = query;
+            event.rows = rows;
+            event.failed = failed;
+            event.commit();
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package monitoring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The number of statements a route is expected to run per request. A request
+ * that runs more logs a warning with its query shapes, which usually points to
+ * an N+1 pattern: one query for a list and one more per element. <br>
+ * <br>
+ * The budgets are read from the system property <i>server.queryBudget</i>, a
+ * comma-separated list of a default budget and budgets per route, e.g.
+ * <code>5,POST /appointment/create=6,GET /workshops=1</code>. Without the
+ * property every route has a budget of {@value #DEFAULT_BUDGET}.
+ */
+public final class QueryBudget {
+
+    public static final String PROPERTY = "server.queryBudget";
+    public static final int DEFAULT_BUDGET = 5;
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryBudget.class);
+
+    private final int defaultBudget;
+    // keyed by "METHOD path"
+    private final Map<String, Integer> routeBudgets;
+
+    private QueryBudget(int defaultBudget, Map<String, Integer> routeBudgets) {
+        this.defaultBudget = defaultBudget;
+        this.routeBudgets = routeBudgets;
+    }
+
+    /**
+     * @return the budgets configured by the system property
+     */
+    public static QueryBudget fromSystemProperty() {
+        return parse(System.getProperty(PROPERTY));
+    }
+
+    /**
+     * @param spec the budgets as described in the class documentation; can be
+     *             <code>null</code>
+     * @return the budgets; malformed entries are logged and ignored
+     */
+    public static QueryBudget parse(String spec) {
+        int defaultBudget = DEFAULT_BUDGET;
+        Map<String, Integer> routeBudgets = new HashMap<>();
+        if (spec != null) {
+            for (String entry : spec.split(",")) {
+                if (entry.isBlank()) {
+                    continue;
+                }
+                int separator = entry.lastIndexOf('=');
+                try {
+                    if (separator < 0) {
+                        defaultBudget = Integer.parseInt(entry.trim());
+                    } else {
+                        routeBudgets.put(entry.substring(0, separator).trim().replaceAll("\\s+", " "),
+                                Integer.parseInt(entry.substring(separator + 1).trim()));
+                    }
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring malformed query budget: {}", entry);
+                }
+            }
+        }
+        return new QueryBudget(defaultBudget, routeBudgets);
+    }
+
+    /**
+     * @param method the HTTP method
+     * @param route  the path of the route
+     * @return the number of statements the route may run per request
+     */
+    public int of(String method, String route) {
+        return routeBudgets.getOrDefault(method + " " + route, defaultBudget);
+    }
+
+    /**
+     * Logs a warning if the request ran more statements than its route's budget.
+     *
+     * @param method  the HTTP method
+     * @param route   the path of the route
+     * @param context the statements of the request
+     * @return <code>true</code> if the request stayed within the budget
+     */
+    public boolean check(String method, String route, RequestContext context) {
+        int budget = of(method, route);
+        int queries = context.queryCount();
+        if (queries <= budget) {
+            return true;
+        }
+        String shapes = context.queryShapes().entrySet().stream()
+                .map(shape -> shape.getKey() + " x" + shape.getValue())
+                .collect(Collectors.joining(", "));
+        logger.warn("Query budget exceeded: route=\"{} {}\" queries={} budget={} dbTimeMs={} shapes=\"{}\"",
+                method, route, queries, budget, context.queryNanos() / 1_000_000, shapes);
+        return false;
+    }
+
+}
@@ -0,0 +1,30 @@
+package monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A statement executed through an {@link ObservedDataStore}.
+ */
+@Name("carworkshop.Query")
+@Label("Query")
+@Category({"Car Workshop", "Database"})
+@Description("A statement executed on the data store")
+@StackTrace(false)
+public class QueryEvent extends jdk.jfr.Event {
+
+    @Label("Query Shape")
+    @Description("The name of the template, or the kind and tables of the statement, e.g. update:customers")
+    public String query;
+
+    @Label("Rows")
+    @Description("The rows returned or, for updates, changed; -1 if unknown")
+    public int rows;
+
+    @Label("Failed")
+    public boolean failed;
+
+}
@@ -0,0 +1,221 @@
+package monitoring;
+
+import org.slf4j.MDC;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Counts the statements executed on behalf of one HTTP request, so that routes
+ * which run more queries than expected (e.g. one per row of a list) become
+ * visible. <br>
+ * <br>
+ * The context of the request is bound to the thread handling it with
+ * {@link #begin()}; {@link ObservedDataStore} attributes every statement to the
+ * context bound to the thread that executes it. Statements that run on another
+ * thread are only attributed if that thread got the context, e.g. through an
+ * executor returned by {@link #propagating(Executor)}. Statements of threads
+ * without a context, e.g. the flushes of the write-behind buffer, are not
+ * attributed to any request. <br>
+ * <br>
+ * Every context has a correlation id, which is put into the SLF4J MDC as
+ * <i>requestId</i> wherever the context is bound, so all log entries of a
+ * request can be found by it. <br>
+ * <br>
+ * If enabled, the context also measures the memory allocated and the CPU time
+ * used by the threads it is bound to, see {@link RequestResources}.
+ */
+public final class RequestContext {
+
+    public static final String MDC_KEY = "requestId";
+    // ids from clients are only taken over if they cannot garble the log
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+    private static final ThreadLocal<RequestContext> current = new ThreadLocal<>();
+
+    private final String requestId;
+    private int queryCount;
+    private long queryNanos;
+    // number of statements per query shape, in the order they first ran
+    private final Map<String, Integer> queryShapes = new LinkedHashMap<>();
+    // null if the resources are not measured
+    private final RequestResources resources = RequestResources.create();
+
+    private RequestContext(String requestId) {
+        this.requestId = requestId;
+    }
+
+    /**
+     * Binds a new context with a generated id to the current thread, see
+     * {@link #begin(String)}.
+     *
+     * @return the new context
+     */
+    public static RequestContext begin() {
+        return begin(null);
+    }
+
+    /**
+     * Binds a new context to the current thread, replacing the one of a previous
+     * request that was not cleared.
+     *
+     * @param requestId the correlation id sent by the client, e.g. in the
+     *                  <i>X-Request-Id</i> header; a new one is generated if it is
+     *                  <code>null</code> or contains other characters than letters,
+     *                  digits, '.', '_' and '-'
+     * @return the new context
+     */
+    public static RequestContext begin(String requestId) {
+        if (requestId == null || !VALID_ID.matcher(requestId).matches()) {
+            requestId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        }
+        RequestContext context = new RequestContext(requestId);
+        bind(context);
+        return context;
+    }
+
+    /**
+     * Binds an existing context to the current thread, e.g. to finish a request
+     * on another thread than the one it began on.
+     *
+     * @param context the context; not <code>null</code>
+     */
+    public static void bind(RequestContext context) {
+        RequestContext previous = current.get();
+        if (previous != null && previous != context && previous.resources != null) {
+            previous.resources.stop();
+        }
+        current.set(context);
+        MDC.put(MDC_KEY, context.requestId);
+        if (context.resources != null) {
+            context.resources.start();
+        }
+    }
+
+    /**
+     * @return the context bound to the current thread; <code>null</code> if there
+     * is none
+     */
+    public static RequestContext current() {
+        return current.get();
+    }
+
+    /**
+     * Unbinds the context from the current thread.
+     */
+    public static void clear() {
+        RequestContext context = current.get();
+        if (context != null && context.resources != null) {
+            context.resources.stop();
+        }
+        current.remove();
+        MDC.remove(MDC_KEY);
+    }
+
+    /**
+     * Wraps the executor, so that its tasks run with the context that was bound
+     * to the thread submitting them.
+     *
+     * @param executor the executor running the tasks
+     * @return the wrapping executor
+     */
+    public static Executor propagating(Executor executor) {
+        return command -> {
+            RequestContext context = current.get();
+            if (context == null) {
+                executor.execute(command);
+                return;
+            }
+            executor.execute(() -> {
+                // the task may run on the submitting thread, e.g. if the executor's queue is full
+                RequestContext previous = current.get();
+                bind(context);
+                try {
+                    command.run();
+                } finally {
+                    if (previous == null) {
+                        clear();
+                    } else {
+                        bind(previous);
+                    }
+                }
+            });
+        };
+    }
+
+    /**
+     * Attributes a statement to the context of the current thread, if there is one.
+     */
+    static void recordStatement(String query, long nanos) {
+        RequestContext context = current.get();
+        if (context != null) {
+            context.record(query, nanos);
+        }
+    }
+
+    // statements of one request can run on several threads, e.g. validation and an async query
+    private synchronized void record(String query, long nanos) {
+        queryCount++;
+        queryNanos += nanos;
+        queryShapes.merge(query, 1, Integer::sum);
+    }
+
+    /**
+     * Stops measuring the resources of the request on all threads, so
+     * {@link #allocatedBytes()} and {@link #cpuNanos()} are complete. Statements
+     * are still counted.
+     */
+    public void finish() {
+        if (resources != null) {
+            resources.finish();
+        }
+    }
+
+    /**
+     * @return the heap memory allocated for the request so far, in bytes; -1 if it
+     * is not measured
+     */
+    public long allocatedBytes() {
+        return resources != null ? resources.allocatedBytes() : -1;
+    }
+
+    /**
+     * @return the CPU time used for the request so far, in nanoseconds; -1 if it is
+     * not measured
+     */
+    public long cpuNanos() {
+        return resources != null ? resources.cpuNanos() : -1;
+    }
+
+    /**
+     * @return the correlation id of the request
+     */
+    public String requestId() {
+        return requestId;
+    }
+
+    /**
+     * @return the number of statements executed so far
+     */
+    public synchronized int queryCount() {
+        return queryCount;
+    }
+
+    /**
+     * @return the time spent in statements so far, in nanoseconds
+     */
+    public synchronized long queryNanos() {
+        return queryNanos;
+    }
+
+    /**
+     * @return the number of statements per query shape, in the order the shapes
+     * first ran
+     */
+    public synchronized Map<String, Integer> queryShapes() {
+        return new LinkedHashMap<>(queryShapes);
+    }
+
+}
@@ -0,0 +1,108 @@
+package monitoring;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures the heap memory a request allocates and the CPU time it uses, summed
+ * over all threads that work on it. A thread is measured from the moment the
+ * request's {@link RequestContext} is bound to it until the context is unbound or
+ * the request finishes, whichever comes first. <br>
+ * <br>
+ * Enabled with the system property <i>server.requestResources=true</i>, since
+ * reading the counters of a thread costs about a microsecond, and only if the JVM
+ * supports them. Threads whose counters cannot be read, e.g. virtual threads of
+ * the database executor, are not counted.
+ */
+final class RequestResources {
+
+    static final String PROPERTY = "server.requestResources";
+
+    // null if the JVM cannot measure the allocations of a thread
+    private static final com.sun.management.ThreadMXBean threads = threadBean();
+    private static final boolean enabled = Boolean.getBoolean(PROPERTY) && threads != null;
+
+    // the counters of the threads currently measured when they started: {allocated bytes, CPU time}
+    private final Map<Long, long[]> started = new HashMap<>();
+    private long allocatedBytes;
+    private long cpuNanos;
+    private boolean finished;
+
+    // measures even if the property is not set; only meant for tests
+    RequestResources() {
+    }
+
+    /**
+     * @return a new measurement; <code>null</code> if measuring is disabled
+     */
+    static RequestResources create() {
+        return enabled ? new RequestResources() : null;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+            return bean;
+        }
+        return null;
+    }
+
+    /**
+     * Starts measuring the current thread, unless it is already measured.
+     */
+    synchronized void start() {
+        long thread = Thread.currentThread().getId();
+        if (finished || started.containsKey(thread)) {
+            return;
+        }
+        long bytes = threads.getCurrentThreadAllocatedBytes();
+        if (bytes >= 0) {
+            started.put(thread, new long[]{bytes, threads.getCurrentThreadCpuTime()});
+        }
+    }
+
+    /**
+     * Stops measuring the current thread and adds what it used.
+     */
+    synchronized void stop() {
+        long[] start = started.remove(Thread.currentThread().getId());
+        if (start != null) {
+            add(start, threads.getCurrentThreadAllocatedBytes(), threads.getCurrentThreadCpuTime());
+        }
+    }
+
+    /**
+     * Stops measuring all threads, including those the context is still bound to,
+     * e.g. the request thread of an async route whose future completed before
+     * Jetty got the thread back. Threads that are unbound later add nothing.
+     */
+    synchronized void finish() {
+        stop();
+        for (Map.Entry<Long, long[]> thread : started.entrySet()) {
+            add(thread.getValue(), threads.getThreadAllocatedBytes(thread.getKey()),
+                    threads.getThreadCpuTime(thread.getKey()));
+        }
+        started.clear();
+        finished = true;
+    }
+
+    private void add(long[] start, long bytes, long cpu) {
+        // -1 if the thread has terminated or its CPU time cannot be measured
+        if (bytes >= 0) {
+            allocatedBytes += bytes - start[0];
+        }
+        if (cpu >= 0 && start[1] >= 0) {
+            cpuNanos += cpu - start[1];
+        }
+    }
+
+    synchronized long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    synchronized long cpuNanos() {
+        return cpuNanos;
+    }
+
+}
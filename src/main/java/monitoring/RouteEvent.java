@@ -0,0 +1,38 @@
+package monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A request handled by the REST server, from its before-handler to its
+ * after-handler. Requests of async routes begin on a Jetty thread and are
+ * committed on the thread that completed them.
+ */
+@Name("carworkshop.Route")
+@Label("Route")
+@Category({"Car Workshop", "HTTP"})
+@Description("A request handled by a Javalin route")
+@StackTrace(false)
+public class RouteEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Route")
+    @Description("The path of the matched route, e.g. /appointment/:id")
+    public String route;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Status")
+    public int status;
+
+    @Label("Queries")
+    @Description("The number of database statements the request ran")
+    public int queries;
+
+}
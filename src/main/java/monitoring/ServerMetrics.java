@@ -0,0 +1,255 @@
+package monitoring;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Collects the metrics of the server process and renders them in the Prometheus
+ * text format for the <b>/metrics</b> route:
+ * <ul>
+ * <li><i>http_requests_total</i> and <i>http_request_duration_seconds</i> per
+ * route, method and status</li>
+ * <li><i>http_request_allocated_bytes_total</i> and
+ * <i>http_request_cpu_seconds_total</i> per route and method, if the resources
+ * of requests are measured, see {@link RequestContext}</li>
+ * <li><i>db_statement_duration_seconds</i> and <i>db_statement_errors_total</i>
+ * per query shape, and <i>db_statements_in_flight</i>, see
+ * {@link ObservedDataStore}</li>
+ * <li><i>cache_lookups_total</i> per cache and result, from which the hit ratio
+ * is computed</li>
+ * <li>gauges registered with {@link #gauge(String, String, DoubleSupplier)}, e.g.
+ * the saturation of the thread pools</li>
+ * </ul>
+ * Recording is lock-free: the series are kept in concurrent maps and counted with
+ * <code>LongAdder</code>s, so request threads do not contend with each other or
+ * with a scrape. A scrape reads the counters without stopping the writers, so it
+ * may see a request in the count of one series but not yet in another.
+ */
+public final class ServerMetrics {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final Map<String, LatencyHistogram> requestDurations = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> requestCounts = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> requestAllocatedBytes = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> requestCpuNanos = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> statementDurations = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> statementErrors = new ConcurrentHashMap<>();
+    private static final LongAdder statementsInFlight = new LongAdder();
+    private static final Map<String, LongAdder> cacheLookups = new ConcurrentHashMap<>();
+    private static final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    private ServerMetrics() {
+    }
+
+    private record Gauge(String help, DoubleSupplier value) {
+    }
+
+    /**
+     * Records a handled request.
+     *
+     * @param method the HTTP method
+     * @param route  the path of the route, e.g. <b>/appointments/available</b>; not
+     *               the requested path, to keep the number of series bounded
+     * @param status the status of the response
+     * @param nanos  the time it took to handle the request
+     */
+    public static void recordRequest(String method, String route, int status, long nanos) {
+        String labels = "method=\"" + escape(method) + "\",route=\"" + escape(route) + "\"";
+        histogram(requestDurations, labels).record(nanos);
+        counter(requestCounts, labels + ",status=\"" + status + "\"").increment();
+    }
+
+    /**
+     * Records the resources a handled request used, in addition to
+     * {@link #recordRequest(String, String, int, long)}.
+     *
+     * @param method         the HTTP method
+     * @param route          the path of the route
+     * @param allocatedBytes the heap memory allocated for the request; ignored if
+     *                       negative
+     * @param cpuNanos       the CPU time used for the request; ignored if negative
+     */
+    public static void recordRequestResources(String method, String route, long allocatedBytes, long cpuNanos) {
+        String labels = "method=\"" + escape(method) + "\",route=\"" + escape(route) + "\"";
+        if (allocatedBytes >= 0) {
+            counter(requestAllocatedBytes, labels).add(allocatedBytes);
+        }
+        if (cpuNanos >= 0) {
+            counter(requestCpuNanos, labels).add(cpuNanos);
+        }
+    }
+
+    /**
+     * Records an executed statement.
+     *
+     * @param query  the shape of the statement, e.g. the name of its template
+     * @param nanos  the time it took
+     * @param failed <code>true</code> if the statement failed
+     */
+    public static void recordStatement(String query, long nanos, boolean failed) {
+        String labels = "query=\"" + escape(query) + "\"";
+        histogram(statementDurations, labels).record(nanos);
+        if (failed) {
+            counter(statementErrors, labels).increment();
+        }
+    }
+
+    /**
+     * Counts a statement as running until {@link #statementFinished()}.
+     */
+    public static void statementStarted() {
+        statementsInFlight.increment();
+    }
+
+    public static void statementFinished() {
+        statementsInFlight.decrement();
+    }
+
+    /**
+     * Records a lookup in a cache.
+     *
+     * @param cache the name of the cache
+     * @param hit   <code>true</code> if the cache could answer the lookup
+     */
+    public static void recordCacheLookup(String cache, boolean hit) {
+        counter(cacheLookups, "cache=\"" + escape(cache) + "\",result=\"" + (hit ? "hit" : "miss") + "\"")
+                .increment();
+    }
+
+    /**
+     * Registers a gauge that is read on every scrape, replacing a gauge with the
+     * same name, e.g. the one of a server that was stopped.
+     *
+     * @param name  the name of the metric
+     * @param help  the description of the metric
+     * @param value reads the current value
+     */
+    public static void gauge(String name, String help, DoubleSupplier value) {
+        gauges.put(name, new Gauge(help, value));
+    }
+
+    /**
+     * @return all metrics in the Prometheus text format
+     */
+    public static String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        writeCounters(out, "http_requests_total", "Requests handled, by route, method and status.", requestCounts);
+        writeHistograms(out, "http_request_duration_seconds", "Time to handle a request, by route and method.",
+                requestDurations);
+        if (!requestAllocatedBytes.isEmpty() || !requestCpuNanos.isEmpty()) {
+            writeCounters(out, "http_request_allocated_bytes_total",
+                    "Heap memory allocated for requests, by route and method.", requestAllocatedBytes);
+            writeCounters(out, "http_request_cpu_seconds_total", "CPU time used for requests, by route and method.",
+                    requestCpuNanos, 1e9);
+        }
+        writeHistograms(out, "db_statement_duration_seconds", "Time to execute a statement, by query shape.",
+                statementDurations);
+        writeCounters(out, "db_statement_errors_total", "Failed statements, by query shape.", statementErrors);
+        writeHeader(out, "db_statements_in_flight", "Statements currently executing.", "gauge");
+        out.append("db_statements_in_flight ").append(statementsInFlight.sum()).append('\n');
+        writeCounters(out, "cache_lookups_total", "Cache lookups, by cache and result.", cacheLookups);
+        for (Map.Entry<String, Gauge> gauge : new TreeMap<>(gauges).entrySet()) {
+            writeHeader(out, gauge.getKey(), gauge.getValue().help(), "gauge");
+            out.append(gauge.getKey()).append(' ');
+            appendValue(out, gauge.getValue().value().getAsDouble());
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * Forgets all recorded values and gauges. Only meant for tests.
+     */
+    static void reset() {
+        requestDurations.clear();
+        requestCounts.clear();
+        requestAllocatedBytes.clear();
+        requestCpuNanos.clear();
+        statementDurations.clear();
+        statementErrors.clear();
+        statementsInFlight.reset();
+        cacheLookups.clear();
+        gauges.clear();
+    }
+
+    private static LatencyHistogram histogram(Map<String, LatencyHistogram> series, String labels) {
+        // get first: computeIfAbsent may lock the bin even if the series exists
+        LatencyHistogram histogram = series.get(labels);
+        return histogram != null ? histogram : series.computeIfAbsent(labels, l -> new LatencyHistogram());
+    }
+
+    private static LongAdder counter(Map<String, LongAdder> series, String labels) {
+        LongAdder counter = series.get(labels);
+        return counter != null ? counter : series.computeIfAbsent(labels, l -> new LongAdder());
+    }
+
+    private static void writeHeader(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void writeCounters(StringBuilder out, String name, String help, Map<String, LongAdder> series) {
+        writeHeader(out, name, help, "counter");
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<>(series).entrySet()) {
+            out.append(name).append('{').append(counter.getKey()).append("} ")
+                    .append(counter.getValue().sum()).append('\n');
+        }
+    }
+
+    // for counters kept in a smaller unit than the metric's, e.g. nanoseconds of a metric in seconds
+    private static void writeCounters(StringBuilder out, String name, String help, Map<String, LongAdder> series,
+                                      double unit) {
+        writeHeader(out, name, help, "counter");
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<>(series).entrySet()) {
+            out.append(name).append('{').append(counter.getKey()).append("} ");
+            appendValue(out, counter.getValue().sum() / unit);
+            out.append('\n');
+        }
+    }
+
+    private static void writeHistograms(StringBuilder out, String name, String help,
+                                        Map<String, LatencyHistogram> series) {
+        writeHeader(out, name, help, "histogram");
+        for (Map.Entry<String, LatencyHistogram> histogram : new TreeMap<>(series).entrySet()) {
+            String labels = histogram.getKey();
+            long[] counts = histogram.getValue().bucketCounts();
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                out.append(name).append("_bucket{").append(labels).append(",le=\"")
+                        .append(i < LatencyHistogram.BOUND_LABELS.length ? LatencyHistogram.BOUND_LABELS[i] : "+Inf")
+                        .append("\"} ").append(cumulative).append('\n');
+            }
+            out.append(name).append("_sum{").append(labels).append("} ");
+            appendValue(out, histogram.getValue().sumNanos() / 1e9);
+            out.append('\n');
+            out.append(name).append("_count{").append(labels).append("} ").append(cumulative).append('\n');
+        }
+    }
+
+    private static void appendValue(StringBuilder out, double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+    }
+
+    /**
+     * Escapes a label value as the text format requires.
+     */
+    static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf('\\') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+}
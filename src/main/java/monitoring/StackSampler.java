@@ -0,0 +1,180 @@
+package monitoring;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Samples the stacks of the threads whose names start with one of the given
+ * prefixes, e.g. the Jetty workers, and aggregates them in the collapsed format
+ * of flame graph tools (flamegraph.pl, speedscope): one line per distinct stack,
+ * its frames from the entry point of the thread to the sampled method separated
+ * by ';', followed by the number of samples. <br>
+ * <br>
+ * A thread that is not running gets its state as an extra frame, e.g.
+ * <b>[BLOCKED]</b> for a thread waiting for a monitor, so lock contention shows
+ * up as its own tower. Threads waiting for work, e.g. idle Jetty workers, are
+ * left out, since they would dominate the graph. <br>
+ * <br>
+ * Every sample stops the JVM at a safepoint, so the interval is at least
+ * {@value #MIN_INTERVAL_MILLIS} ms, a profile lasts at most {@value #MAX_SECONDS}
+ * s and only one profile runs at a time. Virtual threads are not visible to the
+ * sampler, so the database calls of the server are only sampled if it runs them
+ * on platform threads, i.e. with <i>db.executor=platform</i>.
+ */
+public final class StackSampler {
+
+    public static final int MIN_INTERVAL_MILLIS = 10;
+    public static final int MAX_SECONDS = 60;
+    private static final int MAX_DEPTH = 128;
+    // more distinct stacks are counted as [other], so a profile's memory stays bounded
+    private static final int MAX_STACKS = 10_000;
+    // the threads sampled are looked up again at this interval, since pools start and stop threads
+    private static final long REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // frames of threads that wait for work
+    private static final Set<String> IDLE_FRAMES = Set.of(
+            "org.eclipse.jetty.util.thread.QueuedThreadPool$Runner.idleJobPoll",
+            "org.eclipse.jetty.io.ManagedSelector.nioSelect",
+            "sun.nio.ch.ServerSocketChannelImpl.accept",
+            "java.util.concurrent.ThreadPoolExecutor.getTask");
+
+    private static final AtomicBoolean running = new AtomicBoolean();
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final List<String> namePrefixes;
+
+    /**
+     * @param namePrefixes the prefixes of the names of the threads to sample
+     */
+    public StackSampler(List<String> namePrefixes) {
+        this.namePrefixes = List.copyOf(namePrefixes);
+    }
+
+    /**
+     * Samples the threads, blocking the calling thread until the profile is done.
+     * The calling thread itself is not sampled.
+     *
+     * @param seconds        the duration of the profile, from 1 to
+     *                       {@value #MAX_SECONDS}
+     * @param intervalMillis the time between two samples, from
+     *                       {@value #MIN_INTERVAL_MILLIS} to 1000
+     * @return the collapsed stacks, the most frequent first; empty if no thread
+     * was busy
+     * @throws IllegalArgumentException if the duration or interval is out of range
+     * @throws IllegalStateException    if another profile is running
+     * @throws InterruptedException     if the calling thread is interrupted
+     */
+    public String sample(int seconds, int intervalMillis) throws InterruptedException {
+        if (seconds < 1 || seconds > MAX_SECONDS) {
+            throw new IllegalArgumentException("The duration must be between 1 and " + MAX_SECONDS + " seconds.");
+        }
+        if (intervalMillis < MIN_INTERVAL_MILLIS || intervalMillis > 1000) {
+            throw new IllegalArgumentException("The interval must be between " + MIN_INTERVAL_MILLIS
+                    + " and 1000 ms.");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A profile is already running.");
+        }
+        try {
+            Map<String, Integer> stacks = new HashMap<>();
+            long self = Thread.currentThread().getId();
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            long[] ids = null;
+            long refreshed = 0;
+            do {
+                long now = System.nanoTime();
+                if (ids == null || now - refreshed >= REFRESH_NANOS) {
+                    ids = threadIds(self);
+                    refreshed = now;
+                }
+                for (ThreadInfo thread : threads.getThreadInfo(ids, MAX_DEPTH)) {
+                    // null if the thread has terminated
+                    if (thread != null) {
+                        add(stacks, thread);
+                    }
+                }
+                Thread.sleep(intervalMillis);
+            } while (end - System.nanoTime() > 0);
+            return format(stacks);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long[] threadIds(long self) {
+        // without stacks, only to get the names
+        ThreadInfo[] all = threads.getThreadInfo(threads.getAllThreadIds(), 0);
+        List<Long> ids = new ArrayList<>();
+        for (ThreadInfo thread : all) {
+            if (thread != null && thread.getThreadId() != self && isSampled(thread.getThreadName())) {
+                ids.add(thread.getThreadId());
+            }
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private boolean isSampled(String name) {
+        for (String prefix : namePrefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static void add(Map<String, Integer> stacks, ThreadInfo thread) {
+        String stack = collapse(thread.getStackTrace(), thread.getThreadState());
+        if (stack == null) {
+            return;
+        }
+        if (stacks.size() >= MAX_STACKS && !stacks.containsKey(stack)) {
+            stack = "[other]";
+        }
+        stacks.merge(stack, 1, Integer::sum);
+    }
+
+    /**
+     * @return the frames from the entry point of the thread, separated by ';';
+     * <code>null</code> if the thread waits for work or has no stack
+     */
+    static String collapse(StackTraceElement[] frames, Thread.State state) {
+        if (frames.length == 0) {
+            return null;
+        }
+        StringBuilder stack = new StringBuilder(frames.length * 48);
+        if (frames.length == MAX_DEPTH) {
+            // the bottom of the stack is cut off, these stacks would not merge with their callers anyway
+            stack.append("[deep]");
+        }
+        for (int i = frames.length - 1; i >= 0; i--) {
+            String frame = frames[i].getClassName() + '.' + frames[i].getMethodName();
+            if (IDLE_FRAMES.contains(frame)) {
+                return null;
+            }
+            if (stack.length() > 0) {
+                stack.append(';');
+            }
+            stack.append(frame);
+        }
+        if (state != Thread.State.RUNNABLE) {
+            stack.append(";[").append(state).append(']');
+        }
+        return stack.toString();
+    }
+
+    static String format(Map<String, Integer> stacks) {
+        StringBuilder out = new StringBuilder(stacks.size() * 256);
+        stacks.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .forEach(stack -> out.append(stack.getKey()).append(' ').append(stack.getValue()).append('\n'));
+        return out.toString();
+    }
+
+}
@@ -3,18 +3,26 @@ package rest_client;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import kong.unirest.GetRequest;
 import kong.unirest.HttpResponse;
 import kong.unirest.JsonNode;
 import kong.unirest.Unirest;
 import kong.unirest.UnirestException;
 import model.User;
+import model.records.Technician;
+import utils.BinaryRows;
+import utils.DateCodec;
 import utils.StringNames;
 import utils.Utils;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 public class RestClient {
@@ -251,6 +259,85 @@ public class RestClient {
         return mapStringToJsonObjectList(jsonResponse.getBody().toString());
     }
 
+// revalidation --------------------------------------------------------------------------------------------------------
+
+    /**
+     * A response body together with the ETag the server sent for it.
+     */
+    private record CachedBody(String etag, String body) {
+    }
+
+    /**
+     * The status of a revalidated request and the current body.
+     */
+    private record RevalidatedResponse(int status, String body) {
+    }
+
+    // bodies of catalog requests, keyed by path and query
+    private final Map<String, CachedBody> revalidationCache = new ConcurrentHashMap<>();
+
+    /**
+     * Sends the GET request with the ETag of the cached copy, if there is one, so
+     * the server can answer with 304 instead of sending the same data again.
+     * Bodies of successful responses that come with an ETag are cached.
+     *
+     * @param key     the key of the request, i.e. path and query
+     * @param request the request to send
+     * @return status 200 and the body, either received or cached if the server
+     * answered 304; otherwise the status of the response without body
+     */
+    private RevalidatedResponse getRevalidated(String key, GetRequest request) {
+        CachedBody cached = revalidationCache.get(key);
+        if (cached != null) {
+            request.header("If-None-Match", cached.etag());
+        }
+        HttpResponse<JsonNode> response = request.asJson();
+        if (response.getStatus() == 304 && cached != null) {
+            return new RevalidatedResponse(200, cached.body());
+        }
+        if (response.getStatus() != 200) {
+            return new RevalidatedResponse(response.getStatus(), null);
+        }
+        String body = response.getBody().toString();
+        String etag = response.getHeaders() != null ? response.getHeaders().getFirst("ETag") : null;
+        if (etag != null && !etag.isEmpty()) {
+            revalidationCache.put(key, new CachedBody(etag, body));
+        } else {
+            revalidationCache.remove(key);
+        }
+        return new RevalidatedResponse(200, body);
+    }
+
+// binary rows ---------------------------------------------------------------------------------------------------------
+
+    /**
+     * Makes a GET request that asks for the compact {@link BinaryRows} format
+     * instead of JSON, e.g. for clients that fetch many rows. Works with the
+     * routes that return lists of rows, such as <code>/workshops</code>,
+     * <code>/services</code> and <code>/technicians</code>.
+     *
+     * @param path        the path of the route, e.g. "/services"
+     * @param queryParams the query parameters; can be empty
+     * @return the decoded rows; timestamps are <code>java.sql.Timestamp</code>s;
+     * <code>null</code> if the request failed
+     */
+    public List<Map<String, Object>> requestRows(String path, Map<String, Object> queryParams) {
+        GetRequest request = Unirest.get(path);
+        for (Map.Entry<String, Object> parameter : queryParams.entrySet()) {
+            request.queryString(parameter.getKey(), parameter.getValue());
+        }
+        HttpResponse<byte[]> response = request.header("Accept", BinaryRows.MEDIA_TYPE).asBytes();
+        if (response.getStatus() != 200) {
+            return null;
+        }
+        try {
+            return BinaryRows.decode(response.getBody());
+        } catch (IOException e) {
+            System.err.println("Invalid binary response of " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
 // workshop requests --------------------------------------------------------------------------------------------------
 
 // view workshops
@@ -261,12 +348,11 @@ public class RestClient {
      * @return the result as a list of <code>JsonObject</code>
      */
     public List<JsonObject> requestAllWorkshops() {
-        HttpResponse<JsonNode> jsonResponse = Unirest.get("/workshops")
-                .asJson();
-        if (jsonResponse.getStatus() != 200) {
+        RevalidatedResponse response = getRevalidated("/workshops", Unirest.get("/workshops"));
+        if (response.status() != 200) {
             return Collections.emptyList();
         }
-        return mapStringToJsonObjectList(jsonResponse.getBody().toString());
+        return mapStringToJsonObjectList(response.body());
 
     }
 
@@ -301,13 +387,12 @@ public class RestClient {
      * @return the result as a list of <code>JsonObject</code>
      */
     public List<JsonObject> requestAllServicesOfWorkshop(int workshop_id) {
-        HttpResponse<JsonNode> jsonResponse = Unirest.get("/services")
-                .queryString(StringNames.workshop_id, workshop_id)
-                .asJson();
-        if (jsonResponse.getStatus() != 200) {
+        RevalidatedResponse response = getRevalidated("/services?" + StringNames.workshop_id + "=" + workshop_id,
+                Unirest.get("/services").queryString(StringNames.workshop_id, workshop_id));
+        if (response.status() != 200) {
             return null;
         }
-        return mapStringToJsonObjectList(jsonResponse.getBody().toString());
+        return mapStringToJsonObjectList(response.body());
     }
 
 // request information about a specific service
@@ -350,7 +435,7 @@ public class RestClient {
     public boolean createNewAppointment(int workshop_id, int service_id, Date scheduledTime, String paymentMethod) {
         try {
             // Format the Date into the expected string format using your Utils class
-            String formattedScheduledTime = Utils.yearMonthDayTimeFormat.format(scheduledTime);
+            String formattedScheduledTime = DateCodec.format(scheduledTime);
 
             HttpResponse<JsonNode> jsonResponse = Unirest
                     .post("/appointment/create")
@@ -419,7 +504,7 @@ public class RestClient {
      */
     public boolean modifyAppointment(int appointment_id, Date scheduledTime, String paymentMethod) {
         // Format the Date into the expected string format using your Utils class
-        String formattedScheduledTime = Utils.yearMonthDayTimeFormat.format(scheduledTime);
+        String formattedScheduledTime = DateCodec.format(scheduledTime);
         HttpResponse<JsonNode> jsonResponse = Unirest.put("/appointment/modify")
                 .queryString(StringNames.appointment_id, appointment_id)
                 .queryString(StringNames.scheduledTime, formattedScheduledTime)
@@ -438,9 +523,25 @@ public class RestClient {
      * @throws UnirestException if there is an issue with the API call.
      */
     public List<JsonObject> getAppointmentDetails(int appointment_id) throws UnirestException {
+        return getAppointmentDetails(appointment_id, new String[0]);
+    }
 
-        HttpResponse<JsonNode> jsonResponse = Unirest.get("/appointments")
-                .queryString("appointment_id", appointment_id)
+    /**
+     * Fetches only the given fields of the appointment details, so the server
+     * reads and sends less.
+     *
+     * @param appointment_id The ID of the appointment.
+     * @param fields the field names, e.g. "scheduledTime"; all fields if empty
+     * @return A list with one JsonObject containing the fields, or null if the request fails.
+     * @throws UnirestException if there is an issue with the API call.
+     */
+    public List<JsonObject> getAppointmentDetails(int appointment_id, String... fields) throws UnirestException {
+        GetRequest request = Unirest.get("/appointments")
+                .queryString("appointment_id", appointment_id);
+        if (fields.length > 0) {
+            request.queryString(StringNames.fields, String.join(",", fields));
+        }
+        HttpResponse<JsonNode> jsonResponse = request
                 .header("Authorization", user.getAuthorization())
                 .asJson();
         if (jsonResponse.getStatus() != 200) {
@@ -462,7 +563,7 @@ public class RestClient {
      */
     public List<String> getAvailableAppointments(Date scheduledTime, int workshop_id, int service_id) throws UnirestException {
         // Format the scheduled time to "yyyy-MM-dd HH:mm"
-        String formattedDate = Utils.yearMonthDayTimeFormat.format(scheduledTime);
+        String formattedDate = DateCodec.format(scheduledTime);
 
         HttpResponse<JsonNode> jsonResponse = Unirest.get("/appointments/available")
                 .queryString("scheduledTime", formattedDate)
@@ -500,19 +601,37 @@ public class RestClient {
      * @return the result as a list of <code>JsonObject</code>
      */
     public List<JsonObject> requestTechniciansForService(int workshop_id) {
-        HttpResponse<JsonNode> jsonResponse = Unirest.get("/technicians")
-                .queryString(StringNames.workshop_id, workshop_id)
-                .asJson();
-                
-        if (jsonResponse.getStatus() != 200) {
-            System.err.println("Failed to fetch technicians. Status: " + jsonResponse.getStatus());
+        RevalidatedResponse response = getRevalidated("/technicians?" + StringNames.workshop_id + "=" + workshop_id,
+                Unirest.get("/technicians").queryString(StringNames.workshop_id, workshop_id));
+
+        if (response.status() != 200) {
+            System.err.println("Failed to fetch technicians. Status: " + response.status());
             return Collections.emptyList();
         }
         
-        List<JsonObject> technicians = mapStringToJsonObjectList(jsonResponse.getBody().toString());
+        List<JsonObject> technicians = mapStringToJsonObjectList(response.body());
         return technicians;
     }
 
+    /**
+     * Makes a REST request to the server. Retrieves all technicians of one
+     * workshop as typed records. Shares the cached copy with
+     * {@link #requestTechniciansForService(int)}.
+     *
+     * @param workshop_id the id of the workshop
+     * @return the technicians; empty if the request failed
+     */
+    public List<Technician> requestTechnicians(int workshop_id) {
+        RevalidatedResponse response = getRevalidated("/technicians?" + StringNames.workshop_id + "=" + workshop_id,
+                Unirest.get("/technicians").queryString(StringNames.workshop_id, workshop_id));
+
+        if (response.status() != 200) {
+            System.err.println("Failed to fetch technicians. Status: " + response.status());
+            return Collections.emptyList();
+        }
+        return Arrays.asList(new Gson().fromJson(response.body(), Technician[].class));
+    }
+
     private void updateTokensOfUser() {
         if (user != null) {
             HttpResponse<JsonNode> jsonResponse = Unirest.get("/customer/tokens")
@@ -0,0 +1,92 @@
+package rest_server;
+
+import utils.DateCodec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The booked time ranges of one service in one workshop, as read with
+ * {@link Queries#SCHEDULED_SERVICES}. All times are epoch minutes (see
+ * {@link DateCodec}), so checking a slot is integer arithmetic. <br>
+ * <br>
+ * Ranges include both ends: a slot that starts at the minute another
+ * appointment ends conflicts with it.
+ */
+public class AppointmentSchedule {
+
+    public static final int OPENING_MINUTE = 9 * 60;
+    public static final int CLOSING_MINUTE = 17 * 60;
+
+    private final long[] starts;
+    private final long[] ends;
+
+    private AppointmentSchedule(long[] starts, long[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * @param scheduledServices rows with the columns <i>scheduledTime</i> and
+     *                          <i>duration</i> (in minutes); rows where one of
+     *                          them is missing or invalid are skipped
+     * @return the schedule
+     */
+    public static AppointmentSchedule of(List<Map<String, Object>> scheduledServices) {
+        long[] starts = new long[scheduledServices.size()];
+        long[] ends = new long[scheduledServices.size()];
+        int count = 0;
+        for (Map<String, Object> row : scheduledServices) {
+            long start = DateCodec.toEpochMinutes(row.get("scheduledTime"));
+            Object duration = row.get("duration");
+            if (start == DateCodec.INVALID || !(duration instanceof Number)) {
+                continue;
+            }
+            starts[count] = start;
+            ends[count] = start + ((Number) duration).intValue();
+            count++;
+        }
+        return new AppointmentSchedule(Arrays.copyOf(starts, count), Arrays.copyOf(ends, count));
+    }
+
+    /**
+     * @param start    the start of the new appointment in epoch minutes
+     * @param duration the duration of the new appointment in minutes
+     * @return <code>true</code> if the appointment overlaps a booked one
+     */
+    public boolean conflicts(long start, int duration) {
+        long end = start + duration;
+        for (int i = 0; i < starts.length; i++) {
+            if (end >= starts[i] && start <= ends[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lists the free slots of one day between {@link #OPENING_MINUTE} and
+     * {@link #CLOSING_MINUTE}, back to back with the length of the service.
+     *
+     * @param day      any time of the day in epoch minutes
+     * @param duration the duration of the service in minutes; must be positive
+     * @return the start of each free slot as <b>yyyy-MM-dd HH:mm</b>
+     */
+    public List<String> availableSlots(long day, int duration) {
+        long startOfDay = Math.floorDiv(day, DateCodec.MINUTES_PER_DAY) * DateCodec.MINUTES_PER_DAY;
+        long closing = startOfDay + CLOSING_MINUTE;
+        List<String> slots = new ArrayList<>();
+        if (duration <= 0) {
+            return slots;
+        }
+        for (long slot = startOfDay + OPENING_MINUTE; slot < closing; slot += duration) {
+            if (!conflicts(slot, duration)) {
+                slots.add(DateCodec.formatEpochMinutes(slot));
+            }
+        }
+        return slots;
+    }
+
+}
@@ -0,0 +1,165 @@
+package rest_server;
+
+import io.javalin.http.Context;
+import jakarta.servlet.http.HttpServletResponse;
+import model.TableVersions;
+import monitoring.CacheEvent;
+import monitoring.ServerMetrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the serialized JSON of responses that are the same for every client,
+ * e.g. the list of all workshops, both uncompressed and gzip-compressed. <br>
+ * <br>
+ * Every entry remembers the {@link TableVersions version} of the tables it was
+ * built from and is only served while that version is current, so an entry is
+ * rebuilt after the first change to one of its tables. The version has to be
+ * taken before the tables are queried, see {@link #version(String...)}.
+ */
+public class CatalogCache {
+
+    /**
+     * One cached response body.
+     *
+     * @param version the version of the tables the body was built from
+     * @param plain   the UTF-8 encoded JSON
+     * @param gzip    the gzip-compressed JSON
+     */
+    public record Entry(long version, byte[] plain, byte[] gzip) {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the version an entry built from the given tables gets. Must be
+     * called before the tables are queried.
+     *
+     * @param tables the tables the response is built from
+     * @return the current version of the tables
+     */
+    public long version(String... tables) {
+        return TableVersions.of(tables);
+    }
+
+    /**
+     * @param key    the name of the response
+     * @param tables the tables the response is built from
+     * @return the cached entry; <code>null</code> if there is none or one of the
+     * tables has changed since it was built
+     */
+    public Entry get(String key, String... tables) {
+        CacheEvent event = new CacheEvent();
+        event.begin();
+        Entry entry = entries.get(key);
+        boolean hit = entry != null && entry.version() == TableVersions.of(tables);
+        ServerMetrics.recordCacheLookup("catalog", hit);
+        commit(event, "get", key, hit, hit ? entry.plain().length : 0);
+        return hit ? entry : null;
+    }
+
+    /**
+     * Compresses and stores the JSON.
+     *
+     * @param key     the name of the response
+     * @param version the version returned by {@link #version(String...)} before
+     *                the tables were queried
+     * @param json    the serialized response
+     * @return the stored entry
+     */
+    public Entry put(String key, long version, String json) {
+        CacheEvent event = new CacheEvent();
+        event.begin();
+        byte[] plain = json.getBytes(StandardCharsets.UTF_8);
+        Entry entry = new Entry(version, plain, gzip(plain));
+        entries.put(key, entry);
+        commit(event, "put", key, false, plain.length);
+        return entry;
+    }
+
+    private static void commit(CacheEvent event, String operation, String key, boolean hit, long bytes) {
+        if (event.shouldCommit()) {
+            event.cache = "catalog";
+            event.operation = operation;
+            event.key = key;
+            event.hit = hit;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Removes all entries, e.g. because the server got a different database.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Sends the entry with status 200, gzip-compressed if the client accepts it.
+     * The bytes are written to the servlet response directly, so they are not
+     * serialized or compressed again.
+     *
+     * @param context the context of the request
+     * @param entry   the entry to send
+     */
+    public static void send(Context context, Entry entry) throws IOException {
+        boolean gzip = acceptsGzip(context.header("Accept-Encoding"));
+        byte[] body = gzip ? entry.gzip() : entry.plain();
+        HttpServletResponse response = context.res();
+        response.setStatus(200);
+        response.setContentType("application/json");
+        response.addHeader("Vary", "Accept-Encoding");
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        response.flushBuffer();
+    }
+
+    /**
+     * @param acceptEncoding the value of the Accept-Encoding header; can be
+     *                       <code>null</code>
+     * @return <code>true</code> if gzip is listed and not refused with q=0
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim().replace(" ", "");
+                    try {
+                        if (parameter.startsWith("q=") && Double.parseDouble(parameter.substring(2)) == 0) {
+                            return false;
+                        }
+                    } catch (NumberFormatException e) {
+                        // malformed weight, ignore it
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] plain) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(plain.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(plain);
+        } catch (IOException e) {
+            // cannot happen for an in-memory stream
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,102 @@
+package rest_server;
+
+import io.javalin.http.Context;
+import model.TableVersions;
+import monitoring.ServerMetrics;
+import utils.BinaryRows;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Validators for GET routes whose response only depends on a few tables. <br>
+ * <br>
+ * The <code>ETag</code> is built from the {@link TableVersions version} of the
+ * tables and the start time of the server, so it changes with every write to
+ * one of the tables and after a restart. It is weak because the same data is
+ * sent either plain or gzip-compressed. JSON and {@link BinaryRows} responses get
+ * different tags. <code>Last-Modified</code> only has second precision; if a
+ * client sends both, <code>If-None-Match</code> wins.
+ */
+public final class ConditionalGet {
+
+    private static final String INSTANCE = Long.toString(System.currentTimeMillis(), 36);
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * Sets the validators of the given tables and answers with status 304 if the
+     * client's copy is still current. Must be called before the tables are
+     * queried.
+     *
+     * @param context the context of the request
+     * @param tables  the tables the response is built from
+     * @return <code>true</code> if status 304 was set and the route must not send
+     * a body
+     */
+    public static boolean notModified(Context context, String... tables) {
+        boolean binary = BinaryRows.isAccepted(context.header("Accept"));
+        String etag = etag(TableVersions.of(tables), binary);
+        long lastModified = TableVersions.lastModified(tables);
+        context.header("ETag", etag);
+        context.header("Last-Modified", HTTP_DATE.format(Instant.ofEpochMilli(lastModified)));
+        // clients may keep the response but have to ask before using it
+        context.header("Cache-Control", "no-cache");
+        context.header("Vary", "Accept");
+
+        String ifNoneMatch = context.header("If-None-Match");
+        boolean notModified = ifNoneMatch != null
+                ? matches(ifNoneMatch, etag)
+                : notModifiedSince(context.header("If-Modified-Since"), lastModified);
+        if (ifNoneMatch != null || context.header("If-Modified-Since") != null) {
+            // the client's copy serves as a cache the server can only validate
+            ServerMetrics.recordCacheLookup("conditional_get", notModified);
+        }
+        if (notModified) {
+            context.status(304);
+        }
+        return notModified;
+    }
+
+    static String etag(long version, boolean binary) {
+        return "W/\"" + INSTANCE + "-" + version + (binary ? "-b" : "") + "\"";
+    }
+
+    /**
+     * Compares the tags of an <code>If-None-Match</code> header weakly, i.e.
+     * ignoring the <code>W/</code> prefix.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        String opaque = stripWeak(etag);
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.equals("*") || stripWeak(trimmed).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static boolean notModifiedSince(String ifModifiedSince, long lastModified) {
+        if (ifModifiedSince == null) {
+            return false;
+        }
+        try {
+            long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+            return lastModified / 1000 <= since;
+        } catch (DateTimeParseException e) {
+            // invalid dates are ignored
+            return false;
+        }
+    }
+
+}
@@ -1,6 +1,8 @@
 package rest_server;
 
+import model.DataStore;
 import model.DatabaseConnector;
+import model.PaymentMethod;
 
 import java.util.Base64;
 import java.util.List;
@@ -8,9 +10,9 @@ import java.util.Map;
 
 public class DataValidation {
 
-    private final DatabaseConnector dbConnector;
+    private final DataStore dbConnector;
 
-    public DataValidation(DatabaseConnector dbConnector) {
+    public DataValidation(DataStore dbConnector) {
         this.dbConnector = dbConnector;
     }
 
@@ -59,24 +61,13 @@ public class DataValidation {
     /**
      * Checks if the given payment method is valid by verifying if it matches one of
      * the allowed values: "Cash", "cash", "Credit Card", "Credit card", "credit card", "Debit Card", "Debit card", "debit card",
-     * "PayPal", "paypal", "ApplePay" or "applepay"
+     * "PayPal", "paypal", "ApplePay", "applepay" or "Not selected" (see {@link PaymentMethod})
      *
      * @param paymentMethod the payment method to check
      * @return <code>true</code> if the payment method is valid; <code>false</code> otherwise
      */
     public boolean isValidPaymentMethod(String paymentMethod) {
-        // List of valid payment method values
-        String[] validMethods = {"Cash", "cash", "Credit Card", "Credit card", "credit card", "Debit Card", "Debit card", "debit card",
-                "PayPal", "paypal", "ApplePay", "applepay", "Not selected"};
-
-        // Check if the paymentMethod is one of the valid values
-        for (String method : validMethods) {
-            if (method.equals(paymentMethod)) {
-                return true;
-            }
-        }
-
-        return false;
+        return PaymentMethod.fromString(paymentMethod) != null;
     }
 
     /**
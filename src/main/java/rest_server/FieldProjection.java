@@ -0,0 +1,162 @@
+package rest_server;
+
+import model.QueryTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The fields a client can choose with the <i>fields</i> query parameter of a
+ * route, e.g. <code>?fields=id,scheduledTime</code>. Each allowed field maps to
+ * the column expression in the SELECT list of the route's query template, so
+ * only the chosen columns are read and sent. <br>
+ * <br>
+ * The chosen fields are put in the order of the allow-list, so the same set of
+ * fields always yields the same template, which is rendered once and reused.
+ */
+public final class FieldProjection {
+
+    // the number of distinct projections kept per route
+    private static final int MAX_CACHED = 256;
+
+    private final QueryTemplate template;
+    private final Map<String, String> columns;
+    private final Set<String> required;
+    private final Map<String, QueryTemplate> projections = new ConcurrentHashMap<>();
+
+    private FieldProjection(Builder builder) {
+        this.template = builder.template;
+        this.columns = Collections.unmodifiableMap(builder.columns);
+        this.required = Set.copyOf(builder.required);
+    }
+
+    /**
+     * @param template the template used when no fields are given
+     * @return a builder for the allow-list of the template
+     */
+    public static Builder of(QueryTemplate template) {
+        return new Builder(template);
+    }
+
+    /**
+     * @return the allowed field names, in order
+     */
+    public Set<String> getFields() {
+        return columns.keySet();
+    }
+
+    /**
+     * Returns the template that selects the given fields, plus the fields the
+     * route always needs.
+     *
+     * @param fields the value of the <i>fields</i> query parameter, a comma
+     *               separated list; can be <code>null</code> or blank to select
+     *               everything
+     * @return the template; <code>null</code> if a field is not allowed or the
+     * list contains no field, e.g. <code>?fields=,</code>
+     */
+    public QueryTemplate select(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return template;
+        }
+        List<String> chosen = Arrays.asList(fields.split(","));
+        if (chosen.isEmpty()) {
+            return null;
+        }
+        for (int i = 0; i < chosen.size(); i++) {
+            String field = chosen.get(i).trim();
+            if (!columns.containsKey(field)) {
+                return null;
+            }
+            chosen.set(i, field);
+        }
+        List<String> selection = new ArrayList<>();
+        StringBuilder key = new StringBuilder();
+        for (Map.Entry<String, String> column : columns.entrySet()) {
+            if (chosen.contains(column.getKey()) || required.contains(column.getKey())) {
+                selection.add(column.getValue());
+                key.append(column.getKey()).append(',');
+            }
+        }
+        QueryTemplate projection = projections.get(key.toString());
+        if (projection == null) {
+            projection = template.withSelection(selection.toArray(new String[0]));
+            if (projections.size() < MAX_CACHED) {
+                projections.put(key.toString(), projection);
+            }
+        }
+        return projection;
+    }
+
+    /**
+     * Collects the allowed fields of a {@link FieldProjection}.
+     */
+    public static final class Builder {
+        private final QueryTemplate template;
+        private final Map<String, String> columns = new LinkedHashMap<>();
+        private final List<String> required = new ArrayList<>();
+
+        private Builder(QueryTemplate template) {
+            this.template = template;
+        }
+
+        /**
+         * Allows fields whose column has the same name, each prefixed with the
+         * table alias.
+         *
+         * @param alias the alias of the table, e.g. <code>a</code>; can be
+         *              <code>null</code> if the template has no aliases
+         * @param names the column names
+         */
+        public Builder fields(String alias, String... names) {
+            for (String name : names) {
+                columns.put(name, alias != null ? alias + "." + name : name);
+            }
+            return this;
+        }
+
+        /**
+         * Allows a field that is selected with an expression, e.g.
+         * <code>w.name as workshopName</code>.
+         *
+         * @param name       the field name, i.e. the column label in the result
+         * @param expression the expression in the SELECT list
+         */
+        public Builder field(String name, String expression) {
+            columns.put(name, expression);
+            return this;
+        }
+
+        /**
+         * Marks allowed fields that are always selected because the route needs
+         * them, e.g. for authorization.
+         *
+         * @param names the field names
+         */
+        public Builder required(String... names) {
+            required.addAll(Arrays.asList(names));
+            return this;
+        }
+
+        /**
+         * @return the projection
+         * @throws IllegalStateException if a required field is not allowed
+         */
+        public FieldProjection build() {
+            for (String name : required) {
+                if (!columns.containsKey(name)) {
+                    throw new IllegalStateException("Required field " + name + " of query "
+                            + template.getName() + " is not allowed");
+                }
+            }
+            return new FieldProjection(this);
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package rest_server;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import io.javalin.http.Context;
+import org.eclipse.jetty.server.Request;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Writes result rows as a JSON array directly to the response, one row at a
+ * time, instead of building the whole JSON string first. <br>
+ * <br>
+ * No content length is set, so Jetty sends the response with chunked transfer
+ * encoding as soon as its buffer is full. The output is the same JSON that
+ * <code>context.json(rows)</code> produces with Gson's default settings, i.e.
+ * <code>null</code> values are omitted. <br>
+ * <br>
+ * The status is sent before the rows are read, so a failure midway cannot turn
+ * into an error status any more. {@link #abort(Throwable)} cuts the response off
+ * instead, so the client does not mistake the rows up to the failure for the
+ * complete result.
+ */
+public class JsonRowWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Context context;
+    private final Gson gson;
+    private final JsonWriter writer;
+
+    /**
+     * Sets the content type and starts the array. The status has to be set before.
+     *
+     * @param context the context of the request
+     * @param gson    the Gson instance used for values other than strings, numbers
+     *                and booleans
+     */
+    public JsonRowWriter(Context context, Gson gson) throws IOException {
+        this.context = context;
+        this.gson = gson;
+        context.contentType("application/json");
+        this.writer = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(context.outputStream(), StandardCharsets.UTF_8), BUFFER_SIZE));
+        writer.beginArray();
+    }
+
+    /**
+     * Writes all rows as one JSON array.
+     *
+     * @param context the context of the request; the status has to be set before
+     * @param gson    the Gson instance for values other than strings, numbers and
+     *                booleans
+     * @param rows    the rows to write
+     */
+    public static void write(Context context, Gson gson, Iterable<Map<String, Object>> rows) throws IOException {
+        try (JsonRowWriter rowWriter = new JsonRowWriter(context, gson)) {
+            for (Map<String, Object> row : rows) {
+                rowWriter.writeRow(row);
+            }
+        }
+    }
+
+    /**
+     * Writes one row as a JSON object.
+     *
+     * @param row the row; keys are the column names
+     */
+    public void writeRow(Map<String, Object> row) throws IOException {
+        writer.beginObject();
+        for (Map.Entry<String, Object> column : row.entrySet()) {
+            Object value = column.getValue();
+            if (value == null) {
+                continue;
+            }
+            writer.name(column.getKey());
+            if (value instanceof String) {
+                writer.value((String) value);
+            } else if (value instanceof Number) {
+                writer.value((Number) value);
+            } else if (value instanceof Boolean) {
+                writer.value((Boolean) value);
+            } else {
+                gson.toJson(value, value.getClass(), writer);
+            }
+        }
+        writer.endObject();
+    }
+
+    /**
+     * Closes the connection without ending the array or the chunked encoding, so
+     * the client gets an incomplete response; if nothing has been sent yet, it gets
+     * no response at all. Rows still buffered are discarded.
+     *
+     * @param cause the reason, logged by Jetty
+     */
+    public void abort(Throwable cause) {
+        Request request = Request.getBaseRequest(context.req());
+        if (request == null) {
+            throw new IllegalStateException("Not a Jetty request, the response cannot be aborted", cause);
+        }
+        request.getHttpChannel().abort(cause);
+    }
+
+    /**
+     * Ends the array and flushes the response.
+     */
+    @Override
+    public void close() throws IOException {
+        writer.endArray();
+        writer.flush();
+    }
+
+}
@@ -0,0 +1,162 @@
+package rest_server;
+
+import model.DatabaseConnector;
+import model.QueryTemplate;
+
+
+import static model.QueryTemplate.ParameterType.INT;
+import static model.QueryTemplate.ParameterType.STRING;
+
+/**
+ * The SELECT statements of the {@link RestServer}. Each query shape is declared
+ * once here and its SQL is rendered, and checked against its parameter types, when
+ * this class is loaded, i.e. when the server starts.
+ */
+public final class Queries {
+
+    private Queries() {
+    }
+
+    // ------------------------------ WORKSHOPS ------------------------------
+    public static final QueryTemplate ALL_WORKSHOPS = QueryTemplate.select("allWorkshops", "*")
+            .from(DatabaseConnector.WORKSHOPS)
+            .build();
+
+    public static final QueryTemplate WORKSHOP_BY_ID = QueryTemplate.select("workshopById", "*")
+            .from(DatabaseConnector.WORKSHOPS)
+            .where("id = ?", INT)
+            .build();
+
+    public static final QueryTemplate WORKSHOPS_OFFERING_SERVICE = QueryTemplate.select("workshopsOfferingService", "w.*")
+            .from(DatabaseConnector.WORKSHOP_SERVICES, DatabaseConnector.WORKSHOPS).as("ws", "w")
+            .where("ws.service_id = ? and ws.workshop_id = w.id", INT)
+            .build();
+
+    // ------------------------------ SERVICES -------------------------------
+    public static final QueryTemplate ALL_SERVICES = QueryTemplate.select("allServices", "*")
+            .from(DatabaseConnector.SERVICES)
+            .build();
+
+    public static final QueryTemplate SERVICES_OF_WORKSHOP = QueryTemplate.select("servicesOfWorkshop", "s.*")
+            .from(DatabaseConnector.WORKSHOP_SERVICES, DatabaseConnector.SERVICES).as("ws", "s")
+            .where("ws.workshop_id = ? and ws.service_id = s.id", INT)
+            .build();
+
+    public static final QueryTemplate SERVICE_IN_WORKSHOP = QueryTemplate.select("serviceInWorkshop", "s.*")
+            .from(DatabaseConnector.WORKSHOP_SERVICES, DatabaseConnector.SERVICES).as("ws", "s")
+            .where("ws.service_id = ? and ws.workshop_id = ? and ws.service_id = s.id", INT, INT)
+            .build();
+
+    public static final QueryTemplate SERVICE_DURATION = QueryTemplate.select("serviceDuration", "duration")
+            .from(DatabaseConnector.SERVICES)
+            .where("id = ?", INT)
+            .build();
+
+    // ------------------------------ CUSTOMERS ------------------------------
+    public static final QueryTemplate CUSTOMER_BY_EMAIL = QueryTemplate.select("customerByEmail",
+                    "id", "firstname", "lastname", "email", "tokens")
+            .from(DatabaseConnector.CUSTOMERS)
+            .where("email = ?", STRING)
+            .build();
+
+    public static final QueryTemplate CUSTOMER_BY_ID = QueryTemplate.select("customerById",
+                    "id", "firstname", "lastname", "email", "tokens")
+            .from(DatabaseConnector.CUSTOMERS)
+            .where("id = ?", INT)
+            .build();
+
+    public static final QueryTemplate CUSTOMER_BY_CREDENTIALS = QueryTemplate.select("customerByCredentials", "*")
+            .from(DatabaseConnector.CUSTOMERS)
+            .where("email = ? and password = ?", STRING, STRING)
+            .build();
+
+    public static final QueryTemplate CUSTOMER_TOKENS = QueryTemplate.select("customerTokens", "tokens")
+            .from(DatabaseConnector.CUSTOMERS)
+            .where("id = ?", INT)
+            .build();
+
+    public static final QueryTemplate SECURITY_QUESTION_BY_ID = QueryTemplate.select("securityQuestionById",
+                    "security_question")
+            .from(DatabaseConnector.CUSTOMERS)
+            .where("security_question_id = ?", INT)
+            .build();
+
+    public static final QueryTemplate SECURITY_QUESTIONS = QueryTemplate.select("securityQuestions",
+                    "DISTINCT security_question_id, security_question")
+            .from(DatabaseConnector.CUSTOMERS)
+            .where("security_question IS NOT NULL")
+            .build();
+
+    // ---------------------------- APPOINTMENTS -----------------------------
+    public static final QueryTemplate APPOINTMENTS_OF_CUSTOMER = QueryTemplate.select("appointmentsOfCustomer", "*")
+            .from(DatabaseConnector.APPOINTMENTS)
+            .where("customer_id = ?", INT)
+            .build();
+
+    public static final QueryTemplate APPOINTMENT_BY_ID = QueryTemplate.select("appointmentById", "*")
+            .from(DatabaseConnector.APPOINTMENTS)
+            .where("id = ?", INT)
+            .build();
+
+    public static final QueryTemplate APPOINTMENT_DETAILS = QueryTemplate.select("appointmentDetails",
+                    "a.*", "w.name as workshopName", "s.name as serviceName", "t.name as technicianName")
+            .from(DatabaseConnector.APPOINTMENTS, DatabaseConnector.WORKSHOPS, DatabaseConnector.SERVICES,
+                    DatabaseConnector.TECHNICIANS).as("a", "w", "s", "t")
+            .where("a.id = ? and a.workshop_id = w.id and a.service_id = s.id and a.technician_id = t.id", INT)
+            .build();
+
+    public static final QueryTemplate SCHEDULED_SERVICES = QueryTemplate.select("scheduledServices",
+                    "a.scheduledTime", "s.duration")
+            .from(DatabaseConnector.APPOINTMENTS, DatabaseConnector.SERVICES).as("a", "s")
+            .where("a.workshop_id = ? and a.service_id = ? and a.service_id = s.id", INT, INT)
+            .build();
+
+    // ----------------------------- TECHNICIANS -----------------------------
+    public static final QueryTemplate TECHNICIANS_OF_WORKSHOP = QueryTemplate.select("techniciansOfWorkshop",
+                    "id", "name", "certifications", "experience")
+            .from(DatabaseConnector.TECHNICIANS)
+            .where("workshop_id = ?", INT)
+            .build();
+
+    public static final QueryTemplate TECHNICIAN_IDS_OF_WORKSHOP = QueryTemplate.select("technicianIdsOfWorkshop", "id")
+            .from(DatabaseConnector.TECHNICIANS)
+            .where("workshop_id = ?", INT)
+            .build();
+
+    // -------------------------- FIELD PROJECTIONS --------------------------
+    private static final String[] WORKSHOP_COLUMNS = {"id", "name", "location", "contactInfo"};
+    private static final String[] SERVICE_COLUMNS = {"id", "name", "duration", "price", "description", "promotion_id"};
+    private static final String[] APPOINTMENT_COLUMNS = {"id", "customer_id", "workshop_id", "service_id",
+            "technician_id", "scheduledTime", "createdAt", "modifiedAt", "appointmentStatus", "paymentMethod",
+            "paymentStatus"};
+
+    public static final FieldProjection ALL_WORKSHOPS_FIELDS = FieldProjection.of(ALL_WORKSHOPS)
+            .fields(null, WORKSHOP_COLUMNS)
+            .build();
+
+    public static final FieldProjection WORKSHOP_BY_ID_FIELDS = FieldProjection.of(WORKSHOP_BY_ID)
+            .fields(null, WORKSHOP_COLUMNS)
+            .build();
+
+    public static final FieldProjection ALL_SERVICES_FIELDS = FieldProjection.of(ALL_SERVICES)
+            .fields(null, SERVICE_COLUMNS)
+            .build();
+
+    public static final FieldProjection SERVICES_OF_WORKSHOP_FIELDS = FieldProjection.of(SERVICES_OF_WORKSHOP)
+            .fields("s", SERVICE_COLUMNS)
+            .build();
+
+    public static final FieldProjection APPOINTMENTS_OF_CUSTOMER_FIELDS = FieldProjection.of(APPOINTMENTS_OF_CUSTOMER)
+            .fields(null, APPOINTMENT_COLUMNS)
+            .build();
+
+    // customer_id is needed to check the authorization
+    public static final FieldProjection APPOINTMENT_DETAILS_FIELDS = FieldProjection.of(APPOINTMENT_DETAILS)
+            .fields("a", APPOINTMENT_COLUMNS)
+            .field("workshopName", "w.name as workshopName")
+            .field("serviceName", "s.name as serviceName")
+            .field("technicianName", "t.name as technicianName")
+            .required("customer_id")
+            .build();
+
+}
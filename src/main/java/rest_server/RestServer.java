@@ -1,44 +1,141 @@
 package rest_server;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import io.javalin.Javalin;
+import io.javalin.http.Context;
 import io.javalin.json.JsonMapper;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
 import kong.unirest.HttpResponse;
 import kong.unirest.JsonNode;
 import kong.unirest.Unirest;
+import model.AsyncDatabaseConnector;
+import model.DataStore;
 import model.DatabaseConnector;
+import model.InMemoryDataStore;
+import model.QueryTemplate;
+import model.RecordMapper;
+import model.TableVersions;
+import model.WriteBehindBuffer;
+import model.records.Service;
+import model.records.Technician;
+import monitoring.ObservedDataStore;
+import monitoring.QueryBudget;
+import monitoring.RequestContext;
+import monitoring.RouteEvent;
+import monitoring.ServerMetrics;
+import monitoring.StackSampler;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.BinaryRows;
+import utils.DateCodec;
 import utils.StringNames;
-import utils.Utils;
+import utils.TimestampAdapter;
+import utils.Validators;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Timestamp;
 import java.text.ParseException;
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 
 
 public class RestServer {
 
     // reach server under: http://localhost:4569/ (simply type it in your web browser)
 
+    private static final Logger logger = LoggerFactory.getLogger(RestServer.class);
+    private static final RecordMapper<Service> serviceMapper = RecordMapper.of(Service.class);
+    private static final RecordMapper<Technician> technicianMapper = RecordMapper.of(Technician.class);
+    private static final String CATALOG_WORKSHOPS = "workshops";
+    private static final String CATALOG_SERVICES = "services";
+    private static final String CATALOG_SECURITY_QUESTIONS = "security-questions";
+    // version of the security questions in the customers table, bumped by /customer/create only: a
+    // version of the whole table would also change with every token credit or redemption
+    static final String SECURITY_QUESTIONS_VERSION = DatabaseConnector.CUSTOMERS + ".security_questions";
+    // starts the server on an empty InMemoryDataStore instead of MariaDB, e.g. for load tests
+    public static final String IN_MEMORY_DATABASE_PROPERTY = "server.inMemoryDatabase";
+    private static final String REQUEST_START = "requestStartNanos";
+    private static final String REQUEST_QUERIES = "requestQueries";
+    private static final String REQUEST_EVENT = "requestEvent";
+    public static final String DB_QUERIES_HEADER = "X-DB-Queries";
+    public static final String DB_TIME_HEADER = "X-DB-Time-Ms";
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    // the admin routes are only available if a token is configured, and require it in the header
+    public static final String ADMIN_TOKEN_PROPERTY = "server.adminToken";
+    public static final String ADMIN_TOKEN_HEADER = "X-Admin-Token";
+    // exports hold a database thread and connection until the client has read everything
+    public static final String MAX_EXPORTS_PROPERTY = "server.maxExports";
+    public static final int DEFAULT_MAX_EXPORTS = 4;
+
     private static DataValidation dataVal;
     private final Javalin javalinApp;
-    private DatabaseConnector dbConnector;
-
-
-    public RestServer(DatabaseConnector dbConnector, DataValidation dataValidation) {
+    private DataStore dbConnector;
+    private TokenLedger tokenLedger;
+    private final WriteBehindBuffer writeBehind;
+    // read-only routes run their queries here and release the Jetty thread in the meantime
+    private final ExecutorService dbExecutor;
+    private AsyncDatabaseConnector asyncDbConnector;
+    // timestamps are sent as ISO-8601 instead of Gson's locale-dependent default
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(Timestamp.class, new TimestampAdapter())
+            .create();
+    // serialized responses of the routes that return the same data to every client
+    private final CatalogCache catalogCache = new CatalogCache();
+    private final QueryBudget queryBudget = QueryBudget.fromSystemProperty();
+    private final String adminToken = System.getProperty(ADMIN_TOKEN_PROPERTY);
+    private final Semaphore exportPermits = new Semaphore(Integer.getInteger(MAX_EXPORTS_PROPERTY,
+            DEFAULT_MAX_EXPORTS));
+    private final StackSampler stackSampler = new StackSampler(List.of(ServerThreading.THREAD_POOL_NAME,
+            AsyncDatabaseConnector.THREAD_NAME_PREFIX));
+
+
+    public RestServer(DataStore dbConnector, DataValidation dataValidation) {
         this(dbConnector, dataValidation, 4569);
     }
 
-    public RestServer(DatabaseConnector dbConnector, DataValidation dataValidation, int port) {
+    public RestServer(DataStore dbConnector, DataValidation dataValidation, int port) {
+        this(dbConnector, dataValidation, port, null);
+    }
+
+    /**
+     * @param writeBehind the buffer for writes that may reach the database after
+     *                    the response was sent; can be <code>null</code> to write
+     *                    everything synchronously
+     */
+    public RestServer(DataStore dbConnector, DataValidation dataValidation, int port,
+                      WriteBehindBuffer writeBehind) {
+        // every statement is timed and counted for the request that runs it
+        dbConnector = ObservedDataStore.observe(dbConnector);
         this.dbConnector = dbConnector;
+        this.writeBehind = writeBehind;
+        this.tokenLedger = new TokenLedger(dbConnector, writeBehind);
+        this.dbExecutor = AsyncDatabaseConnector.createExecutor();
+        this.asyncDbConnector = new AsyncDatabaseConnector(dbConnector, RequestContext.propagating(dbExecutor));
         dataVal = dataValidation;
 
-        Gson gson = new Gson();
         JsonMapper gsonMapper = new JsonMapper() {
             @Override
             public @NotNull String toJsonString(@NotNull Object obj, @NotNull Type type) {
@@ -50,26 +147,207 @@ public class RestServer {
                 return gson.fromJson(json, targetType);
             }
         };
-        this.javalinApp = Javalin.create(config -> config.jsonMapper(gsonMapper)).start(port);
+        boolean useVirtualThreads = ServerThreading.virtualThreadsRequested();
+        QueuedThreadPool threadPool = ServerThreading.createThreadPool(useVirtualThreads);
+        this.javalinApp = Javalin.create(config -> {
+            config.jsonMapper(gsonMapper);
+            config.jetty.server(() -> new Server(threadPool));
+            config.jetty.contextHandlerConfig(handler -> handler.addFilter(
+                    new FilterHolder(RestServer::unbindRequestContext), "/*", EnumSet.of(DispatcherType.REQUEST)));
+        }).start(port);
+        registerGauges(threadPool);
         defineRoutes();
     }
 
     public static void main(String[] args) {
-        DatabaseConnector dbConnector = new DatabaseConnector("reservation_system");
-        new RestServer(dbConnector, new DataValidation(dbConnector));
+        DataStore dbConnector;
+        WriteBehindBuffer writeBehind;
+        if (Boolean.getBoolean(IN_MEMORY_DATABASE_PROPERTY)) {
+            dbConnector = new ObservedDataStore(InMemoryDataStore.reservationSystem());
+            writeBehind = new WriteBehindBuffer(dbConnector);
+        } else {
+            dbConnector = new ObservedDataStore(new DatabaseConnector("reservation_system"));
+            // deferred writes are flushed in transactions, so they get a connection of their own
+            writeBehind = new WriteBehindBuffer(new ObservedDataStore(new DatabaseConnector("reservation_system")));
+        }
+        RestServer restServer = new RestServer(dbConnector, new DataValidation(dbConnector), 4569, writeBehind);
+        Runtime.getRuntime().addShutdownHook(new Thread(restServer::stopServer));
+    }
+
+    /**
+     * Unbinds the request context from the Jetty thread when Javalin returns it,
+     * which for async routes is as soon as the endpoint has handed off its future.
+     * Otherwise the thread would keep the context until its next request: its CPU
+     * time and allocations would be counted for the old request and its log
+     * entries would carry the old request id.
+     */
+    private static void unbindRequestContext(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestContext.clear();
+        }
+    }
+
+    // every profile gets a thread of its own, since at most one runs at a time
+    private static void startSamplerThread(Runnable profile) {
+        Thread thread = new Thread(profile, "stack-sampler");
+        thread.setDaemon(true);
+        thread.start();
     }
 
-    public void setDbConnectorAndDataValidator(DatabaseConnector dbConnector) {
+    public void setDbConnectorAndDataValidator(DataStore dbConnector) {
+        dbConnector = ObservedDataStore.observe(dbConnector);
         this.dbConnector = dbConnector;
+        this.tokenLedger = new TokenLedger(dbConnector, writeBehind);
+        this.asyncDbConnector = new AsyncDatabaseConnector(dbConnector, RequestContext.propagating(dbExecutor));
         dataVal = new DataValidation(dbConnector);
+        // cached responses belong to the previous database
+        catalogCache.clear();
     }
 
     public void stopServer() {
         javalinApp.stop();
+        dbExecutor.shutdown();
+        // requests are no longer accepted, so everything still buffered can be written now
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+    }
+
+    /**
+     * Registers the saturation of the Jetty thread pool, the database executor and
+     * the write-behind buffer as gauges of {@link ServerMetrics}. The database has a
+     * single connection per {@link DatabaseConnector}, so instead of a connection
+     * pool the executor's queue shows how many queries wait for it.
+     */
+    private void registerGauges(QueuedThreadPool threadPool) {
+        ServerMetrics.gauge("jetty_threads", "Threads of the Jetty pool.", threadPool::getThreads);
+        ServerMetrics.gauge("jetty_threads_busy", "Busy threads of the Jetty pool.", threadPool::getBusyThreads);
+        ServerMetrics.gauge("jetty_threads_idle", "Idle threads of the Jetty pool.", threadPool::getIdleThreads);
+        ServerMetrics.gauge("jetty_threads_max", "Maximum threads of the Jetty pool.", threadPool::getMaxThreads);
+        ServerMetrics.gauge("jetty_queue_size", "Jobs waiting for a Jetty thread.", threadPool::getQueueSize);
+        ServerMetrics.gauge("jetty_low_on_threads", "1 if the Jetty pool is low on threads.",
+                () -> threadPool.isLowOnThreads() ? 1 : 0);
+        if (dbExecutor instanceof ThreadPoolExecutor pool) {
+            ServerMetrics.gauge("db_executor_threads_active", "Threads of the database executor running a query.",
+                    pool::getActiveCount);
+            ServerMetrics.gauge("db_executor_threads_max", "Maximum threads of the database executor.",
+                    pool::getMaximumPoolSize);
+            ServerMetrics.gauge("db_executor_queue_size", "Queries waiting for a database executor thread.",
+                    () -> pool.getQueue().size());
+        }
+        if (writeBehind != null) {
+            ServerMetrics.gauge("write_behind_pending", "Writes buffered for the database.",
+                    writeBehind::pendingCount);
+            ServerMetrics.gauge("write_behind_backlog_rows", "Rows the buffered writes will write, limited by the backlog.",
+                    writeBehind::backlog);
+            ServerMetrics.gauge("write_behind_dropped", "Buffered writes dropped because they failed on their own.",
+                    writeBehind::droppedCount);
+        }
     }
 
     public void defineRoutes() {
 
+        // every request is recorded under the path of its route, so ids in the path do not add series
+        javalinApp.before(context -> {
+            context.attribute(REQUEST_START, System.nanoTime());
+            // the client's id is taken over, so its logs can be matched with ours
+            RequestContext request = RequestContext.begin(context.header(REQUEST_ID_HEADER));
+            context.attribute(REQUEST_QUERIES, request);
+            context.header(REQUEST_ID_HEADER, request.requestId());
+            RouteEvent event = new RouteEvent();
+            // only kept while a flight recording is running
+            if (event.isEnabled()) {
+                event.begin();
+                context.attribute(REQUEST_EVENT, event);
+            }
+        });
+        javalinApp.after(context -> {
+            Long start = context.attribute(REQUEST_START);
+            RequestContext queries = context.attribute(REQUEST_QUERIES);
+            if (start == null || queries == null) {
+                RequestContext.clear();
+                return;
+            }
+            // after-handlers of async routes run on the thread that completed the future
+            RequestContext.bind(queries);
+            try {
+                String method = context.method().name();
+                String route = routeOf(context);
+                ServerMetrics.recordRequest(method, route, context.statusCode(), System.nanoTime() - start);
+                queries.finish();
+                ServerMetrics.recordRequestResources(method, route, queries.allocatedBytes(), queries.cpuNanos());
+                if (!context.res().isCommitted()) {
+                    addQueryHeaders(context);
+                }
+                queryBudget.check(method, route, queries);
+                RouteEvent event = context.attribute(REQUEST_EVENT);
+                if (event != null && event.shouldCommit()) {
+                    event.method = method;
+                    event.route = route;
+                    event.path = context.path();
+                    event.status = context.statusCode();
+                    event.queries = queries.queryCount();
+                    event.commit();
+                }
+            } finally {
+                RequestContext.clear();
+            }
+        });
+
+        javalinApp.get("/metrics", context -> {
+            context.contentType(ServerMetrics.CONTENT_TYPE);
+            context.result(ServerMetrics.scrape());
+        });
+
+        // samples the Jetty and database threads, e.g. ?seconds=10&interval=20, for a flame graph;
+        // virtual threads cannot be sampled, so the database calls only show up with db.executor=platform
+        javalinApp.get("/admin/profile", context -> {
+            if (!isAdmin(context)) {
+                return;
+            }
+            Integer seconds = intParam(context, "seconds", 10);
+            Integer interval = intParam(context, "interval", 20);
+            if (seconds == null || interval == null) {
+                context.status(400);
+                context.json(new String[]{"Duration and interval must be integers."});
+                return;
+            }
+            logger.info("Profiling for {} s at an interval of {} ms", seconds, interval);
+            if (!(dbExecutor instanceof ThreadPoolExecutor)) {
+                logger.info("Database calls run on virtual threads and are not sampled, start the server with "
+                        + "-D{}=platform to include them", AsyncDatabaseConnector.EXECUTOR_PROPERTY);
+            }
+            // the profile takes up to a minute, which is too long to hold a Jetty thread
+            context.future(() -> CompletableFuture.supplyAsync(() -> {
+                try {
+                    return stackSampler.sample(seconds, interval);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CompletionException(e);
+                }
+            }, RestServer::startSamplerThread).handle((stacks, failure) -> {
+                Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                if (cause == null) {
+                    context.contentType("text/plain; charset=utf-8");
+                    context.result(stacks);
+                } else if (cause instanceof IllegalArgumentException) {
+                    context.status(400);
+                    context.json(new String[]{cause.getMessage()});
+                } else if (cause instanceof IllegalStateException) {
+                    context.status(409);
+                    context.json(new String[]{cause.getMessage()});
+                } else {
+                    logger.error("Profiling failed", cause);
+                    context.status(500);
+                    context.json(new String[]{"Profiling failed."});
+                }
+                return null;
+            }));
+        });
+
         javalinApp.get("test", context -> {
             context.result("Test successfull, server is reachable!");
         });
@@ -78,14 +356,33 @@ public class RestServer {
             String workshop_id = context.queryParam(StringNames.workshop_id);
 
             if (workshop_id == null) { // without query parameters
+                QueryTemplate template = Queries.ALL_WORKSHOPS_FIELDS.select(context.queryParam(StringNames.fields));
+                if (template == null) {
+                    rejectFields(context, Queries.ALL_WORKSHOPS_FIELDS);
+                    return;
+                }
+                if (ConditionalGet.notModified(context, template.getTables())) {
+                    return;
+                }
+                if (template != Queries.ALL_WORKSHOPS || wantsBinary(context)) { // not cached
+                    context.future(() -> asyncDbConnector.executeSelectQuery(template).thenAccept(res -> {
+                        context.status(200);
+                        writeRows(context, res);
+                    }));
+                    return;
+                }
+                CatalogCache.Entry cached = catalogCache.get(CATALOG_WORKSHOPS, DatabaseConnector.WORKSHOPS);
+                if (cached != null) {
+                    sendCatalog(context, cached);
+                    return;
+                }
+                long version = catalogCache.version(DatabaseConnector.WORKSHOPS);
                 /*
                  * SELECT *
                  * FROM workshops
                  */
-                List<Map<String, Object>> res = dbConnector.executeSelectQuery(new String[]{"*"}, new String[]{DatabaseConnector.WORKSHOPS},
-                        null, null, null);
-                context.status(200);
-                context.json(res);
+                context.future(() -> asyncDbConnector.executeSelectQuery(Queries.ALL_WORKSHOPS).thenAccept(res ->
+                        sendCatalog(context, catalogCache.put(CATALOG_WORKSHOPS, version, gson.toJson(res)))));
             } else { // with query parameters
                 // data validation
                 if (!dataVal.isValidId(workshop_id)) {
@@ -93,22 +390,30 @@ public class RestServer {
                     context.json(new String[]{"Id must be an integer and greater than 0."});
                     return;
                 }
+                QueryTemplate template = Queries.WORKSHOP_BY_ID_FIELDS.select(context.queryParam(StringNames.fields));
+                if (template == null) {
+                    rejectFields(context, Queries.WORKSHOP_BY_ID_FIELDS);
+                    return;
+                }
+                if (ConditionalGet.notModified(context, template.getTables())) {
+                    return;
+                }
                 /*
                  * SELECT *
                  * FROM workshops
                  * WHERE id = workshop_id
                  */
-                List<Map<String, Object>> queryResult = dbConnector.executeSelectQuery(new String[]{"*"},
-                        new String[]{DatabaseConnector.WORKSHOPS}, null, "id = ?", new String[]{workshop_id});
-
-                // check for empty result set
-                if (queryResult.isEmpty()) {
-                    context.status(404);
-                    context.json(new String[]{"Workshop with id " + workshop_id + " not found."});
-                    return;
-                }
-                context.status(200);
-                context.json(queryResult);
+                context.future(() -> asyncDbConnector.executeSelectQuery(template, workshop_id)
+                        .thenAccept(queryResult -> {
+                            // check for empty result set
+                            if (queryResult.isEmpty()) {
+                                context.status(404);
+                                context.json(new String[]{"Workshop with id " + workshop_id + " not found."});
+                                return;
+                            }
+                            context.status(200);
+                            writeRows(context, queryResult);
+                        }));
             }
         });
 
@@ -116,7 +421,7 @@ public class RestServer {
         javalinApp.get("/services", context -> {
             String workshop_id = context.queryParam(StringNames.workshop_id);
             String service_id = context.queryParam(StringNames.service_id);
-            List<Map<String, Object>> queryResult;
+            CompletableFuture<List<Map<String, Object>>> queryResult;
 
             // data validation
             if ((workshop_id != null && !dataVal.isValidId(workshop_id))
@@ -127,12 +432,36 @@ public class RestServer {
             }
 
             if (workshop_id == null && service_id == null) { // without query parameters
-                /*
-                 * SELECT *
-                 * FROM service
-                 */
-                queryResult = dbConnector.executeSelectQuery(new String[]{"*"}, new String[]{DatabaseConnector.SERVICES},
-                        null, null, null);
+                QueryTemplate template = Queries.ALL_SERVICES_FIELDS.select(context.queryParam(StringNames.fields));
+                if (template == null) {
+                    rejectFields(context, Queries.ALL_SERVICES_FIELDS);
+                    return;
+                }
+                if (ConditionalGet.notModified(context, template.getTables())) {
+                    return;
+                }
+                if (template == Queries.ALL_SERVICES && !wantsBinary(context)) { // served from the catalog cache
+                    CatalogCache.Entry cached = catalogCache.get(CATALOG_SERVICES, DatabaseConnector.SERVICES);
+                    if (cached != null) {
+                        sendCatalog(context, cached);
+                        return;
+                    }
+                    long version = catalogCache.version(DatabaseConnector.SERVICES);
+                    /*
+                     * SELECT *
+                     * FROM service
+                     */
+                    context.future(() -> asyncDbConnector.executeSelectQuery(Queries.ALL_SERVICES).thenAccept(result -> {
+                        if (result.isEmpty()) {
+                            context.status(404);
+                            context.json(new String[]{"Given id(s) not found or no entries with this id(s)."});
+                            return;
+                        }
+                        sendCatalog(context, catalogCache.put(CATALOG_SERVICES, version, gson.toJson(result)));
+                    }));
+                    return;
+                }
+                queryResult = asyncDbConnector.executeSelectQuery(template);
             } else if (workshop_id != null && service_id == null) { // get all services in one workshop
                 /* *********??>?****()()()----CHANGEEEEEEEEEEEE
                  * SELECT mp.id as moviePlaytimeId, m.id as movieId, m.name, m.length, m.genre
@@ -141,10 +470,15 @@ public class RestServer {
                  * 			and dp.freeSeats > 0 and (( d.date = CURDATE() and mp.startTime > CURTIME() ) OR d.date > CURDATE())
                  *********??>?****()()()----CHANGEEEEEEEEEEEE
                  */
-                queryResult = dbConnector.executeSelectQuery(
-                        new String[]{"s.*"},
-                        new String[]{DatabaseConnector.WORKSHOP_SERVICES, DatabaseConnector.SERVICES}, new String[]{"ws", "s"},
-                        "ws.workshop_id = ? and ws.service_id = s.id", new String[]{workshop_id});
+                QueryTemplate template = Queries.SERVICES_OF_WORKSHOP_FIELDS.select(context.queryParam(StringNames.fields));
+                if (template == null) {
+                    rejectFields(context, Queries.SERVICES_OF_WORKSHOP_FIELDS);
+                    return;
+                }
+                if (ConditionalGet.notModified(context, template.getTables())) {
+                    return;
+                }
+                queryResult = asyncDbConnector.executeSelectQuery(template, workshop_id);
             } else if (workshop_id == null && service_id != null) { // get all workshops that offer the same service
                 /*
                  *********??>?****()()()----CHANGEEEEEEEEEEEE
@@ -153,9 +487,10 @@ public class RestServer {
                  * WHERE mp.movieId = movieId AND mp.cinemaId = c.id
                  * *********??>?****()()()----CHANGEEEEEEEEEEEE
                  */
-                queryResult = dbConnector.executeSelectQuery(new String[]{"w.*"},
-                        new String[]{DatabaseConnector.WORKSHOP_SERVICES, DatabaseConnector.WORKSHOPS},
-                        new String[]{"ws", "w"}, "ws.service_id = ? and ws.workshop_id = w.id", new String[]{service_id});
+                if (ConditionalGet.notModified(context, Queries.WORKSHOPS_OFFERING_SERVICE.getTables())) {
+                    return;
+                }
+                queryResult = asyncDbConnector.executeSelectQuery(Queries.WORKSHOPS_OFFERING_SERVICE, service_id);
             } else { // get additional information, i.e. playtimes, of one movie in one cinema *********??>?****()()()----CHANGEEEEEEEEEEEE
                 /*
                  *********??>?****()()()----CHANGEEEEEEEEEEEE
@@ -165,21 +500,21 @@ public class RestServer {
                  * 			and dp.freeSeats > 0 and (( d.date = CURDATE() and mp.startTime > CURTIME()) OR d.date > CURDATE())
                  * *********??>?****()()()----CHANGEEEEEEEEEEEE
                  */
-                queryResult = dbConnector.executeSelectQuery(
-                        new String[]{"s.*"},
-                        new String[]{DatabaseConnector.WORKSHOP_SERVICES, DatabaseConnector.SERVICES},
-                        new String[]{"ws", "s"},
-                        "ws.service_id = ? and ws.workshop_id = ? and ws.service_id = s.id",
-                        new String[]{service_id, workshop_id});
-            }
-            // check for empty result set
-            if (queryResult.isEmpty()) {
-                context.status(404);
-                context.json(new String[]{"Given id(s) not found or no entries with this id(s)."});
-                return;
+                if (ConditionalGet.notModified(context, Queries.SERVICE_IN_WORKSHOP.getTables())) {
+                    return;
+                }
+                queryResult = asyncDbConnector.executeSelectQuery(Queries.SERVICE_IN_WORKSHOP, service_id, workshop_id);
             }
-            context.status(200);
-            context.json(queryResult);
+            context.future(() -> queryResult.thenAccept(result -> {
+                // check for empty result set
+                if (result.isEmpty()) {
+                    context.status(404);
+                    context.json(new String[]{"Given id(s) not found or no entries with this id(s)."});
+                    return;
+                }
+                context.status(200);
+                writeRows(context, result);
+            }));
         });
 
         // Customer routes
@@ -190,12 +525,12 @@ public class RestServer {
             List<Map<String, Object>> queryResult;
 
             // data validation
-            if (email != null && !Utils.isValidEmailAddress(email)) {
+            if (email != null && !Validators.isValidEmailAddress(email)) {
                 context.status(400);
                 context.json(new String[]{"Email address format not correct."});
                 return;
             }
-            if (password != null && !Utils.isValidPassword(password)) {
+            if (password != null && !Validators.isValidPassword(password)) {
                 context.status(400);
                 context.json(new String[]{"Password format not correct."});
                 return;
@@ -211,13 +546,7 @@ public class RestServer {
                  * FROM customers
                  * WHERE email = email
                  */
-                queryResult = dbConnector.executeSelectQuery(
-                    new String[]{"id", "firstname", "lastname", "email", "tokens"},
-                    new String[]{DatabaseConnector.CUSTOMERS},
-                    null,
-                    "email = ?",
-                    new String[]{email}
-                );
+                queryResult = dbConnector.executeSelectQuery(Queries.CUSTOMER_BY_EMAIL, email);
                 if (queryResult.isEmpty()) { // email not found
                     context.status(404);
                     context.json(new String[]{"E-mail not found."});
@@ -241,39 +570,8 @@ public class RestServer {
                  * FROM customers
                  * WHERE email = email and password = password
                  */
-                queryResult = dbConnector.executeSelectQuery(new String[]{"*"},
-                        new String[]{DatabaseConnector.CUSTOMERS}, null, "email = ? and password = ?",
-                        new String[]{email, password});
-
-                // If login successful, update loyalty tokens based on appointment history
-                if (!queryResult.isEmpty()) {
-                    String customer_id = String.valueOf(queryResult.get(0).get("id"));
-
-                    // Count total appointments for this user
-                    List<Map<String, Object>> appointmentCount = dbConnector.executeSelectQuery(
-                            new String[]{"COUNT(*) as count"},
-                            new String[]{DatabaseConnector.APPOINTMENTS},
-                            null,
-                            "customer_id = ?",
-                            new String[]{customer_id}
-                    );
-
-                    if (!appointmentCount.isEmpty()) {
-                        int totalAppointments = ((Number) appointmentCount.get(0).get("count")).intValue();
-
-                        // Update loyalty tokens in database
-                        dbConnector.executeUpdateQuery(
-                                DatabaseConnector.CUSTOMERS,
-                                new String[]{"loyalty_tokens = ?"},
-                                new String[]{String.valueOf(totalAppointments)},
-                                "id = ?",
-                                new String[]{customer_id}
-                        );
-
-                        // Update the query result with new token count
-                        queryResult.get(0).put("loyalty_tokens", totalAppointments);
-                    }
-                }
+                // the token balance is maintained by the TokenLedger, so logging in is a pure read
+                queryResult = dbConnector.executeSelectQuery(Queries.CUSTOMER_BY_CREDENTIALS, email, password);
             }
             // check for empty result set
             if (queryResult.isEmpty()) {
@@ -281,6 +579,8 @@ public class RestServer {
                 context.json(new String[]{"E-mail not found or no valid credentials given."});
                 return;
             }
+            // same balance as /customer/tokens, including credits not written yet
+            addPendingTokens(queryResult, String.valueOf(queryResult.get(0).get("id")));
             context.status(200);
             context.json(queryResult);
         });
@@ -298,41 +598,38 @@ public class RestServer {
 
             if (firstname != null && lastname != null && email != null && password != null && security_question_id != null && security_answer != null) {
                 // data validation
-                if (!Utils.isAlpha(firstname) || !Utils.isAlpha(lastname)) {
+                if (!Validators.isAlpha(firstname) || !Validators.isAlpha(lastname)) {
                     context.status(400);
                     context.json(new String[]{"Firstname and lastname can only contain letters."});
                     return;
                 }
-                if (!Utils.isValidEmailAddress(email)) {
+                if (!Validators.isValidEmailAddress(email)) {
                     context.status(400);
                     context.json(new String[]{"Email address format not correct."});
                     return;
                 }
                 if(vehicle_registration_number != null){
-                    if(!Utils.isValidVehicleRegistrationNumber(vehicle_registration_number)){
+                    if(!Validators.isValidVehicleRegistrationNumber(vehicle_registration_number)){
                         context.status(400);
                         context.json(new String[]{"Vehicle registration number is invalid."});
                         return;
                     }
                 }
                 if(phone_number != null){
-                    if(!Utils.isValidPhoneNumber(phone_number)){
+                    if(!Validators.isValidPhoneNumber(phone_number)){
                         context.status(400);
                         context.json(new String[]{"Phone number is invalid."});
                         return;
                     }
                 }
-                if (!Utils.isValidPassword(password)) {
+                if (!Validators.isValidPassword(password)) {
                     context.status(400);
                     context.json(new String[]{"Password format not correct."});
                     return;
                 }
                 // check if security_question_id exists
                 List<Map<String, Object>> questionValidation = dbConnector.executeSelectQuery(
-                        new String[]{"security_question"},
-                        new String[]{DatabaseConnector.CUSTOMERS},
-                        null, "security_question_id = ?", new String[]{security_question_id}
-                );
+                        Queries.SECURITY_QUESTION_BY_ID, security_question_id);
                 if (questionValidation.isEmpty()) {
                     context.status(400);
                     context.json(new String[]{"Invalid security question provided."});
@@ -358,6 +655,7 @@ public class RestServer {
                     context.json(new String[]{"E-mail address does already exist."});
                     return;
                 }
+                TableVersions.bump(SECURITY_QUESTIONS_VERSION);
 
                 context.status(201);
                 context.json(new String[]{"Customer created successfully!"});
@@ -387,29 +685,93 @@ public class RestServer {
                     context.json(new String[]{"User is not authorized to view this information."});
                     return;
                 }
+                QueryTemplate template = Queries.APPOINTMENTS_OF_CUSTOMER_FIELDS.select(context.queryParam(StringNames.fields));
+                if (template == null) {
+                    rejectFields(context, Queries.APPOINTMENTS_OF_CUSTOMER_FIELDS);
+                    return;
+                }
                 /*
                  * SELECT *
                  * FROM appointments
                  * WHERE customer_id = customer_id
                  */
-                List<Map<String, Object>> queryResult = dbConnector.executeSelectQuery(new String[]{"*"},
-                        new String[]{DatabaseConnector.APPOINTMENTS}, null, "customer_id = ?",
-                        new String[]{customer_id});
-
-                // check for empty result set
-                if (queryResult.isEmpty()) {
-                    context.status(404);
-                    context.json(new String[]{"Customer with id " + customer_id + " not found or has no appointments."});
-                    return;
-                }
-                context.status(200);
-                context.json(queryResult);
+                context.future(() -> asyncDbConnector.executeSelectQuery(template, customer_id)
+                        .thenAccept(queryResult -> {
+                    // check for empty result set
+                    if (queryResult.isEmpty()) {
+                        context.status(404);
+                        context.json(new String[]{"Customer with id " + customer_id + " not found or has no appointments."});
+                        return;
+                    }
+                    context.status(200);
+                    writeRows(context, queryResult);
+                }));
             } else {
                 context.status(400);
                 context.json(new String[]{"For retrieving all appointments of a customer, a customer id must be given."});
             }
         });
 
+        // streams the rows from the database cursor to the client, so the size of the export does not matter
+        javalinApp.get("/customer/appointments/export", context -> {
+            String customer_id = context.queryParam(StringNames.customer_id);
+            String authString = context.header(StringNames.authorization);
+
+            if (customer_id == null || !dataVal.isValidId(customer_id)) {
+                context.status(400);
+                context.json(new String[]{"For exporting all appointments of a customer, a valid customer id must be given."});
+                return;
+            }
+            if (authString == null || !dataVal.isUserAuthorized(authString, customer_id)) {
+                context.status(401);
+                context.json(new String[]{"User is not authorized to view this information."});
+                return;
+            }
+            /*
+             * SELECT *
+             * FROM appointments
+             * WHERE customer_id = customer_id
+             */
+            // slow clients must not take all database threads and connections from the other routes
+            if (!exportPermits.tryAcquire()) {
+                context.status(503);
+                context.json(new String[]{"Too many exports are running, please try again later."});
+                return;
+            }
+            JsonRowWriter rowWriter;
+            try {
+                context.status(200);
+                rowWriter = new JsonRowWriter(context, gson);
+            } catch (IOException | RuntimeException e) {
+                exportPermits.release();
+                throw e;
+            }
+            context.future(() -> {
+                CompletableFuture<Boolean> streamed;
+                try {
+                    streamed = asyncDbConnector.streamSelectQuery(Queries.APPOINTMENTS_OF_CUSTOMER,
+                            rowWriter::writeRow, customer_id);
+                } catch (RuntimeException e) {
+                    exportPermits.release();
+                    throw e;
+                }
+                return streamed.whenComplete((completed, failure) -> exportPermits.release())
+                        .thenAccept(completed -> {
+                    if (!completed) {
+                        // a well-formed array would pass for the complete export
+                        logger.warn("Appointment export failed, aborting the response: customerId={}", customer_id);
+                        rowWriter.abort(new IOException("Appointment export failed"));
+                        return;
+                    }
+                    try {
+                        rowWriter.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            });
+        });
+
         javalinApp.post("/appointment/create", context -> {
             try {
                 // retrieve parameters
@@ -418,7 +780,7 @@ public class RestServer {
                 String service_id = context.queryParam(StringNames.service_id);
                 String technician_id;
                 String scheduledTime = context.queryParam(StringNames.scheduledTime);
-                String createdAt = Utils.yearMonthDayTimeFormat.format(new Date()); // Current date and time
+                String createdAt = DateCodec.formatEpochMinutes(DateCodec.now()); // Current date and time
                 String modifiedAt = createdAt;
                 String appointmentStatus = "false";
                 String paymentMethod = context.queryParam(StringNames.paymentMethod);
@@ -429,7 +791,7 @@ public class RestServer {
                     // validate scheduled time data
                     Date parsedScheduledTime;
                     try {
-                        parsedScheduledTime = Utils.yearMonthDayTimeFormat.parse(scheduledTime);
+                        parsedScheduledTime = DateCodec.parse(scheduledTime);
                         
                         // Add validation for current/future time
                         Date currentTime = new Date();
@@ -439,33 +801,36 @@ public class RestServer {
                             return;
                         }
                     } catch (ParseException e) {
-                        System.err.println("Failed to parse scheduled time: " + e.getMessage());
+                        logger.debug("Invalid scheduled time: {}", e.getMessage());
                         context.status(400);
                         context.json(new String[]{"Invalid scheduledTime format. Please use the expected format: yyyy-MM-dd HH:mm"});
                         return;
                     }
 
+                    if (!dataVal.isValidPaymentMethod(paymentMethod)) {
+                        context.status(400);
+                        context.json(new String[]{"Payment method must be either Cash, Credit/Debit Card, PayPal or ApplePay"});
+                        return;
+                    }
+
                     // Check authorization
                     if (authString == null || !dataVal.isUserAuthorized(authString, customer_id)) {
-                        System.err.println("Authorization failed for customer ID: " + customer_id);
+                        logger.debug("Authorization failed: customerId={}", customer_id);
                         context.status(401);
                         context.json(new String[]{"User is not authorized to perform this action."});
                         return;
                     }
 
                     // Check technician assignment
-                    List<Map<String, Object>> technicianValidation = dbConnector.executeSelectQuery(
-                            new String[]{"id"},
-                            new String[]{DatabaseConnector.TECHNICIANS},
-                            null, "workshop_id = ?", new String[]{workshop_id}
-                    );
+                    List<Technician> technicianValidation = dbConnector.executeSelectQuery(technicianMapper,
+                            Queries.TECHNICIAN_IDS_OF_WORKSHOP, workshop_id);
                     if (technicianValidation.isEmpty()) {
-                        System.err.println("No technician found for workshop ID: " + workshop_id);
+                        logger.warn("No technician found: workshopId={}", workshop_id);
                         context.status(400);
                         context.json(new String[]{"Error, technician couldn't be assigned."});
                         return;
                     }
-                    technician_id = String.valueOf(technicianValidation.get(0).get("id"));
+                    technician_id = String.valueOf(technicianValidation.get(0).id());
 
                     // Insert the appointment with try-catch
                     try {
@@ -479,67 +844,39 @@ public class RestServer {
                                         String.valueOf(paymentStatus)});
 
                         if (!insertSuccess) {
-                            System.err.println("Failed to insert appointment into database");
-                            // Print the actual SQL that would be executed
-                            System.err.println("Column names: " + String.join(", ", new String[]{StringNames.customer_id,
-                                    StringNames.workshop_id, StringNames.service_id, StringNames.technician_id,
-                                    StringNames.scheduledTime, StringNames.createdAt, StringNames.modifiedAt,
-                                    StringNames.appointmentStatus, StringNames.paymentMethod, StringNames.paymentStatus}));
-                            System.err.println("Values: " + String.join(", ", new String[]{customer_id, workshop_id,
-                                    service_id, technician_id, scheduledTime, createdAt, modifiedAt,
-                                    String.valueOf(appointmentStatus), paymentMethod, String.valueOf(paymentStatus)}));
+                            logger.warn("Appointment could not be inserted: customerId={} workshopId={} serviceId={} "
+                                    + "technicianId={} scheduledTime=\"{}\"", customer_id, workshop_id, service_id,
+                                    technician_id, scheduledTime);
                             context.status(500);
                             context.json(new String[]{"Failed to create appointment in database."});
                             return;
                         }
 
-                        // Update tokens after successful appointment creation
-                        List<Map<String, Object>> currentTokens = dbConnector.executeSelectQuery(
-                            new String[]{"tokens"},
-                            new String[]{DatabaseConnector.CUSTOMERS},
-                            null,
-                            "id = ?",
-                            new String[]{customer_id}
-                        );
-
-                        int tokens = currentTokens.get(0).get("tokens") != null ? 
-                            ((Number) currentTokens.get(0).get("tokens")).intValue() : 0;
-                        
                         // Add 1 token for the new appointment
-                        dbConnector.executeUpdateQuery(
-                            DatabaseConnector.CUSTOMERS,
-                            new String[]{"tokens = ?"},
-                            new String[]{String.valueOf(tokens + 1)},
-                            "id = ?",
-                            new String[]{customer_id}
-                        );
+                        if (!tokenLedger.credit(customer_id, 1, TokenLedger.REASON_APPOINTMENT)) {
+                            logger.warn("Token could not be credited: customerId={}", customer_id);
+                        }
 
                         // Return updated user info in response
-                        List<Map<String, Object>> updatedUser = dbConnector.executeSelectQuery(
-                            new String[]{"id", "firstname", "lastname", "email", "tokens"},
-                            new String[]{DatabaseConnector.CUSTOMERS},
-                            null,
-                            "id = ?",
-                            new String[]{customer_id}
-                        );
+                        List<Map<String, Object>> updatedUser = dbConnector.executeSelectQuery(Queries.CUSTOMER_BY_ID,
+                                customer_id);
+                        addPendingTokens(updatedUser, customer_id);
 
                         context.status(201);
                         context.json(updatedUser);
                     } catch (Exception e) {
-                        System.err.println("Database error while creating appointment: " + e.getMessage());
-                        e.printStackTrace();
+                        logger.error("Database error while creating appointment: customerId={}", customer_id, e);
                         context.status(500);
                         context.json(new String[]{"Internal server error while creating appointment."});
                     }
                 } else {
-                    System.err.println("Missing required parameters");
+                    logger.debug("Appointment request without required parameters");
                     context.status(400);
                     context.json(new String[]{"For creating a new appointment, customer id, " +
                             "workshop id, service id, scheduled time and payment method are required."});
                 }
             } catch (Exception e) {
-                System.err.println("Unexpected error in appointment creation: " + e.getMessage());
-                e.printStackTrace();
+                logger.error("Unexpected error in appointment creation", e);
                 context.status(500);
                 context.json(new String[]{"Internal server error: " + e.getMessage()});
             }
@@ -563,9 +900,8 @@ public class RestServer {
                  * FROM appointments
                  * WHERE id = appointment_id
                  */
-                List<Map<String, Object>> result = dbConnector.executeSelectQuery(new String[]{"*"},
-                        new String[]{DatabaseConnector.APPOINTMENTS}, null, "id = ?",
-                        new String[]{appointment_id});
+                List<Map<String, Object>> result = dbConnector.executeSelectQuery(Queries.APPOINTMENT_BY_ID,
+                        appointment_id);
                 // check for empty result set
                 if (result.isEmpty()) {
                     context.status(404);
@@ -607,7 +943,7 @@ public class RestServer {
                 // validate scheduled time data
                 Date parsedScheduledTime;
                 try {
-                    parsedScheduledTime = Utils.yearMonthDayTimeFormat.parse(scheduledTime);
+                    parsedScheduledTime = DateCodec.parse(scheduledTime);
                     
                     // Add validation for current/future time
                     Date currentTime = new Date();
@@ -632,9 +968,8 @@ public class RestServer {
                  * FROM appointments
                  * WHERE id = appointment_id
                  */
-                List<Map<String, Object>> result = dbConnector.executeSelectQuery(new String[]{"*"},
-                        new String[]{DatabaseConnector.APPOINTMENTS}, null, "id = ?",
-                        new String[]{appointment_id});
+                List<Map<String, Object>> result = dbConnector.executeSelectQuery(Queries.APPOINTMENT_BY_ID,
+                        appointment_id);
                 // check for empty result set
                 if (result.isEmpty()) {
                     context.status(404);
@@ -652,14 +987,12 @@ public class RestServer {
 
                 String service_id = String.valueOf(result.get(0).get(StringNames.service_id));
                 // Retrieve the duration of the service from the database table services
-                List<Map<String, Object>> getDuration = dbConnector.executeSelectQuery(new String[]{"duration"},
-                        new String[]{DatabaseConnector.SERVICES},
-                        null, "id = ?", new String[]{service_id}
-                );
+                List<Service> getDuration = dbConnector.executeSelectQuery(serviceMapper, Queries.SERVICE_DURATION,
+                        service_id);
 
                 Integer serviceDuration = null;
-                if (getDuration != null && !getDuration.isEmpty()) {
-                    serviceDuration = (Integer) getDuration.get(0).get("duration"); // Retrieve duration from getDuration
+                if (!getDuration.isEmpty()) {
+                    serviceDuration = getDuration.get(0).duration(); // Retrieve duration from getDuration
                 }
 
                 if (serviceDuration == null) {
@@ -670,46 +1003,15 @@ public class RestServer {
                 String workshop_id = String.valueOf(result.get(0).get(StringNames.workshop_id));
                 // Retrieve all appointments for a specific workshop and specific service from the database, plus the duration of the service
                 List<Map<String, Object>> existingAppointments = dbConnector.executeSelectQuery(
-                        new String[]{"a.scheduledTime", "s.duration"},
-                        new String[]{DatabaseConnector.APPOINTMENTS, DatabaseConnector.SERVICES},
-                        new String[]{"a", "s"},
-                        "a.workshop_id = ? and a.service_id = ? and a.service_id = s.id",
-                        new String[]{workshop_id, service_id}
-                );
+                        Queries.SCHEDULED_SERVICES, workshop_id, service_id);
 
-                // Check if there are any existing appointments
-                if (existingAppointments != null && !existingAppointments.isEmpty()) {
-                    for (Map<String, Object> existing : existingAppointments) {
-                        // Retrieve the scheduled time and duration of the existing appointment
-                        Object scheduledTimeObj = existing.get("scheduledTime");
-                        Date existingScheduledTime = null;
-
-                        if (scheduledTimeObj instanceof java.sql.Timestamp) {
-                            existingScheduledTime = new Date(((java.sql.Timestamp) scheduledTimeObj).getTime());
-                        } else if (scheduledTimeObj instanceof String) {
-                            existingScheduledTime = Utils.yearMonthDayTimeFormat.parse((String) scheduledTimeObj);
-                        }
-
-                        Integer existingDuration = (Integer) existing.get("duration");
-
-                        if (existingScheduledTime == null || existingDuration == null) {
-                            continue;
-                        }
-
-                        // Calculate the end time of the existing appointment
-                        Date existingEndTime = new Date(existingScheduledTime.getTime() + existingDuration * 60000);
-
-                        // Calculate the end time of the current appointment
-                        Date currentEndTime = new Date(parsedScheduledTime.getTime() + serviceDuration * 60000);
-
-                        // Check if there is any overlap
-                        if (!(parsedScheduledTime.after(existingEndTime) || currentEndTime.before(existingScheduledTime))) {
-                            context.status(400).json(new String[]{"Scheduled time conflicts with an existing appointment."});
-                            return;
-                        }
-                    }
+                // Check if there is any overlap with the existing appointments
+                if (AppointmentSchedule.of(existingAppointments)
+                        .conflicts(DateCodec.toEpochMinutes(parsedScheduledTime), serviceDuration)) {
+                    context.status(400).json(new String[]{"Scheduled time conflicts with an existing appointment."});
+                    return;
                 }
-                String modifiedAt = Utils.yearMonthDayTimeFormat.format(new Date()); // Current date and time of the modification
+                String modifiedAt = DateCodec.formatEpochMinutes(DateCodec.now()); // Current date and time of the modification
 
                 // data validation
                 if (!dataVal.isValidPaymentMethod(paymentMethod)) {
@@ -759,15 +1061,17 @@ public class RestServer {
                     context.json(new String[]{"Id must be an integer and greater than 0."});
                     return;
                 }
+                QueryTemplate template = Queries.APPOINTMENT_DETAILS_FIELDS.select(context.queryParam(StringNames.fields));
+                if (template == null) {
+                    rejectFields(context, Queries.APPOINTMENT_DETAILS_FIELDS);
+                    return;
+                }
                 /*
                  * SELECT a.*, w.name as workshopName, s.name as serviceName, t.name as technicianName
                  * FROM appointments as a, workshops as w, services as s, technicians as t
                  * WHERE a.id = appointment_id, a.workshop_id = w.id, a.service_id = s.id, a.technician_id = t.id
                  */
-                List<Map<String, Object>> queryResult = dbConnector.executeSelectQuery(new String[]{"a.*", "w.name as workshopName", "s.name as serviceName", "t.name as technicianName"},
-                        new String[]{DatabaseConnector.APPOINTMENTS, DatabaseConnector.WORKSHOPS, DatabaseConnector.SERVICES, DatabaseConnector.TECHNICIANS}, new String[]{"a", "w", "s", "t"},
-                        "a.id = ? and a.workshop_id = w.id and a.service_id = s.id and a.technician_id = t.id",
-                        new String[]{appointment_id});
+                List<Map<String, Object>> queryResult = dbConnector.executeSelectQuery(template, appointment_id);
 
                 String customer_id = String.valueOf(queryResult.get(0).get(StringNames.customer_id));
                 // check if user is authorized
@@ -784,7 +1088,7 @@ public class RestServer {
                     return;
                 }
                 context.status(200);
-                context.json(queryResult);
+                writeRows(context, queryResult);
             } else {
                 context.status(400);
                 context.json(new String[]{"For retrieving appointment details, an appointment id must be given."});
@@ -803,84 +1107,30 @@ public class RestServer {
                     context.json(new String[]{"Id's must be an integer and greater than 0."});
                 } else {
                     // validate scheduled time data
-                    Date parsedScheduledTime;
-                    try {
-                        parsedScheduledTime = Utils.yearMonthDayTimeFormat.parse(scheduledTime); // Change to desired format
-                    } catch (ParseException e) {
+                    long day = DateCodec.parseEpochMinutes(scheduledTime);
+                    if (day == DateCodec.INVALID) {
                         context.status(400);
                         context.json(new String[]{"Invalid scheduledTime format. Please use the expected format: yyyy-MM-dd HH:mm"});
                         return;
                     }
                     // Fetch the service duration from the database
-                    List<Map<String, Object>> getDuration = dbConnector.executeSelectQuery(
-                            new String[]{"duration"},
-                            new String[]{DatabaseConnector.SERVICES},
-                            null, "id = ?", new String[]{service_id});
+                    List<Service> getDuration = dbConnector.executeSelectQuery(serviceMapper, Queries.SERVICE_DURATION,
+                            service_id);
 
                     if (getDuration.isEmpty()) {
                         context.status(400).json(new String[]{"Invalid service_id or service not found."});
                         return;
                     }
 
-                    Integer serviceDuration = (Integer) getDuration.get(0).get("duration");
-
-                    // Extract the date part (yyyy-MM-dd)
-                    String dateOnly = scheduledTime.substring(0, 10);
-
-                    // Add working hours
-                    String startOfDayString = dateOnly + " 09:00";
-                    String endOfDayString = dateOnly + " 17:00";
-
-                    // Parse back to Date objects if needed
-                    Date startOfDay;
-                    Date endOfDay;
-                    try {
-                        startOfDay = Utils.yearMonthDayTimeFormat.parse(startOfDayString); // Change to desired format
-                        endOfDay = Utils.yearMonthDayTimeFormat.parse(endOfDayString);
-                    } catch (ParseException e) {
-                        context.status(400);
-                        context.json(new String[]{"Invalid (start/end)OfDayformat. Please use the expected format: yyyy-MM-dd HH:mm"});
-                        return;
-                    }
+                    int serviceDuration = getDuration.get(0).duration();
 
                     // Fetch existing appointments for the date
                     List<Map<String, Object>> existingAppointments = dbConnector.executeSelectQuery(
-                            new String[]{"a.scheduledTime", "s.duration"},
-                            new String[]{DatabaseConnector.APPOINTMENTS, DatabaseConnector.SERVICES},
-                            new String[]{"a", "s"},
-                            "a.workshop_id = ? AND a.service_id = ? AND a.service_id = s.id",
-                            new String[]{workshop_id, service_id}
-                    );
-
-                    // Generate available slots
-                    List<String> availableSlots = new ArrayList<>();
-                    Date currentSlot = startOfDay;
-
-                    while (currentSlot.before(endOfDay)) {
-                        boolean conflict = false;
-
-                        // Check for conflicts with existing appointments
-                        for (Map<String, Object> existing : existingAppointments) {
-                            Object existingTimeObj = existing.get("scheduledTime");
-                            String existingTimeStr = existingTimeObj.toString(); // Convert to string safely
-                            Date existingScheduledTime = Utils.yearMonthDayTimeFormat.parse(existingTimeStr);
-                            Integer existingDuration = (Integer) existing.get("duration");
-                            Date existingEndTime = new Date(existingScheduledTime.getTime() + existingDuration * 60000);
-
-                            Date currentEndSlot = new Date(currentSlot.getTime() + serviceDuration * 60000);
-                            if (!(currentEndSlot.before(existingScheduledTime) || currentSlot.after(existingEndTime))) {
-                                conflict = true;
-                                break;
-                            }
-                        }
-
-                        if (!conflict) {
-                            availableSlots.add(Utils.yearMonthDayTimeFormat.format(currentSlot));
-                        }
+                            Queries.SCHEDULED_SERVICES, workshop_id, service_id);
 
-                        // Move to the next slot
-                        currentSlot = new Date(currentSlot.getTime() + serviceDuration * 60000);
-                    }
+                    // Generate available slots within the working hours
+                    List<String> availableSlots = AppointmentSchedule.of(existingAppointments)
+                            .availableSlots(day, serviceDuration);
 
                     context.status(200);
                     // Respond with the available slots
@@ -921,46 +1171,58 @@ public class RestServer {
                 context.json(new String[]{"Id must be an integer and greater than 0."});
                 return;
             }
-
-            List<Map<String, Object>> queryResult = dbConnector.executeSelectQuery(
-                new String[]{"id", "name", "certifications", "experience"},
-                new String[]{DatabaseConnector.TECHNICIANS},
-                null,
-                "workshop_id = ?",
-                new String[]{workshop_id}
-            );
-
-            // check for empty result set
-            if (queryResult.isEmpty()) {
-                context.status(404);
-                context.json(new String[]{"No technicians found for workshop ID: " + workshop_id});
+            if (ConditionalGet.notModified(context, Queries.TECHNICIANS_OF_WORKSHOP.getTables())) {
                 return;
             }
 
-            context.status(200);
-            context.json(queryResult);
+            context.future(() -> asyncDbConnector.executeSelectQuery(Queries.TECHNICIANS_OF_WORKSHOP, workshop_id)
+                    .thenAccept(queryResult -> {
+                // check for empty result set
+                if (queryResult.isEmpty()) {
+                    context.status(404);
+                    context.json(new String[]{"No technicians found for workshop ID: " + workshop_id});
+                    return;
+                }
+
+                context.status(200);
+                writeRows(context, queryResult);
+            }));
         });
 
 
         javalinApp.get("/security-questions", context -> {
-            
-            // Fetch distinct security questions from customers table
-            List<Map<String, Object>> queryResult = dbConnector.executeSelectQuery(
-                new String[]{"DISTINCT security_question_id, security_question"},
-                new String[]{DatabaseConnector.CUSTOMERS},
-                null,
-                "security_question IS NOT NULL",
-                null
-            );
-            
-            if (queryResult.isEmpty()) {
-                context.status(404);
-                context.json(new String[]{"No security questions found."});
+            if (ConditionalGet.notModified(context, SECURITY_QUESTIONS_VERSION)) {
+                return;
+            }
+            if (wantsBinary(context)) { // not cached
+                context.future(() -> asyncDbConnector.executeSelectQuery(Queries.SECURITY_QUESTIONS).thenAccept(queryResult -> {
+                    if (queryResult.isEmpty()) {
+                        context.status(404);
+                        context.json(new String[]{"No security questions found."});
+                        return;
+                    }
+                    context.status(200);
+                    writeRows(context, queryResult);
+                }));
+                return;
+            }
+            CatalogCache.Entry cached = catalogCache.get(CATALOG_SECURITY_QUESTIONS, SECURITY_QUESTIONS_VERSION);
+            if (cached != null) {
+                sendCatalog(context, cached);
                 return;
             }
+            long version = catalogCache.version(SECURITY_QUESTIONS_VERSION);
 
-            context.status(200);
-            context.json(queryResult);
+            // Fetch distinct security questions from customers table
+            context.future(() -> asyncDbConnector.executeSelectQuery(Queries.SECURITY_QUESTIONS).thenAccept(queryResult -> {
+                if (queryResult.isEmpty()) {
+                    context.status(404);
+                    context.json(new String[]{"No security questions found."});
+                    return;
+                }
+
+                sendCatalog(context, catalogCache.put(CATALOG_SECURITY_QUESTIONS, version, gson.toJson(queryResult)));
+            }));
         });
 
         // Add endpoint for getting tokens
@@ -975,19 +1237,14 @@ public class RestServer {
                     return;
                 }
 
-                List<Map<String, Object>> result = dbConnector.executeSelectQuery(
-                    new String[]{"tokens"},
-                    new String[]{DatabaseConnector.CUSTOMERS},
-                    null,
-                    "id = ?",
-                    new String[]{customer_id}
-                );
+                List<Map<String, Object>> result = dbConnector.executeSelectQuery(Queries.CUSTOMER_TOKENS, customer_id);
 
                 if (result.isEmpty()) {
                     context.status(404);
                     context.json(new String[]{"Customer not found"});
                     return;
                 }
+                addPendingTokens(result, customer_id);
 
                 context.status(200);
                 context.json(result);
@@ -1007,41 +1264,166 @@ public class RestServer {
                     return;
                 }
 
-                List<Map<String, Object>> currentTokens = dbConnector.executeSelectQuery(
-                    new String[]{"tokens"},
-                    new String[]{DatabaseConnector.CUSTOMERS},
-                    null,
-                    "id = ?",
-                    new String[]{customer_id}
-                );
-
-                int availableTokens = currentTokens.get(0).get("tokens") != null ? 
-                    ((Number) currentTokens.get(0).get("tokens")).intValue() : 0;
-                int requestedTokens = Integer.parseInt(tokensToRedeem);
-
-                if (availableTokens < requestedTokens) {
+                if (!dataVal.isValidId(tokensToRedeem)) {
                     context.status(400);
-                    context.json(new String[]{"Not enough tokens available"});
+                    context.json(new String[]{"Tokens must be an integer and greater than 0."});
                     return;
                 }
+                int requestedTokens = Integer.parseInt(tokensToRedeem);
 
-                boolean success = dbConnector.executeUpdateQuery(
-                    DatabaseConnector.CUSTOMERS,
-                    new String[]{"tokens = ?"},
-                    new String[]{String.valueOf(availableTokens - requestedTokens)},
-                    "id = ?",
-                    new String[]{customer_id}
-                );
-
-                if (success) {
+                // balance check and deduction happen in one conditional update
+                TokenLedger.Redemption redemption = tokenLedger.redeem(customer_id, requestedTokens);
+                if (redemption == TokenLedger.Redemption.REDEEMED) {
                     context.status(200);
                     context.json(new String[]{"Tokens redeemed successfully"});
+                    return;
+                } else if (redemption == TokenLedger.Redemption.UNAVAILABLE) {
+                    context.status(503);
+                    context.json(new String[]{"Tokens cannot be redeemed right now, please try again later."});
+                    return;
+                }
+
+                if (tokenLedger.balance(customer_id) == null) {
+                    context.status(404);
+                    context.json(new String[]{"Customer not found"});
                 } else {
-                    context.status(500);
-                    context.json(new String[]{"Failed to redeem tokens"});
+                    context.status(400);
+                    context.json(new String[]{"Not enough tokens available"});
                 }
             }
         });
     }
 
+    /**
+     * Writes the rows with a {@link JsonRowWriter} instead of
+     * <code>context.json(rows)</code>, so that no JSON string of the whole response
+     * is built in memory. Clients that accept {@link BinaryRows} get that format
+     * instead.
+     */
+    private void writeRows(Context context, List<Map<String, Object>> rows) {
+        addQueryHeaders(context);
+        try {
+            if (wantsBinary(context)) {
+                context.contentType(BinaryRows.MEDIA_TYPE);
+                try (BinaryRows.Writer writer = new BinaryRows.Writer(context.outputStream())) {
+                    for (Map<String, Object> row : rows) {
+                        writer.writeRow(row);
+                    }
+                }
+            } else {
+                JsonRowWriter.write(context, gson, rows);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the path of the route that handled the request; <b>unmatched</b> if
+     * no route matched, e.g. for status 404
+     */
+    private static String routeOf(Context context) {
+        String route;
+        try {
+            route = context.endpointHandlerPath();
+        } catch (IllegalStateException e) {
+            return "unmatched";
+        }
+        return route == null || route.isEmpty() || route.equals("*") ? "unmatched" : route;
+    }
+
+    /**
+     * Sets the number and the time of the statements the request ran so far as
+     * the headers <i>X-DB-Queries</i> and <i>X-DB-Time-Ms</i>. Responses that are
+     * written directly to the servlet response have to set them before the body.
+     */
+    private static void addQueryHeaders(Context context) {
+        RequestContext queries = context.attribute(REQUEST_QUERIES);
+        if (queries != null) {
+            context.header(DB_QUERIES_HEADER, Integer.toString(queries.queryCount()));
+            context.header(DB_TIME_HEADER, String.format(Locale.ROOT, "%.3f", queries.queryNanos() / 1e6));
+        }
+    }
+
+    private static boolean wantsBinary(Context context) {
+        return BinaryRows.isAccepted(context.header("Accept"));
+    }
+
+    /**
+     * Answers a request whose <i>fields</i> parameter contains a field that the
+     * route does not allow.
+     */
+    private static void rejectFields(Context context, FieldProjection projection) {
+        context.status(400);
+        context.json(new String[]{"Unknown field in " + StringNames.fields + ". Allowed fields: "
+                + String.join(", ", projection.getFields()) + "."});
+    }
+
+    /**
+     * Checks the admin token of the request and sets the response if it is
+     * missing or wrong. Without a configured token the admin routes do not exist.
+     *
+     * @return <code>true</code> if the request may use the admin routes
+     */
+    private boolean isAdmin(Context context) {
+        if (adminToken == null || adminToken.isEmpty()) {
+            context.status(404);
+            context.json(new String[]{"Not found."});
+            return false;
+        }
+        String token = context.header(ADMIN_TOKEN_HEADER);
+        // compares in constant time, so the token cannot be guessed from response times
+        if (token == null || !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                adminToken.getBytes(StandardCharsets.UTF_8))) {
+            context.status(401);
+            context.json(new String[]{"Admin token missing or wrong."});
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the query parameter as integer; the default if it is missing;
+     * <code>null</code> if it is not an integer
+     */
+    private static Integer intParam(Context context, String name, int defaultValue) {
+        String value = context.queryParam(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Sends a cached catalog response, e.g. from within a future.
+     */
+    private void sendCatalog(Context context, CatalogCache.Entry entry) {
+        addQueryHeaders(context);
+        try {
+            CatalogCache.send(context, entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Adds the tokens that were credited to the customer but are still waiting in
+     * the write-behind buffer to the <i>tokens</i> value of the first row.
+     *
+     * @param customerRows the rows read from the customers table
+     * @param customer_id  the id of the customer
+     */
+    private void addPendingTokens(List<Map<String, Object>> customerRows, String customer_id) {
+        int pendingTokens = tokenLedger.pendingCredit(customer_id);
+        if (pendingTokens != 0 && !customerRows.isEmpty()) {
+            Object tokens = customerRows.get(0).get(StringNames.tokens);
+            customerRows.get(0).put(StringNames.tokens,
+                    (tokens != null ? ((Number) tokens).intValue() : 0) + pendingTokens);
+        }
+    }
+
 }
@@ -0,0 +1,88 @@
+package rest_server;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+
+/**
+ * Creates the thread pool Jetty handles the requests of the {@link RestServer}
+ * with. <br>
+ * <br>
+ * By default requests run on a pool of platform threads, sized like the Javalin
+ * default. With the system property <i>server.virtualThreads=true</i> every
+ * request runs on its own virtual thread instead (JDK 21+), so that requests
+ * which block on the database do not use up the pool. On JVMs without virtual
+ * threads the property is ignored.
+ */
+public final class ServerThreading {
+
+    public static final String VIRTUAL_THREADS_PROPERTY = "server.virtualThreads";
+    public static final String THREAD_POOL_NAME = "JettyServerThreadPool";
+
+    // same values as Javalin uses for its default pool
+    private static final int MAX_THREADS = 250;
+    private static final int MIN_THREADS = 8;
+    private static final int IDLE_TIMEOUT_MILLIS = 60_000;
+
+    private static final Logger logger = LoggerFactory.getLogger(ServerThreading.class);
+
+    private ServerThreading() {
+    }
+
+    /**
+     * @return <code>true</code> if virtual threads were requested with the system
+     * property
+     */
+    public static boolean virtualThreadsRequested() {
+        return Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY);
+    }
+
+    /**
+     * @return <code>true</code> if the running JVM supports virtual threads
+     */
+    public static boolean virtualThreadsSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates the Jetty thread pool.
+     *
+     * @param useVirtualThreads <code>true</code> to run requests on virtual
+     *                          threads if the JVM supports them
+     * @return the thread pool
+     */
+    public static QueuedThreadPool createThreadPool(boolean useVirtualThreads) {
+        QueuedThreadPool threadPool = new QueuedThreadPool(MAX_THREADS, MIN_THREADS, IDLE_TIMEOUT_MILLIS);
+        threadPool.setName(THREAD_POOL_NAME);
+        if (useVirtualThreads) {
+            if (virtualThreadsSupported() && enableVirtualThreads(threadPool)) {
+                logger.info("Handling requests on virtual threads");
+            } else {
+                logger.warn("Virtual threads not available, handling requests on platform threads");
+            }
+        }
+        return threadPool;
+    }
+
+    /**
+     * Switches the pool to virtual threads. Jetty only offers this switch from
+     * version 10.0.12/11.0.12 on, so it is looked up at runtime.
+     */
+    private static boolean enableVirtualThreads(QueuedThreadPool threadPool) {
+        try {
+            Method setter = QueuedThreadPool.class.getMethod("setUseVirtualThreads", boolean.class);
+            setter.invoke(threadPool, true);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+
+}
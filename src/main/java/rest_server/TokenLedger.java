@@ -0,0 +1,179 @@
+package rest_server;
+
+import model.DataStore;
+import model.DatabaseConnector;
+import model.WriteBehindBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.DateCodec;
+import utils.StringNames;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the loyalty token balance of the customers. <br>
+ * <br>
+ * The balance is maintained in the column <i>tokens</i> of the customers table
+ * and is only ever changed with a single relative UPDATE statement, so that the
+ * database applies concurrent changes atomically. Every change is appended to
+ * the token ledger table in the same transaction, which therefore contains the
+ * complete history of how a balance came about.
+ * <p>
+ * When a {@link WriteBehindBuffer} is given, credits are deferred to it, as one
+ * write for the balance and its ledger entry: they only ever increase a
+ * balance, so the customer loses nothing if they reach the database a moment
+ * later. If the buffer's backlog is full, they are written synchronously, like
+ * redemptions always are.
+ */
+public class TokenLedger {
+
+    public static final String REASON_APPOINTMENT = "appointment";
+    public static final String REASON_REDEMPTION = "redemption";
+
+    private static final String[] LEDGER_COLUMNS = {"customer_id", "delta", "reason", "createdAt"};
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenLedger.class);
+
+    /**
+     * The outcome of {@link #redeem(String, int)}.
+     */
+    public enum Redemption {
+        REDEEMED,
+        // the balance was too low, the customer does not exist or the update failed
+        REJECTED,
+        // credits of the customer could not be written, so the balance cannot be checked
+        UNAVAILABLE
+    }
+
+    private final DataStore dbConnector;
+    private final WriteBehindBuffer writeBehind;
+
+    public TokenLedger(DataStore dbConnector) {
+        this(dbConnector, null);
+    }
+
+    /**
+     * @param dbConnector the connector used for reads and redemptions
+     * @param writeBehind the buffer credits are deferred to; can be
+     *                    <code>null</code> to write credits synchronously
+     */
+    public TokenLedger(DataStore dbConnector, WriteBehindBuffer writeBehind) {
+        this.dbConnector = dbConnector;
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * Adds the given amount of tokens to the balance of the customer and records
+     * the change in the ledger.
+     *
+     * @param customer_id the id of the customer
+     * @param amount      the number of tokens to add; must be greater than 0
+     * @param reason      the reason stored with the ledger entry
+     * @return <code>true</code> if the balance was updated or the credit was
+     * deferred; <code>false</code> otherwise
+     */
+    public boolean credit(String customer_id, int amount, String reason) {
+        if (amount <= 0) {
+            return false;
+        }
+        String[] entry = ledgerValues(customer_id, amount, reason);
+        if (writeBehind != null) {
+            if (writeBehind.submit(WriteBehindBuffer.increment(DatabaseConnector.CUSTOMERS, StringNames.tokens, "id",
+                    customer_id, amount, DatabaseConnector.TOKEN_LEDGER, LEDGER_COLUMNS, entry))) {
+                return true;
+            }
+            logger.warn("Write-behind backlog is full, crediting customer {} synchronously", customer_id);
+        }
+        /*
+         * UPDATE customers
+         * SET tokens = tokens + amount
+         * WHERE id = customer_id
+         *
+         * INSERT INTO token_ledger (customer_id, delta, reason, createdAt)
+         * VALUES (customer_id, amount, reason, createdAt)
+         */
+        return dbConnector.executeTransaction(() -> dbConnector.executeCountedUpdateQuery(DatabaseConnector.CUSTOMERS,
+                new String[]{"tokens = tokens + ?"}, new String[]{String.valueOf(amount)},
+                "id = ?", new String[]{customer_id}) == 1
+                && dbConnector.executeInsertQuery(DatabaseConnector.TOKEN_LEDGER, LEDGER_COLUMNS, entry));
+    }
+
+    /**
+     * Removes the given amount of tokens from the balance of the customer if, and
+     * only if, the balance covers it. The check and the change are one statement,
+     * so two concurrent redemptions can never overdraw the balance.
+     *
+     * @param customer_id the id of the customer
+     * @param amount      the number of tokens to redeem; must be greater than 0
+     * @return {@link Redemption#REDEEMED} if the tokens were redeemed;
+     * {@link Redemption#UNAVAILABLE} if pending credits of the customer could not
+     * be written first; {@link Redemption#REJECTED} otherwise
+     */
+    public Redemption redeem(String customer_id, int amount) {
+        if (amount <= 0) {
+            return Redemption.REJECTED;
+        }
+        // pending (or currently flushing) credits must be in the balance before the guard is evaluated
+        if (writeBehind != null && !writeBehind.flush() && pendingCredit(customer_id) > 0) {
+            logger.warn("Pending credits of customer {} could not be written before a redemption", customer_id);
+            return Redemption.UNAVAILABLE;
+        }
+        String[] entry = ledgerValues(customer_id, -amount, REASON_REDEMPTION);
+        /*
+         * UPDATE customers
+         * SET tokens = tokens - amount
+         * WHERE id = customer_id and tokens >= amount
+         *
+         * INSERT INTO token_ledger (customer_id, delta, reason, createdAt)
+         * VALUES (customer_id, -amount, 'redemption', createdAt)
+         */
+        boolean redeemed = dbConnector.executeTransaction(() -> dbConnector.executeCountedUpdateQuery(
+                DatabaseConnector.CUSTOMERS, new String[]{"tokens = tokens - ?"}, new String[]{String.valueOf(amount)},
+                "id = ? and tokens >= ?", new String[]{customer_id, String.valueOf(amount)}) == 1
+                && dbConnector.executeInsertQuery(DatabaseConnector.TOKEN_LEDGER, LEDGER_COLUMNS, entry));
+        return redeemed ? Redemption.REDEEMED : Redemption.REJECTED;
+    }
+
+    /**
+     * Returns the number of tokens that have been credited to the customer but
+     * not yet committed to the database, including credits being flushed.
+     *
+     * @param customer_id the id of the customer
+     * @return the pending credit; 0 if credits are written synchronously
+     */
+    public int pendingCredit(String customer_id) {
+        if (writeBehind == null) {
+            return 0;
+        }
+        return writeBehind.pendingIncrement(DatabaseConnector.CUSTOMERS, StringNames.tokens, "id", customer_id);
+    }
+
+    /**
+     * Reads the maintained token balance of the customer, including credits that
+     * are still pending.
+     *
+     * @param customer_id the id of the customer
+     * @return the balance; <code>null</code> if the customer does not exist
+     */
+    public Integer balance(String customer_id) {
+        /*
+         * SELECT tokens
+         * FROM customers
+         * WHERE id = customer_id
+         */
+        List<Map<String, Object>> result = dbConnector.executeSelectQuery(new String[]{"tokens"},
+                new String[]{DatabaseConnector.CUSTOMERS}, null, "id = ?", new String[]{customer_id});
+        if (result == null || result.isEmpty()) {
+            return null;
+        }
+        Object tokens = result.get(0).get(StringNames.tokens);
+        return (tokens != null ? ((Number) tokens).intValue() : 0) + pendingCredit(customer_id);
+    }
+
+    private static String[] ledgerValues(String customer_id, int delta, String reason) {
+        return new String[]{customer_id, String.valueOf(delta), reason,
+                DateCodec.formatEpochMinutes(DateCodec.now())};
+    }
+
+}
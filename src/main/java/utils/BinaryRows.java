@@ -0,0 +1,380 @@
+package utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary encoding of result rows, which the server sends instead of
+ * JSON when the <code>Accept</code> header asks for {@link #MEDIA_TYPE}. <br>
+ * <br>
+ * The stream starts with the bytes <code>'R' 'W' 1</code>, followed by blocks
+ * that each start with one marker byte:
+ * <ul>
+ * <li><b>2</b> (columns): the number of columns and their names; applies to all
+ * following rows</li>
+ * <li><b>1</b> (row): one value per column</li>
+ * <li><b>0</b> (end)</li>
+ * </ul>
+ * Every value is a type tag followed by its payload. Integers (e.g. ids) are
+ * zigzag varints, timestamps on a full minute are the minutes since the epoch
+ * as a varint (other timestamps the milliseconds), dates the days since the
+ * epoch, decimals the scale and the unscaled value, and strings the UTF-8 length
+ * as a varint followed by the bytes. Counts and lengths are unsigned varints.
+ * <br>
+ * <br>
+ * Like in {@link DateCodec} and the JSON responses, timestamps and dates are
+ * wall-clock values without a time zone, so a client in another time zone
+ * decodes the same appointment times as the server read from the database.
+ */
+public final class BinaryRows {
+
+    public static final String MEDIA_TYPE = "application/x-binary-rows";
+
+    private static final byte[] MAGIC = {'R', 'W', 1};
+
+    private static final int END = 0;
+    private static final int ROW = 1;
+    private static final int COLUMNS = 2;
+
+    private static final int NULL = 0;
+    private static final int INT = 1;
+    private static final int DECIMAL = 2;
+    private static final int STRING = 3;
+    private static final int TIMESTAMP_MINUTES = 4;
+    private static final int TIMESTAMP_MILLIS = 5;
+    private static final int DATE = 6;
+    private static final int FALSE = 7;
+    private static final int TRUE = 8;
+    private static final int DOUBLE = 9;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private BinaryRows() {
+    }
+
+    /**
+     * @param accept the value of the Accept header; can be <code>null</code>
+     * @return <code>true</code> if {@link #MEDIA_TYPE} is listed and not refused
+     * with q=0
+     */
+    public static boolean isAccepted(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        for (String range : accept.split(",")) {
+            String[] parts = range.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase(MEDIA_TYPE)) {
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim().replace(" ", "");
+                    try {
+                        if (parameter.startsWith("q=") && Double.parseDouble(parameter.substring(2)) == 0) {
+                            return false;
+                        }
+                    } catch (NumberFormatException e) {
+                        // malformed weight, ignore it
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Encodes all rows at once.
+     *
+     * @param rows the rows; keys are the column names
+     * @return the encoded rows
+     */
+    public static byte[] encode(Iterable<Map<String, Object>> rows) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Writer writer = new Writer(out)) {
+            for (Map<String, Object> row : rows) {
+                writer.writeRow(row);
+            }
+        } catch (IOException e) {
+            // cannot happen for an in-memory stream
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes rows encoded by {@link Writer}.
+     *
+     * @param bytes the encoded rows
+     * @return the rows in order; keys are the column names, in column order
+     * @throws IOException if the bytes are not valid binary rows
+     */
+    public static List<Map<String, Object>> decode(byte[] bytes) throws IOException {
+        return decode(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Decodes rows encoded by {@link Writer}. Reads until the end marker.
+     *
+     * @param stream the stream with the encoded rows
+     * @return the rows in order; keys are the column names, in column order
+     * @throws IOException if reading fails or the data is not valid binary rows
+     */
+    public static List<Map<String, Object>> decode(InputStream stream) throws IOException {
+        InputStream in = stream instanceof BufferedInputStream || stream instanceof ByteArrayInputStream
+                ? stream : new BufferedInputStream(stream, BUFFER_SIZE);
+        byte[] magic = new byte[MAGIC.length];
+        for (int i = 0; i < magic.length; i++) {
+            magic[i] = (byte) readByte(in);
+        }
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not binary rows");
+        }
+        List<Map<String, Object>> rows = new ArrayList<>();
+        String[] columns = new String[0];
+        while (true) {
+            int marker = readByte(in);
+            switch (marker) {
+                case END:
+                    return rows;
+                case COLUMNS:
+                    columns = new String[readLength(in)];
+                    for (int i = 0; i < columns.length; i++) {
+                        columns[i] = readString(in);
+                    }
+                    break;
+                case ROW:
+                    Map<String, Object> row = new LinkedHashMap<>(columns.length * 2);
+                    for (String column : columns) {
+                        row.put(column, readValue(in));
+                    }
+                    rows.add(row);
+                    break;
+                default:
+                    throw new IOException("Unknown block " + marker);
+            }
+        }
+    }
+
+    /**
+     * Writes rows to a stream one at a time, like
+     * <code>rest_server.JsonRowWriter</code> does for JSON.
+     */
+    public static final class Writer implements Closeable {
+
+        private final OutputStream out;
+        private List<String> columns;
+
+        /**
+         * Writes the start of the stream.
+         *
+         * @param out the stream to write to; it is flushed but not closed by
+         *            {@link #close()}
+         */
+        public Writer(OutputStream out) throws IOException {
+            this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+            this.out.write(MAGIC);
+        }
+
+        /**
+         * Writes one row. The columns are written before the first row and again
+         * whenever a row has other keys than the one before.
+         *
+         * @param row the row; keys are the column names
+         */
+        public void writeRow(Map<String, Object> row) throws IOException {
+            if (!hasColumns(row)) {
+                columns = new ArrayList<>(row.keySet());
+                out.write(COLUMNS);
+                writeUnsigned(out, columns.size());
+                for (String column : columns) {
+                    writeString(out, column);
+                }
+            }
+            out.write(ROW);
+            for (String column : columns) {
+                writeValue(out, row.get(column));
+            }
+        }
+
+        private boolean hasColumns(Map<String, Object> row) {
+            if (columns == null || columns.size() != row.size()) {
+                return false;
+            }
+            int i = 0;
+            for (String column : row.keySet()) {
+                if (!column.equals(columns.get(i++))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Writes the end marker and flushes the stream.
+         */
+        @Override
+        public void close() throws IOException {
+            out.write(END);
+            out.flush();
+        }
+    }
+
+    private static void writeValue(OutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.write(NULL);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+                || value instanceof Byte) {
+            out.write(INT);
+            writeSigned(out, ((Number) value).longValue());
+        } else if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            BigInteger unscaled = decimal.unscaledValue();
+            if (unscaled.bitLength() < Long.SIZE) {
+                out.write(DECIMAL);
+                writeSigned(out, decimal.scale());
+                writeSigned(out, unscaled.longValue());
+            } else {
+                out.write(STRING);
+                writeString(out, decimal.toPlainString());
+            }
+        } else if (value instanceof Double || value instanceof Float) {
+            out.write(DOUBLE);
+            long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (bits >>> shift));
+            }
+        } else if (value instanceof Timestamp) {
+            LocalDateTime dateTime = ((Timestamp) value).toLocalDateTime();
+            if (dateTime.getSecond() == 0 && dateTime.getNano() == 0) {
+                out.write(TIMESTAMP_MINUTES);
+                writeSigned(out, DateCodec.toEpochMinutes(dateTime));
+            } else {
+                out.write(TIMESTAMP_MILLIS);
+                writeSigned(out, dateTime.toEpochSecond(ZoneOffset.UTC) * 1000 + dateTime.getNano() / 1_000_000);
+            }
+        } else if (value instanceof Date) {
+            out.write(DATE);
+            writeSigned(out, ((Date) value).toLocalDate().toEpochDay());
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? TRUE : FALSE);
+        } else {
+            out.write(STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    private static Object readValue(InputStream in) throws IOException {
+        int tag = readByte(in);
+        switch (tag) {
+            case NULL:
+                return null;
+            case INT:
+                long number = readSigned(in);
+                return number == (int) number ? (Object) (int) number : (Object) number;
+            case DECIMAL:
+                int scale = (int) readSigned(in);
+                return BigDecimal.valueOf(readSigned(in), scale);
+            case STRING:
+                return readString(in);
+            case TIMESTAMP_MINUTES:
+                return Timestamp.valueOf(DateCodec.toLocalDateTime(readSigned(in)));
+            case TIMESTAMP_MILLIS:
+                long millis = readSigned(in);
+                return Timestamp.valueOf(LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000),
+                        (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC));
+            case DATE:
+                return Date.valueOf(LocalDate.ofEpochDay(readSigned(in)));
+            case FALSE:
+                return false;
+            case TRUE:
+                return true;
+            case DOUBLE:
+                long bits = 0;
+                for (int i = 0; i < 8; i++) {
+                    bits = (bits << 8) | readByte(in);
+                }
+                return Double.longBitsToDouble(bits);
+            default:
+                throw new IOException("Unknown value type " + tag);
+        }
+    }
+
+    private static void writeUnsigned(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeSigned(OutputStream out, long value) throws IOException {
+        writeUnsigned(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static void writeString(OutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeUnsigned(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static long readUnsigned(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint too long");
+    }
+
+    private static long readSigned(InputStream in) throws IOException {
+        long value = readUnsigned(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int readLength(InputStream in) throws IOException {
+        long length = readUnsigned(in);
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Invalid length " + length);
+        }
+        return (int) length;
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        int length = readLength(in);
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException("Unexpected end of binary rows");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Unexpected end of binary rows");
+        }
+        return b;
+    }
+
+}
@@ -0,0 +1,246 @@
+package utils;
+
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * Parses and formats the <b>yyyy-MM-dd HH:mm</b> date-time strings that client,
+ * server and database exchange. Unlike the <code>SimpleDateFormat</code>s that
+ * were shared in {@link Utils}, everything here is stateless and can be used by
+ * any number of threads at once. <br>
+ * <br>
+ * The fast path works on <i>epoch minutes</i>: the minutes since 1970-01-01 00:00
+ * in local wall-clock time, i.e. without a time zone. Two such values can be
+ * compared and subtracted directly, which is all the appointment scheduling needs,
+ * and {@link #parseEpochMinutes(CharSequence)} does not allocate. Conversions to
+ * <code>Date</code> use the default time zone, like <code>SimpleDateFormat</code>
+ * did.
+ */
+public final class DateCodec {
+
+    public static final String YEAR_MONTH_DAY_TIME_PATTERN = "yyyy-MM-dd HH:mm";
+    public static final DateTimeFormatter YEAR_MONTH_DAY_TIME = DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm");
+
+    /**
+     * Returned by {@link #parseEpochMinutes(CharSequence)} for invalid input.
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    private static final long MILLIS_PER_MINUTE = 60_000;
+    private static final int LENGTH = YEAR_MONTH_DAY_TIME_PATTERN.length();
+    // days from 0000-03-01 to 1970-01-01 in the proleptic Gregorian calendar
+    private static final long DAYS_0000_TO_1970 = 719_468;
+
+    private DateCodec() {
+    }
+
+    /**
+     * Parses <b>yyyy-MM-dd HH:mm</b> into epoch minutes without allocating. A
+     * suffix starting with <code>:</code>, e.g. the seconds of
+     * <code>Timestamp.toString()</code>, is ignored, as
+     * <code>SimpleDateFormat</code> did.
+     *
+     * @param text the text to parse; can be <code>null</code>
+     * @return the epoch minutes; {@link #INVALID} if the text is not a valid
+     * date-time
+     */
+    public static long parseEpochMinutes(CharSequence text) {
+        return parseEpochMinutes(text, ' ');
+    }
+
+    /**
+     * Parses an ISO-8601 local date-time, e.g. <b>2025-01-15T10:00:00</b> as
+     * written by {@link TimestampAdapter}, into epoch minutes without allocating.
+     * Seconds and fractions are ignored.
+     *
+     * @param text the text to parse; can be <code>null</code>
+     * @return the epoch minutes; {@link #INVALID} if the text is not a valid
+     * date-time
+     */
+    public static long parseIsoEpochMinutes(CharSequence text) {
+        return parseEpochMinutes(text, 'T');
+    }
+
+    private static long parseEpochMinutes(CharSequence text, char separator) {
+        if (text == null || text.length() < LENGTH || text.length() > LENGTH && text.charAt(LENGTH) != ':'
+                || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != separator
+                || text.charAt(13) != ':') {
+            return INVALID;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return INVALID;
+        }
+        return epochDay(year, month, day) * MINUTES_PER_DAY + hour * 60 + minute;
+    }
+
+    /**
+     * Formats epoch minutes as <b>yyyy-MM-dd HH:mm</b>.
+     *
+     * @param epochMinutes the epoch minutes
+     * @return the formatted string
+     */
+    public static String formatEpochMinutes(long epochMinutes) {
+        LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(epochMinutes, MINUTES_PER_DAY));
+        int minuteOfDay = (int) Math.floorMod(epochMinutes, MINUTES_PER_DAY);
+        char[] chars = new char[LENGTH];
+        write(chars, 0, date.getYear(), 4);
+        chars[4] = '-';
+        write(chars, 5, date.getMonthValue(), 2);
+        chars[7] = '-';
+        write(chars, 8, date.getDayOfMonth(), 2);
+        chars[10] = ' ';
+        write(chars, 11, minuteOfDay / 60, 2);
+        chars[13] = ':';
+        write(chars, 14, minuteOfDay % 60, 2);
+        return new String(chars);
+    }
+
+    /**
+     * Parses <b>yyyy-MM-dd HH:mm</b> into a <code>Date</code> in the default time
+     * zone. Drop-in replacement for <code>SimpleDateFormat.parse</code>.
+     *
+     * @param text the text to parse
+     * @return the date
+     * @throws ParseException if the text is not a valid date-time
+     */
+    public static Date parse(String text) throws ParseException {
+        long epochMinutes = parseEpochMinutes(text);
+        if (epochMinutes == INVALID) {
+            throw new ParseException("Unparseable date: \"" + text + "\"", 0);
+        }
+        return toDate(epochMinutes);
+    }
+
+    /**
+     * Formats a <code>Date</code> in the default time zone as <b>yyyy-MM-dd
+     * HH:mm</b>.
+     *
+     * @param date the date
+     * @return the formatted string
+     */
+    public static String format(Date date) {
+        return formatEpochMinutes(toEpochMinutes(date));
+    }
+
+    /**
+     * @return the current local time in epoch minutes
+     */
+    public static long now() {
+        return toEpochMinutes(LocalDateTime.now());
+    }
+
+    /**
+     * @param date the date; a <code>Timestamp</code> is read in the default time
+     *             zone like any other date
+     * @return the epoch minutes of the date in the default time zone, rounded down
+     */
+    public static long toEpochMinutes(Date date) {
+        long millis = date.getTime();
+        long offset = ZoneId.systemDefault().getRules().getOffset(date.toInstant()).getTotalSeconds();
+        return Math.floorDiv(millis + offset * 1000, MILLIS_PER_MINUTE);
+    }
+
+    /**
+     * @param dateTime the local date-time
+     * @return the epoch minutes, rounded down
+     */
+    public static long toEpochMinutes(LocalDateTime dateTime) {
+        return dateTime.toLocalDate().toEpochDay() * MINUTES_PER_DAY + dateTime.getHour() * 60 + dateTime.getMinute();
+    }
+
+    /**
+     * Reads a date-time value of a result row, which is a <code>Timestamp</code>
+     * or, e.g. in tests, a <b>yyyy-MM-dd HH:mm</b> string.
+     *
+     * @param value the value
+     * @return the epoch minutes; {@link #INVALID} if the value is not a date-time
+     */
+    public static long toEpochMinutes(Object value) {
+        if (value instanceof Timestamp) {
+            return toEpochMinutes(((Timestamp) value).toLocalDateTime());
+        } else if (value instanceof Date) {
+            return toEpochMinutes((Date) value);
+        } else if (value instanceof LocalDateTime) {
+            return toEpochMinutes((LocalDateTime) value);
+        } else if (value instanceof CharSequence) {
+            return parseEpochMinutes((CharSequence) value);
+        }
+        return INVALID;
+    }
+
+    /**
+     * @param epochMinutes the epoch minutes
+     * @return the local date-time
+     */
+    public static LocalDateTime toLocalDateTime(long epochMinutes) {
+        return LocalDate.ofEpochDay(Math.floorDiv(epochMinutes, MINUTES_PER_DAY)).atStartOfDay()
+                .plusMinutes(Math.floorMod(epochMinutes, MINUTES_PER_DAY));
+    }
+
+    /**
+     * @param epochMinutes the epoch minutes
+     * @return the date in the default time zone
+     */
+    public static Date toDate(long epochMinutes) {
+        return Date.from(toLocalDateTime(epochMinutes).atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static void write(char[] chars, int start, int value, int count) {
+        for (int i = start + count - 1; i >= start; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Days since 1970-01-01, computed without <code>LocalDate</code> (algorithm by
+     * H. Hinnant, "days_from_civil").
+     */
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+}
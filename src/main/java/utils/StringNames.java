@@ -26,5 +26,6 @@ public class StringNames {
     public static String technician_id = " technician_id";
     public  static String appointment_id = "appointment_id";
     public static final String tokens = "tokens";
+    public static final String fields = "fields";
 
 }
@@ -0,0 +1,54 @@
+package utils;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Writes <code>java.sql.Timestamp</code>s as ISO-8601 local date-times, e.g.
+ * <b>2025-01-15T10:00:00</b>, instead of Gson's default, which depends on the
+ * locale of the server (<b>Jan 15, 2025, 10:00:00 AM</b>, with a narrow no-break
+ * space before <b>AM</b> on newer JDKs). The values are wall-clock times like the
+ * <code>DATETIME</code> columns they come from, so no time zone is added. <br>
+ * <br>
+ * Reads ISO-8601 local date-times and, for clients that prefer them, numbers as
+ * epoch milliseconds. On the client, {@link DateCodec#parseIsoEpochMinutes(CharSequence)}
+ * reads the ISO form directly.
+ */
+public class TimestampAdapter extends TypeAdapter<Timestamp> {
+
+    @Override
+    public void write(JsonWriter out, Timestamp value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.value(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value.toLocalDateTime()));
+    }
+
+    @Override
+    public Timestamp read(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        } else if (token == JsonToken.NUMBER) {
+            return new Timestamp(in.nextLong());
+        }
+        String text = in.nextString();
+        try {
+            return Timestamp.valueOf(LocalDateTime.parse(text, DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        } catch (DateTimeParseException e) {
+            throw new JsonSyntaxException("Invalid timestamp: \"" + text + "\"", e);
+        }
+    }
+
+}
@@ -1,25 +1,39 @@
 package utils;
 
 import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import java.util.regex.Pattern;
 
 public class Utils {
 
-    private static final Logger logger = Logger.getLogger(Utils.class.getName());
+    private static final Logger logger = LoggerFactory.getLogger(Utils.class);
     // define various date formats
+    // SimpleDateFormat is not thread-safe, so these must not be shared between threads; use DateCodec instead
+    @Deprecated
     public static SimpleDateFormat date12TimeFormat = new SimpleDateFormat("hh:mm:ss a", Locale.US);
+    @Deprecated
     public static SimpleDateFormat date24TimeFormat = new SimpleDateFormat("HH:mm");
+    @Deprecated
     public static SimpleDateFormat dayMonthDateFormat = new SimpleDateFormat("dd.MM");
+    @Deprecated
     public static SimpleDateFormat dayMonthYearDateFormat = new SimpleDateFormat("dd.MM.yyyy");
+    @Deprecated
     public static SimpleDateFormat monthDayYearDateFormat = new SimpleDateFormat("MMM dd, yyyy");
+    @Deprecated
     public static SimpleDateFormat monthDayYearDateTimeFormat = new SimpleDateFormat("MMM dd, yyyy HH:mm");
+    @Deprecated
     public static SimpleDateFormat yearMonthDayTimeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+    private static final DateTimeFormatter TIME_12 = new DateTimeFormatterBuilder().parseCaseInsensitive()
+            .appendPattern("hh:mm:ss a").toFormatter(Locale.US);
+    private static final DateTimeFormatter TIME_24 = DateTimeFormatter.ofPattern("HH:mm");
 
 
     /**
@@ -105,9 +119,9 @@ public class Utils {
         String converted = null;
         if (time != null) {
             try {
-                converted = date24TimeFormat.format(date12TimeFormat.parse(time));
-            } catch (ParseException e) {
-                logger.log(Level.FINE, "%s parse failed, thus returning null.", time);
+                converted = TIME_24.format(LocalTime.parse(time, TIME_12));
+            } catch (DateTimeParseException e) {
+                logger.debug("{} parse failed, thus returning null.", time);
             }
         }
         return converted;
@@ -128,7 +142,7 @@ public class Utils {
             try {
                 outputDate = dateFormat.parse(date);
             } catch (ParseException e) {
-                logger.log(Level.FINE, "%s parse failed, thus returning null.", date);
+                logger.debug("{} parse failed, thus returning null.", date);
             }
         }
         return outputDate;
@@ -175,7 +189,12 @@ public class Utils {
      * @return the Date object, or null if parsing fails
      */
     public static Date parseYearMonthDayTime(String dateTimeString) {
-        return parseStringToDate(dateTimeString, yearMonthDayTimeFormat);
+        try {
+            return DateCodec.parse(dateTimeString);
+        } catch (ParseException e) {
+            logger.debug("{} parse failed, thus returning null.", dateTimeString);
+            return null;
+        }
     }
 
     /**
@@ -186,7 +205,7 @@ public class Utils {
      */
     public static String formatYearMonthDayTime(Date date) {
         if (date == null) return null;
-        return yearMonthDayTimeFormat.format(date);
+        return DateCodec.format(date);
     }
 
     /**
@@ -198,13 +217,7 @@ public class Utils {
      * <code>false</code> otherwise
      */
     public static boolean isValidEmailAddress(String email) {
-        String emailRegex = "^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$";
-
-        Pattern pat = Pattern.compile(emailRegex);
-        if (email == null || email.isEmpty()) {
-            return false;
-        }
-        return pat.matcher(email).matches();
+        return Validators.isValidEmailAddress(email);
     }
 
     /**
@@ -216,12 +229,7 @@ public class Utils {
      * otherwise
      */
     public static boolean isAlpha(String input) {
-        if (input == null) {
-            return false;
-        }
-        // from
-        // https://stackoverflow.com/questions/40764681/java-regex-adding-umlaut-and-other-german-characters-for-first-name
-        return input.matches("(?U)[\\p{L}\\p{M}\\s'-]+");
+        return Validators.isAlpha(input);
     }
 
     /**
@@ -233,7 +241,7 @@ public class Utils {
      * otherwise
      */
     public static boolean isValidPassword(String password) {
-        return password != null && password.length() >= 8;
+        return Validators.isValidPassword(password);
     }
 
     /**
@@ -243,9 +251,7 @@ public class Utils {
      * @return <code>true</code> if it matches a valid format; <code>false</code> otherwise
      */
     public static boolean isValidVehicleRegistrationNumber(String vehicleRegistrationNumber) {
-        // Example: a simple pattern for alphanumeric vehicle registration
-        String pattern = "^[A-Z]{1,2}[- ]?[A-Z0-9]{1,4}[- ]?[A-Z0-9]{1,4}$"; // Simplified EU registration pattern (with the help of ChatGPT)
-        return vehicleRegistrationNumber.matches(pattern);
+        return Validators.isValidVehicleRegistrationNumber(vehicleRegistrationNumber);
     }
 
     /**
@@ -256,8 +262,7 @@ public class Utils {
      * @return <code>true</code> if it matches a valid phone number format; <code>false</code> otherwise
      */
     public static boolean isValidPhoneNumber(String phoneNumber) {
-        String pattern = "^[0-9]{10}$"; // Assumes a 10-digit phone number
-        return phoneNumber.matches(pattern);
+        return Validators.isValidPhoneNumber(phoneNumber);
     }
 
 }
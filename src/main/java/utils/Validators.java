@@ -0,0 +1,153 @@
+package utils;
+
+import java.util.regex.Pattern;
+
+/**
+ * The input validators of sign-up and booking. They run on every request, so
+ * the simple formats are checked with hand-written scanners, which neither
+ * compile a pattern nor allocate, and the others use patterns compiled once. The
+ * accepted inputs are the same as those of the regular expressions the
+ * validators replaced; {@link Utils} delegates here.
+ */
+public final class Validators {
+
+    // from
+    // https://stackoverflow.com/questions/40764681/java-regex-adding-umlaut-and-other-german-characters-for-first-name
+    private static final Pattern ALPHA = Pattern.compile("(?U)[\\p{L}\\p{M}\\s'-]+");
+    // simplified EU registration pattern
+    private static final Pattern VEHICLE_REGISTRATION_NUMBER =
+            Pattern.compile("[A-Z]{1,2}[- ]?[A-Z0-9]{1,4}[- ]?[A-Z0-9]{1,4}");
+    private static final int MIN_PASSWORD_LENGTH = 8;
+    private static final int PHONE_NUMBER_LENGTH = 10;
+    private static final int MIN_TOP_LEVEL_DOMAIN_LENGTH = 2;
+    private static final int MAX_TOP_LEVEL_DOMAIN_LENGTH = 7;
+
+    private Validators() {
+    }
+
+    /**
+     * Checks the format
+     * <code>^[a-zA-Z0-9_+&amp;*-]+(?:\.[a-zA-Z0-9_+&amp;*-]+)*@(?:[a-zA-Z0-9-]+\.)+[a-zA-Z]{2,7}$</code>
+     * in one pass: the local part consists of non-empty dot-separated atoms, the
+     * domain of at least two non-empty labels, the last one being 2 to 7 letters.
+     *
+     * @param email the string to check
+     * @return <code>true</code> if string is a valid email address;
+     * <code>false</code> otherwise
+     */
+    public static boolean isValidEmailAddress(String email) {
+        if (email == null || email.isEmpty()) {
+            return false;
+        }
+        int length = email.length();
+        int i = 0;
+        int atomLength = 0;
+        // local part
+        for (; i < length; i++) {
+            char c = email.charAt(i);
+            if (c == '@') {
+                break;
+            } else if (c == '.') {
+                if (atomLength == 0) {
+                    return false;
+                }
+                atomLength = 0;
+            } else if (isAsciiLetterOrDigit(c) || c == '_' || c == '+' || c == '&' || c == '*' || c == '-') {
+                atomLength++;
+            } else {
+                return false;
+            }
+        }
+        if (i == length || atomLength == 0) {
+            return false;
+        }
+        // domain
+        int labels = 0;
+        int labelLength = 0;
+        boolean lettersOnly = true;
+        for (i++; i < length; i++) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                if (labelLength == 0) {
+                    return false;
+                }
+                labels++;
+                labelLength = 0;
+                lettersOnly = true;
+            } else if (isAsciiLetterOrDigit(c) || c == '-') {
+                labelLength++;
+                lettersOnly &= isAsciiLetter(c);
+            } else {
+                return false;
+            }
+        }
+        return labels > 0 && lettersOnly
+                && labelLength >= MIN_TOP_LEVEL_DOMAIN_LENGTH && labelLength <= MAX_TOP_LEVEL_DOMAIN_LENGTH;
+    }
+
+    /**
+     * Checks if the string contains only alpha characters, that is 1 or more
+     * Unicode letters, diacritics, whitespaces, apostrophes or hyphens.
+     *
+     * @param input the string to check
+     * @return <code>true</code> if string contains only letters; <code>false</code>
+     * otherwise
+     */
+    public static boolean isAlpha(String input) {
+        return input != null && ALPHA.matcher(input).matches();
+    }
+
+    /**
+     * Checks if the string is valid as a password, that means the string is not
+     * null and at least 8 characters long.
+     *
+     * @param password the string to check
+     * @return <code>true</code> if string is a valid password; <code>false</code>
+     * otherwise
+     */
+    public static boolean isValidPassword(String password) {
+        return password != null && password.length() >= MIN_PASSWORD_LENGTH;
+    }
+
+    /**
+     * Checks if the vehicle registration number is in a valid format, e.g.
+     * <b>M-AB 1234</b>.
+     *
+     * @param vehicleRegistrationNumber the vehicle registration number
+     * @return <code>true</code> if it matches a valid format; <code>false</code>
+     * otherwise
+     */
+    public static boolean isValidVehicleRegistrationNumber(String vehicleRegistrationNumber) {
+        return vehicleRegistrationNumber != null
+                && VEHICLE_REGISTRATION_NUMBER.matcher(vehicleRegistrationNumber).matches();
+    }
+
+    /**
+     * Checks if the phone number consists of exactly 10 ASCII digits.
+     *
+     * @param phoneNumber the phone number
+     * @return <code>true</code> if it matches a valid phone number format;
+     * <code>false</code> otherwise
+     */
+    public static boolean isValidPhoneNumber(String phoneNumber) {
+        if (phoneNumber == null || phoneNumber.length() != PHONE_NUMBER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < PHONE_NUMBER_LENGTH; i++) {
+            char c = phoneNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return isAsciiLetter(c) || c >= '0' && c <= '9';
+    }
+
+}
@@ -0,0 +1,176 @@
+package model;
+
+import model.records.Service;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rest_server.Queries;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryDataStoreTest {
+
+    private InMemoryDataStore store;
+
+    @BeforeEach
+    public void setUp() {
+        store = InMemoryDataStore.reservationSystem();
+        insert(DatabaseConnector.WORKSHOPS, new String[]{"name", "location"}, "Main Street", "Berlin");
+        insert(DatabaseConnector.WORKSHOPS, new String[]{"name", "location"}, "Harbour", "Hamburg");
+        insert(DatabaseConnector.SERVICES, new String[]{"name", "duration", "price"}, "Oil change", "30", "59.9");
+        insert(DatabaseConnector.SERVICES, new String[]{"name", "duration", "price"}, "Inspection", "90", "120");
+        insert(DatabaseConnector.WORKSHOP_SERVICES, new String[]{"workshop_id", "service_id"}, "1", "1");
+        insert(DatabaseConnector.WORKSHOP_SERVICES, new String[]{"workshop_id", "service_id"}, "1", "2");
+        insert(DatabaseConnector.WORKSHOP_SERVICES, new String[]{"workshop_id", "service_id"}, "2", "2");
+        insert(DatabaseConnector.TECHNICIANS, new String[]{"name", "workshop_id"}, "Alex", "1");
+        insert(DatabaseConnector.CUSTOMERS, new String[]{"firstName", "lastName", "email", "password", "tokens"},
+                "John", "Doe", "john@example.com", "secret", "10");
+        insert(DatabaseConnector.APPOINTMENTS, new String[]{"customer_id", "workshop_id", "service_id",
+                        "technician_id", "scheduledTime", "paymentMethod"},
+                "1", "1", "2", "1", "2025-01-15 09:00", "Cash");
+    }
+
+    private void insert(String table, String[] columns, String... values) {
+        assertTrue(store.executeInsertQuery(table, columns, values));
+    }
+
+    @Test
+    public void testSelectById() {
+        List<Map<String, Object>> result = store.executeSelectQuery(Queries.WORKSHOP_BY_ID, "2");
+
+        assertEquals(1, result.size());
+        assertEquals("Harbour", result.get(0).get("name"));
+        assertEquals(2, result.get(0).get("id"));
+        assertNull(result.get(0).get("contactInfo"));
+        assertTrue(result.get(0).containsKey("contactInfo"));
+    }
+
+    @Test
+    public void testSelectConvertsColumnTypes() {
+        Map<String, Object> service = store.executeSelectQuery(Queries.ALL_SERVICES).get(0);
+        Map<String, Object> appointment = store.executeSelectQuery(Queries.APPOINTMENT_BY_ID, "1").get(0);
+
+        assertEquals(new BigDecimal("59.90"), service.get("price"));
+        assertEquals(30, service.get("duration"));
+        assertEquals(Timestamp.valueOf("2025-01-15 09:00:00"), appointment.get("scheduledTime"));
+    }
+
+    @Test
+    public void testSelectJoin() {
+        List<Map<String, Object>> services = store.executeSelectQuery(Queries.SERVICES_OF_WORKSHOP, "1");
+        Map<String, Object> details = store.executeSelectQuery(Queries.APPOINTMENT_DETAILS, "1").get(0);
+        List<Map<String, Object>> scheduled = store.executeSelectQuery(Queries.SCHEDULED_SERVICES, "1", "2");
+
+        assertEquals(List.of("Oil change", "Inspection"), List.of(services.get(0).get("name"),
+                services.get(1).get("name")));
+        assertEquals("Main Street", details.get("workshopName"));
+        assertEquals("Inspection", details.get("serviceName"));
+        assertEquals("Alex", details.get("technicianName"));
+        assertEquals(1, details.get("customer_id"));
+        assertEquals(List.of(Map.of("scheduledTime", Timestamp.valueOf("2025-01-15 09:00:00"), "duration", 90)),
+                scheduled);
+    }
+
+    @Test
+    public void testSelectComparesStringsIgnoringCase() {
+        List<Map<String, Object>> result = store.executeSelectQuery(Queries.CUSTOMER_BY_EMAIL, "JOHN@example.com");
+
+        assertEquals(1, result.size());
+        assertEquals("John", result.get(0).get("firstname"));
+        assertEquals(10, result.get(0).get("tokens"));
+    }
+
+    @Test
+    public void testSelectDistinct() {
+        insert(DatabaseConnector.CUSTOMERS, new String[]{"email", "security_question_id", "security_question"},
+                "a@example.com", "1", "First pet?");
+        insert(DatabaseConnector.CUSTOMERS, new String[]{"email", "security_question_id", "security_question"},
+                "b@example.com", "1", "First pet?");
+
+        assertEquals(List.of(Map.of("security_question_id", 1, "security_question", "First pet?")),
+                store.executeSelectQuery(Queries.SECURITY_QUESTIONS));
+    }
+
+    @Test
+    public void testSelectWithInvalidArguments() {
+        assertTrue(store.executeSelectQuery(Queries.WORKSHOP_BY_ID, "abc").isEmpty());
+        assertTrue(store.executeSelectQuery(Queries.WORKSHOP_BY_ID).isEmpty());
+        assertNull(store.executeSelectQuery(new String[]{"*"}, new String[]{"unknown"}, null, null, null));
+    }
+
+    @Test
+    public void testSelectRecords() {
+        List<Service> services = store.executeSelectQuery(RecordMapper.of(Service.class), Queries.ALL_SERVICES);
+
+        assertEquals(new Service(2, "Inspection", 90, new BigDecimal("120.00"), null, null), services.get(1));
+    }
+
+    @Test
+    public void testStreamSelectQuery() {
+        List<Object> names = new ArrayList<>();
+
+        assertTrue(store.streamSelectQuery(Queries.ALL_WORKSHOPS, row -> names.add(row.get("name"))));
+        assertEquals(List.of("Main Street", "Harbour"), names);
+    }
+
+    @Test
+    public void testInsertRejectsDuplicateUniqueValue() {
+        assertFalse(store.executeInsertQuery(DatabaseConnector.CUSTOMERS, new String[]{"email"},
+                new String[]{"John@Example.com"}));
+        assertEquals(1, store.size(DatabaseConnector.CUSTOMERS));
+    }
+
+    @Test
+    public void testConditionalUpdate() {
+        String[] modification = {"tokens = tokens - ?"};
+
+        assertEquals(1, store.executeCountedUpdateQuery(DatabaseConnector.CUSTOMERS, modification,
+                new String[]{"4"}, "id = ? and tokens >= ?", new String[]{"1", "4"}));
+        assertEquals(0, store.executeCountedUpdateQuery(DatabaseConnector.CUSTOMERS, modification,
+                new String[]{"7"}, "id = ? and tokens >= ?", new String[]{"1", "7"}));
+        assertEquals(6, store.executeSelectQuery(Queries.CUSTOMER_TOKENS, "1").get(0).get("tokens"));
+        assertEquals(-1, store.executeCountedUpdateQuery(DatabaseConnector.CUSTOMERS,
+                new String[]{"unknown = ?"}, new String[]{"1"}, "id = ?", new String[]{"1"}));
+    }
+
+    @Test
+    public void testDelete() {
+        assertTrue(store.executeDeleteQuery(DatabaseConnector.WORKSHOP_SERVICES, "workshop_id = ?", new String[]{"1"}));
+
+        assertEquals(1, store.size(DatabaseConnector.WORKSHOP_SERVICES));
+        assertTrue(store.executeSelectQuery(Queries.SERVICES_OF_WORKSHOP, "1").isEmpty());
+    }
+
+    @Test
+    public void testTransactionRollsBack() {
+        boolean committed = store.executeTransaction(() -> {
+            store.executeUpdateQuery(DatabaseConnector.CUSTOMERS, new String[]{"tokens = tokens + ?"},
+                    new String[]{"5"}, "id = ?", new String[]{"1"});
+            store.executeInsertQuery(DatabaseConnector.TOKEN_LEDGER, new String[]{"customer_id", "delta"},
+                    new String[]{"1", "5"});
+            store.executeDeleteQuery(DatabaseConnector.APPOINTMENTS, "id = ?", new String[]{"1"});
+            return false;
+        });
+
+        assertFalse(committed);
+        assertEquals(10, store.executeSelectQuery(Queries.CUSTOMER_TOKENS, "1").get(0).get("tokens"));
+        assertEquals(0, store.size(DatabaseConnector.TOKEN_LEDGER));
+        assertEquals(1, store.executeSelectQuery(Queries.APPOINTMENT_BY_ID, "1").size());
+    }
+
+    @Test
+    public void testTransactionCommits() {
+        long version = TableVersions.of(DatabaseConnector.TOKEN_LEDGER);
+
+        assertTrue(store.executeTransaction(() -> store.executeInsertQuery(DatabaseConnector.TOKEN_LEDGER,
+                new String[]{"customer_id", "delta"}, new String[]{"1", "5"})));
+        assertEquals(1, store.size(DatabaseConnector.TOKEN_LEDGER));
+        assertTrue(TableVersions.of(DatabaseConnector.TOKEN_LEDGER) > version);
+    }
+
+}
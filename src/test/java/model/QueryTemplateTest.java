@@ -0,0 +1,49 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryTemplateTest {
+
+    @Test
+    public void testRenderSql() {
+        QueryTemplate template = QueryTemplate.select("servicesOfWorkshop", "s.*")
+                .from(DatabaseConnector.WORKSHOP_SERVICES, DatabaseConnector.SERVICES).as("ws", "s")
+                .where("ws.workshop_id = ? and ws.service_id = s.id", QueryTemplate.ParameterType.INT)
+                .build();
+
+        assertEquals("SELECT s.* FROM workshop_services as ws, services as s WHERE ws.workshop_id = ? and ws.service_id = s.id",
+                template.getSql());
+        assertEquals(1, template.getParameterCount());
+        assertTrue(QueryTemplates.hasShape(template, new String[]{"s.*"},
+                new String[]{DatabaseConnector.WORKSHOP_SERVICES, DatabaseConnector.SERVICES}, new String[]{"ws", "s"},
+                "ws.workshop_id = ? and ws.service_id = s.id"));
+    }
+
+    @Test
+    public void testRenderSqlWithoutCondition() {
+        QueryTemplate template = QueryTemplate.select("allWorkshops", "*").from(DatabaseConnector.WORKSHOPS).build();
+
+        assertEquals("SELECT * FROM workshops", template.getSql());
+        assertEquals(0, template.getParameterCount());
+    }
+
+    @Test
+    public void testMismatchedParameterCount() {
+        QueryTemplate.Builder builder = QueryTemplate.select("customerByCredentials", "*")
+                .from(DatabaseConnector.CUSTOMERS)
+                .where("email = ? and password = ?", QueryTemplate.ParameterType.STRING);
+
+        assertThrows(IllegalStateException.class, builder::build);
+    }
+
+    @Test
+    public void testMismatchedAliasCount() {
+        QueryTemplate.Builder builder = QueryTemplate.select("scheduledServices", "a.scheduledTime")
+                .from(DatabaseConnector.APPOINTMENTS, DatabaseConnector.SERVICES).as("a");
+
+        assertThrows(IllegalStateException.class, builder::build);
+    }
+
+}
@@ -0,0 +1,54 @@
+package model;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Looks up query templates by the parameters of the untemplated
+ * {@link DatabaseConnector#executeSelectQuery(String[], String[], String[], String, String[])},
+ * so that tests written against it can stub the template the server uses.
+ */
+public final class QueryTemplates {
+
+    private QueryTemplates() {
+    }
+
+    /**
+     * Checks whether the template renders the same statement as
+     * {@link DatabaseConnector#executeSelectQuery(String[], String[], String[], String, String[])}
+     * would with the given parameters.
+     *
+     * @return <code>true</code> if the shape is the same
+     */
+    public static boolean hasShape(QueryTemplate template, String[] selection, String[] tables, String[] tableAlias,
+                                   String condition) {
+        return Arrays.equals(template.selection(), selection) && Arrays.equals(template.getTables(), tables)
+                && Arrays.equals(template.tableAlias(), tableAlias) && Objects.equals(template.condition(), condition);
+    }
+
+    /**
+     * Finds the template among the public constants of the given class that has
+     * the given shape.
+     *
+     * @return the template; <code>null</code> if there is none with this shape
+     */
+    public static QueryTemplate find(Class<?> constants, String[] selection, String[] tables, String[] tableAlias,
+                                     String condition) {
+        for (Field field : constants.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == QueryTemplate.class) {
+                try {
+                    QueryTemplate template = (QueryTemplate) field.get(null);
+                    if (hasShape(template, selection, tables, tableAlias, condition)) {
+                        return template;
+                    }
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,89 @@
+package model;
+
+import model.records.Service;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RecordMapperTest {
+
+    private ResultSet mockResultSet(String[] labels, int rows) throws SQLException {
+        ResultSetMetaData meta = mock(ResultSetMetaData.class);
+        when(meta.getColumnCount()).thenReturn(labels.length);
+        for (int i = 0; i < labels.length; i++) {
+            when(meta.getColumnLabel(i + 1)).thenReturn(labels[i]);
+        }
+        ResultSet result = mock(ResultSet.class);
+        when(result.getMetaData()).thenReturn(meta);
+        // next() returns true once per row, then false
+        Boolean[] following = new Boolean[rows];
+        Arrays.fill(following, true);
+        if (rows > 0) {
+            following[rows - 1] = false;
+        }
+        when(result.next()).thenReturn(rows > 0, following);
+        return result;
+    }
+
+    @Test
+    public void testMapAllColumns() throws SQLException {
+        ResultSet result = mockResultSet(new String[]{"id", "name", "duration", "price", "description", "promotion_id"}, 1);
+        when(result.getInt(1)).thenReturn(7);
+        when(result.getString(2)).thenReturn("Oil change");
+        when(result.getInt(3)).thenReturn(45);
+        when(result.getBigDecimal(4)).thenReturn(new BigDecimal("59.90"));
+        when(result.getString(5)).thenReturn("Engine oil and filter");
+        when(result.getInt(6)).thenReturn(0);
+        when(result.wasNull()).thenReturn(true);
+
+        List<Service> services = RecordMapper.of(Service.class).map(result);
+
+        assertEquals(List.of(new Service(7, "Oil change", 45, new BigDecimal("59.90"), "Engine oil and filter", null)),
+                services);
+    }
+
+    @Test
+    public void testMapSelectedColumnsIgnoringCase() throws SQLException {
+        ResultSet result = mockResultSet(new String[]{"DURATION"}, 2);
+        when(result.getInt(1)).thenReturn(30, 90);
+
+        List<Service> services = RecordMapper.of(Service.class).map(result);
+
+        assertEquals(2, services.size());
+        assertEquals(30, services.get(0).duration());
+        assertEquals(90, services.get(1).duration());
+        assertNull(services.get(0).name());
+    }
+
+    @Test
+    public void testMapEmptyResult() throws SQLException {
+        ResultSet result = mockResultSet(new String[]{"id"}, 0);
+
+        assertTrue(RecordMapper.of(Service.class).map(result).isEmpty());
+    }
+
+    @Test
+    public void testMapRows() {
+        Map<String, Object> row = new HashMap<>();
+        row.put("ID", 3);
+        row.put("duration", 60L);
+        row.put("price", new BigDecimal("80.00"));
+        row.put("promotion_id", null);
+
+        List<Service> services = RecordMapper.of(Service.class).map(List.of(row));
+
+        assertEquals(List.of(new Service(3, null, 60, new BigDecimal("80.00"), null, null)), services);
+    }
+
+}
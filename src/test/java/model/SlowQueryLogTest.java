@@ -0,0 +1,89 @@
+package model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SlowQueryLogTest {
+
+    private final List<String> entries = new ArrayList<>();
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            entries.add(record.getMessage());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @BeforeEach
+    public void setUp() {
+        entries.clear();
+    }
+
+    @Test
+    public void testThreshold() {
+        SlowQueryLog log = new SlowQueryLog(100, false, handler);
+
+        assertFalse(log.isSlow(99_999_999));
+        assertTrue(log.isSlow(100_000_000));
+        assertFalse(new SlowQueryLog(-1, false, handler).isSlow(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testRecord() {
+        SlowQueryLog log = new SlowQueryLog(100, false, handler);
+
+        log.record("SELECT * FROM appointments WHERE customer_id = ?", 1, 123_456_789, null);
+
+        assertEquals(List.of("123.5 ms | 1 arg | SELECT * FROM appointments WHERE customer_id = ?"), entries);
+    }
+
+    @Test
+    public void testExplainOncePerShape() {
+        String sql = "SELECT * FROM customers WHERE email = ?";
+
+        assertFalse(new SlowQueryLog(100, false, handler).shouldExplain(sql));
+        SlowQueryLog log = new SlowQueryLog(100, true, handler);
+        assertTrue(log.shouldExplain(sql));
+        assertFalse(log.shouldExplain(sql));
+        assertTrue(log.shouldExplain("SELECT * FROM workshops"));
+    }
+
+    @Test
+    public void testPlan() {
+        Map<String, Object> scan = new HashMap<>();
+        scan.put("id", 1);
+        scan.put("table", "appointments");
+        scan.put("type", "ALL");
+        scan.put("key", null);
+        scan.put("rows", 48213);
+        Map<String, Object> lookup = new HashMap<>();
+        lookup.put("table", "workshops");
+        lookup.put("type", "eq_ref");
+        lookup.put("key", "PRIMARY");
+        List<Map<String, Object>> plan = List.of(scan, lookup);
+
+        assertEquals(List.of("appointments"), SlowQueryLog.fullScans(plan));
+        assertEquals("table=appointments type=ALL key=null rows=48213" + System.lineSeparator()
+                + "            table=workshops type=eq_ref key=PRIMARY", SlowQueryLog.formatPlan(plan));
+
+        new SlowQueryLog(100, true, handler).record("SELECT ...", 0, 200_000_000, plan);
+        assertTrue(entries.get(0).contains("    EXPLAIN table=appointments type=ALL"));
+    }
+
+}
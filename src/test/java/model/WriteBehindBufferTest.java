@@ -0,0 +1,194 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rest_server.Queries;
+
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteBehindBufferTest {
+
+    private InMemoryDataStore store;
+    private WriteBehindBuffer buffer;
+
+    @BeforeEach
+    public void setUp() {
+        store = InMemoryDataStore.reservationSystem();
+        for (String email : new String[]{"john@example.com", "jane@example.com"}) {
+            assertTrue(store.executeInsertQuery(DatabaseConnector.CUSTOMERS,
+                    new String[]{"firstName", "lastName", "email", "password", "tokens"},
+                    new String[]{"John", "Doe", email, "secret", "10"}));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (buffer != null) {
+            buffer.close();
+        }
+    }
+
+    private static WriteBehindBuffer.DeferredWrite credit(String id, int delta) {
+        return WriteBehindBuffer.increment(DatabaseConnector.CUSTOMERS, "tokens", "id", id, delta);
+    }
+
+    // fails on its own, since the customer does not exist
+    private static WriteBehindBuffer.DeferredWrite creditOfMissingCustomer() {
+        return WriteBehindBuffer.increment(DatabaseConnector.CUSTOMERS, "tokens", "id", "99", 1,
+                DatabaseConnector.TOKEN_LEDGER, new String[]{"customer_id", "delta"}, new String[]{"99", "1"});
+    }
+
+    private int tokens(String id) {
+        return (Integer) store.executeSelectQuery(Queries.CUSTOMER_TOKENS, id).get(0).get("tokens");
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testIncrementsOfSameRowAreMerged() {
+        buffer = new WriteBehindBuffer(store, 100, 1000, 60_000);
+
+        assertTrue(buffer.submit(credit("1", 1)));
+        assertTrue(buffer.submit(credit("1", 2)));
+        assertTrue(buffer.submit(credit("2", 5)));
+
+        assertEquals(2, buffer.pendingCount());
+        assertEquals(3, buffer.pendingIncrement(DatabaseConnector.CUSTOMERS, "tokens", "id", "1"));
+        assertEquals(10, tokens("1"));
+
+        assertTrue(buffer.flush());
+        assertEquals(0, buffer.pendingCount());
+        assertEquals(13, tokens("1"));
+        assertEquals(15, tokens("2"));
+    }
+
+    @Test
+    public void testEntriesAreWrittenWithTheirIncrement() {
+        buffer = new WriteBehindBuffer(store, 100, 1000, 60_000);
+        String[] columns = {"customer_id", "delta"};
+
+        buffer.submit(WriteBehindBuffer.increment(DatabaseConnector.CUSTOMERS, "tokens", "id", "1", 1,
+                DatabaseConnector.TOKEN_LEDGER, columns, new String[]{"1", "1"}));
+        buffer.submit(WriteBehindBuffer.increment(DatabaseConnector.CUSTOMERS, "tokens", "id", "1", 2,
+                DatabaseConnector.TOKEN_LEDGER, columns, new String[]{"1", "2"}));
+
+        assertEquals(1, buffer.pendingCount());
+        assertTrue(buffer.flush());
+        assertEquals(13, tokens("1"));
+        assertEquals(2, store.size(DatabaseConnector.TOKEN_LEDGER));
+    }
+
+    @Test
+    public void testFullBatchIsFlushed() throws Exception {
+        buffer = new WriteBehindBuffer(store, 2, 1000, 60_000);
+
+        buffer.submit(credit("1", 1));
+        assertEquals(1, buffer.pendingCount());
+        buffer.submit(credit("2", 1));
+
+        await(() -> buffer.pendingCount() == 0 && tokens("2") == 11);
+        assertEquals(11, tokens("1"));
+    }
+
+    @Test
+    public void testFlushedAfterInterval() throws Exception {
+        buffer = new WriteBehindBuffer(store, 100, 1000, 20);
+
+        buffer.submit(credit("1", 4));
+
+        await(() -> tokens("1") == 14);
+        assertEquals(0, buffer.pendingCount());
+    }
+
+    @Test
+    public void testWriteFailingOnItsOwnIsDropped() {
+        buffer = new WriteBehindBuffer(store, 100, 1000, 60_000);
+
+        buffer.submit(creditOfMissingCustomer());
+        buffer.submit(credit("1", 1));
+        buffer.submit(credit("2", 2));
+
+        assertTrue(buffer.flush());
+        assertEquals(1, buffer.droppedCount());
+        assertEquals(0, buffer.pendingCount());
+        assertEquals(11, tokens("1"));
+        assertEquals(12, tokens("2"));
+    }
+
+    @Test
+    public void testBatchIsQueuedAgainIfNothingSucceeds() {
+        buffer = new WriteBehindBuffer(store, 100, 1000, 60_000);
+        buffer.submit(creditOfMissingCustomer());
+
+        assertFalse(buffer.flush());
+        assertEquals(1, buffer.pendingCount());
+        assertEquals(0, buffer.droppedCount());
+
+        // once other writes get through, the write is known to fail on its own
+        buffer.submit(credit("1", 1));
+        assertTrue(buffer.flush());
+        assertEquals(1, buffer.droppedCount());
+        assertEquals(11, tokens("1"));
+    }
+
+    @Test
+    public void testFullBacklogRejectsNewWrites() {
+        buffer = new WriteBehindBuffer(store, 100, 2, 60_000);
+
+        assertTrue(buffer.submit(credit("1", 1)));
+        assertTrue(buffer.submit(credit("2", 1)));
+        assertFalse(buffer.submit(creditOfMissingCustomer()));
+        // merged into a pending write, so the backlog does not grow
+        assertTrue(buffer.submit(credit("1", 1)));
+
+        assertEquals(2, buffer.pendingCount());
+        assertEquals(2, buffer.pendingIncrement(DatabaseConnector.CUSTOMERS, "tokens", "id", "1"));
+    }
+
+    @Test
+    public void testEntriesCountTowardTheBacklog() {
+        buffer = new WriteBehindBuffer(store, 100, 3, 60_000);
+        String[] columns = {"customer_id", "delta"};
+
+        // the increment and its entry
+        assertTrue(buffer.submit(WriteBehindBuffer.increment(DatabaseConnector.CUSTOMERS, "tokens", "id", "1", 1,
+                DatabaseConnector.TOKEN_LEDGER, columns, new String[]{"1", "1"})));
+        assertEquals(2, buffer.backlog());
+        assertTrue(buffer.submit(WriteBehindBuffer.increment(DatabaseConnector.CUSTOMERS, "tokens", "id", "1", 2,
+                DatabaseConnector.TOKEN_LEDGER, columns, new String[]{"1", "2"})));
+        assertEquals(3, buffer.backlog());
+        // merged into a pending write, but adds another entry
+        assertFalse(buffer.submit(WriteBehindBuffer.increment(DatabaseConnector.CUSTOMERS, "tokens", "id", "1", 4,
+                DatabaseConnector.TOKEN_LEDGER, columns, new String[]{"1", "4"})));
+
+        assertEquals(1, buffer.pendingCount());
+        assertEquals(3, buffer.pendingIncrement(DatabaseConnector.CUSTOMERS, "tokens", "id", "1"));
+        assertTrue(buffer.flush());
+        assertEquals(0, buffer.backlog());
+        assertEquals(13, tokens("1"));
+        assertEquals(2, store.size(DatabaseConnector.TOKEN_LEDGER));
+    }
+
+    @Test
+    public void testCloseFlushesPendingWrites() {
+        buffer = new WriteBehindBuffer(store, 100, 1000, 60_000);
+        buffer.submit(credit("1", 3));
+
+        buffer.close();
+
+        assertEquals(13, tokens("1"));
+        // written through after close
+        assertTrue(buffer.submit(credit("1", 1)));
+        assertEquals(14, tokens("1"));
+    }
+
+}
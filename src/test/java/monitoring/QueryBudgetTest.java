@@ -0,0 +1,38 @@
+package monitoring;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryBudgetTest {
+
+    @AfterEach
+    public void tearDown() {
+        RequestContext.clear();
+    }
+
+    @Test
+    public void testParse() {
+        QueryBudget budget = QueryBudget.parse("8, POST  /appointment/create=6,GET /workshops=1,GET /x=abc");
+
+        assertEquals(8, budget.of("GET", "/services"));
+        assertEquals(6, budget.of("POST", "/appointment/create"));
+        assertEquals(1, budget.of("GET", "/workshops"));
+        assertEquals(8, budget.of("GET", "/x"));
+        assertEquals(QueryBudget.DEFAULT_BUDGET, QueryBudget.parse(null).of("GET", "/workshops"));
+    }
+
+    @Test
+    public void testCheck() {
+        QueryBudget budget = QueryBudget.parse("2");
+        RequestContext context = RequestContext.begin();
+        RequestContext.recordStatement("workshopById", 1_000);
+        RequestContext.recordStatement("workshopById", 1_000);
+
+        assertTrue(budget.check("GET", "/workshops", context));
+        RequestContext.recordStatement("servicesOfWorkshop", 1_000);
+        assertFalse(budget.check("GET", "/workshops", context));
+    }
+
+}
@@ -0,0 +1,50 @@
+package monitoring;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import model.DataStore;
+import model.InMemoryDataStore;
+import org.junit.jupiter.api.Test;
+import rest_server.Queries;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryEventTest {
+
+    @Test
+    public void testStatementsAreRecorded() throws Exception {
+        DataStore store = new ObservedDataStore(InMemoryDataStore.reservationSystem());
+        Path file = Files.createTempFile("queries", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(QueryEvent.class);
+            recording.start();
+            store.executeInsertQuery("workshops", new String[]{"name"}, new String[]{"Main Street"});
+            store.executeInsertQuery("workshops", new String[]{"name"}, new String[]{"Harbour"});
+            store.executeSelectQuery(Queries.ALL_WORKSHOPS);
+            store.streamSelectQuery(Queries.ALL_WORKSHOPS, row -> {
+            });
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals("carworkshop.Query"))
+                    .toList();
+
+            assertEquals(4, events.size());
+            assertEquals("insert:workshops", events.get(0).getString("query"));
+            assertEquals(1, events.get(0).getInt("rows"));
+            assertEquals(Queries.ALL_WORKSHOPS.getName(), events.get(2).getString("query"));
+            assertEquals(2, events.get(2).getInt("rows"));
+            assertEquals(2, events.get(3).getInt("rows"));
+            assertFalse(events.get(3).getBoolean("failed"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+}
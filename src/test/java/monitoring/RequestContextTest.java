@@ -0,0 +1,78 @@
+package monitoring;
+
+import model.DataStore;
+import model.InMemoryDataStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import rest_server.Queries;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestContextTest {
+
+    private final DataStore store = new ObservedDataStore(InMemoryDataStore.reservationSystem());
+
+    @AfterEach
+    public void tearDown() {
+        RequestContext.clear();
+    }
+
+    @Test
+    public void testStatementsAreAttributedToCurrentRequest() {
+        RequestContext context = RequestContext.begin();
+
+        store.executeSelectQuery(Queries.WORKSHOP_BY_ID, "1");
+        store.executeSelectQuery(Queries.WORKSHOP_BY_ID, "2");
+        store.executeInsertQuery("workshops", new String[]{"name"}, new String[]{"Main Street"});
+
+        assertEquals(3, context.queryCount());
+        assertTrue(context.queryNanos() > 0);
+        assertEquals(Map.of(Queries.WORKSHOP_BY_ID.getName(), 2, "insert:workshops", 1), context.queryShapes());
+        assertEquals(Queries.WORKSHOP_BY_ID.getName(), context.queryShapes().keySet().iterator().next());
+    }
+
+    @Test
+    public void testStatementsWithoutRequestAreNotAttributed() {
+        RequestContext previous = RequestContext.begin();
+        RequestContext.clear();
+
+        store.executeSelectQuery(Queries.ALL_WORKSHOPS);
+
+        assertNull(RequestContext.current());
+        assertEquals(0, previous.queryCount());
+    }
+
+    @Test
+    public void testRequestIdIsTakenFromClientIfValid() {
+        assertEquals("abc-123.X_y", RequestContext.begin("abc-123.X_y").requestId());
+
+        String generated = RequestContext.begin("bad id\nrequestId=forged").requestId();
+        assertFalse(generated.contains("forged"));
+        assertFalse(RequestContext.begin(null).requestId().isEmpty());
+        assertNotEquals(RequestContext.begin().requestId(), RequestContext.begin().requestId());
+    }
+
+    @Test
+    public void testContextIsPropagatedToExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            RequestContext context = RequestContext.begin();
+
+            CompletableFuture.runAsync(() -> store.executeSelectQuery(Queries.ALL_SERVICES),
+                    RequestContext.propagating(executor)).get();
+            RequestContext.clear();
+            // the executor thread does not keep the context of the finished task
+            assertNull(CompletableFuture.supplyAsync(RequestContext::current, executor).get());
+
+            assertEquals(1, context.queryCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
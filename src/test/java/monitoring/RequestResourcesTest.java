@@ -0,0 +1,90 @@
+package monitoring;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestResourcesTest {
+
+    // keeps the allocations from being optimized away
+    private static volatile byte[] sink;
+
+    @Test
+    public void testMeasuresCurrentThread() {
+        RequestResources resources = new RequestResources();
+
+        resources.start();
+        sink = new byte[1 << 20];
+        resources.stop();
+
+        assertTrue(resources.allocatedBytes() >= 1 << 20);
+        assertTrue(resources.cpuNanos() >= 0);
+    }
+
+    @Test
+    public void testFinishIncludesThreadsStillMeasured() throws Exception {
+        RequestResources resources = new RequestResources();
+        CountDownLatch allocated = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        Thread worker = new Thread(() -> {
+            resources.start();
+            sink = new byte[2 << 20];
+            allocated.countDown();
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        worker.start();
+        try {
+            allocated.await();
+            resources.finish();
+        } finally {
+            finished.countDown();
+            worker.join();
+        }
+
+        long bytes = resources.allocatedBytes();
+        assertTrue(bytes >= 2 << 20);
+        // a finished measurement does not start again
+        resources.start();
+        sink = new byte[1 << 20];
+        resources.stop();
+        assertEquals(bytes, resources.allocatedBytes());
+    }
+
+    @Test
+    public void testStoppedThreadIsNotCountedByFinish() throws Exception {
+        RequestResources resources = new RequestResources();
+        CountDownLatch handedOff = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        Thread worker = new Thread(() -> {
+            resources.start();
+            sink = new byte[1 << 20];
+            // like the request thread of an async route once the endpoint returned
+            resources.stop();
+            sink = new byte[4 << 20];
+            handedOff.countDown();
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        worker.start();
+        try {
+            handedOff.await();
+            resources.finish();
+        } finally {
+            finished.countDown();
+            worker.join();
+        }
+
+        assertTrue(resources.allocatedBytes() >= 1 << 20);
+        assertTrue(resources.allocatedBytes() < 4 << 20);
+    }
+
+}
@@ -0,0 +1,89 @@
+package monitoring;
+
+import model.InMemoryDataStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServerMetricsTest {
+
+    @BeforeEach
+    public void setUp() {
+        ServerMetrics.reset();
+    }
+
+    @Test
+    public void testRequestHistogramIsCumulative() {
+        ServerMetrics.recordRequest("GET", "/workshops", 200, 300_000);
+        ServerMetrics.recordRequest("GET", "/workshops", 200, 2_000_000);
+        ServerMetrics.recordRequest("GET", "/workshops", 304, 20_000_000_000L);
+
+        String text = ServerMetrics.scrape();
+
+        assertTrue(text.contains("# TYPE http_request_duration_seconds histogram\n"));
+        assertTrue(text.contains("http_requests_total{method=\"GET\",route=\"/workshops\",status=\"200\"} 2\n"));
+        assertTrue(text.contains("http_requests_total{method=\"GET\",route=\"/workshops\",status=\"304\"} 1\n"));
+        assertTrue(text.contains("http_request_duration_seconds_bucket{method=\"GET\",route=\"/workshops\","
+                + "le=\"0.0005\"} 1\n"));
+        assertTrue(text.contains("http_request_duration_seconds_bucket{method=\"GET\",route=\"/workshops\","
+                + "le=\"0.0025\"} 2\n"));
+        assertTrue(text.contains("http_request_duration_seconds_bucket{method=\"GET\",route=\"/workshops\","
+                + "le=\"10\"} 2\n"));
+        assertTrue(text.contains("http_request_duration_seconds_bucket{method=\"GET\",route=\"/workshops\","
+                + "le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("http_request_duration_seconds_sum{method=\"GET\",route=\"/workshops\"} 20.0023\n"));
+        assertTrue(text.contains("http_request_duration_seconds_count{method=\"GET\",route=\"/workshops\"} 3\n"));
+    }
+
+    @Test
+    public void testRequestResourcesAreSummedPerRoute() {
+        assertFalse(ServerMetrics.scrape().contains("http_request_allocated_bytes_total"));
+
+        ServerMetrics.recordRequestResources("GET", "/workshops", 40_000, 1_500_000);
+        ServerMetrics.recordRequestResources("GET", "/workshops", 60_000, 500_000);
+        ServerMetrics.recordRequestResources("POST", "/appointment/create", -1, -1);
+
+        String text = ServerMetrics.scrape();
+
+        assertTrue(text.contains("http_request_allocated_bytes_total{method=\"GET\",route=\"/workshops\"} 100000\n"));
+        assertTrue(text.contains("http_request_cpu_seconds_total{method=\"GET\",route=\"/workshops\"} 0.002\n"));
+        assertFalse(text.contains("/appointment/create"));
+    }
+
+    @Test
+    public void testCacheLookupsAndGauges() {
+        ServerMetrics.recordCacheLookup("catalog", true);
+        ServerMetrics.recordCacheLookup("catalog", true);
+        ServerMetrics.recordCacheLookup("catalog", false);
+        ServerMetrics.gauge("jetty_threads_busy", "Busy threads.", () -> 3);
+
+        String text = ServerMetrics.scrape();
+
+        assertTrue(text.contains("cache_lookups_total{cache=\"catalog\",result=\"hit\"} 2\n"));
+        assertTrue(text.contains("cache_lookups_total{cache=\"catalog\",result=\"miss\"} 1\n"));
+        assertTrue(text.contains("# TYPE jetty_threads_busy gauge\njetty_threads_busy 3\n"));
+    }
+
+    @Test
+    public void testEscapeLabelValue() {
+        assertEquals("/a", ServerMetrics.escape("/a"));
+        assertEquals("a\\\"b\\\\c\\nd", ServerMetrics.escape("a\"b\\c\nd"));
+    }
+
+    @Test
+    public void testObservedDataStoreRecordsStatements() {
+        ObservedDataStore store = new ObservedDataStore(InMemoryDataStore.reservationSystem());
+
+        assertTrue(store.executeInsertQuery("workshops", new String[]{"name"}, new String[]{"Main Street"}));
+        assertFalse(store.executeInsertQuery("unknown", new String[]{"name"}, new String[]{"x"}));
+
+        String text = ServerMetrics.scrape();
+
+        assertTrue(text.contains("db_statement_duration_seconds_count{query=\"insert:workshops\"} 1\n"));
+        assertTrue(text.contains("db_statement_errors_total{query=\"insert:unknown\"} 1\n"));
+        assertFalse(text.contains("db_statement_errors_total{query=\"insert:workshops\"}"));
+        assertTrue(text.contains("db_statements_in_flight 0\n"));
+    }
+
+}
@@ -0,0 +1,68 @@
+package monitoring;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StackSamplerTest {
+
+    private static volatile boolean spinning;
+    // keeps the loop from being optimized away
+    private static volatile long sink;
+
+    @Test
+    public void testCollapseFromEntryPointWithState() {
+        StackTraceElement[] frames = {
+                new StackTraceElement("model.DatabaseConnector", "executeSelectQuery", null, 1),
+                new StackTraceElement("rest_server.RestServer", "lambda$defineRoutes$3", null, 2),
+                new StackTraceElement("java.lang.Thread", "run", null, 3)};
+
+        assertEquals("java.lang.Thread.run;rest_server.RestServer.lambda$defineRoutes$3;"
+                + "model.DatabaseConnector.executeSelectQuery", StackSampler.collapse(frames, Thread.State.RUNNABLE));
+        assertEquals("java.lang.Thread.run;rest_server.RestServer.lambda$defineRoutes$3;"
+                        + "model.DatabaseConnector.executeSelectQuery;[BLOCKED]",
+                StackSampler.collapse(frames, Thread.State.BLOCKED));
+    }
+
+    @Test
+    public void testIdleThreadsAreLeftOut() {
+        StackTraceElement[] frames = {
+                new StackTraceElement("jdk.internal.misc.Unsafe", "park", null, 1),
+                new StackTraceElement("java.util.concurrent.ThreadPoolExecutor", "getTask", null, 2),
+                new StackTraceElement("java.lang.Thread", "run", null, 3)};
+
+        assertNull(StackSampler.collapse(frames, Thread.State.WAITING));
+    }
+
+    @Test
+    public void testSamplesOnlyNamedThreads() throws Exception {
+        spinning = true;
+        Thread busy = new Thread(StackSamplerTest::spin, "sampled-worker-1");
+        busy.start();
+        try {
+            String stacks = new StackSampler(List.of("sampled-worker-")).sample(1, 10);
+
+            assertFalse(stacks.isEmpty());
+            for (String line : stacks.split("\n")) {
+                assertTrue(line.contains("monitoring.StackSamplerTest.spin"), line);
+                assertTrue(line.matches(".* \\d+"), line);
+            }
+            assertThrows(IllegalArgumentException.class, () -> new StackSampler(List.of()).sample(0, 10));
+            assertThrows(IllegalArgumentException.class, () -> new StackSampler(List.of()).sample(1, 1));
+        } finally {
+            spinning = false;
+            busy.join();
+        }
+    }
+
+    private static void spin() {
+        long sum = 0;
+        while (spinning) {
+            sum += System.nanoTime();
+        }
+        sink = sum;
+    }
+
+}
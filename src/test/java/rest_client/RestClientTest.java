@@ -3,6 +3,7 @@ package rest_client;
 import com.google.gson.JsonObject;
 import kong.unirest.*;
 import model.User;
+import model.records.Technician;
 import org.junit.Before;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -466,6 +467,81 @@ public void testRequestAllServicesOfWorkshopStatus400() {
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    public void testRequestTechniciansStatus200() {
+        int workshop_id = 41;
+
+        when(Unirest.get("/technicians")).thenReturn(getRequest);
+        when(getRequest.queryString(StringNames.workshop_id, workshop_id)).thenReturn(getRequest);
+        when(getRequest.asJson()).thenReturn(httpResponse);
+        when(httpResponse.getStatus()).thenReturn(200);
+        when(httpResponse.getBody()).thenReturn(value);
+        when(value.toString()).thenReturn("[{\"id\":1,\"name\":\"John Smith\",\"certifications\":\"ASE Certified\",\"experience\":5}]");
+
+        List<Technician> result = client.requestTechnicians(workshop_id);
+
+        assertEquals(List.of(new Technician(1, "John Smith", "ASE Certified", 5)), result);
+    }
+
+    @Test
+    public void testRequestTechniciansStatus400() {
+        int workshop_id = 41;
+
+        when(Unirest.get("/technicians")).thenReturn(getRequest);
+        when(getRequest.queryString(StringNames.workshop_id, workshop_id)).thenReturn(getRequest);
+        when(getRequest.asJson()).thenReturn(httpResponse);
+        when(httpResponse.getStatus()).thenReturn(400);
+
+        assertTrue(client.requestTechnicians(workshop_id).isEmpty());
+    }
+
+    @Test
+    public void testRequestTechniciansStatus304UsesCachedBody() {
+        int workshop_id = 42;
+        Headers headers = new Headers();
+        headers.add("ETag", "\"v1\"");
+
+        when(Unirest.get("/technicians")).thenReturn(getRequest);
+        when(getRequest.queryString(StringNames.workshop_id, workshop_id)).thenReturn(getRequest);
+        when(getRequest.asJson()).thenReturn(httpResponse);
+        when(httpResponse.getStatus()).thenReturn(200);
+        when(httpResponse.getHeaders()).thenReturn(headers);
+        when(httpResponse.getBody()).thenReturn(value);
+        when(value.toString()).thenReturn("[{\"id\":2,\"name\":\"Jane Doe\",\"certifications\":\"Master\",\"experience\":8}]");
+        List<Technician> first = client.requestTechnicians(workshop_id);
+
+        // the server confirms the cached copy without sending a body
+        when(httpResponse.getStatus()).thenReturn(304);
+        when(httpResponse.getBody()).thenReturn(null);
+        List<Technician> second = client.requestTechnicians(workshop_id);
+
+        verify(getRequest).header("If-None-Match", "\"v1\"");
+        assertEquals(first, second);
+        assertEquals("Jane Doe", second.get(0).name());
+    }
+
+    @Test
+    public void testRequestTechniciansSharesCachedBody() {
+        int workshop_id = 43;
+        Headers headers = new Headers();
+        headers.add("ETag", "\"v1\"");
+
+        when(Unirest.get("/technicians")).thenReturn(getRequest);
+        when(getRequest.queryString(StringNames.workshop_id, workshop_id)).thenReturn(getRequest);
+        when(getRequest.asJson()).thenReturn(httpResponse);
+        when(httpResponse.getStatus()).thenReturn(200);
+        when(httpResponse.getHeaders()).thenReturn(headers);
+        when(httpResponse.getBody()).thenReturn(value);
+        when(value.toString()).thenReturn("[{\"id\":3,\"name\":\"Max Power\",\"certifications\":\"ASE Certified\",\"experience\":2}]");
+        client.requestTechniciansForService(workshop_id);
+
+        when(httpResponse.getStatus()).thenReturn(304);
+        when(httpResponse.getBody()).thenReturn(null);
+        List<Technician> result = client.requestTechnicians(workshop_id);
+
+        assertEquals(List.of(new Technician(3, "Max Power", "ASE Certified", 2)), result);
+    }
+
     @Test
     public void testGetSecurityQuestionsStatus200() {
         // Tests retrieving security questions for user registration
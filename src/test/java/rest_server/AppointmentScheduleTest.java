@@ -0,0 +1,38 @@
+package rest_server;
+
+import org.junit.jupiter.api.Test;
+import utils.DateCodec;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AppointmentScheduleTest {
+
+    @Test
+    public void testAvailableSlots() {
+        AppointmentSchedule schedule = AppointmentSchedule.of(List.of(
+                Map.of("scheduledTime", Timestamp.valueOf("2025-01-15 10:00:00"), "duration", 60),
+                Map.of("scheduledTime", "2025-01-15 14:00", "duration", 30)));
+
+        List<String> slots = schedule.availableSlots(DateCodec.parseEpochMinutes("2025-01-15 12:34"), 120);
+
+        // 09:00 and 13:00 overlap, 11:00 touches the end of the first appointment
+        assertEquals(List.of("2025-01-15 15:00"), slots);
+    }
+
+    @Test
+    public void testConflicts() {
+        AppointmentSchedule schedule = AppointmentSchedule.of(List.of(
+                Map.of("scheduledTime", "2025-01-15 10:00", "duration", 60)));
+
+        assertTrue(schedule.conflicts(DateCodec.parseEpochMinutes("2025-01-15 10:30"), 15));
+        // ranges include both ends
+        assertTrue(schedule.conflicts(DateCodec.parseEpochMinutes("2025-01-15 11:00"), 15));
+        assertFalse(schedule.conflicts(DateCodec.parseEpochMinutes("2025-01-15 11:01"), 15));
+        assertFalse(schedule.conflicts(DateCodec.parseEpochMinutes("2025-01-15 08:00"), 59));
+    }
+
+}
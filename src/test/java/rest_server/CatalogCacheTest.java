@@ -0,0 +1,40 @@
+package rest_server;
+
+import model.TableVersions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogCacheTest {
+
+    @Test
+    public void testAcceptsGzip() {
+        assertTrue(CatalogCache.acceptsGzip("gzip, deflate"));
+        assertTrue(CatalogCache.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertFalse(CatalogCache.acceptsGzip("gzip;q=0"));
+        assertFalse(CatalogCache.acceptsGzip("deflate, br"));
+        assertFalse(CatalogCache.acceptsGzip(null));
+    }
+
+    @Test
+    public void testEntryIsStaleAfterTableChange() throws IOException {
+        CatalogCache cache = new CatalogCache();
+        String table = "catalog_cache_test";
+        long version = cache.version(table);
+        CatalogCache.Entry entry = cache.put("test", version, "[{\"id\":1}]");
+
+        assertSame(entry, cache.get("test", table));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(entry.gzip()))) {
+            assertEquals("[{\"id\":1}]", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        TableVersions.bump(table);
+        assertNull(cache.get("test", table));
+    }
+
+}
@@ -3,17 +3,31 @@ package rest_server;
 import kong.unirest.HttpResponse;
 import kong.unirest.JsonNode;
 import kong.unirest.Unirest;
+import kong.unirest.UnirestException;
 import model.DatabaseConnector;
+import model.InMemoryDataStore;
+import model.QueryTemplate;
+import model.QueryTemplates;
+import model.TableVersions;
+import model.WriteBehindBuffer;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import utils.BinaryRows;
 import utils.StringNames;
 import rest_server.DataValidation;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.function.BooleanSupplier;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class RestServerTest {
@@ -79,6 +93,7 @@ public class RestServerTest {
         // specify when-then-return structure
         when(mockDbConn.executeSelectQuery(projection, tables, tableAlias, selection, selectionArgs))
                 .thenReturn(outList);
+        stubQueryTemplate(mockDbConn, projection, tables, tableAlias, selection, selectionArgs, outList);
 
         // assign mock database connection to server
         restServer.setDbConnectorAndDataValidator(mockDbConn);
@@ -126,6 +141,7 @@ public class RestServerTest {
         // specify when-then-return structure
         when(mockDbConn.executeSelectQuery(projection, tables, tableAlias, selection, selectionArgs))
                 .thenReturn(outList);
+        stubQueryTemplate(mockDbConn, projection, tables, tableAlias, selection, selectionArgs, outList);
     }
 
     /**
@@ -209,6 +225,21 @@ public class RestServerTest {
         when(mockDbConn.executeDeleteQuery(table, selection, selectionArgs)).thenReturn(returnValue);
     }
 
+    /**
+     * The server executes its SELECT queries through the templates in
+     * <code>{@link Queries}</code>. If a template renders the same statement as the
+     * given parameters, it is stubbed to return the same output.
+     */
+    private void stubQueryTemplate(DatabaseConnector mockDbConn, String[] projection, String[] tables,
+                                   String[] tableAlias, String selection, String[] selectionArgs,
+                                   List<Map<String, Object>> outList) {
+        QueryTemplate template = QueryTemplates.find(Queries.class, projection, tables, tableAlias, selection);
+        if (template != null) {
+            when(mockDbConn.executeSelectQuery(template, selectionArgs != null ? selectionArgs : new String[0]))
+                    .thenReturn(outList);
+        }
+    }
+
     // ---------------------------------- END ----------------------------------
 
     /**
@@ -299,6 +330,31 @@ public class RestServerTest {
         assertEquals(1, response.getBody().getArray().getJSONObject(0).getInt("id"));
     }
 
+    @Test
+    public void testGetUserInformationIncludesPendingTokens() {
+        InMemoryDataStore store = InMemoryDataStore.reservationSystem();
+        store.executeInsertQuery(DatabaseConnector.CUSTOMERS,
+                new String[]{"firstName", "lastName", "email", "password", "tokens"},
+                new String[]{"John", "Doe", "email@test.de", "testPassword", "10"});
+        // only flushed on close, so the credit stays pending during the request
+        WriteBehindBuffer writeBehind = new WriteBehindBuffer(store, 100, 1000, 60_000);
+        writeBehind.submit(WriteBehindBuffer.increment(DatabaseConnector.CUSTOMERS, StringNames.tokens, "id", "1", 1));
+        RestServer server = new RestServer(store, new DataValidation(store), restServerTestPort + 1, writeBehind);
+        try {
+            HttpResponse<JsonNode> response = Unirest.get("http://localhost:" + (restServerTestPort + 1) + "/customers")
+                    .queryString(StringNames.email, "email@test.de")
+                    .queryString(StringNames.password, "testPassword")
+                    .asJson();
+
+            assertEquals(200, response.getStatus());
+            assertEquals(11, response.getBody().getArray().getJSONObject(0).getInt(StringNames.tokens));
+        } finally {
+            server.stopServer();
+            // the data validation is shared by all servers
+            restServer.setDbConnectorAndDataValidator(mock(DatabaseConnector.class));
+        }
+    }
+
     // ------------------------------------------------------------------------------------------------------------------------
     // WORKSHOP REQUESTS
 
@@ -322,6 +378,68 @@ public class RestServerTest {
         assertEquals("selectItem", response.getBody().getArray().getJSONObject(0).getString("testSelect"));
     }
 
+    @Test
+    public void testGetWorkshopsNotModified() {
+        DatabaseConnector mockDbConn = createAndAssignMockObjectSelectQuery(new String[]{"*"},
+                new String[]{DatabaseConnector.WORKSHOPS}, null, "id = ?", new String[]{"1"}, true, "testSelect",
+                "selectItem");
+        HttpResponse<JsonNode> response = Unirest.get("/workshops").queryString("workshop_id", "1").asJson();
+        assertEquals(200, response.getStatus());
+        String etag = response.getHeaders().getFirst("ETag");
+        assertFalse(etag.isEmpty());
+
+        HttpResponse<String> revalidated = Unirest.get("/workshops").queryString("workshop_id", "1")
+                .header("If-None-Match", etag).asString();
+        assertEquals(304, revalidated.getStatus());
+        // the second request is answered without querying the database
+        verify(mockDbConn, times(1)).executeSelectQuery(Queries.WORKSHOP_BY_ID, "1");
+    }
+
+    @Test
+    public void testGetWorkshopsWithFields() {
+        DatabaseConnector mockDbConn = createAndAssignMockObjectSelectQuery(new String[]{"*"},
+                new String[]{DatabaseConnector.WORKSHOPS}, null, "id = ?", new String[]{"1"}, true, "testSelect",
+                "selectItem");
+        when(mockDbConn.executeSelectQuery(
+                argThat((QueryTemplate template) -> template.getSql().equals("SELECT id, name FROM workshops WHERE id = ?")),
+                eq("1"))).thenReturn(List.of(Map.of("id", 1, "name", "CarCare Center")));
+
+        HttpResponse<JsonNode> response = Unirest.get("/workshops").queryString("workshop_id", "1")
+                .queryString(StringNames.fields, "name,id").asJson();
+        assertEquals(200, response.getStatus());
+        assertEquals("CarCare Center", response.getBody().getArray().getJSONObject(0).getString("name"));
+        assertFalse(response.getBody().getArray().getJSONObject(0).has("testSelect"));
+    }
+
+    @Test
+    public void testGetWorkshopsAsBinaryRows() throws IOException {
+        createAndAssignMockObjectSelectQuery(new String[]{"*"}, new String[]{DatabaseConnector.WORKSHOPS}, null,
+                "id = ?", new String[]{"1"}, true, "testSelect", "selectItem");
+        HttpResponse<byte[]> response = Unirest.get("/workshops").queryString("workshop_id", "1")
+                .header("Accept", BinaryRows.MEDIA_TYPE).asBytes();
+        assertEquals(200, response.getStatus());
+        assertEquals(BinaryRows.MEDIA_TYPE, response.getHeaders().getFirst("Content-Type"));
+        assertEquals("selectItem", BinaryRows.decode(response.getBody()).get(0).get("testSelect"));
+    }
+
+    @Test
+    public void testGetWorkshopsWithUnknownField() {
+        HttpResponse<JsonNode> response = Unirest.get("/workshops").queryString(StringNames.fields, "password")
+                .asJson();
+        assertEquals(400, response.getStatus());
+        assertEquals("Unknown field in fields. Allowed fields: id, name, location, contactInfo.",
+                response.getBody().getArray().getString(0));
+    }
+
+    @Test
+    public void testGetWorkshopsWithEmptyFieldList() {
+        for (String fields : new String[]{",", ",,", " , "}) {
+            HttpResponse<JsonNode> response = Unirest.get("/workshops").queryString(StringNames.fields, fields)
+                    .asJson();
+            assertEquals(400, response.getStatus(), fields);
+        }
+    }
+
     @Test
     public void testGetWorkshopsWithInvalidId() {
         createAndAssignMockObjectSelectQuery(new String[]{"*"}, new String[]{DatabaseConnector.WORKSHOPS}, null,
@@ -546,6 +664,29 @@ public class RestServerTest {
                 response.getBody().getArray().getString(0));
     }
 
+    @Test
+    public void testGetSecurityQuestionsNotModifiedByTokenChanges() {
+        createAndAssignMockObjectSelectQuery(
+                new String[]{"DISTINCT security_question_id, security_question"},
+                new String[]{DatabaseConnector.CUSTOMERS},
+                null,
+                null,
+                null,
+                false,
+                null,
+                null
+        );
+        String etag = Unirest.get("/security-questions").asString().getHeaders().getFirst("ETag");
+
+        // e.g. a credit of tokens
+        TableVersions.bump(DatabaseConnector.CUSTOMERS);
+        assertEquals(304, Unirest.get("/security-questions").header("If-None-Match", etag).asString().getStatus());
+
+        // e.g. a new customer
+        TableVersions.bump(RestServer.SECURITY_QUESTIONS_VERSION);
+        assertEquals(404, Unirest.get("/security-questions").header("If-None-Match", etag).asString().getStatus());
+    }
+
     // TECHNICIAN REQUESTS
     @Test
     public void testGetTechniciansForWorkshop() {
@@ -804,6 +945,23 @@ public class RestServerTest {
                 response.getBody().getArray().getString(0));
     }
 
+    @Test
+    public void testCreateAppointmentWithInvalidPaymentMethod() {
+        String auth = "Basic " + Base64.getEncoder().encodeToString("test@test.com:password".getBytes());
+        HttpResponse<JsonNode> response = Unirest.post("/appointment/create")
+                .queryString(StringNames.customer_id, 1)
+                .queryString(StringNames.workshop_id, 1)
+                .queryString(StringNames.service_id, 1)
+                .queryString(StringNames.scheduledTime, "2099-01-15 10:00")
+                .queryString(StringNames.paymentMethod, "Bitcoin")
+                .header(StringNames.authorization, auth)
+                .asJson();
+
+        assertEquals(400, response.getStatus());
+        assertEquals("Payment method must be either Cash, Credit/Debit Card, PayPal or ApplePay",
+                response.getBody().getArray().getString(0));
+    }
+
     // APPOINTMENT REQUESTS - Get appointments for customer
     @Test
     public void testGetAppointmentsForCustomer() {
@@ -882,4 +1040,139 @@ public class RestServerTest {
 
         assertEquals(500, response.getStatus());
     }
-}
\ No newline at end of file
+
+    // TOKEN REQUESTS
+    @Test
+    public void testRedeemTokensWithSufficientBalance() {
+        DatabaseConnector mockDbConn = createAndAssignMockObjectSelectQuery(
+                new String[]{"*"},
+                new String[]{DatabaseConnector.CUSTOMERS},
+                null,
+                "id = ? and email = ? and password = ?",
+                new String[]{"1", "test@test.com", "password"},
+                true,
+                "id",
+                1
+        );
+        when(mockDbConn.executeCountedUpdateQuery(DatabaseConnector.CUSTOMERS,
+                new String[]{"tokens = tokens - ?"}, new String[]{"2"},
+                "id = ? and tokens >= ?", new String[]{"1", "2"})).thenReturn(1);
+        // the deduction and its ledger entry are written in one transaction
+        when(mockDbConn.executeTransaction(any())).thenAnswer(invocation ->
+                invocation.<BooleanSupplier>getArgument(0).getAsBoolean());
+        when(mockDbConn.executeInsertQuery(eq(DatabaseConnector.TOKEN_LEDGER), any(), any())).thenReturn(true);
+
+        String auth = "Basic " + Base64.getEncoder().encodeToString("test@test.com:password".getBytes());
+        HttpResponse<JsonNode> response = Unirest.put("/tokens/redeem")
+                .queryString(StringNames.customer_id, 1)
+                .queryString(StringNames.tokens, 2)
+                .header(StringNames.authorization, auth)
+                .asJson();
+
+        assertEquals(200, response.getStatus());
+        assertEquals("Tokens redeemed successfully", response.getBody().getArray().getString(0));
+    }
+
+    @Test
+    public void testRedeemTokensWithInsufficientBalance() {
+        DatabaseConnector mockDbConn = createAndAssignMockObjectSelectQuery(
+                new String[]{"*"},
+                new String[]{DatabaseConnector.CUSTOMERS},
+                null,
+                "id = ? and email = ? and password = ?",
+                new String[]{"1", "test@test.com", "password"},
+                true,
+                "id",
+                1
+        );
+        // the conditional update matches no row, the balance itself is readable
+        addMockSelectQuery(mockDbConn,
+                new String[]{"tokens"},
+                new String[]{DatabaseConnector.CUSTOMERS},
+                null,
+                "id = ?",
+                new String[]{"1"},
+                new String[]{"tokens"},
+                new Object[]{1}
+        );
+
+        String auth = "Basic " + Base64.getEncoder().encodeToString("test@test.com:password".getBytes());
+        HttpResponse<JsonNode> response = Unirest.put("/tokens/redeem")
+                .queryString(StringNames.customer_id, 1)
+                .queryString(StringNames.tokens, 5)
+                .header(StringNames.authorization, auth)
+                .asJson();
+
+        assertEquals(400, response.getStatus());
+        assertEquals("Not enough tokens available", response.getBody().getArray().getString(0));
+    }
+
+    // EXPORT REQUESTS
+    @Test
+    public void testExportAppointmentsStreamsRows() {
+        DatabaseConnector mockDbConn = createAndAssignMockObjectSelectQuery(
+                new String[]{"*"},
+                new String[]{DatabaseConnector.CUSTOMERS},
+                null,
+                "id = ? and email = ? and password = ?",
+                new String[]{"1", "test@test.com", "password"},
+                true,
+                "id",
+                1
+        );
+        when(mockDbConn.streamSelectQuery(eq(Queries.APPOINTMENTS_OF_CUSTOMER), any(), eq("1"))).thenAnswer(invocation -> {
+            DatabaseConnector.RowHandler handler = invocation.getArgument(1);
+            handler.handle(Map.of("id", 7, "paymentMethod", "Cash"));
+            handler.handle(Map.of("id", 8, "paymentMethod", "PayPal"));
+            return true;
+        });
+
+        String auth = "Basic " + Base64.getEncoder().encodeToString("test@test.com:password".getBytes());
+        HttpResponse<JsonNode> response = Unirest.get("/customer/appointments/export")
+                .queryString(StringNames.customer_id, 1)
+                .header(StringNames.authorization, auth)
+                .asJson();
+
+        assertEquals(200, response.getStatus());
+        assertEquals(2, response.getBody().getArray().length());
+        assertEquals("PayPal", response.getBody().getArray().getJSONObject(1).getString("paymentMethod"));
+    }
+
+    @Test
+    public void testExportAppointmentsFailureAbortsResponse() {
+        DatabaseConnector mockDbConn = createAndAssignMockObjectSelectQuery(
+                new String[]{"*"},
+                new String[]{DatabaseConnector.CUSTOMERS},
+                null,
+                "id = ? and email = ? and password = ?",
+                new String[]{"1", "test@test.com", "password"},
+                true,
+                "id",
+                1
+        );
+        // the cursor fails after the first row
+        when(mockDbConn.streamSelectQuery(eq(Queries.APPOINTMENTS_OF_CUSTOMER), any(), eq("1"))).thenAnswer(invocation -> {
+            DatabaseConnector.RowHandler handler = invocation.getArgument(1);
+            handler.handle(Map.of("id", 7, "paymentMethod", "Cash"));
+            return false;
+        });
+
+        String auth = "Basic " + Base64.getEncoder().encodeToString("test@test.com:password".getBytes());
+        // the connection is closed instead of sending a truncated but well-formed array
+        assertThrows(UnirestException.class, () -> Unirest.get("/customer/appointments/export")
+                .queryString(StringNames.customer_id, 1)
+                .header(StringNames.authorization, auth)
+                .asJson());
+    }
+
+    @Test
+    public void testExportAppointmentsUnauthorized() {
+        String auth = "Basic " + Base64.getEncoder().encodeToString("test@test.com:wrong".getBytes());
+        HttpResponse<JsonNode> response = Unirest.get("/customer/appointments/export")
+                .queryString(StringNames.customer_id, 1)
+                .header(StringNames.authorization, auth)
+                .asJson();
+
+        assertEquals(401, response.getStatus());
+    }
+}
@@ -0,0 +1,82 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryRowsTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 300);
+        row.put("price", new BigDecimal("49.99"));
+        row.put("scheduledTime", new Timestamp(1_700_000_040_000L));
+        row.put("createdAt", new Timestamp(1_700_000_041_234L));
+        row.put("description", null);
+        row.put("name", "Oil Change");
+
+        List<Map<String, Object>> rows = BinaryRows.decode(BinaryRows.encode(List.of(row, Map.of("id", 1))));
+
+        assertEquals(2, rows.size());
+        assertEquals(row, rows.get(0));
+        assertEquals(List.of("id", "price", "scheduledTime", "createdAt", "description", "name"),
+                Arrays.asList(rows.get(0).keySet().toArray()));
+        assertEquals(Map.of("id", 1), rows.get(1));
+    }
+
+    @Test
+    public void testTimestampsAreWallClock() throws IOException {
+        TimeZone defaultZone = TimeZone.getDefault();
+        byte[] encoded;
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("scheduledTime", Timestamp.valueOf("2025-02-15 15:00:00"));
+            row.put("createdAt", Timestamp.valueOf("2025-02-15 09:30:12.345"));
+            encoded = BinaryRows.encode(List.of(row));
+            assertEquals(row, BinaryRows.decode(encoded).get(0));
+
+            // decoded by a client in another time zone
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+            Map<String, Object> decoded = BinaryRows.decode(encoded).get(0);
+            assertEquals(LocalDateTime.of(2025, 2, 15, 15, 0),
+                    ((Timestamp) decoded.get("scheduledTime")).toLocalDateTime());
+            assertEquals(LocalDateTime.of(2025, 2, 15, 9, 30, 12, 345_000_000),
+                    ((Timestamp) decoded.get("createdAt")).toLocalDateTime());
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+
+    @Test
+    public void testIdsAreVarints() {
+        // magic, columns block with "id", row block, end
+        assertEquals(3 + 1 + 1 + 3 + 1 + 2 + 1, BinaryRows.encode(List.of(Map.of("id", 42))).length);
+    }
+
+    @Test
+    public void testInvalidInput() {
+        assertThrows(IOException.class, () -> BinaryRows.decode("[{}]".getBytes()));
+        assertThrows(IOException.class, () -> BinaryRows.decode(new byte[]{'R', 'W', 1, 1}));
+    }
+
+    @Test
+    public void testIsAccepted() {
+        assertTrue(BinaryRows.isAccepted("application/json, " + BinaryRows.MEDIA_TYPE + ";q=0.9"));
+        assertFalse(BinaryRows.isAccepted(BinaryRows.MEDIA_TYPE + ";q=0"));
+        assertFalse(BinaryRows.isAccepted("application/json"));
+        assertFalse(BinaryRows.isAccepted(null));
+    }
+
+}
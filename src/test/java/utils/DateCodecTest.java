@@ -0,0 +1,91 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DateCodecTest {
+
+    @Test
+    public void testParseEpochMinutes() {
+        assertEquals(0, DateCodec.parseEpochMinutes("1970-01-01 00:00"));
+        assertEquals(LocalDateTime.of(2024, 2, 29, 10, 30).toEpochSecond(ZoneOffset.UTC) / 60,
+                DateCodec.parseEpochMinutes("2024-02-29 10:30"));
+        // seconds, e.g. of Timestamp.toString(), are ignored
+        assertEquals(DateCodec.parseEpochMinutes("2024-02-29 10:30"),
+                DateCodec.parseEpochMinutes("2024-02-29 10:30:00.0"));
+    }
+
+    @Test
+    public void testParseIsoEpochMinutes() {
+        assertEquals(DateCodec.parseEpochMinutes("2024-02-29 10:30"),
+                DateCodec.parseIsoEpochMinutes("2024-02-29T10:30:00"));
+        assertEquals(DateCodec.parseEpochMinutes("2024-02-29 10:30"),
+                DateCodec.parseIsoEpochMinutes("2024-02-29T10:30:59.5"));
+        assertEquals(DateCodec.INVALID, DateCodec.parseIsoEpochMinutes("2024-02-29 10:30:00"));
+        assertEquals(DateCodec.INVALID, DateCodec.parseIsoEpochMinutes("Feb 29, 2024, 10:30:00 AM"));
+    }
+
+    @Test
+    public void testParseEpochMinutesInvalid() {
+        assertEquals(DateCodec.INVALID, DateCodec.parseEpochMinutes(null));
+        assertEquals(DateCodec.INVALID, DateCodec.parseEpochMinutes(""));
+        assertEquals(DateCodec.INVALID, DateCodec.parseEpochMinutes("2025-02-29 10:30"));
+        assertEquals(DateCodec.INVALID, DateCodec.parseEpochMinutes("2025-13-01 10:30"));
+        assertEquals(DateCodec.INVALID, DateCodec.parseEpochMinutes("2025-01-01 24:00"));
+        assertEquals(DateCodec.INVALID, DateCodec.parseEpochMinutes("2025-01-01T10:30"));
+        assertEquals(DateCodec.INVALID, DateCodec.parseEpochMinutes("2025-01-01 10:3a"));
+        assertEquals(DateCodec.INVALID, DateCodec.parseEpochMinutes("2025-01-01 10:30x"));
+        assertThrows(ParseException.class, () -> DateCodec.parse("15.01.2025 10:00"));
+    }
+
+    @Test
+    public void testRoundTrip() throws ParseException {
+        assertEquals("2025-01-15 10:00", DateCodec.formatEpochMinutes(DateCodec.parseEpochMinutes("2025-01-15 10:00")));
+        assertEquals("1969-12-31 23:59", DateCodec.formatEpochMinutes(-1));
+        assertEquals(new SimpleDateFormat("yyyy-MM-dd HH:mm").parse("2025-01-15 10:00"), DateCodec.parse("2025-01-15 10:00"));
+        assertEquals("2025-01-15 10:00", DateCodec.format(DateCodec.parse("2025-01-15 10:00")));
+        assertEquals(DateCodec.parseEpochMinutes("2025-01-15 10:00"),
+                DateCodec.toEpochMinutes((Object) Timestamp.valueOf("2025-01-15 10:00:00")));
+    }
+
+    @Test
+    public void testConcurrentUse() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int offset = thread;
+                results.add(executor.submit(() -> {
+                    int errors = 0;
+                    for (int i = 0; i < 20_000; i++) {
+                        long minutes = DateCodec.parseEpochMinutes("2025-01-01 00:00") + (long) (i * 8 + offset) * 7;
+                        String text = DateCodec.formatEpochMinutes(minutes);
+                        if (DateCodec.parseEpochMinutes(text) != minutes
+                                || !DateCodec.format(DateCodec.parse(text)).equals(text)) {
+                            errors++;
+                        }
+                    }
+                    return errors;
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(0, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimestampAdapterTest {
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(Timestamp.class, new TimestampAdapter())
+            .create();
+
+    @Test
+    public void testWrite() {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 1);
+        row.put("scheduledTime", Timestamp.valueOf("2025-01-15 10:00:00"));
+        row.put("createdAt", Timestamp.valueOf("2025-01-10 08:05:30.25"));
+        assertEquals("{\"id\":1,\"scheduledTime\":\"2025-01-15T10:00:00\","
+                + "\"createdAt\":\"2025-01-10T08:05:30.25\"}", gson.toJson(row));
+    }
+
+    @Test
+    public void testRead() {
+        assertEquals(Timestamp.valueOf("2025-01-15 10:00:00"), gson.fromJson("\"2025-01-15T10:00:00\"", Timestamp.class));
+        assertEquals(Timestamp.valueOf("2025-01-15 10:00:00"), gson.fromJson("\"2025-01-15T10:00\"", Timestamp.class));
+        assertEquals(new Timestamp(1_700_000_040_000L), gson.fromJson("1700000040000", Timestamp.class));
+        assertNull(gson.fromJson("null", Timestamp.class));
+        assertThrows(JsonSyntaxException.class, () -> gson.fromJson("\"Jan 15, 2025, 10:00:00 AM\"", Timestamp.class));
+    }
+
+    @Test
+    public void testClientReadsWrittenValue() {
+        Timestamp timestamp = Timestamp.valueOf("2024-02-29 23:59:00");
+        String json = gson.toJson(timestamp);
+        assertEquals(DateCodec.parseEpochMinutes("2024-02-29 23:59"),
+                DateCodec.parseIsoEpochMinutes(gson.fromJson(json, String.class)));
+    }
+
+}
@@ -0,0 +1,42 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ValidatorsTest {
+
+    @Test
+    public void testIsValidEmailAddress() {
+        String[] correctEmails = {"firstname.lastname@gmail.com", "a.b@web.de", "a@web.de", "a+b&c*d_e-f@sub-1.mail.info"};
+        for (String email : correctEmails) {
+            assertTrue(Validators.isValidEmailAddress(email), email);
+        }
+
+        String[] incorrectEmails = {null, "", "@web.de", "a@", "a.@web.de", ".a@web.de", "a..b@web.de", "a@web..de",
+                "a@.web.de", "a@web.de.", "a@b@web.de", "a@web.d", "a@web.abcdefgh", "a@web.d3", "ä@web.de",
+                "a@web.de\n"};
+        for (String email : incorrectEmails) {
+            assertFalse(Validators.isValidEmailAddress(email), String.valueOf(email));
+        }
+    }
+
+    @Test
+    public void testIsValidPhoneNumber() {
+        assertTrue(Validators.isValidPhoneNumber("0123456789"));
+        assertFalse(Validators.isValidPhoneNumber(null));
+        assertFalse(Validators.isValidPhoneNumber("012345678"));
+        assertFalse(Validators.isValidPhoneNumber("012345678a"));
+        assertFalse(Validators.isValidPhoneNumber("012345678\n"));
+        // non-ASCII digits
+        assertFalse(Validators.isValidPhoneNumber("٠١٢٣٤٥٦٧٨٩"));
+    }
+
+    @Test
+    public void testNullInput() {
+        assertFalse(Validators.isAlpha(null));
+        assertFalse(Validators.isValidPassword(null));
+        assertFalse(Validators.isValidVehicleRegistrationNumber(null));
+    }
+
+}